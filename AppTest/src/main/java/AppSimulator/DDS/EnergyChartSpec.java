@@ -0,0 +1,83 @@
+package AppSimulator.DDS;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+
+/**
+ * 能耗趋势图描述（reportType为energy_trend_spec）的解码结果
+ * 包含降采样后的数据点、坐标轴范围/刻度和各项标签，客户端据此自行绘制趋势图
+ * 格式与HomeSimulator的ChartSpecWriter一致：点坐标量化为0~65535并以zigzag varint差值编码
+ */
+public class EnergyChartSpec {
+    private static final int MAGIC = 0x45435331; // "ECS1"
+    private static final int QUANT_MAX = 65535;
+
+    public String title;
+    public String xLabel;
+    public String yLabel;
+    public String seriesName;
+    // 时间刻度的显示格式（SimpleDateFormat模式，如"HH:mm"）
+    public String timePattern;
+    public long xMin;
+    public long xMax;
+    public long xFirstTick;
+    public long xStep;
+    public double yMin;
+    public double yMax;
+    public double yStep;
+    // 数据点：毫秒时间戳与功率
+    public long[] timestamps;
+    public double[] power;
+
+    public static EnergyChartSpec decode(byte[] data) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("不是有效的能耗趋势图描述");
+        }
+        EnergyChartSpec spec = new EnergyChartSpec();
+        spec.title = in.readUTF();
+        spec.xLabel = in.readUTF();
+        spec.yLabel = in.readUTF();
+        spec.seriesName = in.readUTF();
+        spec.timePattern = in.readUTF();
+        spec.xMin = in.readLong();
+        spec.xMax = in.readLong();
+        spec.xFirstTick = in.readLong();
+        spec.xStep = in.readLong();
+        spec.yMin = in.readDouble();
+        spec.yMax = in.readDouble();
+        spec.yStep = in.readDouble();
+
+        int n = readVarint(in);
+        spec.timestamps = new long[n];
+        spec.power = new double[n];
+        double xScale = Math.max(1, spec.xMax - spec.xMin) / (double) QUANT_MAX;
+        double yScale = (spec.yMax - spec.yMin) / QUANT_MAX;
+        int qx = 0;
+        int qy = 0;
+        for (int i = 0; i < n; i++) {
+            qx += unzigzag(readVarint(in));
+            qy += unzigzag(readVarint(in));
+            spec.timestamps[i] = spec.xMin + Math.round(qx * xScale);
+            spec.power[i] = spec.yMin + qy * yScale;
+        }
+        return spec;
+    }
+
+    private static int unzigzag(int v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    private static int readVarint(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("varint格式无效");
+    }
+}
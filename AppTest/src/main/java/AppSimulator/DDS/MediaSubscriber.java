@@ -3,28 +3,42 @@ package AppSimulator.DDS;
 import IDL.AlertMedia;
 import IDL.AlertMediaDataReader;
 import IDL.AlertMediaSeq;
+import MediaTransfer.ChunkedReceiver;
+import MediaTransfer.ContentStore;
+import MediaTransfer.MediaAckPublisher;
+import MediaTransfer.MediaFileWriter;
+import MediaTransfer.ReceivedPayload;
 import com.zrdds.infrastructure.InstanceHandle_t;
 import com.zrdds.infrastructure.LivelinessChangedStatus;
 import com.zrdds.infrastructure.SampleInfo;
 import com.zrdds.infrastructure.SampleInfoSeq;
+import com.zrdds.publication.Publisher;
 import com.zrdds.subscription.DataReader;
 import com.zrdds.subscription.DataReaderListener;
 import com.zrdds.subscription.DataReaderQos;
 import com.zrdds.subscription.Subscriber;
 import com.zrdds.topic.Topic;
 
-import java.util.HashMap;
-import java.util.Map;
-
 /**
  * MobileApp媒体订阅器
  * 用于接收HomeSimulator发送的图片和视频数据
  */
 public class MediaSubscriber {
-    private Map<Integer, MediaReceiver> mediaReceivers = new HashMap<>();
+    private final ChunkedReceiver receiver = new ChunkedReceiver("MediaSubscriber");
+    private final MediaFileWriter fileWriter = new MediaFileWriter("MediaSubscriber");
+    private String topicName;
     private static final String SAVE_PATH = "./received_media/";
 
     public boolean start(Subscriber sub, Topic topic) {
+        topicName = topic.get_name();
+        // 保存收到的图片，发送端对重复的图片只发送引用
+        receiver.setContentStore(new ContentStore());
+        receiver.setCompressionTopic(topicName);
+        // 未收完的较大媒体落盘，App重启后从断点续传
+        receiver.setSpillDirectory(new java.io.File(SAVE_PATH, ".partial"));
+        // 较大的媒体（如视频）直接写入落盘目录，收齐后移动到保存位置，不在内存中缓存
+        receiver.setStreamThreshold(
+                Integer.getInteger("media.streamMinBytes", ChunkedReceiver.DEFAULT_STREAM_MIN_BYTES));
         System.out.println("[MediaSubscriber] 正在启动媒体订阅器...");
         System.out.println("[MediaSubscriber] Topic名称: " + topic.get_name());
 
@@ -57,6 +71,21 @@ public class MediaSubscriber {
         return true;
     }
 
+    /**
+     * 启用分片确认：向发送端回报已收到和缺失的分片，配合发送端的滑动窗口只重传缺口
+     * @param pub DDS发布器
+     * @param ackTopic MediaAck主题
+     * @return 是否启用成功
+     */
+    public boolean enableAcks(Publisher pub, Topic ackTopic) {
+        MediaAckPublisher ackPublisher = new MediaAckPublisher();
+        if (!ackPublisher.start(pub, ackTopic, topicName)) {
+            return false;
+        }
+        receiver.setAckWriter(ackPublisher);
+        return true;
+    }
+
 
     private class MediaListener implements DataReaderListener {
         @Override
@@ -103,144 +132,19 @@ public class MediaSubscriber {
     }
 
     private void processMediaChunk(AlertMedia media) {
-        int alertId = media.alert_id;
-
-        // 如果是新的媒体流，创建新的接收器
-        if (!mediaReceivers.containsKey(alertId)) {
-            mediaReceivers.put(alertId, new MediaReceiver(media.total_size));
-            System.out.printf("[MediaSubscriber] 开始接收媒体流: alertId=%d, deviceId=%s, type=%d, size=%d bytes\n",
-                    alertId, media.deviceId, media.media_type, media.total_size);
-        }
-
-        // 添加数据块
-        MediaReceiver receiver = mediaReceivers.get(alertId);
-
-        // 添加调试信息
-        System.out.println("[调试] 接收到数据块: chunk_seq=" + media.chunk_seq + ", chunk_size=" + media.chunk_size + ", blob长度=" + media.chunk.length());
-
-        // 处理Blob对象的方式 - 先获取byte数组
-        byte[] chunkData = new byte[media.chunk.length()];
-        for (int i = 0; i < media.chunk.length(); i++) {
-            chunkData[i] = media.chunk.get_at(i);
-        }
-
-        // 验证chunkData是否包含实际图片数据的特征
-        boolean hasImageHeader = false;
-        boolean hasNonZeroData = false;
-        if (chunkData.length >= 4) {
-            // JPEG文件头检测: JPEG文件通常以0xFFD8开头
-            if ((chunkData[0] & 0xFF) == 0xFF && (chunkData[1] & 0xFF) == 0xD8) {
-                hasImageHeader = true;
-            }
-        }
-        for (byte b : chunkData) {
-            if (b != 0) {
-                hasNonZeroData = true;
-                break;
-            }
-        }
-        System.out.println("[调试] chunkData数组: 长度=" + chunkData.length + ", 包含非零数据=" + hasNonZeroData + ", 可能包含图片头=" + hasImageHeader);
-
-        boolean isComplete = receiver.addChunk(media.chunk_seq, chunkData);
-
-        // 显示进度
-        double progress = receiver.getProgress();
-        System.out.printf("[MediaSubscriber] 接收进度: alertId=%d, %.1f%% (块 #%d/%d)\n",
-                alertId, progress * 100, media.chunk_seq + 1, receiver.getTotalChunks());
-
-        // 如果接收完成，处理完整媒体
-        if (isComplete) {
-            byte[] completeData = receiver.getData();
-            saveMedia(media, completeData);
-            mediaReceivers.remove(alertId); // 清理资源
-        }
+        // 样本在回调返回后归还，完成线程中只使用这里取出的文件名
+        String fileExtension = media.media_type == 1 ? ".jpg" : ".mp4";
+        String fileName = SAVE_PATH + media.deviceId + "_" + media.alert_id + fileExtension;
+        // 接收完成，在完成线程中保存完整媒体
+        receiver.receive(media.deviceId + "/" + media.alert_id, media.session_id,
+                media.content_hash, media.encoding, media.raw_size, media.total_size, media.chunk_seq,
+                media.chunk_size, media.chunk, payload -> saveMedia(fileName, payload));
     }
 
-    private void saveMedia(AlertMedia media, byte[] data) {
-        try {
-            System.out.println("[调试] 开始保存媒体: 大小=" + data.length + ", deviceId=" + media.deviceId);
-            String fileExtension = media.media_type == 1 ? ".jpg" : ".mp4";
-            String fileName = SAVE_PATH + media.deviceId + "_" + media.alert_id + fileExtension;
-
-            // 确保保存目录存在
-            java.io.File saveDir = new java.io.File(SAVE_PATH);
-            if (!saveDir.exists()) {
-                if (saveDir.mkdirs()) {
-                    System.out.println("[调试] 创建保存目录成功: " + SAVE_PATH);
-                } else {
-                    System.err.println("[调试] 创建保存目录失败: " + SAVE_PATH);
-                }
-            }
-
-            java.io.FileOutputStream fos = new java.io.FileOutputStream(fileName);
-            fos.write(data);
-            fos.close();
-
-            System.out.printf("[MediaSubscriber] 媒体保存成功: %s, size=%d bytes\n",
-                    fileName, data.length);
-        } catch (Exception e) {
-            System.err.println("[MediaSubscriber] 保存媒体文件失败: " + e.getMessage());
-            e.printStackTrace();
-        }
-    }
-
-    // 内部类：管理单个媒体流的数据接收
-    private class MediaReceiver {
-        private byte[] data;
-        private boolean[] receivedChunks;
-        private int receivedBytes = 0;
-        private static final int CHUNK_SIZE = 4096;
-
-        public MediaReceiver(int totalSize) {
-            data = new byte[totalSize];
-            receivedChunks = new boolean[(int) Math.ceil((double) totalSize / CHUNK_SIZE)];
-            System.out.println("[调试] 创建MediaReceiver: totalSize=" + totalSize + ", totalChunks=" + receivedChunks.length);
-        }
-
-        public boolean addChunk(int chunkSeq, byte[] chunkData) {
-            if (chunkSeq >= receivedChunks.length) {
-                System.err.println("[MediaSubscriber] 块序号超出范围: " + chunkSeq);
-                return false;
-            }
-
-            if (!receivedChunks[chunkSeq]) {
-                int offset = chunkSeq * CHUNK_SIZE;
-                int copyLength = Math.min(chunkData.length, data.length - offset);
-
-                // 确保chunkData不为空
-                if (copyLength > 0) {
-                    System.arraycopy(chunkData, 0, data, offset, copyLength);
-                    receivedChunks[chunkSeq] = true;
-                    receivedBytes += copyLength;
-                    System.out.println("[调试] 接收块 #" + chunkSeq + ", 大小=" + copyLength + ", 累计接收=" + receivedBytes);
-                } else {
-                    System.out.println("[调试] 跳过空数据块 #" + chunkSeq);
-                    receivedChunks[chunkSeq] = true; // 仍然标记为已接收，但不增加receivedBytes
-                }
-            }
-
-            // 检查是否所有块都已接收
-            for (boolean received : receivedChunks) {
-                if (!received) {
-                    return false;
-                }
-            }
-            System.out.println("[调试] 所有块接收完成，总大小=" + receivedBytes);
-            return true;
-        }
-
-        public double getProgress() {
-            double progress = (double) receivedBytes / (double) data.length;
-            System.out.println("[调试] 计算进度: receivedBytes=" + receivedBytes + ", data.length=" + data.length + ", progress=" + progress);
-            return progress;
-        }
-
-        public int getTotalChunks() {
-            return receivedChunks.length;
-        }
-        // 添加缺少的getData()方法
-        public byte[] getData() {
-            return data;
-        }
+    /**
+     * 交给后台线程写入文件，不等待磁盘
+     */
+    private void saveMedia(String fileName, ReceivedPayload payload) {
+        fileWriter.save(new java.io.File(fileName), payload, "媒体");
     }
 }
@@ -3,29 +3,39 @@ package AppSimulator.DDS;
 import IDL.ReportMedia;
 import IDL.ReportMediaDataReader;
 import IDL.ReportMediaSeq;
+import MediaTransfer.ChunkedReceiver;
+import MediaTransfer.MediaAckPublisher;
+import MediaTransfer.MediaFileWriter;
+import MediaTransfer.ReceivedPayload;
 import com.zrdds.infrastructure.*;
+import com.zrdds.publication.Publisher;
 import com.zrdds.subscription.DataReader;
 import com.zrdds.subscription.DataReaderListener;
 import com.zrdds.subscription.DataReaderQos;
 import com.zrdds.subscription.Subscriber;
 import com.zrdds.topic.Topic;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * 报告媒体订阅器 - 专门接收能耗趋势图分片（ReportMedia），不影响原警报媒体（AlertMedia）处理
  */
 public class ReportMediaSubscriber {
 
-    // 分片缓存：key=reportId（能耗趋势图唯一标识），value=分片接收器
-    private final Map<String, MediaReceiver> mediaReceivers = new HashMap<>();
+    // 分片重组：以reportId（能耗趋势图唯一标识）区分各个传输
+    private final ChunkedReceiver receiver = new ChunkedReceiver("ReportMediaSubscriber");
+    private final MediaFileWriter fileWriter = new MediaFileWriter("ReportMediaSubscriber");
+    private String topicName;
 
     // 独立保存目录，避免与警报媒体混淆
     private static final String SAVE_PATH = "./received_media/energy_trends/";
 
     // 数据回调监听器（可选，供MobileAppSimulator获取图片数据）
     public interface ReportMediaListener {
+        // 超过写盘阈值的趋势图直接保存为文件，imageData为null
         void onEnergyTrendReceived(String deviceId, String reportId, byte[] imageData);
+
+        // 能耗统计结果（JSON文本）
+        default void onEnergyStatsReceived(String deviceId, String reportId, String statsJson) {
+        }
     }
 
     private ReportMediaListener dataListener;
@@ -38,6 +48,12 @@ public class ReportMediaSubscriber {
      * 启动报告媒体订阅器（独立于原MediaSubscriber）
      */
     public boolean start(Subscriber sub, Topic reportMediaTopic) {
+        topicName = reportMediaTopic.get_name();
+        receiver.setCompressionTopic(topicName);
+        // 未收完的趋势图落盘，较大的趋势图直接写入文件，不在内存中缓存
+        receiver.setSpillDirectory(new java.io.File(SAVE_PATH, ".partial"));
+        receiver.setStreamThreshold(
+                Integer.getInteger("media.streamMinBytes", ChunkedReceiver.DEFAULT_STREAM_MIN_BYTES));
         System.out.println("[ReportMediaSubscriber] 启动能耗趋势图订阅器...");
         System.out.println("[ReportMediaSubscriber] Topic名称: " + reportMediaTopic.get_name());
 
@@ -70,6 +86,21 @@ public class ReportMediaSubscriber {
         return true;
     }
 
+    /**
+     * 启用分片确认：向发送端回报已收到和缺失的分片，配合发送端的滑动窗口只重传缺口
+     * @param pub DDS发布器
+     * @param ackTopic MediaAck主题
+     * @return 是否启用成功
+     */
+    public boolean enableAcks(Publisher pub, Topic ackTopic) {
+        MediaAckPublisher ackPublisher = new MediaAckPublisher();
+        if (!ackPublisher.start(pub, ackTopic, topicName)) {
+            return false;
+        }
+        receiver.setAckWriter(ackPublisher);
+        return true;
+    }
+
     /**
      * 内部监听器 - 处理ReportMedia分片
      */
@@ -142,90 +173,88 @@ public class ReportMediaSubscriber {
     private void processMediaChunk(ReportMedia media) {
         String reportId = media.reportId; // 能耗趋势图唯一ID（替代原alertId）
         String deviceId = media.deviceId;
+        String reportType = media.reportType;
         int chunkSeq = media.chunk_seq;
         int totalSize = media.total_size;
 
-        // 新媒体流：创建接收器
-        if (!mediaReceivers.containsKey(reportId)) {
-            mediaReceivers.put(reportId, new MediaReceiver(totalSize));
-            System.out.printf("[ReportMediaSubscriber] 开始接收趋势图: reportId=%s, 设备ID=%s, 总大小=%dB\n",
-                    reportId, deviceId, totalSize);
-        }
-
-        // 提取分片数据（与原Blob处理逻辑一致）
-        MediaReceiver receiver = mediaReceivers.get(reportId);
-        byte[] chunkData = new byte[media.chunk.length()];
-        for (int i = 0; i < media.chunk.length(); i++) {
-            chunkData[i] = media.chunk.get_at(i);
-        }
-
-        // 添加分片并检查完整性
-        boolean isComplete = receiver.addChunk(chunkSeq, chunkData);
-        double progress = receiver.getProgress();
-        System.out.printf("[ReportMediaSubscriber] 接收进度: reportId=%s, %.1f%% (分片 #%d)\n",
-                reportId, progress * 100, chunkSeq + 1);
+        // 样本在回调返回后归还，完成线程中只使用上面取出的字段
+        receiver.receive(reportId, media.session_id, null, media.encoding, media.raw_size,
+                totalSize, chunkSeq, media.chunk_size, media.chunk,
+                payload -> processPayload(deviceId, reportId, reportType, payload));
+    }
 
-        // 分片完整：保存图片并通知监听器
-        if (isComplete) {
-            byte[] imageData = receiver.getData();
-            saveEnergyTrendImage(deviceId, reportId, imageData);
+    /**
+     * 处理接收完成的ReportMedia（在接收器的完成线程中调用）
+     */
+    private void processPayload(String deviceId, String reportId, String reportType, ReceivedPayload payload) {
+        // 能耗统计为JSON文本，不保存为图片
+        if ("energy_stats".equals(reportType)) {
+            byte[] data = readPayload(payload);
+            payload.discard();
+            if (data == null) {
+                return;
+            }
+            String statsJson = new String(data, java.nio.charset.StandardCharsets.UTF_8);
+            System.out.printf("[ReportMediaSubscriber] 能耗统计: 设备ID=%s, %s\n", deviceId, statsJson);
             if (dataListener != null) {
-                dataListener.onEnergyTrendReceived(deviceId, reportId, imageData); // 回调给MobileApp
+                dataListener.onEnergyStatsReceived(deviceId, reportId, statsJson);
             }
-            mediaReceivers.remove(reportId); // 清理缓存
+            return;
+        }
+
+        // 分片完整：保存图片并通知监听器；图表描述需要解码，直接写盘的趋势图不再读回内存
+        boolean chartSpec = "energy_trend_spec".equals(reportType);
+        byte[] data = payload.isFile() && !chartSpec ? null : readPayload(payload);
+        saveEnergyTrendImage(deviceId, reportId, reportType, payload);
+        if (chartSpec && data != null) {
+            logChartSpec(deviceId, data);
+        }
+        if (dataListener != null) {
+            dataListener.onEnergyTrendReceived(deviceId, reportId, data); // 回调给MobileApp
         }
     }
     /**
-     * 保存能耗趋势图（独立路径，避免覆盖原警报图片）
+     * 保存能耗趋势图（独立路径，避免覆盖原警报图片），扩展名由reportType决定；由后台线程写入文件
      */
-    private void saveEnergyTrendImage(String deviceId, String reportId, byte[] data) {
+    private void saveEnergyTrendImage(String deviceId, String reportId, String reportType, ReceivedPayload payload) {
+        String fileName = SAVE_PATH + deviceId + "_EnergyTrend_" + reportId + fileExtension(reportType);
+        fileWriter.save(new java.io.File(fileName), payload, "趋势图");
+    }
+
+    private byte[] readPayload(ReceivedPayload payload) {
         try {
-            String fileName = SAVE_PATH + deviceId + "_EnergyTrend_" + reportId + ".jpg";
-            java.io.FileOutputStream fos = new java.io.FileOutputStream(fileName);
-            fos.write(data);
-            fos.close();
-            System.out.printf("[ReportMediaSubscriber] 趋势图保存成功: %s (大小=%dB)\n", fileName, data.length);
-        } catch (Exception e) {
-            System.err.println("[ReportMediaSubscriber] 保存趋势图失败: " + e.getMessage());
+            return payload.bytes();
+        } catch (java.io.IOException e) {
+            System.err.println("[ReportMediaSubscriber] 读取已接收的数据失败: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // 趋势图格式：energy_trend为PNG，energy_trend_svg为SVG，energy_trend_spec为二进制图表描述
+    private static String fileExtension(String reportType) {
+        if ("energy_trend_svg".equals(reportType)) {
+            return ".svg";
+        } else if ("energy_trend_spec".equals(reportType)) {
+            return ".ecs";
         }
+        return ".png";
     }
 
     /**
-     * 内部类：分片接收器（复用原MediaReceiver逻辑，未修改）
+     * 解码图表描述并输出摘要（客户端可据此自行绘制趋势图）
      */
-    private class MediaReceiver {
-        private byte[] data;
-        private boolean[] receivedChunks;
-        private int receivedBytes = 0;
-        private static final int CHUNK_SIZE = 4096;
-
-        public MediaReceiver(int totalSize) {
-            data = new byte[totalSize];
-            receivedChunks = new boolean[(int) Math.ceil((double) totalSize / CHUNK_SIZE)];
-        }
-
-        public boolean addChunk(int chunkSeq, byte[] chunkData) {
-            if (chunkSeq >= receivedChunks.length) return false;
-            if (!receivedChunks[chunkSeq]) {
-                int offset = chunkSeq * CHUNK_SIZE;
-                int copyLength = Math.min(chunkData.length, data.length - offset);
-                System.arraycopy(chunkData, 0, data, offset, copyLength);
-                receivedChunks[chunkSeq] = true;
-                receivedBytes += copyLength;
-            }
-            // 检查所有分片是否接收完成
-            for (boolean received : receivedChunks) {
-                if (!received) return false;
+    private void logChartSpec(String deviceId, byte[] data) {
+        try {
+            EnergyChartSpec spec = EnergyChartSpec.decode(data);
+            double peak = Double.NEGATIVE_INFINITY;
+            for (double p : spec.power) {
+                peak = Math.max(peak, p);
             }
-            return true;
-        }
-
-        public double getProgress() {
-            return (double) receivedBytes / data.length;
-        }
-
-        public byte[] getData() {
-            return data;
+            System.out.printf("[ReportMediaSubscriber] 趋势图描述: 设备ID=%s, 标题=%s, %d 个数据点, 功率范围 %.1f~%.1f W, 峰值 %.1f W\n",
+                    deviceId, spec.title, spec.timestamps.length, spec.yMin, spec.yMax,
+                    spec.power.length > 0 ? peak : 0.0);
+        } catch (Exception e) {
+            System.err.println("[ReportMediaSubscriber] 解析趋势图描述失败: " + e.getMessage());
         }
     }
 }
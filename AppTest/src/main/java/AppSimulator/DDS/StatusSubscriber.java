@@ -1,5 +1,8 @@
 package AppSimulator.DDS;
 
+import IDL.DeviceStatus;
+import IDL.DeviceStatusDataReader;
+import IDL.DeviceStatusSeq;
 import IDL.HomeStatus;
 import IDL.HomeStatusDataReader;
 import IDL.HomeStatusSeq;
@@ -19,7 +22,8 @@ import java.time.format.DateTimeFormatter;
 
 public class StatusSubscriber {
 
-    public boolean start(Subscriber sub, Topic homeStatusTopic, Topic vehicleStatusTopic, Topic presenceTopic) {
+    public boolean start(Subscriber sub, Topic homeStatusTopic, Topic deviceStatusTopic,
+                         Topic vehicleStatusTopic, Topic presenceTopic) {
         // 配置QoS
         DataReaderQos drQos = new DataReaderQos();
         sub.get_default_datareader_qos(drQos);
@@ -40,6 +44,24 @@ public class StatusSubscriber {
             return false;
         }
 
+        // 创建DeviceStatus的DataReader（每个设备只需最新状态，加入时收到每个设备的最新值）
+        DataReaderQos deviceQos = new DataReaderQos();
+        sub.get_default_datareader_qos(deviceQos);
+        deviceQos.durability.kind = DurabilityQosPolicyKind.TRANSIENT_LOCAL_DURABILITY_QOS;
+        deviceQos.reliability.kind = ReliabilityQosPolicyKind.RELIABLE_RELIABILITY_QOS;
+        deviceQos.history.kind = HistoryQosPolicyKind.KEEP_LAST_HISTORY_QOS;
+        deviceQos.history.depth = 1;
+        DeviceStatusDataReader deviceStatusReader = (DeviceStatusDataReader) sub.create_datareader(
+                deviceStatusTopic,
+                deviceQos,
+                new DeviceStatusListener(),
+                StatusKind.STATUS_MASK_ALL);
+
+        if (deviceStatusReader == null) {
+            System.out.println("创建 DeviceStatusDataReader 失败");
+            return false;
+        }
+
         // 创建VehicleStatus的DataReader
         VehicleStatusDataReader vehicleStatusReader = (VehicleStatusDataReader) sub.create_datareader(
                 vehicleStatusTopic,
@@ -152,6 +174,70 @@ public class StatusSubscriber {
         @Override public void on_data_arrived(DataReader dr, Object o, SampleInfo si) {}
     }
 
+    // DeviceStatus监听器（单个设备的状态变化）
+    static class DeviceStatusListener implements DataReaderListener {
+        private static final DateTimeFormatter INPUT_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+        private static final DateTimeFormatter OUTPUT_FORMATTER = DateTimeFormatter.ofPattern("yyyy年MM月dd日 HH:mm:ss");
+
+        @Override
+        public void on_data_available(DataReader reader) {
+            DeviceStatusDataReader dr = (DeviceStatusDataReader) reader;
+            DeviceStatusSeq dataSeq = new DeviceStatusSeq();
+            SampleInfoSeq infoSeq = new SampleInfoSeq();
+
+            try {
+                ReturnCode_t rtn = dr.take(dataSeq, infoSeq, -1,
+                        SampleStateKind.ANY_SAMPLE_STATE,
+                        ViewStateKind.ANY_VIEW_STATE,
+                        InstanceStateKind.ANY_INSTANCE_STATE);
+
+                if (rtn != ReturnCode_t.RETCODE_OK) {
+                    System.out.println("读取 DeviceStatus 数据失败，返回码: " + rtn);
+                    return;
+                }
+
+                for (int i = 0; i < dataSeq.length(); i++) {
+                    if (!infoSeq.get_at(i).valid_data) {
+                        continue;
+                    }
+                    DeviceStatus data = dataSeq.get_at(i);
+                    if (data.status == null || !data.status.trim().startsWith("{")) {
+                        continue;
+                    }
+
+                    String formattedTime = "未知时间";
+                    try {
+                        formattedTime = LocalDateTime.parse(data.timeStamp, INPUT_FORMATTER).format(OUTPUT_FORMATTER);
+                    } catch (Exception e) {
+                        System.err.printf("时间戳解析失败: %s%n", e.getMessage());
+                    }
+
+                    try {
+                        JSONObject statusObj = new JSONObject(data.status);
+                        System.out.println("\n===== 接收到设备状态变化 =====");
+                        System.out.printf("设备: ID=%s, 类型=%s, 时间=%s%n", data.deviceId, data.deviceType, formattedTime);
+                        System.out.println("解析后状态: " + statusObj.toString(4));
+                    } catch (JSONException e) {
+                        System.err.printf("设备 %s (类型: %s) JSON解析失败: %s%n",
+                                data.deviceId, data.deviceType, e.getMessage());
+                    }
+                }
+            } catch (Exception e) {
+                System.err.println("处理DeviceStatus数据异常: " + e.getMessage());
+            } finally {
+                dr.return_loan(dataSeq, infoSeq);
+            }
+        }
+
+        @Override public void on_liveliness_changed(DataReader dr, LivelinessChangedStatus s) {}
+        @Override public void on_requested_deadline_missed(DataReader dr, RequestedDeadlineMissedStatus s) {}
+        @Override public void on_requested_incompatible_qos(DataReader dr, RequestedIncompatibleQosStatus s) {}
+        @Override public void on_sample_lost(DataReader dr, SampleLostStatus s) {}
+        @Override public void on_sample_rejected(DataReader dr, SampleRejectedStatus s) {}
+        @Override public void on_subscription_matched(DataReader dr, SubscriptionMatchedStatus s) {}
+        @Override public void on_data_arrived(DataReader dr, Object o, SampleInfo si) {}
+    }
+
     // VehicleStatus监听器
     static class VehicleStatusListener implements DataReaderListener {
         @Override
@@ -46,12 +46,15 @@ public class MobileAppSimulator {
         // 注册IDL类型
         CommandTypeSupport.get_instance().register_type(participant.getDomainParticipant(), "Command");
         HomeStatusTypeSupport.get_instance().register_type(participant.getDomainParticipant(), "HomeStatus");
+        DeviceStatusTypeSupport.get_instance().register_type(participant.getDomainParticipant(), "DeviceStatus");
         VehicleStatusTypeSupport.get_instance().register_type(participant.getDomainParticipant(), "VehicleStatus");
         AlertTypeSupport.get_instance().register_type(participant.getDomainParticipant(), "Alert");
         // 注册AlertMedia类型
         AlertMediaTypeSupport.get_instance().register_type(participant.getDomainParticipant(), "AlertMedia");
         // 注册ReportMedia类型（能耗趋势图专用）
         IDL.ReportMediaTypeSupport.get_instance().register_type(participant.getDomainParticipant(), "ReportMedia");
+        // 注册MediaAck类型（媒体分片确认）
+        MediaAckTypeSupport.get_instance().register_type(participant.getDomainParticipant(), "MediaAck");
         // 添加Presence类型注册
         PresenceTypeSupport.get_instance().register_type(participant.getDomainParticipant(), "Presence");
         // 注册能耗报告和车辆健康报告类型
@@ -63,6 +66,7 @@ public class MobileAppSimulator {
         // 创建Topic
         Topic commandTopic = participant.createTopic("Command", CommandTypeSupport.get_instance());
         Topic homeStatusTopic = participant.createTopic("HomeStatus", HomeStatusTypeSupport.get_instance());
+        Topic deviceStatusTopic = participant.createTopic("DeviceStatus", DeviceStatusTypeSupport.get_instance());
         Topic vehicleStatusTopic = participant.createTopic("VehicleStatus", VehicleStatusTypeSupport.get_instance());
         // 添加Presence Topic
         Topic presenceTopic = participant.createTopic("Presence", PresenceTypeSupport.get_instance());
@@ -72,6 +76,8 @@ public class MobileAppSimulator {
         // 创建ReportMedia Topic（能耗趋势图专用）
         Topic reportMediaTopic = participant.createTopic(
                 "ReportMedia", IDL.ReportMediaTypeSupport.get_instance());
+        // 创建MediaAck Topic（向发送端回报分片接收情况）
+        Topic mediaAckTopic = participant.createTopic("MediaAck", MediaAckTypeSupport.get_instance());
         // 新增：创建能耗报告和车辆健康报告 Topic
         Topic energyReportTopic = participant.createTopic("EnergyReport", EnergyReportTypeSupport.get_instance());
         Topic vehicleHealthTopic = participant.createTopic("VehicleHealthReport", VehicleHealthReportTypeSupport.get_instance());
@@ -83,7 +89,8 @@ public class MobileAppSimulator {
         commandPublisher.start(participant.getPublisher(), commandTopic);
 
         StatusSubscriber statusSubscriber = new StatusSubscriber();
-        statusSubscriber.start(participant.getSubscriber(), homeStatusTopic, vehicleStatusTopic,presenceTopic);
+        statusSubscriber.start(participant.getSubscriber(), homeStatusTopic, deviceStatusTopic,
+                vehicleStatusTopic, presenceTopic);
 
         // 初始化家居报警订阅器
         Topic alertTopic = participant.createTopic("Alert", AlertTypeSupport.get_instance());
@@ -108,12 +115,14 @@ public class MobileAppSimulator {
         mediaSubscriber.start(
                participant.getSubscriber(),
                 alertMediaTopic);
+        mediaSubscriber.enableAcks(participant.getPublisher(), mediaAckTopic);
         // 初始化能耗趋势图订阅器（ReportMediaSubscriber）
         reportMediaSubscriber = new ReportMediaSubscriber();
         reportMediaSubscriber.start(participant.getSubscriber(), reportMediaTopic);
+        reportMediaSubscriber.enableAcks(participant.getPublisher(), mediaAckTopic);
         // 设置监听器，接收图片接收通知
         reportMediaSubscriber.setReportMediaListener((deviceId, reportId, imageData) ->
-                System.out.printf("\n📊 能耗趋势图已接收: 设备ID=%s, 保存路径=./received_media/energy_trends/%s.jpg\n",
+                System.out.printf("\n📊 能耗趋势图已接收: 设备ID=%s, reportId=%s, 保存目录=./received_media/energy_trends/\n",
                         deviceId, reportId));
         // 初始化能耗报告订阅器
         energyReportSubscriber = new EnergyReportSubscriber();
@@ -254,6 +263,7 @@ public class MobileAppSimulator {
         System.out.println(" f. 请求原始能耗数据");
         // 新增：设备静默状态控制
         System.out.println(" g. 设备静默状态控制");
+        System.out.println(" h. 查询能耗统计（分位数/峰值）");
         System.out.print("请输入家居命令> ");
         String input = scanner.nextLine().trim();
 
@@ -273,11 +283,14 @@ public class MobileAppSimulator {
                 displayEnergyReport();
                 break;
             case "e":
-                System.out.print("请输入目标设备ID (如light1/ac1): ");
+                System.out.print("请输入目标设备ID (如light1/ac1/home): ");
                 String deviceId = scanner.nextLine().trim();
+                System.out.print("请输入趋势图格式 (png/svg/spec，默认png): ");
+                String chartFormat = scanner.nextLine().trim();
                 System.out.println("正在请求设备 " + deviceId + " 的能耗趋势图...");
                 // 发送趋势图请求命令
-                sendCommand("home", "get_energy_trend_" + deviceId);
+                sendCommand("home", "get_energy_trend_" + deviceId
+                        + (chartFormat.isEmpty() ? "" : "," + chartFormat));
                 break;
             case "f":
                 System.out.print("请输入目标设备ID (如light1/ac1): ");
@@ -289,6 +302,15 @@ public class MobileAppSimulator {
             case "g":
                 handleDeviceSilentCommand(scanner);
                 break;
+            case "h":
+                System.out.print("请输入设备ID (如light1/ac1/home)，或 type:<设备类型> (如type:light): ");
+                String statsTarget = scanner.nextLine().trim();
+                if (statsTarget.startsWith("type:")) {
+                    sendCommand("home", "get_energy_type_stats_" + statsTarget.substring("type:".length()));
+                } else {
+                    sendCommand("home", "get_energy_stats_" + statsTarget);
+                }
+                break;
             default:
                 System.out.println("无效命令，请重新输入");
         }
@@ -25,6 +25,8 @@ public class CarSimulator {
     private static final String VEHICLE_MEDIA_PATH = "resources/images/";
     private static boolean hasLoad = false;
     private Topic vehicleMediaTopic;
+    // 媒体分片确认主题（VehicleMedia与AlertMedia的接收端共用）
+    private Topic mediaAckTopic;
 
     // DDS Components
     private DdsParticipant ddsParticipant;
@@ -178,6 +180,7 @@ public class CarSimulator {
             } else {
                 System.out.println("[CarSimulator] VehicleMedia主题创建成功");
             }
+            mediaAckTopic = ddsParticipant.createTopic("MediaAck", MediaAckTypeSupport.get_instance());
 
             commandSubscriber = new CommandSubscriber();
             commandSubscriber.setCommandHandler(this::handleCommand);
@@ -243,6 +246,9 @@ public class CarSimulator {
 
             if (started) {
                 System.out.println("[CarSimulator] 车辆媒体发布器初始化成功");
+                if (mediaAckTopic != null) {
+                    mediaPublisher.enableAcks(ddsParticipant.getSubscriber(), mediaAckTopic);
+                }
             } else {
                 System.err.println("[CarSimulator] 车辆媒体发布器初始化失败");
                 mediaPublisher = null;
@@ -326,6 +332,7 @@ public class CarSimulator {
         AIVehicleHealthReportTypeSupport.get_instance().register_type(ddsParticipant.getDomainParticipant(), "AIVehicleHealthReport");
         // 新增：注册AlertMedia类型
         AlertMediaTypeSupport.get_instance().register_type(ddsParticipant.getDomainParticipant(), "AlertMedia");
+        MediaAckTypeSupport.get_instance().register_type(ddsParticipant.getDomainParticipant(), "MediaAck");
         System.out.println("[CarSimulator] DDS类型注册完成");
     }
     private void handleCommand(Command command) {
@@ -775,6 +782,7 @@ public class CarSimulator {
     public boolean isAcOn() { return acOn; }
     public float getFuelPercent() { return fuelPercent; }
     public String getLocation() { return location; }
+    public Topic getMediaAckTopic() { return mediaAckTopic; }
 
     public static void main(String[] args) {
         System.out.println("[CarSimulator] 启动车辆模拟器...");
@@ -2,21 +2,37 @@ package CarSimulator.DDS;
 
 import IDL.AlertMedia;
 import IDL.AlertMediaDataWriter;
+import MediaTransfer.ChunkedSender;
+import MediaTransfer.ContentHash;
+import MediaTransfer.MediaAckSubscriber;
+import MediaTransfer.MediaScheduler;
+import MediaTransfer.PayloadCodec;
+import MediaTransfer.TransferStats;
 import com.zrdds.infrastructure.InstanceHandle_t;
 import com.zrdds.infrastructure.ReturnCode_t;
 import com.zrdds.publication.DataWriterQos;
 import com.zrdds.publication.Publisher;
+import com.zrdds.subscription.Subscriber;
 import com.zrdds.topic.Topic;
 
+import java.io.File;
+import java.io.IOException;
+
 /**
  * 车辆媒体发布器
  * 用于向MobileAppSimulator发送图片数据
  */
 public class MediaPublisher {
     private AlertMediaDataWriter writer;
-    private static final int CHUNK_SIZE = 4096; // 每块大小
+    private final ChunkedSender sender = new ChunkedSender("CarSimulator.DDS.MediaPublisher");
+    private String topicName;
 
     public boolean start(Publisher pub, Topic topic) {
+        topicName = topic.get_name();
+        // 图片多为JPEG，试压无收益时按原样发送；LZ4的试压开销很小
+        sender.setCompression(PayloadCodec.forTopic(topicName, PayloadCodec.LZ4), topicName);
+        // 报警图片优先于报表，多个报警之间逐块交替
+        sender.setScheduler(MediaScheduler.shared(), MediaScheduler.Priority.ALERT);
         // 配置QoS
         DataWriterQos dwQos = new DataWriterQos();
         pub.get_default_datawriter_qos(dwQos);
@@ -40,6 +56,18 @@ public class MediaPublisher {
         return true;
     }
 
+    /**
+     * 启用滑动窗口发送：接收端通过MediaAck主题回报缺失的分片，发送端只重传缺口，
+     * 未确认的分片数不超过窗口大小（小于history.depth，避免历史缓存被覆盖）
+     * @param sub DDS订阅器
+     * @param ackTopic MediaAck主题
+     * @return 是否启用成功
+     */
+    public boolean enableAcks(Subscriber sub, Topic ackTopic) {
+        sender.enableAcks(ChunkedSender.DEFAULT_WINDOW);
+        return new MediaAckSubscriber().start(sub, ackTopic, topicName, sender);
+    }
+
     /**
      * 发送图片文件
      * @param deviceId 设备ID
@@ -59,59 +87,76 @@ public class MediaPublisher {
             return false;
         }
 
-        int totalSize = fileData.length;
-        int totalChunks = (int) Math.ceil((double) totalSize / CHUNK_SIZE);
-        // 生成唯一报警ID
+        AlertMedia media = newSample(deviceId, deviceType, mediaType, fileData.length, alertId);
+        media.content_hash = ContentHash.of(fileData);
+        TransferStats stats = sender.send(deviceId + "/" + alertId, media.content_hash, fileData, media.chunk,
+                headerWriter(media), chunkWriter(media));
+        return stats.isComplete();
+    }
+
+    /**
+     * 直接从文件分片发送图片（不整体读入内存；接收端已有相同内容时只发送引用）
+     * @param file 图片文件
+     * @return 发送是否成功
+     */
+    public boolean publishMedia(String deviceId, String deviceType, int mediaType, File file, int alertId) {
+        if (writer == null) {
+            System.err.println("[CarSimulator.DDS.MediaPublisher] Media DataWriter 尚未初始化");
+            return false;
+        }
+
+        if (!file.isFile() || file.length() == 0) {
+            System.err.println("[CarSimulator.DDS.MediaPublisher] 媒体文件不存在或为空: " + file);
+            return false;
+        }
 
+        try {
+            AlertMedia media = newSample(deviceId, deviceType, mediaType, (int) file.length(), alertId);
+            media.content_hash = ContentHash.of(file);
+            TransferStats stats = sender.send(deviceId + "/" + alertId, media.content_hash, file, media.chunk,
+                    headerWriter(media), chunkWriter(media));
+            return stats.isComplete();
+        } catch (IOException e) {
+            System.err.println("[CarSimulator.DDS.MediaPublisher] 读取媒体文件失败: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private AlertMedia newSample(String deviceId, String deviceType, int mediaType, int totalSize, int alertId) {
         System.out.printf("[CarSimulator.DDS.MediaPublisher] 开始发送媒体: deviceId=%s, deviceType=%s, type=%d, size=%d bytes, chunks=%d\n",
-                deviceId, deviceType, mediaType, totalSize, totalChunks);
-
-        // 分块发送
-        for (int chunkSeq = 0; chunkSeq < totalChunks; chunkSeq++) {
-            AlertMedia media = new AlertMedia();
-            media.deviceId = deviceId;
-            media.deviceType = deviceType;
-            media.alert_id = alertId;
-            media.media_type = mediaType;
-            media.total_size = totalSize;
-            media.chunk_seq = chunkSeq;
+                deviceId, deviceType, mediaType, totalSize, sender.chunkCount(totalSize));
 
-            // 计算当前块的大小
-            int currentChunkSize = Math.min(CHUNK_SIZE, totalSize - chunkSeq * CHUNK_SIZE);
-            media.chunk_size = currentChunkSize;
-
-            // 设置块数据
-            byte[] chunkData = new byte[currentChunkSize];
-            System.arraycopy(fileData, chunkSeq * CHUNK_SIZE, chunkData, 0, currentChunkSize);
-
-            // 创建和填充Blob对象
-            media.chunk = new IDL.Blob();
-            try {
-                // 使用ensure_length预分配空间，然后用set_at逐个填充字节
-                media.chunk.ensure_length(currentChunkSize, currentChunkSize);
-                for (int i = 0; i < currentChunkSize; i++) {
-                    media.chunk.set_at(i, chunkData[i]);
-                }
-            } catch (Exception e) {
-                System.err.println("[CarSimulator.DDS.MediaPublisher] 创建Blob对象时出错: " + e.getMessage());
-                return false;
-            }
+        AlertMedia media = new AlertMedia();
+        media.deviceId = deviceId;
+        media.deviceType = deviceType;
+        media.alert_id = alertId;
+        media.media_type = mediaType;
+        media.total_size = totalSize;
+        media.raw_size = totalSize;
+        return media;
+    }
+
+    private static ChunkedSender.HeaderWriter headerWriter(AlertMedia media) {
+        return (sessionId, encoding, totalSize, rawSize) -> {
+            media.session_id = sessionId;
+            media.encoding = encoding;
+            media.total_size = totalSize;
+            media.raw_size = rawSize;
+        };
+    }
 
-            // 发送数据
+    private ChunkedSender.ChunkWriter chunkWriter(AlertMedia media) {
+        return (chunkSeq, chunkSize) -> {
+            media.chunk_seq = chunkSeq;
+            media.chunk_size = chunkSize;
             ReturnCode_t rtn = writer.write(media, InstanceHandle_t.HANDLE_NIL_NATIVE);
-            if (rtn == ReturnCode_t.RETCODE_OK) {
-                // 增强块发送成功的日志，包含alertId
-                System.out.printf("[CarSimulator.DDS.MediaPublisher] ✅  已发送块: #%d/%d, size=%d bytes, alertId: %d\n",
-                        chunkSeq + 1, totalChunks, currentChunkSize, alertId);
-            } else {
+            if (rtn != ReturnCode_t.RETCODE_OK) {
                 // 增强块发送失败的日志，包含alertId
                 System.err.printf("[CarSimulator.DDS.MediaPublisher] ❌  发送块 #%d 失败, 返回码: %s, alertId: %d\n",
-                        chunkSeq, rtn, alertId);
+                        chunkSeq, rtn, media.alert_id);
                 return false;
             }
-        }
-
-        System.out.println("[CarSimulator.DDS.MediaPublisher] 媒体发送完成");
-        return true;
+            return true;
+        };
     }
 }
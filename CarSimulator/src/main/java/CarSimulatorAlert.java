@@ -15,7 +15,6 @@ import java.util.concurrent.TimeUnit;
 import java.util.HashSet;
 import java.util.Set;
 import java.io.File;
-import java.io.FileInputStream;
 
 public class CarSimulatorAlert {
     private static final String ALERT_TOPIC = "Alert";
@@ -124,6 +123,10 @@ public class CarSimulatorAlert {
 
             if (started) {
                 System.out.println("[CarSimulatorAlert] 媒体发布器初始化成功");
+                Topic mediaAckTopic = carSimulator != null ? carSimulator.getMediaAckTopic() : null;
+                if (mediaAckTopic != null) {
+                    mediaPublisher.enableAcks(ddsParticipant.getSubscriber(), mediaAckTopic);
+                }
             } else {
                 System.err.println("[CarSimulatorAlert] 媒体发布器初始化失败");
             }
@@ -255,10 +258,11 @@ public class CarSimulatorAlert {
             String deviceType = "car";
             int mediaType = 1;
 
-            byte[] mediaData = getSampleImageData(CarAlertType.DOOR_UNLOCKED);
-            if (mediaData != null && mediaData.length > 8) {
+            File imageFile = new File(getImagePathForAlertType(CarAlertType.DOOR_UNLOCKED));
+            if (imageFile.isFile() && imageFile.length() > 8) {
+                // 直接按文件发送：文件哈希有缓存，接收端已有这张图片时只发送引用
                 System.out.printf("[CarSimulatorAlert] 定时发送车辆图片 (ID: %d)...\n", imageAlertId);
-                sendMedia(deviceId, deviceType, mediaType, mediaData, imageAlertId);
+                sendMedia(deviceId, deviceType, mediaType, imageFile, imageAlertId);
             } else {
                 System.out.println("[CarSimulatorAlert] 无法获取用于定时发送的图片，跳过本次发送。");
             }
@@ -293,38 +297,13 @@ public class CarSimulatorAlert {
 //    }
 
     // 新增：发送媒体数据的方法
-    private boolean sendMedia(String deviceId, String deviceType, int mediaType, byte[] fileData, int alertId) {
+    private boolean sendMedia(String deviceId, String deviceType, int mediaType, File file, int alertId) {
         if (mediaPublisher != null) {
-            return mediaPublisher.publishMedia(deviceId, deviceType, mediaType, fileData, alertId);
+            return mediaPublisher.publishMedia(deviceId, deviceType, mediaType, file, alertId);
         }
         return false;
     }
 
-    // 新增：获取示例图片数据
-    private byte[] getSampleImageData(CarAlertType alertType) {
-        try {
-            // 根据报警类型获取对应的图片路径
-            String sampleImagePath = getImagePathForAlertType(alertType);
-            File imageFile = new File(sampleImagePath);
-
-            if (imageFile.exists() && imageFile.isFile()) {
-                byte[] data = new byte[(int) imageFile.length()];
-                try (FileInputStream fis = new FileInputStream(imageFile)) {
-                    fis.read(data);
-                }
-                return data;
-            } else {
-                // 如果文件不存在，返回一个默认的图片数据
-                System.out.println("[CarSimulatorAlert] 未找到图片文件: " + sampleImagePath);
-                // 返回一个简单的示例数据（PNG文件头）
-                return new byte[]{(byte) 0x89, (byte) 0x50, (byte) 0x4E, (byte) 0x47, (byte) 0x0D, (byte) 0x0A, (byte) 0x1A, (byte) 0x0A};
-            }
-        } catch (Exception e) {
-            System.err.println("[CarSimulatorAlert] 获取图片数据失败: " + e.getMessage());
-            return new byte[0];
-        }
-    }
-
     // 新增：根据报警类型获取对应的图片路径
     private String getImagePathForAlertType(CarAlertType alertType) {
         // 这里只是一个示例实现，实际应用中应该根据不同的报警类型返回不同的图片路径
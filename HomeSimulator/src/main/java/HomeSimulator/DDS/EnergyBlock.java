@@ -0,0 +1,119 @@
+package HomeSimulator.DDS;
+
+/**
+ * 已封存的压缩能耗数据块（不可变），由EnergyBlockEncoder生成
+ * 解码是流式的：Reader按顺序逐条还原样本，调用方超过查询上界后即可停止
+ */
+final class EnergyBlock {
+    private final long firstTimestamp;
+    private final long lastTimestamp;
+    private final int count;
+    private final byte[] data;
+
+    EnergyBlock(long firstTimestamp, long lastTimestamp, int count, byte[] data) {
+        this.firstTimestamp = firstTimestamp;
+        this.lastTimestamp = lastTimestamp;
+        this.count = count;
+        this.data = data;
+    }
+
+    long firstTimestamp() { return firstTimestamp; }
+    long lastTimestamp() { return lastTimestamp; }
+    int count() { return count; }
+    int sizeInBytes() { return data.length; }
+
+    /**
+     * 创建一个从块首开始的流式解码器
+     */
+    Reader reader() {
+        return new Reader();
+    }
+
+    /**
+     * 与EnergyBlockEncoder对应的解码状态，每次next()还原一个样本
+     */
+    final class Reader {
+        private int index;
+        private long timestamp;
+        private float power;
+        private float daily;
+        private float weekly;
+
+        private long bitPosition;
+        private long prevTimestamp;
+        private long prevDelta;
+        private final int[] prevBits = new int[EnergyBlockEncoder.COLUMNS];
+        private final int[] prevLeading = new int[EnergyBlockEncoder.COLUMNS];
+        private final int[] prevTrailing = new int[EnergyBlockEncoder.COLUMNS];
+
+        /**
+         * 解码下一个样本，块内样本已全部读完时返回false
+         */
+        boolean next() {
+            if (index == count) {
+                return false;
+            }
+            timestamp = nextTimestamp(index);
+            power = nextValue(0);
+            daily = nextValue(1);
+            weekly = nextValue(2);
+            index++;
+            return true;
+        }
+
+        long timestamp() { return timestamp; }
+        float power() { return power; }
+        float daily() { return daily; }
+        float weekly() { return weekly; }
+
+        private long nextTimestamp(int index) {
+            if (index == 0) {
+                prevTimestamp = readBits(64);
+                return prevTimestamp;
+            }
+            long dod;
+            if (readBits(1) == 0) {
+                dod = 0;
+            } else if (readBits(1) == 0) {
+                dod = readBits(7) - 63;
+            } else if (readBits(1) == 0) {
+                dod = readBits(9) - 255;
+            } else if (readBits(1) == 0) {
+                dod = readBits(12) - 2047;
+            } else {
+                dod = readBits(64);
+            }
+            prevDelta += dod;
+            prevTimestamp += prevDelta;
+            return prevTimestamp;
+        }
+
+        private float nextValue(int column) {
+            if (readBits(1) != 0) {
+                if (readBits(1) != 0) {
+                    prevLeading[column] = (int) readBits(5);
+                    int length = (int) readBits(5) + 1;
+                    prevTrailing[column] = 32 - prevLeading[column] - length;
+                }
+                int length = 32 - prevLeading[column] - prevTrailing[column];
+                int xor = (int) readBits(length) << prevTrailing[column];
+                prevBits[column] ^= xor;
+            }
+            return Float.intBitsToFloat(prevBits[column]);
+        }
+
+        private long readBits(int n) {
+            long value = 0;
+            while (n > 0) {
+                int index = (int) (bitPosition >>> 3);
+                int available = 8 - (int) (bitPosition & 7);
+                int take = Math.min(available, n);
+                int bits = ((data[index] & 0xFF) >>> (available - take)) & ((1 << take) - 1);
+                value = (value << take) | bits;
+                bitPosition += take;
+                n -= take;
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package HomeSimulator.DDS;
+
+import java.util.Arrays;
+
+/**
+ * 能耗样本的压缩编码器（Gorilla格式）
+ * 时间戳使用二阶差分（delta-of-delta）编码，固定间隔上报时每个样本只需1位；
+ * 三个float列分别与上一个值做XOR，只保存有效位（前导零/尾随零区间复用上一次的窗口）。
+ * 编码器由单个写者使用，seal()后生成不可变的EnergyBlock。
+ */
+final class EnergyBlockEncoder {
+    static final int COLUMNS = 3;
+
+    private byte[] buffer = new byte[256];
+    private long bitPosition;
+
+    private int count;
+    private long firstTimestamp;
+    private long prevTimestamp;
+    private long prevDelta;
+
+    private final int[] prevBits = new int[COLUMNS];
+    private final int[] prevLeading = new int[COLUMNS];
+    private final int[] prevTrailing = new int[COLUMNS];
+
+    EnergyBlockEncoder() {
+        Arrays.fill(prevLeading, -1);
+    }
+
+    int count() {
+        return count;
+    }
+
+    void append(long timestamp, float power, float daily, float weekly) {
+        if (count == 0) {
+            firstTimestamp = timestamp;
+            writeBits(timestamp, 64);
+        } else {
+            long delta = timestamp - prevTimestamp;
+            writeDeltaOfDelta(delta - prevDelta);
+            prevDelta = delta;
+        }
+        prevTimestamp = timestamp;
+        writeValue(0, power);
+        writeValue(1, daily);
+        writeValue(2, weekly);
+        count++;
+    }
+
+    /**
+     * 生成不可变的压缩块，之后编码器不应再使用
+     */
+    EnergyBlock seal() {
+        byte[] data = Arrays.copyOf(buffer, (int) ((bitPosition + 7) >>> 3));
+        return new EnergyBlock(firstTimestamp, prevTimestamp, count, data);
+    }
+
+    // 二阶差分分段编码：0 | 10+7位 | 110+9位 | 1110+12位 | 1111+64位
+    private void writeDeltaOfDelta(long dod) {
+        if (dod == 0) {
+            writeBits(0, 1);
+        } else if (dod >= -63 && dod <= 64) {
+            writeBits(0b10, 2);
+            writeBits(dod + 63, 7);
+        } else if (dod >= -255 && dod <= 256) {
+            writeBits(0b110, 3);
+            writeBits(dod + 255, 9);
+        } else if (dod >= -2047 && dod <= 2048) {
+            writeBits(0b1110, 4);
+            writeBits(dod + 2047, 12);
+        } else {
+            writeBits(0b1111, 4);
+            writeBits(dod, 64);
+        }
+    }
+
+    // XOR编码：0表示与上一个值相同；10表示沿用上一次的有效位窗口；11表示新窗口（5位前导零+5位长度-1）
+    private void writeValue(int column, float value) {
+        int bits = Float.floatToRawIntBits(value);
+        int xor = bits ^ prevBits[column];
+        prevBits[column] = bits;
+        if (xor == 0) {
+            writeBits(0, 1);
+            return;
+        }
+        writeBits(1, 1);
+        int leading = Integer.numberOfLeadingZeros(xor);
+        int trailing = Integer.numberOfTrailingZeros(xor);
+        if (prevLeading[column] >= 0 && leading >= prevLeading[column] && trailing >= prevTrailing[column]) {
+            writeBits(0, 1);
+            int length = 32 - prevLeading[column] - prevTrailing[column];
+            writeBits((xor >>> prevTrailing[column]) & 0xFFFFFFFFL, length);
+        } else {
+            int length = 32 - leading - trailing;
+            writeBits(1, 1);
+            writeBits(leading, 5);
+            writeBits(length - 1, 5);
+            writeBits((xor >>> trailing) & 0xFFFFFFFFL, length);
+            prevLeading[column] = leading;
+            prevTrailing[column] = trailing;
+        }
+    }
+
+    // 按高位在前的顺序写入value的低n位（n <= 64）
+    private void writeBits(long value, int n) {
+        while (n > 0) {
+            int index = (int) (bitPosition >>> 3);
+            if (index >= buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            int free = 8 - (int) (bitPosition & 7);
+            int take = Math.min(free, n);
+            int bits = (int) ((value >>> (n - take)) & ((1 << take) - 1));
+            buffer[index] |= (byte) (bits << (free - take));
+            bitPosition += take;
+            n -= take;
+        }
+    }
+}
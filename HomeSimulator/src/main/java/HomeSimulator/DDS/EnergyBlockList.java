@@ -0,0 +1,55 @@
+package HomeSimulator.DDS;
+
+/**
+ * 压缩块列表的不可变窗口：blocks[start, end)
+ * 追加时写入窗口之外的下一个槽位后发布新窗口（空间不足时才扩容拷贝），
+ * 过期时只需前移start，两种操作都是O(1)，读者拿到的窗口内容永远不会改变
+ */
+final class EnergyBlockList {
+    // 空窗口的数组长度为0，第一次追加时一定会分配新数组，不会在缓冲区之间共享
+    static final EnergyBlockList EMPTY = new EnergyBlockList(new EnergyBlock[0], 0, 0);
+
+    private final EnergyBlock[] blocks;
+    private final int start;
+    private final int end;
+
+    private EnergyBlockList(EnergyBlock[] blocks, int start, int end) {
+        this.blocks = blocks;
+        this.start = start;
+        this.end = end;
+    }
+
+    int size() {
+        return end - start;
+    }
+
+    EnergyBlock get(int i) {
+        return blocks[start + i];
+    }
+
+    /**
+     * 追加一个块，只能由唯一的写者调用
+     */
+    EnergyBlockList append(EnergyBlock block) {
+        if (end < blocks.length) {
+            // 槽位end不在任何已发布窗口内，可以直接写入
+            blocks[end] = block;
+            return new EnergyBlockList(blocks, start, end + 1);
+        }
+        EnergyBlock[] grown = new EnergyBlock[Math.max(16, size() * 2)];
+        System.arraycopy(blocks, start, grown, 0, size());
+        grown[size()] = block;
+        return new EnergyBlockList(grown, 0, size() + 1);
+    }
+
+    /**
+     * 丢弃最后一个样本早于expireBefore的块，没有可丢弃的块时返回自身
+     */
+    EnergyBlockList expire(long expireBefore) {
+        int newStart = start;
+        while (newStart < end && blocks[newStart].lastTimestamp() < expireBefore) {
+            newStart++;
+        }
+        return newStart == start ? this : new EnergyBlockList(blocks, newStart, end);
+    }
+}
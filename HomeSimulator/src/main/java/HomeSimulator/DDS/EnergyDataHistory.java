@@ -1,47 +1,72 @@
 package HomeSimulator.DDS;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 能耗数据历史记录管理器
  * 负责存储和管理所有设备的历史能耗数据，为ReportMedia提供数据源
+ * 每个设备的数据保存在固定容量的列式环形缓冲区中，追加数据不产生对象分配
+ * 同时维护1分钟/15分钟/1小时三级聚合，长时间范围的查询由聚合数据提供
+ * 超出环形缓冲区的原始数据以Gorilla格式压缩保存在内存中，保留30天
+ * 设置系统属性energy.history.dir后启用磁盘持久化，重启时从段文件恢复历史数据
+ * 过期数据由写入路径顺带清理（无独立清理线程），清理过程不加锁，也不会丢失并发写入的数据
+ * 按设备维护可合并的流式统计摘要（功率分位数、极值、高峰时段），无需传输原始数据即可获得统计结果；
+ * 设备类型和全屋的摘要在查询时由当前保留的设备摘要合并，设备缓冲区退役时它的统计一并移除
  */
 public class EnergyDataHistory {
     // 单例实例
     private static volatile EnergyDataHistory instance;
 
-    // 存储每个设备的历史数据点
-    private final Map<String, CopyOnWriteArrayList<EnergyDataPoint>> deviceHistoryData;
+    // 存储每个设备的历史数据（列式环形缓冲区）
+    private final Map<String, EnergySeriesBuffer> deviceHistoryData;
+
+    // 所有设备累计追加的样本数，作为全屋数据的版本号
+    private final AtomicLong appendCount = new AtomicLong();
 
     // 最大数据点数量
     private static final int MAX_DATA_POINTS = 1000;
 
-    // 数据保留时间（分钟），默认为24小时
-    private static final long DATA_RETENTION_MINUTES = 1440;
+    // 聚合层配置：桶宽度与桶数量
+    private static final long MINUTE_MILLIS = 60L * 1000L;
+    private static final int ROLLUP_1M_BUCKETS = 1440;   // 1分钟 × 1440 = 24小时
+    private static final int ROLLUP_15M_BUCKETS = 672;   // 15分钟 × 672 = 7天
+    private static final int ROLLUP_1H_BUCKETS = 720;    // 1小时 × 720 = 30天
+
+    // 数据保留时间（分钟），与最粗聚合层的跨度一致，默认为30天
+    private static final long DATA_RETENTION_MINUTES = 60L * ROLLUP_1H_BUCKETS;
+
+    // 全屋能耗序列使用的设备ID/类型
+    public static final String HOME_SERIES_ID = "home";
+
+    // 持久化目录的系统属性名，未设置时只在内存中保存
+    public static final String STORE_DIR_PROPERTY = "energy.history.dir";
+    // 段文件的时间跨度：1小时
+    private static final long SEGMENT_MILLIS = 60 * MINUTE_MILLIS;
 
-    // 清理过期数据的调度器
-    private final ScheduledExecutorService cleanupScheduler;
+    // 磁盘持久化（未启用时为null）
+    private final EnergyHistoryStore store;
+    // 写入缓冲区时在其锁内调用的持久化回调（store::append，未启用持久化时为null）
+    private final EnergyHistoryStore.RecordSink persist;
+
+    // 过期数据的清理间隔：1小时
+    private static final long MAINTENANCE_INTERVAL_MILLIS = 60 * MINUTE_MILLIS;
+    // 下一次清理的时间，由抢到CAS的写入线程执行
+    private final AtomicLong nextMaintenance = new AtomicLong();
 
     // 私有构造函数
     private EnergyDataHistory() {
         deviceHistoryData = new ConcurrentHashMap<>();
-
-        // 初始化清理调度器，每小时清理一次过期数据
-        cleanupScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
-            Thread thread = new Thread(r, "energy-data-cleanup-thread");
-            thread.setDaemon(true);
-            return thread;
-        });
-        cleanupScheduler.scheduleAtFixedRate(this::cleanupExpiredData,
-                60, 60, TimeUnit.MINUTES);
+        store = openStore();
+        persist = store != null ? store::append : null;
+        nextMaintenance.set(System.currentTimeMillis() + MAINTENANCE_INTERVAL_MILLIS);
     }
 
     // 获取单例实例
@@ -65,114 +90,366 @@ public class EnergyDataHistory {
             return;
         }
 
-        long timestamp = System.currentTimeMillis();
-        EnergyDataPoint dataPoint = new EnergyDataPoint(
-                deviceId, deviceType, currentPower, dailyConsumption, weeklyConsumption, timestamp);
+        // 时间戳在缓冲区的写入锁内读取，同一设备的并发写入在环形缓冲区和段文件中的顺序一致
+        long timestamp = appendSample(deviceId, deviceType, EnergySeriesBuffer.NOW,
+                currentPower, dailyConsumption, weeklyConsumption, persist);
 
-        // 获取或创建设备的历史数据列表
-        CopyOnWriteArrayList<EnergyDataPoint> historyData = deviceHistoryData.computeIfAbsent(
-                deviceId, k -> new CopyOnWriteArrayList<>());
+        // 到达清理时间时，由抢到CAS的写入线程顺带清理，其他线程不等待
+        long due = nextMaintenance.get();
+        if (timestamp >= due && nextMaintenance.compareAndSet(due, timestamp + MAINTENANCE_INTERVAL_MILLIS)) {
+            expireData(timestamp - DATA_RETENTION_MINUTES * MINUTE_MILLIS);
+            logCompressedStats();
+        }
+    }
 
-        // 添加新数据点
-        historyData.add(dataPoint);
+    /**
+     * 追加一个样本（不写入磁盘，用于从段文件回放）
+     */
+    void appendSample(String deviceId, String deviceType, long timestamp,
+                      float currentPower, float dailyConsumption, float weeklyConsumption) {
+        appendSample(deviceId, deviceType, timestamp, currentPower, dailyConsumption, weeklyConsumption, null);
+    }
 
-        // 限制数据点数量
-        if (historyData.size() > MAX_DATA_POINTS) {
-            // 删除最早的数据点
-            historyData.remove(0);
+    /**
+     * 追加一个样本；缓冲区恰好被清理退役时从map中移除它并写入新的缓冲区，保证样本不丢失
+     * @return 实际写入的时间戳
+     */
+    private long appendSample(String deviceId, String deviceType, long timestamp,
+                              float currentPower, float dailyConsumption, float weeklyConsumption,
+                              EnergyHistoryStore.RecordSink persist) {
+        while (true) {
+            EnergySeriesBuffer buffer = bufferFor(deviceId, deviceType);
+            long written = buffer.append(timestamp, deviceType, currentPower, dailyConsumption, weeklyConsumption,
+                    persist);
+            if (written != EnergySeriesBuffer.REJECTED) {
+                appendCount.incrementAndGet();
+                return written;
+            }
+            deviceHistoryData.remove(deviceId, buffer);
         }
     }
 
     /**
-     * 获取指定设备的历史能耗数据
+     * 获取或创建设备的环形缓冲区，写满后自动覆盖最早的数据点
      */
-    public List<EnergyDataPoint> getHistoryData(String deviceId, String timeRange) {
-        if (deviceId == null || !deviceHistoryData.containsKey(deviceId)) {
-            return Collections.emptyList();
-        }
-
-        CopyOnWriteArrayList<EnergyDataPoint> allData = deviceHistoryData.get(deviceId);
-        long currentTime = System.currentTimeMillis();
-        long timeThreshold = 0;
-
-        // 根据时间范围计算时间阈值
-        if (timeRange != null) {
-            if (timeRange.endsWith("h")) {
-                try {
-                    int hours = Integer.parseInt(timeRange.substring(0, timeRange.length() - 1));
-                    timeThreshold = currentTime - (hours * 60L * 60L * 1000L);
-                } catch (NumberFormatException e) {
-                    // 格式无效，返回所有数据
-                }
-            } else if (timeRange.endsWith("d")) {
-                try {
-                    int days = Integer.parseInt(timeRange.substring(0, timeRange.length() - 1));
-                    timeThreshold = currentTime - (days * 24L * 60L * 60L * 1000L);
-                } catch (NumberFormatException e) {
-                    // 格式无效，返回所有数据
-                }
-            }
+    private EnergySeriesBuffer bufferFor(String deviceId, String deviceType) {
+        return deviceHistoryData.computeIfAbsent(
+                deviceId, k -> new EnergySeriesBuffer(k, deviceType, MAX_DATA_POINTS,
+                        DATA_RETENTION_MINUTES * MINUTE_MILLIS,
+                        new EnergyRollupTier(MINUTE_MILLIS, ROLLUP_1M_BUCKETS),
+                        new EnergyRollupTier(15 * MINUTE_MILLIS, ROLLUP_15M_BUCKETS),
+                        new EnergyRollupTier(60 * MINUTE_MILLIS, ROLLUP_1H_BUCKETS)));
+    }
+
+    /**
+     * 根据系统属性打开磁盘持久化，并把已有的段文件回放到内存
+     */
+    private EnergyHistoryStore openStore() {
+        String dir = System.getProperty(STORE_DIR_PROPERTY);
+        if (dir == null || dir.isEmpty()) {
+            return null;
+        }
+        try {
+            EnergyHistoryStore opened = new EnergyHistoryStore(new File(dir), SEGMENT_MILLIS,
+                    DATA_RETENTION_MINUTES * MINUTE_MILLIS);
+            opened.recover(this::appendSample);
+            return opened;
+        } catch (IOException e) {
+            System.err.println("[EnergyDataHistory] 能耗历史持久化启动失败，仅使用内存存储: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 获取指定设备历史数据的一致快照，设备不存在时返回null
+     */
+    public EnergySeriesSnapshot getSnapshot(String deviceId) {
+        if (deviceId == null) {
+            return null;
         }
+        EnergySeriesBuffer buffer = deviceHistoryData.get(deviceId);
+        return buffer != null ? buffer.snapshot() : null;
+    }
+
+    /**
+     * 查询指定设备在[from, to]时间范围内（毫秒时间戳，闭区间）的能耗数据
+     * 通过二分查找定位边界，返回不拷贝数据的视图；设备不存在时返回空视图
+     */
+    public EnergySeriesView query(String deviceId, long from, long to) {
+        if (deviceId == null) {
+            return EnergyRingView.empty();
+        }
+        EnergySeriesBuffer buffer = deviceHistoryData.get(deviceId);
+        return buffer != null ? buffer.query(from, to) : EnergyRingView.empty();
+    }
+
+    /**
+     * 按指定精度（毫秒）查询指定设备在[from, to]时间范围内的能耗数据
+     * 由桶宽度不超过resolution的最粗聚合层提供数据，每个点对应一个时间桶；
+     * resolution小于1分钟时返回原始数据视图
+     */
+    public EnergySeriesView query(String deviceId, long from, long to, long resolution) {
+        if (deviceId == null) {
+            return EnergyRingView.empty();
+        }
+        EnergySeriesBuffer buffer = deviceHistoryData.get(deviceId);
+        return buffer != null ? buffer.query(from, to, resolution) : EnergyRingView.empty();
+    }
+
+    /**
+     * 按时间升序流式访问指定设备在[from, to]时间范围内的全部原始样本（包括已压缩的历史数据）
+     */
+    public void scan(String deviceId, long from, long to, EnergySampleVisitor visitor) {
+        EnergySeriesBuffer buffer = deviceId != null ? deviceHistoryData.get(deviceId) : null;
+        if (buffer != null) {
+            buffer.scan(from, to, visitor);
+        }
+    }
+
+    /**
+     * 获取数据版本号：设备每追加一个样本版本号就会变化，可用于缓存基于历史数据生成的结果
+     * deviceId为home时返回全屋数据的版本号，设备不存在时返回-1
+     */
+    public long getVersion(String deviceId) {
+        if (HOME_SERIES_ID.equals(deviceId)) {
+            return appendCount.get();
+        }
+        EnergySeriesBuffer buffer = deviceId != null ? deviceHistoryData.get(deviceId) : null;
+        return buffer != null ? buffer.version() : -1;
+    }
+
+    /**
+     * 获取指定设备的统计摘要副本，设备不存在时返回null
+     */
+    public EnergyStats getDeviceStats(String deviceId) {
+        EnergySeriesBuffer buffer = deviceId != null ? deviceHistoryData.get(deviceId) : null;
+        return buffer != null ? buffer.stats() : null;
+    }
+
+    /**
+     * 获取指定设备类型的统计摘要（合并该类型当前保留的各设备摘要），该类型没有数据时返回null
+     */
+    public EnergyStats getTypeStats(String deviceType) {
+        return deviceType != null ? mergeStats(deviceType) : null;
+    }
+
+    /**
+     * 获取全屋统计摘要（合并所有有类型的设备摘要），没有数据时返回null
+     */
+    public EnergyStats getHomeStats() {
+        return mergeStats(null);
+    }
 
-        // 过滤时间范围内的数据
-        List<EnergyDataPoint> filteredData = new ArrayList<>();
-        for (EnergyDataPoint point : allData) {
-            if (point.getTimestamp() >= timeThreshold) {
-                filteredData.add(point);
+    /**
+     * 合并指定类型（为null时为所有有类型的设备）的设备摘要，没有匹配的设备时返回null
+     */
+    private EnergyStats mergeStats(String deviceType) {
+        EnergyStats merged = null;
+        for (EnergySeriesBuffer buffer : deviceHistoryData.values()) {
+            String type = buffer.getDeviceType();
+            if (type == null || (deviceType != null && !deviceType.equals(type))) {
+                continue;
+            }
+            if (merged == null) {
+                merged = new EnergyStats();
             }
+            merged.merge(buffer.stats());
         }
+        return merged;
+    }
 
-        return filteredData;
+    /**
+     * 解析时间长度字符串（如"30s"、"15m"、"24h"、"7d"），格式无效时返回-1
+     */
+    public static long parseDurationMillis(String duration) {
+        if (duration == null || duration.length() < 2) {
+            return -1;
+        }
+        long unit;
+        switch (Character.toLowerCase(duration.charAt(duration.length() - 1))) {
+            case 's': unit = 1000L; break;
+            case 'm': unit = MINUTE_MILLIS; break;
+            case 'h': unit = 60L * MINUTE_MILLIS; break;
+            case 'd': unit = 24L * 60L * MINUTE_MILLIS; break;
+            default: return -1;
+        }
+        try {
+            long value = Long.parseLong(duration.substring(0, duration.length() - 1));
+            return value >= 0 ? value * unit : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * 获取指定设备的历史能耗数据
+     */
+    public List<EnergyDataPoint> getHistoryData(String deviceId, String timeRange) {
+        // 根据时间范围计算时间阈值，格式无效时返回所有数据
+        long range = parseDurationMillis(timeRange);
+        long timeThreshold = range >= 0 ? System.currentTimeMillis() - range : 0;
+
+        return toDataPoints(deviceId, timeThreshold, Long.MAX_VALUE);
     }
 
     /**
      * 获取所有设备的历史能耗数据
      */
     public List<EnergyDataPoint> getAllHistoryData() {
+        // 归并输出已经按时间戳有序，无需再排序
         List<EnergyDataPoint> allData = new ArrayList<>();
-        for (CopyOnWriteArrayList<EnergyDataPoint> deviceData : deviceHistoryData.values()) {
-            allData.addAll(deviceData);
-        }
+        iterateAll(0, Long.MAX_VALUE).forEachRemaining(allData::add);
+        return allData;
+    }
 
-        // 按时间戳排序
-        allData.sort((p1, p2) -> Long.compare(p1.getTimestamp(), p2.getTimestamp()));
+    /**
+     * 按时间升序流式遍历所有设备在[from, to]时间范围内的数据（k路归并，不物化全部数据）
+     */
+    public Iterator<EnergyDataPoint> iterateAll(long from, long to) {
+        EnergyMergeCursor cursor = new EnergyMergeCursor(new ArrayList<>(deviceHistoryData.values()), from, to);
+        return new Iterator<EnergyDataPoint>() {
+            private boolean ready;
+            private boolean hasMore = true;
 
-        return allData;
+            @Override
+            public boolean hasNext() {
+                if (!ready && hasMore) {
+                    hasMore = cursor.next();
+                    ready = true;
+                }
+                return hasMore;
+            }
+
+            @Override
+            public EnergyDataPoint next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                ready = false;
+                return new EnergyDataPoint(cursor.deviceId(), cursor.deviceType(),
+                        cursor.power(), cursor.daily(), cursor.weekly(), cursor.timestamp());
+            }
+        };
     }
 
     /**
-     * 清理过期数据
+     * 全屋能耗序列：在归并过程中按bucketMillis分桶，
+     * 每个设备先在桶内取平均功率，再对所有设备求和；日/周能耗为各设备桶内最后值之和。
+     * 返回视图的countAt为该桶内有数据的设备数
      */
-    private void cleanupExpiredData() {
-        long expirationTime = System.currentTimeMillis() - (DATA_RETENTION_MINUTES * 60L * 1000L);
+    public EnergySeriesView getHomePowerSeries(long from, long to, long bucketMillis) {
+        EnergyMergeCursor cursor = new EnergyMergeCursor(new ArrayList<>(deviceHistoryData.values()), from, to);
+        int k = cursor.deviceCount();
+        EnergyRollupView home = new EnergyRollupView(HOME_SERIES_ID, HOME_SERIES_ID, bucketMillis, 0);
+        if (bucketMillis <= 0) {
+            return home;
+        }
+
+        // 每个设备在当前桶内的累计值，touched记录当前桶内出现过的设备
+        double[] sum = new double[k];
+        int[] count = new int[k];
+        float[] lastDaily = new float[k];
+        float[] lastWeekly = new float[k];
+        int[] touched = new int[k];
+        int touchedCount = 0;
+        long bucket = Long.MIN_VALUE;
+
+        while (cursor.next()) {
+            long b = Math.floorDiv(cursor.timestamp(), bucketMillis);
+            if (b != bucket) {
+                // 归并输出有序，进入新桶时上一个桶的数据已经全部到齐
+                flushHomeBucket(home, bucket, bucketMillis, touched, touchedCount, sum, count, lastDaily, lastWeekly);
+                touchedCount = 0;
+                bucket = b;
+            }
+            int i = cursor.deviceIndex();
+            if (count[i] == 0) {
+                touched[touchedCount++] = i;
+            }
+            sum[i] += cursor.power();
+            count[i]++;
+            lastDaily[i] = cursor.daily();
+            lastWeekly[i] = cursor.weekly();
+        }
+        flushHomeBucket(home, bucket, bucketMillis, touched, touchedCount, sum, count, lastDaily, lastWeekly);
+        return home;
+    }
 
-        for (Map.Entry<String, CopyOnWriteArrayList<EnergyDataPoint>> entry : deviceHistoryData.entrySet()) {
-            CopyOnWriteArrayList<EnergyDataPoint> dataPoints = entry.getValue();
+    private static void flushHomeBucket(EnergyRollupView home, long bucket, long bucketMillis,
+                                        int[] touched, int touchedCount, double[] sum, int[] count,
+                                        float[] lastDaily, float[] lastWeekly) {
+        if (touchedCount == 0) {
+            return;
+        }
+        double power = 0;
+        double daily = 0;
+        double weekly = 0;
+        for (int t = 0; t < touchedCount; t++) {
+            int i = touched[t];
+            power += sum[i] / count[i];
+            daily += lastDaily[i];
+            weekly += lastWeekly[i];
+            sum[i] = 0;
+            count[i] = 0;
+        }
+        home.add(bucket * bucketMillis, touchedCount, (float) power, (float) power, (float) power,
+                (float) daily, (float) weekly);
+    }
 
-            // 移除过期数据点
-            dataPoints.removeIf(point -> point.getTimestamp() < expirationTime);
+    /**
+     * 将时间范围内的数据转换为EnergyDataPoint列表
+     */
+    private List<EnergyDataPoint> toDataPoints(String deviceId, long from, long to) {
+        EnergySeriesBuffer buffer = deviceHistoryData.get(deviceId);
+        if (buffer == null) {
+            return new ArrayList<>();
+        }
+        List<EnergyDataPoint> points = new ArrayList<>();
+        String deviceType = buffer.getDeviceType();
+        buffer.scan(from, to, (timestamp, power, daily, weekly) ->
+                points.add(new EnergyDataPoint(deviceId, deviceType, power, daily, weekly, timestamp)));
+        return points;
+    }
 
-            // 如果设备没有数据了，从map中移除
-            if (dataPoints.isEmpty()) {
-                deviceHistoryData.remove(entry.getKey());
+    /**
+     * 清理早于expireBefore的过期数据
+     * 环形缓冲区与聚合层容量固定，旧数据会被新数据覆盖；压缩块整块前移丢弃；
+     * 全部数据都已过期的设备先退役再按(key, value)移除，不会误删刚写入数据的缓冲区
+     */
+    void expireData(long expireBefore) {
+        for (Map.Entry<String, EnergySeriesBuffer> entry : deviceHistoryData.entrySet()) {
+            EnergySeriesBuffer buffer = entry.getValue();
+            if (buffer.tryRetire(expireBefore)) {
+                deviceHistoryData.remove(entry.getKey(), buffer);
+            } else {
+                buffer.expireBlocks(expireBefore);
             }
         }
     }
 
+    /**
+     * 输出压缩块的存储统计
+     */
+    private void logCompressedStats() {
+        long samples = 0;
+        long bytes = 0;
+        for (EnergySeriesBuffer buffer : deviceHistoryData.values()) {
+            long[] stats = buffer.compressedStats();
+            samples += stats[0];
+            bytes += stats[1];
+        }
+        if (samples > 0) {
+            System.out.printf("[EnergyDataHistory] 压缩历史数据: %d 个设备，%d 个样本，%.1f KB，%.2f 字节/样本\n",
+                    deviceHistoryData.size(), samples, bytes / 1024.0, (double) bytes / samples);
+        }
+    }
+
     /**
      * 关闭资源
      */
     public void shutdown() {
-        if (cleanupScheduler != null && !cleanupScheduler.isShutdown()) {
-            cleanupScheduler.shutdown();
-            try {
-                if (!cleanupScheduler.awaitTermination(5, TimeUnit.SECONDS)) {
-                    cleanupScheduler.shutdownNow();
-                }
-            } catch (InterruptedException e) {
-                cleanupScheduler.shutdownNow();
-                Thread.currentThread().interrupt();
-            }
+        if (store != null) {
+            store.close();
         }
     }
 
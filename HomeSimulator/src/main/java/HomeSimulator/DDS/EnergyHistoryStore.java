@@ -0,0 +1,303 @@
+package HomeSimulator.DDS;
+
+import MediaTransfer.ContentHash;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 能耗历史的磁盘持久化（内存映射段文件）
+ * 每个设备一个目录，目录下按时间切分为段文件（文件名为段内第一条记录的时间戳），
+ * 段文件由固定长度的文件头和定长二进制记录组成，通过MappedByteBuffer追加写入，
+ * 启动时重新映射已有的段文件并按顺序回放，无需任何文本解析。
+ *
+ * 段文件格式：
+ *   文件头（128字节）：magic(int) | 已提交记录数(int) | 段起始时间(long) |
+ *                      设备ID长度(short) + UTF-8字节 | 设备类型长度(short) + UTF-8字节
+ *   记录（20字节）：  时间戳(long) | 当前功率(float) | 日能耗(float) | 周能耗(float)
+ * 先写记录再更新文件头中的记录数，进程崩溃时最多丢失尚未提交的那一条记录。
+ */
+final class EnergyHistoryStore {
+    private static final int MAGIC = 0x45485331; // "EHS1"
+    static final int HEADER_SIZE = 128;
+    static final int RECORD_SIZE = 20;
+    private static final int COUNT_OFFSET = 4;
+    private static final int START_OFFSET = 8;
+    private static final int ID_OFFSET = 16;
+    private static final int TYPE_OFFSET = 72;
+    private static final int MAX_NAME_BYTES = 54;
+
+    // 每个段最多容纳的记录数（10秒一次上报时一小时为360条），写满后提前切换到新段
+    private static final int SEGMENT_RECORDS = 512;
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    /**
+     * 回放记录的接收者
+     */
+    interface RecordSink {
+        void accept(String deviceId, String deviceType, long timestamp,
+                    float currentPower, float dailyConsumption, float weeklyConsumption);
+    }
+
+    private final File baseDir;
+    // 段文件的时间跨度（毫秒），超过后切换到新段
+    private final long segmentMillis;
+    // 数据保留时间（毫秒），整段过期后删除
+    private final long retentionMillis;
+
+    private final Map<String, DeviceLog> logs = new ConcurrentHashMap<>();
+
+    EnergyHistoryStore(File baseDir, long segmentMillis, long retentionMillis) throws IOException {
+        if (!baseDir.isDirectory() && !baseDir.mkdirs()) {
+            throw new IOException("无法创建能耗历史目录: " + baseDir);
+        }
+        this.baseDir = baseDir;
+        this.segmentMillis = segmentMillis;
+        this.retentionMillis = retentionMillis;
+    }
+
+    /**
+     * 重新映射所有未过期的段文件，并按时间顺序把记录交给sink
+     */
+    void recover(RecordSink sink) {
+        long startNanos = System.nanoTime();
+        long expireBefore = System.currentTimeMillis() - retentionMillis;
+        int devices = 0;
+        long records = 0;
+        long bytes = 0;
+
+        File[] deviceDirs = baseDir.listFiles(File::isDirectory);
+        if (deviceDirs == null) {
+            return;
+        }
+        for (File deviceDir : deviceDirs) {
+            File[] segments = listSegments(deviceDir);
+            boolean found = false;
+            for (int i = 0; i < segments.length; i++) {
+                File segment = segments[i];
+                // 下一段的起始时间早于保留窗口，说明本段已整体过期
+                if (i + 1 < segments.length && segmentStart(segments[i + 1]) < expireBefore) {
+                    deleteSegment(segment);
+                    continue;
+                }
+                try {
+                    long n = replaySegment(segment, expireBefore, sink);
+                    records += n;
+                    bytes += segment.length();
+                    found |= n > 0;
+                } catch (IOException e) {
+                    System.err.println("[EnergyHistoryStore] 读取段文件失败: " + segment + ", " + e.getMessage());
+                }
+            }
+            if (found) {
+                devices++;
+            }
+        }
+
+        long elapsedMs = (System.nanoTime() - startNanos) / 1_000_000L;
+        System.out.printf("[EnergyHistoryStore] 从 %s 恢复 %d 个设备共 %d 条记录，耗时 %d ms，磁盘占用 %.1f KB（%.1f 字节/样本）\n",
+                baseDir, devices, records, elapsedMs, bytes / 1024.0,
+                records > 0 ? (double) bytes / records : 0.0);
+    }
+
+    private long replaySegment(File segment, long expireBefore, RecordSink sink) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(segment, "r");
+             FileChannel channel = raf.getChannel()) {
+            long size = channel.size();
+            if (size < HEADER_SIZE) {
+                return 0;
+            }
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (map.getInt(0) != MAGIC) {
+                System.err.println("[EnergyHistoryStore] 段文件格式无效: " + segment);
+                return 0;
+            }
+            int count = (int) Math.min(map.getInt(COUNT_OFFSET), (size - HEADER_SIZE) / RECORD_SIZE);
+            String deviceId = readName(map, ID_OFFSET);
+            String deviceType = readName(map, TYPE_OFFSET);
+
+            long replayed = 0;
+            for (int i = 0; i < count; i++) {
+                int pos = HEADER_SIZE + i * RECORD_SIZE;
+                long timestamp = map.getLong(pos);
+                if (timestamp < expireBefore) {
+                    continue;
+                }
+                sink.accept(deviceId, deviceType, timestamp,
+                        map.getFloat(pos + 8), map.getFloat(pos + 12), map.getFloat(pos + 16));
+                replayed++;
+            }
+            return replayed;
+        }
+    }
+
+    /**
+     * 追加一条记录到设备当前的段文件
+     */
+    void append(String deviceId, String deviceType, long timestamp,
+                float currentPower, float dailyConsumption, float weeklyConsumption) {
+        DeviceLog log = logs.computeIfAbsent(deviceId, k -> new DeviceLog(k, new File(baseDir, dirName(k))));
+        try {
+            log.append(deviceType, timestamp, currentPower, dailyConsumption, weeklyConsumption);
+        } catch (IOException e) {
+            System.err.println("[EnergyHistoryStore] 写入设备 " + deviceId + " 的能耗记录失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 封存所有设备的当前段并释放文件句柄
+     */
+    void close() {
+        for (DeviceLog log : logs.values()) {
+            log.close();
+        }
+        logs.clear();
+    }
+
+    /**
+     * 单个设备的段文件写入器，追加由自身加锁串行化
+     */
+    private final class DeviceLog {
+        private final String deviceId;
+        private final File dir;
+
+        private FileChannel channel;
+        private MappedByteBuffer active;
+        private long activeEnd;
+        private int count;
+
+        DeviceLog(String deviceId, File dir) {
+            this.deviceId = deviceId;
+            this.dir = dir;
+        }
+
+        synchronized void append(String deviceType, long timestamp,
+                                 float power, float daily, float weekly) throws IOException {
+            if (active == null || timestamp >= activeEnd || count == SEGMENT_RECORDS) {
+                rotate(deviceType, timestamp);
+            }
+            int pos = HEADER_SIZE + count * RECORD_SIZE;
+            active.putLong(pos, timestamp);
+            active.putFloat(pos + 8, power);
+            active.putFloat(pos + 12, daily);
+            active.putFloat(pos + 16, weekly);
+            // 记录写完后再提交记录数
+            active.putInt(COUNT_OFFSET, ++count);
+        }
+
+        private void rotate(String deviceType, long timestamp) throws IOException {
+            seal();
+            if (!dir.isDirectory() && !dir.mkdirs()) {
+                throw new IOException("无法创建目录: " + dir);
+            }
+            dropExpiredSegments(timestamp - retentionMillis);
+
+            File file = new File(dir, timestamp + SEGMENT_SUFFIX);
+            RandomAccessFile raf = new RandomAccessFile(file, "rw");
+            channel = raf.getChannel();
+            active = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    HEADER_SIZE + (long) SEGMENT_RECORDS * RECORD_SIZE);
+            active.putInt(0, MAGIC);
+            active.putInt(COUNT_OFFSET, 0);
+            active.putLong(START_OFFSET, timestamp);
+            writeName(active, ID_OFFSET, deviceId);
+            writeName(active, TYPE_OFFSET, deviceType);
+            // 段在整点边界结束，使段文件与小时对齐
+            activeEnd = (Math.floorDiv(timestamp, segmentMillis) + 1) * segmentMillis;
+            count = 0;
+        }
+
+        /**
+         * 封存当前段：刷盘并截掉未使用的预分配空间
+         */
+        private void seal() {
+            if (active == null) {
+                return;
+            }
+            try {
+                active.force();
+                active = null;
+                channel.truncate(HEADER_SIZE + (long) count * RECORD_SIZE);
+            } catch (IOException e) {
+                // 部分平台不允许截断仍处于映射状态的文件，保留预分配空间不影响恢复
+            } finally {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                }
+                channel = null;
+            }
+        }
+
+        /**
+         * 删除已整体过期的段（下一段的起始时间早于过期时间）
+         */
+        private void dropExpiredSegments(long expireBefore) {
+            File[] segments = listSegments(dir);
+            for (int i = 0; i + 1 < segments.length; i++) {
+                if (segmentStart(segments[i + 1]) >= expireBefore) {
+                    break;
+                }
+                deleteSegment(segments[i]);
+            }
+        }
+
+        synchronized void close() {
+            seal();
+        }
+    }
+
+    private static File[] listSegments(File dir) {
+        File[] segments = dir.listFiles((d, name) -> name.endsWith(SEGMENT_SUFFIX));
+        if (segments == null) {
+            return new File[0];
+        }
+        Arrays.sort(segments, (a, b) -> Long.compare(segmentStart(a), segmentStart(b)));
+        return segments;
+    }
+
+    private static long segmentStart(File segment) {
+        String name = segment.getName();
+        try {
+            return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private static void deleteSegment(File segment) {
+        if (!segment.delete()) {
+            System.err.println("[EnergyHistoryStore] 删除过期段文件失败: " + segment);
+        }
+    }
+
+    // 设备ID作为目录名时只保留安全字符，再加上原始ID的哈希，替换后相同的ID（如a/b与a_b）不会共用目录；原始ID保存在段文件头中
+    static String dirName(String deviceId) {
+        String hash = ContentHash.of(deviceId.getBytes(StandardCharsets.UTF_8)).substring(0, 8);
+        return deviceId.replaceAll("[^A-Za-z0-9_.-]", "_") + "-" + hash;
+    }
+
+    private static void writeName(MappedByteBuffer map, int offset, String value) {
+        byte[] bytes = value != null ? value.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        int len = Math.min(bytes.length, MAX_NAME_BYTES);
+        map.putShort(offset, (short) len);
+        for (int i = 0; i < len; i++) {
+            map.put(offset + 2 + i, bytes[i]);
+        }
+    }
+
+    private static String readName(MappedByteBuffer map, int offset) {
+        int len = Math.min(map.getShort(offset), MAX_NAME_BYTES);
+        byte[] bytes = new byte[Math.max(0, len)];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = map.get(offset + 2 + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
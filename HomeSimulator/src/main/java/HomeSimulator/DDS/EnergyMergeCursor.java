@@ -0,0 +1,57 @@
+package HomeSimulator.DDS;
+
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * 多设备样本的k路归并游标
+ * 每个设备的样本本身已按时间排序，用小顶堆按当前时间戳归并，整体按时间升序输出，
+ * 每步代价为O(log k)，不需要物化和排序全部数据
+ */
+final class EnergyMergeCursor {
+    private final String[] deviceIds;
+    private final String[] deviceTypes;
+    private final EnergySampleCursor[] cursors;
+    private final PriorityQueue<Integer> heap;
+    // 上一次输出的设备下标，下次前进时再把它的游标推进并放回堆中
+    private int current = -1;
+
+    EnergyMergeCursor(List<EnergySeriesBuffer> buffers, long from, long to) {
+        int k = buffers.size();
+        deviceIds = new String[k];
+        deviceTypes = new String[k];
+        cursors = new EnergySampleCursor[k];
+        heap = new PriorityQueue<>(Math.max(1, k),
+                (a, b) -> Long.compare(cursors[a].timestamp(), cursors[b].timestamp()));
+        for (int i = 0; i < k; i++) {
+            EnergySeriesBuffer buffer = buffers.get(i);
+            deviceIds[i] = buffer.getDeviceId();
+            deviceTypes[i] = buffer.getDeviceType();
+            cursors[i] = buffer.cursor(from, to);
+            if (cursors[i].next()) {
+                heap.add(i);
+            }
+        }
+    }
+
+    /**
+     * 前进到全局时间顺序的下一个样本，没有更多样本时返回false
+     */
+    boolean next() {
+        if (current >= 0 && cursors[current].next()) {
+            heap.add(current);
+        }
+        Integer head = heap.poll();
+        current = head != null ? head : -1;
+        return current >= 0;
+    }
+
+    int deviceCount() { return cursors.length; }
+    int deviceIndex() { return current; }
+    String deviceId() { return deviceIds[current]; }
+    String deviceType() { return deviceTypes[current]; }
+    long timestamp() { return cursors[current].timestamp(); }
+    float power() { return cursors[current].power(); }
+    float daily() { return cursors[current].daily(); }
+    float weekly() { return cursors[current].weekly(); }
+}
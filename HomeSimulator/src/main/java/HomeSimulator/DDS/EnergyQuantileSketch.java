@@ -0,0 +1,131 @@
+package HomeSimulator.DDS;
+
+/**
+ * 功率分位数草图（DDSketch）
+ * 按对数刻度把正值映射到桶序号，桶i覆盖(gamma^(i-1), gamma^i]，
+ * 返回的分位数相对误差不超过relativeAccuracy；添加样本O(1)，两个草图可以按桶相加合并。
+ * 小于MIN_INDEXABLE的值（含0和负值，例如设备关闭时的功率）计入零值桶。
+ * 非线程安全，由持有者加锁。
+ */
+final class EnergyQuantileSketch {
+    // 低于该值的功率（瓦）视为0
+    static final double MIN_INDEXABLE = 1e-3;
+    // 桶数量上限，超出时合并最低的桶（只影响极小值的精度）
+    private static final int MAX_BINS = 2048;
+    private static final int INITIAL_BINS = 64;
+
+    private final double gamma;
+    private final double logGamma;
+
+    private long[] counts = new long[0];
+    // counts[0]对应的桶序号
+    private int offset;
+    private long zeroCount;
+    private long count;
+
+    EnergyQuantileSketch(double relativeAccuracy) {
+        if (relativeAccuracy <= 0 || relativeAccuracy >= 1) {
+            throw new IllegalArgumentException("相对误差必须在(0, 1)之间: " + relativeAccuracy);
+        }
+        this.gamma = (1 + relativeAccuracy) / (1 - relativeAccuracy);
+        this.logGamma = Math.log(gamma);
+    }
+
+    private EnergyQuantileSketch(EnergyQuantileSketch other) {
+        this.gamma = other.gamma;
+        this.logGamma = other.logGamma;
+        this.counts = other.counts.clone();
+        this.offset = other.offset;
+        this.zeroCount = other.zeroCount;
+        this.count = other.count;
+    }
+
+    EnergyQuantileSketch copy() {
+        return new EnergyQuantileSketch(this);
+    }
+
+    void add(double value) {
+        count++;
+        if (!(value >= MIN_INDEXABLE)) {
+            zeroCount++;
+            return;
+        }
+        int index = (int) Math.ceil(Math.log(value) / logGamma);
+        addToBin(index, 1);
+    }
+
+    /**
+     * 把另一个草图合并到当前草图（两者的相对误差必须相同）
+     */
+    void merge(EnergyQuantileSketch other) {
+        if (other.gamma != gamma) {
+            throw new IllegalArgumentException("无法合并相对误差不同的草图");
+        }
+        count += other.count;
+        zeroCount += other.zeroCount;
+        for (int i = 0; i < other.counts.length; i++) {
+            if (other.counts[i] != 0) {
+                addToBin(other.offset + i, other.counts[i]);
+            }
+        }
+    }
+
+    long count() {
+        return count;
+    }
+
+    /**
+     * 获取分位数q（0~1）的估计值，草图为空时返回NaN
+     */
+    double quantile(double q) {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        long rank = (long) (Math.max(0, Math.min(1, q)) * (count - 1));
+        if (rank < zeroCount) {
+            return 0;
+        }
+        long seen = zeroCount;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen > rank) {
+                // 取桶两端的调和中点，使桶内任意值的相对误差都不超过relativeAccuracy
+                return 2 * Math.pow(gamma, offset + i) / (gamma + 1);
+            }
+        }
+        return 2 * Math.pow(gamma, offset + counts.length - 1) / (gamma + 1);
+    }
+
+    private void addToBin(int index, long n) {
+        if (counts.length == 0) {
+            counts = new long[INITIAL_BINS];
+            offset = index - INITIAL_BINS / 2;
+        }
+        if (index < offset || index >= offset + counts.length) {
+            grow(index);
+            // 达到桶数量上限时，低于窗口的值并入最低的桶
+            index = Math.max(index, offset);
+        }
+        counts[index - offset] += n;
+    }
+
+    private void grow(int index) {
+        int lo = Math.min(offset, index);
+        int hi = Math.max(offset + counts.length - 1, index);
+        if (hi - lo + 1 > MAX_BINS) {
+            lo = hi - MAX_BINS + 1;
+        }
+        // 预留余量，避免相邻的新值反复扩容
+        int newLo = Math.max(lo - INITIAL_BINS / 4, hi - MAX_BINS + 1);
+        int newLength = Math.min(MAX_BINS, Math.max(hi - newLo + 1 + INITIAL_BINS / 4, counts.length * 2));
+        long[] grown = new long[newLength];
+        for (int i = 0; i < counts.length; i++) {
+            long c = counts[i];
+            if (c != 0) {
+                grown[Math.max(offset + i, newLo) - newLo] += c;
+            }
+        }
+        counts = grown;
+        offset = newLo;
+    }
+}
@@ -3,6 +3,9 @@ package HomeSimulator.DDS;
 import IDL.EnergyRawData;
 import IDL.EnergyRawDataDataWriter;
 import IDL.EnergyRawDataTypeSupport;
+import MediaTransfer.CompressionStats;
+import MediaTransfer.EnergyRawDataCodec;
+import MediaTransfer.PayloadCodec;
 import com.zrdds.domain.DomainParticipant;
 import com.zrdds.domain.DomainParticipantFactory;
 import com.zrdds.infrastructure.InstanceHandle_t;
@@ -20,6 +23,9 @@ public class EnergyRawDataPublisher {
     private Topic energyRawDataTopic;
     private EnergyRawDataDataWriter dataWriter;
     private final AtomicBoolean initialized = new AtomicBoolean(false);
+    // 打包压缩需要订阅端调用EnergyRawDataCodec.unpack()还原，默认关闭（-Dmedia.compression.EnergyRawData=deflate开启）
+    private final PayloadCodec codec = PayloadCodec.forTopic("EnergyRawData", PayloadCodec.NONE);
+    private final CompressionStats compressionStats = CompressionStats.forTopic("EnergyRawData");
 
     public boolean initialize() {
         if(initialized.get()) {
@@ -129,6 +135,10 @@ public class EnergyRawDataPublisher {
         }
 
         try {
+            if (EnergyRawDataCodec.pack(energyRawData, codec, compressionStats)) {
+                System.out.printf("[EnergyRawDataPublisher] 已打包压缩: %d bytes; 累计 %s\n",
+                        energyRawData.packed.length(), compressionStats);
+            }
             ReturnCode_t result = dataWriter.write(energyRawData, InstanceHandle_t.HANDLE_NIL_NATIVE);
             if (result == ReturnCode_t.RETCODE_OK) {
                 System.out.println("[EnergyRawDataPublisher] EnergyRawData发送成功");
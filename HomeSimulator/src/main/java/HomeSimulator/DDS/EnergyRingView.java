@@ -0,0 +1,42 @@
+package HomeSimulator.DDS;
+
+/**
+ * 原始精度视图，不拷贝数据，直接读取环形缓冲区
+ */
+final class EnergyRingView implements EnergySeriesView {
+    private final EnergySeriesBuffer buffer;
+    // 窗口的逻辑序号范围[start, end)
+    private final long start;
+    private final int size;
+
+    EnergyRingView(EnergySeriesBuffer buffer, long start, long end) {
+        this.buffer = buffer;
+        this.start = start;
+        this.size = (int) (end - start);
+    }
+
+    /**
+     * 空视图（设备不存在时返回）
+     */
+    static EnergyRingView empty() {
+        return new EnergyRingView(null, 0, 0);
+    }
+
+    @Override public String getDeviceId() { return buffer != null ? buffer.getDeviceId() : null; }
+    @Override public String getDeviceType() { return buffer != null ? buffer.getDeviceType() : null; }
+    @Override public long resolution() { return 0; }
+    @Override public int size() { return size; }
+
+    @Override public long timestampAt(int i) { return buffer.timestampAt(start + i); }
+    @Override public float currentPowerAt(int i) { return buffer.currentPowerAt(start + i); }
+    @Override public float minPowerAt(int i) { return currentPowerAt(i); }
+    @Override public float maxPowerAt(int i) { return currentPowerAt(i); }
+    @Override public int countAt(int i) { return 1; }
+    @Override public float dailyConsumptionAt(int i) { return buffer.dailyConsumptionAt(start + i); }
+    @Override public float weeklyConsumptionAt(int i) { return buffer.weeklyConsumptionAt(start + i); }
+
+    @Override
+    public boolean isValid() {
+        return buffer == null || buffer.isAvailable(start);
+    }
+}
@@ -0,0 +1,111 @@
+package HomeSimulator.DDS;
+
+import java.util.Arrays;
+
+/**
+ * 单设备某一精度的能耗聚合层
+ * 按固定时间宽度分桶，每个桶保存样本数/最小值/最大值/总和/最后值，
+ * 桶存放在按桶序号取模的环形数组中，追加样本为O(1)且不分配对象。
+ * 写入与读取都由所属的EnergySeriesBuffer加锁串行化
+ */
+final class EnergyRollupTier {
+    // 桶宽度（毫秒）
+    private final long bucketMillis;
+    // 保留的桶数量
+    private final int capacity;
+
+    // 槽位当前存放的桶序号（时间戳/桶宽度），未使用时为Long.MIN_VALUE
+    private final long[] bucketIndex;
+    private final int[] count;
+    private final float[] minPower;
+    private final float[] maxPower;
+    private final double[] sumPower;
+    private final float[] lastPower;
+    private final float[] lastDaily;
+    private final float[] lastWeekly;
+
+    // 已写入的最新桶序号
+    private long latestBucket = Long.MIN_VALUE;
+
+    EnergyRollupTier(long bucketMillis, int capacity) {
+        this.bucketMillis = bucketMillis;
+        this.capacity = capacity;
+        this.bucketIndex = new long[capacity];
+        this.count = new int[capacity];
+        this.minPower = new float[capacity];
+        this.maxPower = new float[capacity];
+        this.sumPower = new double[capacity];
+        this.lastPower = new float[capacity];
+        this.lastDaily = new float[capacity];
+        this.lastWeekly = new float[capacity];
+        Arrays.fill(bucketIndex, Long.MIN_VALUE);
+    }
+
+    long bucketMillis() {
+        return bucketMillis;
+    }
+
+    /**
+     * 该层能覆盖的时间跨度（毫秒）
+     */
+    long retentionMillis() {
+        return bucketMillis * capacity;
+    }
+
+    /**
+     * 将一个样本累加到所属的桶
+     */
+    void add(long timestamp, float power, float daily, float weekly) {
+        long bucket = Math.floorDiv(timestamp, bucketMillis);
+        if (latestBucket != Long.MIN_VALUE && bucket <= latestBucket - capacity) {
+            // 早于保留窗口的乱序样本直接丢弃
+            return;
+        }
+        int slot = (int) Math.floorMod(bucket, (long) capacity);
+        if (bucketIndex[slot] != bucket) {
+            // 槽位中是已过期的旧桶，重置为新桶
+            bucketIndex[slot] = bucket;
+            count[slot] = 0;
+            minPower[slot] = power;
+            maxPower[slot] = power;
+            sumPower[slot] = 0;
+        }
+        count[slot]++;
+        if (power < minPower[slot]) {
+            minPower[slot] = power;
+        }
+        if (power > maxPower[slot]) {
+            maxPower[slot] = power;
+        }
+        sumPower[slot] += power;
+        lastPower[slot] = power;
+        lastDaily[slot] = daily;
+        lastWeekly[slot] = weekly;
+        if (bucket > latestBucket) {
+            latestBucket = bucket;
+        }
+    }
+
+    /**
+     * 拷贝[from, to]时间范围内（闭区间）的非空桶，按时间升序排列
+     */
+    EnergyRollupView read(String deviceId, String deviceType, long from, long to) {
+        if (latestBucket == Long.MIN_VALUE || from > to) {
+            return new EnergyRollupView(deviceId, deviceType, bucketMillis, 0);
+        }
+        long first = Math.max(Math.floorDiv(from, bucketMillis), latestBucket - capacity + 1);
+        long last = Math.min(Math.floorDiv(to, bucketMillis), latestBucket);
+        int max = (int) Math.max(0, last - first + 1);
+
+        EnergyRollupView view = new EnergyRollupView(deviceId, deviceType, bucketMillis, max);
+        for (long bucket = first; bucket <= last; bucket++) {
+            int slot = (int) Math.floorMod(bucket, (long) capacity);
+            if (bucketIndex[slot] != bucket || count[slot] == 0) {
+                continue;
+            }
+            view.add(bucket * bucketMillis, count[slot], minPower[slot], maxPower[slot],
+                    (float) (sumPower[slot] / count[slot]), lastDaily[slot], lastWeekly[slot]);
+        }
+        return view;
+    }
+}
@@ -0,0 +1,77 @@
+package HomeSimulator.DDS;
+
+import java.util.Arrays;
+
+/**
+ * 聚合精度视图，数据在查询时从聚合层拷贝（或在归并时计算），构造完成后不再变化
+ */
+final class EnergyRollupView implements EnergySeriesView {
+    private final String deviceId;
+    private final String deviceType;
+    private final long resolution;
+
+    private long[] timestamps;
+    private int[] counts;
+    private float[] minPower;
+    private float[] maxPower;
+    private float[] meanPower;
+    private float[] daily;
+    private float[] weekly;
+    private int size;
+
+    EnergyRollupView(String deviceId, String deviceType, long resolution, int maxSize) {
+        this.deviceId = deviceId;
+        this.deviceType = deviceType;
+        this.resolution = resolution;
+        this.timestamps = new long[maxSize];
+        this.counts = new int[maxSize];
+        this.minPower = new float[maxSize];
+        this.maxPower = new float[maxSize];
+        this.meanPower = new float[maxSize];
+        this.daily = new float[maxSize];
+        this.weekly = new float[maxSize];
+    }
+
+    void add(long timestamp, int count, float min, float max, float mean, float lastDaily, float lastWeekly) {
+        if (size == timestamps.length) {
+            grow();
+        }
+        timestamps[size] = timestamp;
+        counts[size] = count;
+        minPower[size] = min;
+        maxPower[size] = max;
+        meanPower[size] = mean;
+        daily[size] = lastDaily;
+        weekly[size] = lastWeekly;
+        size++;
+    }
+
+    private void grow() {
+        int capacity = Math.max(16, timestamps.length * 2);
+        timestamps = Arrays.copyOf(timestamps, capacity);
+        counts = Arrays.copyOf(counts, capacity);
+        minPower = Arrays.copyOf(minPower, capacity);
+        maxPower = Arrays.copyOf(maxPower, capacity);
+        meanPower = Arrays.copyOf(meanPower, capacity);
+        daily = Arrays.copyOf(daily, capacity);
+        weekly = Arrays.copyOf(weekly, capacity);
+    }
+
+    @Override public String getDeviceId() { return deviceId; }
+    @Override public String getDeviceType() { return deviceType; }
+    @Override public long resolution() { return resolution; }
+    @Override public int size() { return size; }
+
+    @Override public long timestampAt(int i) { return timestamps[i]; }
+    @Override public float currentPowerAt(int i) { return meanPower[i]; }
+    @Override public float minPowerAt(int i) { return minPower[i]; }
+    @Override public float maxPowerAt(int i) { return maxPower[i]; }
+    @Override public int countAt(int i) { return counts[i]; }
+    @Override public float dailyConsumptionAt(int i) { return daily[i]; }
+    @Override public float weeklyConsumptionAt(int i) { return weekly[i]; }
+
+    @Override
+    public boolean isValid() {
+        return true;
+    }
+}
@@ -0,0 +1,101 @@
+package HomeSimulator.DDS;
+
+/**
+ * 单设备样本的拉取式游标，按时间升序返回[from, to]内的样本
+ * 早于环形缓冲区快照的样本从压缩块逐条解码，其余从快照读取；整个过程不分配样本对象
+ */
+final class EnergySampleCursor {
+    private final EnergyBlockList blocks;
+    private final EnergySeriesSnapshot recent;
+    private final long from;
+    private final long to;
+    // 压缩块只提供早于快照起点的样本，避免与快照重复
+    private final long blockTo;
+
+    private int blockIndex;
+    private EnergyBlock.Reader reader;
+    private int recentIndex = -1;
+
+    private long timestamp;
+    private float power;
+    private float daily;
+    private float weekly;
+
+    EnergySampleCursor(EnergyBlockList blocks, EnergySeriesSnapshot recent, long from, long to) {
+        this.blocks = blocks;
+        this.recent = recent;
+        this.from = from;
+        this.to = to;
+        long boundary = recent.isEmpty() ? Long.MAX_VALUE : recent.timestampAt(0);
+        this.blockTo = Math.min(to, boundary - 1);
+        this.blockIndex = firstBlockEndingAtOrAfter(blocks, from);
+    }
+
+    /**
+     * 前进到下一个样本，没有更多样本时返回false
+     */
+    boolean next() {
+        while (nextFromBlocks()) {
+            if (timestamp >= from) {
+                return true;
+            }
+        }
+        if (recentIndex < 0) {
+            recentIndex = recent.firstIndexAtOrAfter(from);
+        }
+        if (recentIndex < recent.size() && recent.timestampAt(recentIndex) <= to) {
+            timestamp = recent.timestampAt(recentIndex);
+            power = recent.currentPowerAt(recentIndex);
+            daily = recent.dailyConsumptionAt(recentIndex);
+            weekly = recent.weeklyConsumptionAt(recentIndex);
+            recentIndex++;
+            return true;
+        }
+        return false;
+    }
+
+    // 从压缩块解码下一个不晚于blockTo的样本
+    private boolean nextFromBlocks() {
+        while (true) {
+            if (reader == null) {
+                if (blockIndex >= blocks.size() || blocks.get(blockIndex).firstTimestamp() > blockTo) {
+                    blockIndex = blocks.size();
+                    return false;
+                }
+                reader = blocks.get(blockIndex++).reader();
+            }
+            if (reader.next()) {
+                if (reader.timestamp() > blockTo) {
+                    reader = null;
+                    blockIndex = blocks.size();
+                    return false;
+                }
+                timestamp = reader.timestamp();
+                power = reader.power();
+                daily = reader.daily();
+                weekly = reader.weekly();
+                return true;
+            }
+            reader = null;
+        }
+    }
+
+    long timestamp() { return timestamp; }
+    float power() { return power; }
+    float daily() { return daily; }
+    float weekly() { return weekly; }
+
+    private static int firstBlockEndingAtOrAfter(EnergyBlockList blocks, long from) {
+        int lo = 0;
+        int hi = blocks.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (blocks.get(mid).lastTimestamp() < from) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+}
@@ -0,0 +1,8 @@
+package HomeSimulator.DDS;
+
+/**
+ * 能耗样本的流式访问接口，按时间戳升序逐条回调，不产生中间对象
+ */
+public interface EnergySampleVisitor {
+    void visit(long timestamp, float currentPower, float dailyConsumption, float weeklyConsumption);
+}
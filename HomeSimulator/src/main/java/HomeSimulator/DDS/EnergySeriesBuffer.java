@@ -0,0 +1,406 @@
+package HomeSimulator.DDS;
+
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 单设备能耗环形缓冲区（列式存储）
+ * 时间戳存放在long[]中，当前功率/日能耗/周能耗分别存放在float[]中，追加数据时不创建任何对象。
+ * 写入由缓冲区自身串行化（单写者），读者无需加锁，通过写入序号校验获得一致的快照（顺序锁方式：
+ * 先读head，再读槽位，acquireFence之后再次读head确认槽位未被覆盖；没有这道屏障，槽位的普通读取可能被重排到第二次读head之后。
+ * 写者一侧在写槽位之前有storeStoreFence，槽位写入不会先于上一次head写入对读者可见）。
+ * 追加数据时同步更新各精度的聚合层与流式统计摘要，聚合数据的读取与写入共用缓冲区的锁。
+ * 样本同时写入压缩编码器，每满一块封存为不可变的EnergyBlock，
+ * 环形缓冲区只保存最近的原始数据，更早的数据（直到保留期限）由压缩块提供。
+ * 过期由存储结构自身完成：压缩块窗口前移丢弃整块，长期无数据的缓冲区可被无锁地退役。
+ */
+final class EnergySeriesBuffer {
+    private final String deviceId;
+    private volatile String deviceType;
+
+    // 可见的最大数据点数量
+    private final int capacity;
+    // 实际槽位数比capacity多一个，保证正在写入的槽位永远不在读者可见的窗口内
+    private final int slots;
+
+    private final long[] timestamps;
+    private final float[] currentPower;
+    private final float[] dailyConsumption;
+    private final float[] weeklyConsumption;
+
+    // 聚合层，按桶宽度从细到粗排列
+    private final EnergyRollupTier[] tiers;
+
+    // 当前功率的流式统计摘要（分位数、极值、高峰时段），覆盖缓冲区创建以来的全部样本
+    private final EnergyStats stats = new EnergyStats();
+
+    // 每个压缩块的样本数（10秒一次上报时为1小时）
+    private static final int BLOCK_SAMPLES = 360;
+    // 临时聚合时允许的最大桶数量
+    private static final int MAX_SCAN_BUCKETS = 4320;
+    private final int blockSamples;
+    // 压缩数据保留时间（毫秒）
+    private final long retentionMillis;
+    // 正在编码的块（仅写者访问），其中的样本同时存在于环形缓冲区中
+    private EnergyBlockEncoder openBlock = new EnergyBlockEncoder();
+    // 已封存的压缩块，按时间升序排列；写者追加与过期前移都通过CAS发布新窗口，读者无需加锁
+    private final AtomicReference<EnergyBlockList> sealedBlocks = new AtomicReference<>(EnergyBlockList.EMPTY);
+
+    // 退役状态：>=0表示正在进行的追加数，RETIRING表示正在判断是否退役，
+    // RETIRED表示缓冲区已退役，不再接受写入
+    private static final int RETIRED = -1;
+    private static final int RETIRING = -2;
+    private final AtomicInteger state = new AtomicInteger();
+
+    // 已发布的样本总数（逻辑序号），槽位写完后才递增，作为读者的可见性边界
+    private volatile long head;
+
+    // 作为append的时间戳参数时，在写入锁内读取当前时间，并发写入的时间戳因此与写入顺序一致
+    static final long NOW = Long.MIN_VALUE;
+    // append的返回值：缓冲区已退役，未写入
+    static final long REJECTED = Long.MIN_VALUE;
+
+    EnergySeriesBuffer(String deviceId, String deviceType, int capacity, long retentionMillis,
+                       EnergyRollupTier... tiers) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("容量必须大于0: " + capacity);
+        }
+        this.deviceId = deviceId;
+        this.deviceType = deviceType;
+        this.capacity = capacity;
+        this.slots = capacity + 1;
+        this.timestamps = new long[slots];
+        this.currentPower = new float[slots];
+        this.dailyConsumption = new float[slots];
+        this.weeklyConsumption = new float[slots];
+        this.tiers = tiers;
+        this.retentionMillis = retentionMillis;
+        // 块必须在样本被环形缓冲区覆盖之前封存
+        this.blockSamples = Math.min(BLOCK_SAMPLES, capacity);
+    }
+
+    /**
+     * 追加一个数据点（不分配对象）
+     * @param timestamp 样本时间戳，NOW表示在写入锁内取当前时间
+     * @param persist 写入后在同一把锁内接收该样本（持久化），记录顺序与环形缓冲区一致；为null时不回调
+     * @return 实际写入的时间戳；缓冲区已退役时返回REJECTED，调用方应换用新的缓冲区重新写入
+     */
+    long append(long timestamp, String type, float power, float daily, float weekly,
+                EnergyHistoryStore.RecordSink persist) {
+        int s;
+        do {
+            s = state.get();
+            if (s == RETIRED) {
+                return REJECTED;
+            }
+            if (s == RETIRING) {
+                // 退役判断只需读取一次最新时间戳，短暂自旋等待结果
+                Thread.onSpinWait();
+                continue;
+            }
+            if (state.compareAndSet(s, s + 1)) {
+                break;
+            }
+        } while (true);
+        try {
+            return write(timestamp, type, power, daily, weekly, persist);
+        } finally {
+            state.decrementAndGet();
+        }
+    }
+
+    private synchronized long write(long timestamp, String type, float power, float daily, float weekly,
+                                    EnergyHistoryStore.RecordSink persist) {
+        if (timestamp == NOW) {
+            timestamp = System.currentTimeMillis();
+        }
+        if (type != null && !type.equals(deviceType)) {
+            deviceType = type;
+        }
+        long h = head;
+        // 槽位写入不得重排到上一次head写入之前：否则读者第二次读到旧head时，
+        // 它认为仍有效的最旧槽位可能已被本次写入覆盖
+        VarHandle.storeStoreFence();
+        int slot = (int) (h % slots);
+        timestamps[slot] = timestamp;
+        currentPower[slot] = power;
+        dailyConsumption[slot] = daily;
+        weeklyConsumption[slot] = weekly;
+        for (EnergyRollupTier tier : tiers) {
+            tier.add(timestamp, power, daily, weekly);
+        }
+        stats.add(timestamp, power);
+        openBlock.append(timestamp, power, daily, weekly);
+        if (openBlock.count() >= blockSamples) {
+            sealOpenBlock(timestamp);
+        }
+        // volatile写：之前的槽位写入对读到新head的读者可见
+        head = h + 1;
+        if (persist != null) {
+            persist.accept(deviceId, deviceType, timestamp, power, daily, weekly);
+        }
+        return timestamp;
+    }
+
+    // 封存当前块，同时丢弃整块都已超过保留期限的旧块
+    private void sealOpenBlock(long now) {
+        EnergyBlock block = openBlock.seal();
+        EnergyBlockList current;
+        EnergyBlockList next;
+        do {
+            current = sealedBlocks.get();
+            next = current.expire(now - retentionMillis).append(block);
+        } while (!sealedBlocks.compareAndSet(current, next));
+        openBlock = new EnergyBlockEncoder();
+    }
+
+    /**
+     * 丢弃整块都早于expireBefore的压缩块（O(1)前移窗口，不影响并发追加）
+     */
+    void expireBlocks(long expireBefore) {
+        EnergyBlockList current;
+        EnergyBlockList next;
+        do {
+            current = sealedBlocks.get();
+            next = current.expire(expireBefore);
+        } while (next != current && !sealedBlocks.compareAndSet(current, next));
+    }
+
+    /**
+     * 最新数据早于expireBefore时把缓冲区标记为退役，之后的追加会返回false
+     * 只有在没有追加正在进行时才会判断，判断期间新到的追加等待结果，因此不会丢失任何追加
+     */
+    boolean tryRetire(long expireBefore) {
+        if (head == 0 || latestTimestamp() >= expireBefore || !state.compareAndSet(0, RETIRING)) {
+            return false;
+        }
+        // 预检查与标记之间可能有追加已经完成，以标记后的结果为准
+        boolean expired = latestTimestamp() < expireBefore;
+        state.set(expired ? RETIRED : 0);
+        return expired;
+    }
+
+    /**
+     * 获取统计摘要的副本
+     */
+    EnergyStats stats() {
+        return stats.copy();
+    }
+
+    /**
+     * 获取当前数据的一致快照（按时间顺序，最旧的在前）
+     */
+    EnergySeriesSnapshot snapshot() {
+        long h1 = head;
+        long lo = Math.max(0, h1 - capacity);
+        int n = (int) (h1 - lo);
+
+        long[] ts = new long[n];
+        float[] power = new float[n];
+        float[] daily = new float[n];
+        float[] weekly = new float[n];
+        copyColumns(lo, n, ts, power, daily, weekly);
+
+        // 拷贝期间写者可能已前进：写入序号h2时会覆盖序号h2-slots的槽位，
+        // 因此只有序号>=h2-capacity的数据保证未被覆盖
+        VarHandle.acquireFence();
+        long h2 = head;
+        int skip = (int) Math.min(n, Math.max(0, (h2 - capacity) - lo));
+        return new EnergySeriesSnapshot(deviceId, deviceType, ts, power, daily, weekly, skip, n);
+    }
+
+    private void copyColumns(long fromIndex, int n,
+                             long[] ts, float[] power, float[] daily, float[] weekly) {
+        if (n == 0) {
+            return;
+        }
+        int start = (int) (fromIndex % slots);
+        int first = Math.min(n, slots - start);
+        System.arraycopy(timestamps, start, ts, 0, first);
+        System.arraycopy(currentPower, start, power, 0, first);
+        System.arraycopy(dailyConsumption, start, daily, 0, first);
+        System.arraycopy(weeklyConsumption, start, weekly, 0, first);
+        if (first < n) {
+            int rest = n - first;
+            System.arraycopy(timestamps, 0, ts, first, rest);
+            System.arraycopy(currentPower, 0, power, first, rest);
+            System.arraycopy(dailyConsumption, 0, daily, first, rest);
+            System.arraycopy(weeklyConsumption, 0, weekly, first, rest);
+        }
+    }
+
+    /**
+     * 按时间范围[from, to]查询（闭区间），二分查找定位边界，返回直接引用环形缓冲区的视图
+     * 数据按追加顺序即时间戳升序排列，查找代价为O(log n)，与历史深度无关
+     */
+    EnergyRingView query(long from, long to) {
+        while (true) {
+            long h = head;
+            long lo = Math.max(0, h - capacity);
+            long start = firstAtOrAfter(lo, h, from);
+            long end = firstAfter(start, h, to);
+            // 查找期间窗口内的槽位未被覆盖，边界才可信
+            VarHandle.acquireFence();
+            if (head - capacity <= lo) {
+                return new EnergyRingView(this, start, end);
+            }
+        }
+    }
+
+    /**
+     * 按指定精度查询：从桶宽度不超过resolution的最粗聚合层读取，
+     * 没有合适的聚合层时（resolution小于最细的桶宽度）返回原始数据视图
+     */
+    EnergySeriesView query(long from, long to, long resolution) {
+        EnergyRollupTier chosen = null;
+        for (EnergyRollupTier tier : tiers) {
+            if (tier.bucketMillis() <= resolution) {
+                chosen = tier;
+            }
+        }
+        if (chosen == null) {
+            return query(from, to);
+        }
+        // 聚合层覆盖不到查询起点时，从压缩块流式解码并临时聚合
+        long buckets = (to - from) / chosen.bucketMillis() + 1;
+        if (buckets > 0 && buckets <= MAX_SCAN_BUCKETS && from < latestTimestamp() - chosen.retentionMillis()) {
+            EnergyRollupTier temp = new EnergyRollupTier(chosen.bucketMillis(), (int) buckets + 1);
+            scan(from, to, temp::add);
+            return temp.read(deviceId, deviceType, from, to);
+        }
+        synchronized (this) {
+            return chosen.read(deviceId, deviceType, from, to);
+        }
+    }
+
+    /**
+     * 按时间升序流式访问[from, to]内（闭区间）的全部原始样本
+     */
+    void scan(long from, long to, EnergySampleVisitor visitor) {
+        EnergySampleCursor cursor = cursor(from, to);
+        while (cursor.next()) {
+            visitor.visit(cursor.timestamp(), cursor.power(), cursor.daily(), cursor.weekly());
+        }
+    }
+
+    /**
+     * 创建[from, to]内（闭区间）全部原始样本的拉取式游标
+     * 早于环形缓冲区窗口的样本从压缩块解码，其余直接从环形缓冲区的快照读取
+     */
+    EnergySampleCursor cursor(long from, long to) {
+        // 先取环形缓冲区快照再读取压缩块：快照之前被覆盖的样本一定已经封存
+        EnergySeriesSnapshot recent = snapshot();
+        return new EnergySampleCursor(sealedBlocks.get(), recent, from, to);
+    }
+
+    /**
+     * 已封存压缩块的样本数与字节数，用于统计压缩率
+     */
+    long[] compressedStats() {
+        long samples = 0;
+        long bytes = 0;
+        EnergyBlockList blocks = sealedBlocks.get();
+        for (int i = 0; i < blocks.size(); i++) {
+            samples += blocks.get(i).count();
+            bytes += blocks.get(i).sizeInBytes();
+        }
+        return new long[]{samples, bytes};
+    }
+
+    // 返回[lo, hi)内第一个时间戳>=from的序号，不存在时返回hi
+    private long firstAtOrAfter(long lo, long hi, long from) {
+        while (lo < hi) {
+            long mid = (lo + hi) >>> 1;
+            if (timestampAt(mid) < from) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    // 返回[lo, hi)内第一个时间戳>to的序号，不存在时返回hi
+    private long firstAfter(long lo, long hi, long to) {
+        while (lo < hi) {
+            long mid = (lo + hi) >>> 1;
+            if (timestampAt(mid) <= to) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    // 按逻辑序号读取各列，调用方负责通过isAvailable校验数据未被覆盖
+    long timestampAt(long seq) {
+        return timestamps[(int) (seq % slots)];
+    }
+
+    float currentPowerAt(long seq) {
+        return currentPower[(int) (seq % slots)];
+    }
+
+    float dailyConsumptionAt(long seq) {
+        return dailyConsumption[(int) (seq % slots)];
+    }
+
+    float weeklyConsumptionAt(long seq) {
+        return weeklyConsumption[(int) (seq % slots)];
+    }
+
+    /**
+     * 序号seq及其之后的数据是否仍未被覆盖
+     */
+    boolean isAvailable(long seq) {
+        // 调用方在此之前读取的槽位不能重排到读head之后
+        VarHandle.acquireFence();
+        return head - capacity <= seq;
+    }
+
+    /**
+     * 最新数据点的时间戳，无数据时返回-1
+     */
+    long latestTimestamp() {
+        while (true) {
+            long h = head;
+            if (h == 0) {
+                return -1;
+            }
+            long ts = timestamps[(int) ((h - 1) % slots)];
+            // 读取期间该槽位未被覆盖才返回，否则说明已有更新的数据，重新读取
+            VarHandle.acquireFence();
+            if (head - h < capacity) {
+                return ts;
+            }
+        }
+    }
+
+    /**
+     * 当前可见的数据点数量
+     */
+    int size() {
+        return (int) Math.min(head, capacity);
+    }
+
+    /**
+     * 已写入的样本总数，每次追加递增，可作为数据版本号
+     */
+    long version() {
+        return head;
+    }
+
+    String getDeviceId() {
+        return deviceId;
+    }
+
+    String getDeviceType() {
+        return deviceType;
+    }
+
+    int capacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,57 @@
+package HomeSimulator.DDS;
+
+/**
+ * 单设备能耗数据的只读快照（列式）
+ * 数据按时间戳升序排列，下标范围为[0, size())
+ */
+public final class EnergySeriesSnapshot {
+    private final String deviceId;
+    private final String deviceType;
+    private final long[] timestamps;
+    private final float[] currentPower;
+    private final float[] dailyConsumption;
+    private final float[] weeklyConsumption;
+    private final int offset;
+    private final int size;
+
+    EnergySeriesSnapshot(String deviceId, String deviceType,
+                         long[] timestamps, float[] currentPower,
+                         float[] dailyConsumption, float[] weeklyConsumption,
+                         int from, int to) {
+        this.deviceId = deviceId;
+        this.deviceType = deviceType;
+        this.timestamps = timestamps;
+        this.currentPower = currentPower;
+        this.dailyConsumption = dailyConsumption;
+        this.weeklyConsumption = weeklyConsumption;
+        this.offset = from;
+        this.size = to - from;
+    }
+
+    public String getDeviceId() { return deviceId; }
+    public String getDeviceType() { return deviceType; }
+    public int size() { return size; }
+    public boolean isEmpty() { return size == 0; }
+
+    public long timestampAt(int i) { return timestamps[offset + i]; }
+    public float currentPowerAt(int i) { return currentPower[offset + i]; }
+    public float dailyConsumptionAt(int i) { return dailyConsumption[offset + i]; }
+    public float weeklyConsumptionAt(int i) { return weeklyConsumption[offset + i]; }
+
+    /**
+     * 第一个时间戳>=from的下标（二分查找），不存在时返回size()
+     */
+    public int firstIndexAtOrAfter(long from) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (timestampAt(mid) < from) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+}
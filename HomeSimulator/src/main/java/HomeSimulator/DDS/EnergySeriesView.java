@@ -0,0 +1,49 @@
+package HomeSimulator.DDS;
+
+/**
+ * 单设备能耗数据在某个时间窗口内的只读视图
+ * 原始精度的视图直接读取环形缓冲区，读取完成后应调用isValid()，
+ * 若返回false说明期间窗口内的数据已被新数据覆盖，需要重新查询；
+ * 聚合精度的视图中每个点对应一个时间桶，timestampAt返回桶的起始时间
+ */
+public interface EnergySeriesView {
+    String getDeviceId();
+    String getDeviceType();
+
+    /**
+     * 每个点覆盖的时间跨度（毫秒），原始数据为0
+     */
+    long resolution();
+
+    int size();
+
+    default boolean isEmpty() {
+        return size() == 0;
+    }
+
+    long timestampAt(int i);
+
+    /**
+     * 当前功率；聚合数据为桶内平均值
+     */
+    float currentPowerAt(int i);
+
+    float minPowerAt(int i);
+    float maxPowerAt(int i);
+
+    /**
+     * 点内包含的原始样本数，原始数据为1
+     */
+    int countAt(int i);
+
+    /**
+     * 日能耗/周能耗；聚合数据为桶内最后一次上报的值
+     */
+    float dailyConsumptionAt(int i);
+    float weeklyConsumptionAt(int i);
+
+    /**
+     * 视图中的数据是否仍然有效（未被覆盖）
+     */
+    boolean isValid();
+}
@@ -0,0 +1,167 @@
+package HomeSimulator.DDS;
+
+import java.util.TimeZone;
+
+/**
+ * 能耗流式统计摘要
+ * 维护当前功率的分位数草图、最小/最大/平均值以及按小时（0~23时）的平均功率，
+ * 每个样本O(1)更新，不保存原始数据；多个摘要可以合并（如按设备类型或全屋汇总）。
+ * 写入与合并自身加锁，读取者通过copy()获得独立的副本后再读取各项指标。
+ */
+public final class EnergyStats {
+    // 分位数相对误差1%
+    private static final double RELATIVE_ACCURACY = 0.01;
+    private static final long HOUR_MILLIS = 60L * 60L * 1000L;
+    private static final int HOURS_PER_DAY = 24;
+
+    private final EnergyQuantileSketch sketch;
+    private long count;
+    private double sum;
+    private float min = Float.POSITIVE_INFINITY;
+    private float max = Float.NEGATIVE_INFINITY;
+    private long maxTimestamp;
+    private long firstTimestamp = Long.MAX_VALUE;
+    private long lastTimestamp = Long.MIN_VALUE;
+
+    // 按本地时间的小时累计功率，用于识别用电高峰时段
+    private final double[] hourSum;
+    private final long[] hourCount;
+
+    EnergyStats() {
+        sketch = new EnergyQuantileSketch(RELATIVE_ACCURACY);
+        hourSum = new double[HOURS_PER_DAY];
+        hourCount = new long[HOURS_PER_DAY];
+    }
+
+    private EnergyStats(EnergyStats other) {
+        sketch = other.sketch.copy();
+        count = other.count;
+        sum = other.sum;
+        min = other.min;
+        max = other.max;
+        maxTimestamp = other.maxTimestamp;
+        firstTimestamp = other.firstTimestamp;
+        lastTimestamp = other.lastTimestamp;
+        hourSum = other.hourSum.clone();
+        hourCount = other.hourCount.clone();
+    }
+
+    /**
+     * 添加一个功率样本
+     */
+    synchronized void add(long timestamp, float power) {
+        sketch.add(power);
+        count++;
+        sum += power;
+        if (power < min) {
+            min = power;
+        }
+        if (power > max) {
+            max = power;
+            maxTimestamp = timestamp;
+        }
+        firstTimestamp = Math.min(firstTimestamp, timestamp);
+        lastTimestamp = Math.max(lastTimestamp, timestamp);
+
+        int hour = hourOfDay(timestamp);
+        hourSum[hour] += power;
+        hourCount[hour]++;
+    }
+
+    /**
+     * 把另一个摘要合并到当前摘要
+     */
+    void merge(EnergyStats other) {
+        EnergyStats source = other.copy();
+        synchronized (this) {
+            sketch.merge(source.sketch);
+            count += source.count;
+            sum += source.sum;
+            if (source.min < min) {
+                min = source.min;
+            }
+            if (source.max > max) {
+                max = source.max;
+                maxTimestamp = source.maxTimestamp;
+            }
+            firstTimestamp = Math.min(firstTimestamp, source.firstTimestamp);
+            lastTimestamp = Math.max(lastTimestamp, source.lastTimestamp);
+            for (int h = 0; h < HOURS_PER_DAY; h++) {
+                hourSum[h] += source.hourSum[h];
+                hourCount[h] += source.hourCount[h];
+            }
+        }
+    }
+
+    /**
+     * 获取当前摘要的独立副本
+     */
+    public synchronized EnergyStats copy() {
+        return new EnergyStats(this);
+    }
+
+    private static int hourOfDay(long timestamp) {
+        long local = timestamp + TimeZone.getDefault().getOffset(timestamp);
+        return (int) (Math.floorMod(local, HOURS_PER_DAY * HOUR_MILLIS) / HOUR_MILLIS);
+    }
+
+    public synchronized long getCount() {
+        return count;
+    }
+
+    public synchronized float getMin() {
+        return count > 0 ? min : Float.NaN;
+    }
+
+    public synchronized float getMax() {
+        return count > 0 ? max : Float.NaN;
+    }
+
+    /**
+     * 最大功率出现的时间戳
+     */
+    public synchronized long getMaxTimestamp() {
+        return maxTimestamp;
+    }
+
+    public synchronized double getMean() {
+        return count > 0 ? sum / count : Double.NaN;
+    }
+
+    public synchronized long getFirstTimestamp() {
+        return count > 0 ? firstTimestamp : 0;
+    }
+
+    public synchronized long getLastTimestamp() {
+        return count > 0 ? lastTimestamp : 0;
+    }
+
+    /**
+     * 当前功率的分位数估计（q取0~1，如0.95），相对误差不超过1%
+     */
+    public synchronized double getPercentile(double q) {
+        return sketch.quantile(q);
+    }
+
+    /**
+     * 平均功率最高的小时（本地时间0~23），没有数据时返回-1
+     */
+    public synchronized int getPeakHour() {
+        int peak = -1;
+        double peakMean = Double.NEGATIVE_INFINITY;
+        for (int h = 0; h < HOURS_PER_DAY; h++) {
+            if (hourCount[h] > 0 && hourSum[h] / hourCount[h] > peakMean) {
+                peakMean = hourSum[h] / hourCount[h];
+                peak = h;
+            }
+        }
+        return peak;
+    }
+
+    /**
+     * 指定小时（本地时间0~23）的平均功率，没有数据时返回NaN
+     */
+    public synchronized double getHourlyMean(int hour) {
+        return hourCount[hour] > 0 ? hourSum[hour] / hourCount[hour] : Double.NaN;
+    }
+}
@@ -2,22 +2,36 @@ package HomeSimulator.DDS;
 
 import IDL.AlertMedia;
 import IDL.AlertMediaDataWriter;
-import IDL.Blob;
+import MediaTransfer.ChunkedSender;
+import MediaTransfer.ContentHash;
+import MediaTransfer.MediaAckSubscriber;
+import MediaTransfer.MediaScheduler;
+import MediaTransfer.PayloadCodec;
 import com.zrdds.infrastructure.InstanceHandle_t;
 import com.zrdds.infrastructure.ReturnCode_t;
 import com.zrdds.publication.DataWriterQos;
 import com.zrdds.publication.Publisher;
+import com.zrdds.subscription.Subscriber;
 import com.zrdds.topic.Topic;
 
+import java.io.File;
+import java.io.IOException;
+
 /**
  * HomeSimulator媒体发布器
  * 用于向MobileAppSimulator发送图片和视频数据
  */
 public class MediaPublisher {
     private AlertMediaDataWriter writer;
-    private static final int CHUNK_SIZE = 4096; // 每块大小
+    private final ChunkedSender sender = new ChunkedSender("HomeSimulator.DDS.MediaPublisher");
+    private String topicName;
 
     public boolean start(Publisher pub, Topic topic) {
+        topicName = topic.get_name();
+        // 图片多为JPEG，试压无收益时按原样发送；LZ4的试压开销很小
+        sender.setCompression(PayloadCodec.forTopic(topicName, PayloadCodec.LZ4), topicName);
+        // 报警图片优先于报表，多个报警之间逐块交替
+        sender.setScheduler(MediaScheduler.shared(), MediaScheduler.Priority.ALERT);
         // 配置QoS
         DataWriterQos dwQos = new DataWriterQos();
         pub.get_default_datawriter_qos(dwQos);
@@ -34,13 +48,25 @@ public class MediaPublisher {
                 com.zrdds.infrastructure.StatusKind.STATUS_MASK_NONE);
 
         if (writer == null) {
-            System.err.println("[CarSimulator.DDS.MediaPublisher] 创建 Media DataWriter 失败");
+            System.err.println("[HomeSimulator.DDS.MediaPublisher] 创建 Media DataWriter 失败");
             return false;
         }
-        System.out.println("[CarSimulator.DDS.MediaPublisher] 媒体发布器启动成功");
+        System.out.println("[HomeSimulator.DDS.MediaPublisher] 媒体发布器启动成功");
         return true;
     }
 
+    /**
+     * 启用滑动窗口发送：接收端通过MediaAck主题回报缺失的分片，发送端只重传缺口，
+     * 未确认的分片数不超过窗口大小（小于history.depth，避免历史缓存被覆盖）
+     * @param sub DDS订阅器
+     * @param ackTopic MediaAck主题
+     * @return 是否启用成功
+     */
+    public boolean enableAcks(Subscriber sub, Topic ackTopic) {
+        sender.enableAcks(ChunkedSender.DEFAULT_WINDOW);
+        return new MediaAckSubscriber().start(sub, ackTopic, topicName, sender);
+    }
+
     /**
      * 发送图片或视频文件
      * @param deviceId 设备ID
@@ -51,132 +77,85 @@ public class MediaPublisher {
      */
     public boolean publishMedia(String deviceId, String deviceType, int mediaType, byte[] fileData,int alertId) {
         if (writer == null) {
-            System.err.println("[CarSimulator.DDS.MediaPublisher] Media DataWriter 尚未初始化");
+            System.err.println("[HomeSimulator.DDS.MediaPublisher] Media DataWriter 尚未初始化");
             return false;
         }
 
         if (fileData == null || fileData.length == 0) {
-            System.err.println("[CarSimulator.DDS.MediaPublisher] 媒体数据为空");
+            System.err.println("[HomeSimulator.DDS.MediaPublisher] 媒体数据为空");
             return false;
         }
 
-        // 添加调试信息：检查数据是否有效
-        boolean hasNonZeroData = false;
-        for (int i = 0; i < Math.min(10, fileData.length); i++) {
-            if (fileData[i] != 0) {
-                hasNonZeroData = true;
-                break;
-            }
+        AlertMedia media = newSample(deviceId, deviceType, mediaType, fileData.length, alertId);
+        media.content_hash = ContentHash.of(fileData);
+        return sender.send(transferId(deviceId, alertId), media.content_hash, fileData, media.chunk,
+                headerWriter(media), chunkWriter(media)).isComplete();
+    }
+
+    /**
+     * 直接从文件分片发送图片或视频（不整体读入内存；接收端已有相同内容时只发送引用）
+     * @param file 媒体文件
+     * @return 发送是否成功
+     */
+    public boolean publishMedia(String deviceId, String deviceType, int mediaType, File file, int alertId) {
+        if (writer == null) {
+            System.err.println("[HomeSimulator.DDS.MediaPublisher] Media DataWriter 尚未初始化");
+            return false;
         }
-        System.out.println("[CarSimulator.DDS.MediaPublisher] 文件数据预览：前10字节" + (hasNonZeroData ? "包含非零数据" : "全部为0"));
-
-        int totalSize = fileData.length;
-        int totalChunks = (int) Math.ceil((double) totalSize / CHUNK_SIZE);
-        //alertId = (int) (System.currentTimeMillis() % 1000000); // 生成唯一报警ID
-
-        System.out.printf("[CarSimulator.DDS.MediaPublisher] 开始发送媒体: deviceId=%s, deviceType=%s, type=%d, size=%d bytes, chunks=%d\n",
-                deviceId, deviceType, mediaType, totalSize, totalChunks);
-
-        // 分块发送
-        for (int chunkSeq = 0; chunkSeq < totalChunks; chunkSeq++) {
-            AlertMedia media = new AlertMedia();
-            media.deviceId = deviceId;
-            media.deviceType = deviceType;
-            media.alert_id = alertId;
-            media.media_type = mediaType;
-            media.total_size = totalSize;
-            media.chunk_seq = chunkSeq;
 
-            // 计算当前块的大小
-            int currentChunkSize = Math.min(CHUNK_SIZE, totalSize - chunkSeq * CHUNK_SIZE);
-            media.chunk_size = currentChunkSize;
-
-            // 设置块数据
-            byte[] chunkData = new byte[currentChunkSize];
-            System.arraycopy(fileData, chunkSeq * CHUNK_SIZE, chunkData, 0, currentChunkSize);
-            System.out.println(chunkData.length);
-            // 检查块数据是否有效
-            boolean chunkHasData = false;
-            for (int i = 0; i < Math.min(10, chunkData.length); i++) {
-                if (chunkData[i] != 0) {
-                    chunkHasData = true;
-                    break;
-                }
-            }
-            System.out.printf("[CarSimulator.DDS.MediaPublisher] 准备发送块 #%d: 大小=%d, %s\n",
-                    chunkSeq, currentChunkSize, chunkHasData ? "包含数据" : "数据为空");
-
-
-            // 修复：使用正确的方式创建和填充Blob对象
-            media.chunk = new IDL.Blob();
-            try {
-                // 方法1：使用ensure_length预分配空间，然后用set_at逐个填充字节
-                media.chunk.ensure_length(currentChunkSize, currentChunkSize);
-                for (int i = 0; i < currentChunkSize; i++) {
-                    media.chunk.set_at(i, chunkData[i]);
-                }
-
-                // 验证Blob对象数据
-                System.out.printf("[CarSimulator.DDS.MediaPublisher] Blob对象创建完成(方法1): 长度=%d\n", media.chunk.length());
-
-                // 验证数据是否正确填充
-                boolean blobHasData = false;
-                for (int i = 0; i < Math.min(10, media.chunk.length()); i++) {
-                    try {
-                        if (media.chunk.get_at(i) != 0) {
-                            blobHasData = true;
-                            break;
-                        }
-                    } catch (Exception e) {
-                        System.err.println("[CarSimulator.DDS.MediaPublisher] 获取Blob数据时出错: " + e.getMessage());
-                        break;
-                    }
-                }
-                System.out.printf("[CarSimulator.DDS.MediaPublisher] Blob对象验证: 长度=%d, 包含数据=%s\n",
-                        media.chunk.length(), blobHasData);
-            } catch (Exception e) {
-                System.err.println("[CarSimulator.DDS.MediaPublisher] 创建Blob对象时出错: " + e.getMessage());
-                return false;
-            }
+        if (!file.isFile() || file.length() == 0) {
+            System.err.println("[HomeSimulator.DDS.MediaPublisher] 媒体文件不存在或为空: " + file);
+            return false;
+        }
 
+        try {
+            AlertMedia media = newSample(deviceId, deviceType, mediaType, (int) file.length(), alertId);
+            media.content_hash = ContentHash.of(file);
+            return sender.send(transferId(deviceId, alertId), media.content_hash, file, media.chunk,
+                    headerWriter(media), chunkWriter(media)).isComplete();
+        } catch (IOException e) {
+            System.err.println("[HomeSimulator.DDS.MediaPublisher] 读取媒体文件失败: " + e.getMessage());
+            return false;
+        }
+    }
 
-            // 增强的Blob对象验证
-            boolean blobHasData = false;
-            boolean hasImageHeader = false;
-            if (media.chunk.length() >= 4 && chunkSeq == 0) {
-                // 检查第一个块是否包含JPEG文件头
-                if ((chunkData[0] & 0xFF) == 0xFF && (chunkData[1] & 0xFF) == 0xD8) {
-                    hasImageHeader = true;
-                }
-            }
-            for (int i = 0; i < Math.min(10, media.chunk.length()); i++) {
-                try {
-                    if (media.chunk.get_at(i) != 0) {
-                        blobHasData = true;
-                        break;
-                    }
-                } catch (Exception e) {
-                    System.err.println("[CarSimulator.DDS.MediaPublisher] 获取Blob数据时出错: " + e.getMessage());
-                    break;
-                }
-            }
-            System.out.printf("[CarSimulator.DDS.MediaPublisher] Blob对象验证: 长度=%d, 包含数据=%s, 可能包含图片头=%s\n",
-                    media.chunk.length(), blobHasData, hasImageHeader);
-            System.out.println("aaaaas");
-            // 发送数据
+    private AlertMedia newSample(String deviceId, String deviceType, int mediaType, int totalSize, int alertId) {
+        System.out.printf("[HomeSimulator.DDS.MediaPublisher] 开始发送媒体: deviceId=%s, deviceType=%s, type=%d, size=%d bytes, chunks=%d\n",
+                deviceId, deviceType, mediaType, totalSize, sender.chunkCount(totalSize));
+        AlertMedia media = new AlertMedia();
+        media.deviceId = deviceId;
+        media.deviceType = deviceType;
+        media.alert_id = alertId;
+        media.media_type = mediaType;
+        media.total_size = totalSize;
+        media.raw_size = totalSize;
+        return media;
+    }
+
+    private static ChunkedSender.HeaderWriter headerWriter(AlertMedia media) {
+        return (sessionId, encoding, totalSize, rawSize) -> {
+            media.session_id = sessionId;
+            media.encoding = encoding;
+            media.total_size = totalSize;
+            media.raw_size = rawSize;
+        };
+    }
+
+    private ChunkedSender.ChunkWriter chunkWriter(AlertMedia media) {
+        return (chunkSeq, chunkSize) -> {
+            media.chunk_seq = chunkSeq;
+            media.chunk_size = chunkSize;
             ReturnCode_t rtn = writer.write(media, InstanceHandle_t.HANDLE_NIL_NATIVE);
-            if (rtn == ReturnCode_t.RETCODE_OK) {
-                System.out.printf("[CarSimulator.DDS.MediaPublisher] 已发送块: #%d/%d, size=%d bytes, alertId: %d\n",
-                        chunkSeq + 1, totalChunks, currentChunkSize, alertId);
-            } else {
-                System.err.printf("[CarSimulator.DDS.MediaPublisher] 发送块 #%d 失败, 返回码: %s\n", chunkSeq, rtn);
+            if (rtn != ReturnCode_t.RETCODE_OK) {
+                System.err.printf("[HomeSimulator.DDS.MediaPublisher] 发送块 #%d 失败, 返回码: %s, alertId: %d\n",
+                        chunkSeq, rtn, media.alert_id);
                 return false;
             }
-        }
+            return true;
+        };
+    }
 
-        System.out.printf("[CarSimulator.DDS.MediaPublisher] 媒体发送完成 - deviceId: %s, deviceType: %s, alertId: %d\n",
-                deviceId, deviceType, alertId);
-        return true;
+    private static String transferId(String deviceId, int alertId) {
+        return deviceId + "/" + alertId;
     }
 }
-
@@ -2,11 +2,16 @@ package HomeSimulator.DDS;
 
 import IDL.ReportMedia;
 import IDL.ReportMediaDataWriter;
-import IDL.Blob;
+import MediaTransfer.ChunkedSender;
+import MediaTransfer.MediaAckSubscriber;
+import MediaTransfer.MediaScheduler;
+import MediaTransfer.PayloadCodec;
+import MediaTransfer.TransferStats;
 import com.zrdds.infrastructure.InstanceHandle_t;
 import com.zrdds.infrastructure.ReturnCode_t;
 import com.zrdds.publication.DataWriterQos;
 import com.zrdds.publication.Publisher;
+import com.zrdds.subscription.Subscriber;
 import com.zrdds.topic.Topic;
 
 import java.time.LocalDateTime;
@@ -18,7 +23,9 @@ import java.time.format.DateTimeFormatter;
  */
 public class ReportMediaPublisher {
     private ReportMediaDataWriter writer;
-    private static final int CHUNK_SIZE = 4096; // 每块大小
+    private final ChunkedSender sender = new ChunkedSender("ReportMediaPublisher");
+    private String topicName;
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
     /**
      * 初始化报表媒体发布器
@@ -27,6 +34,11 @@ public class ReportMediaPublisher {
      * @return 是否初始化成功
      */
     public boolean start(Publisher pub, Topic topic) {
+        topicName = topic.get_name();
+        // SVG、图表描述和统计JSON为文本，Deflate压缩率更高；PNG试压无收益时按原样发送
+        sender.setCompression(PayloadCodec.forTopic(topicName, PayloadCodec.DEFLATE), topicName);
+        // 报表让行于同时发送的报警图片
+        sender.setScheduler(MediaScheduler.shared(), MediaScheduler.Priority.REPORT);
         // 配置QoS
         DataWriterQos dwQos = new DataWriterQos();
         pub.get_default_datawriter_qos(dwQos);
@@ -50,6 +62,18 @@ public class ReportMediaPublisher {
         return true;
     }
 
+    /**
+     * 启用滑动窗口发送：接收端通过MediaAck主题回报缺失的分片，发送端只重传缺口，
+     * 未确认的分片数不超过窗口大小（小于history.depth，避免历史缓存被覆盖）
+     * @param sub DDS订阅器
+     * @param ackTopic MediaAck主题
+     * @return 是否启用成功
+     */
+    public boolean enableAcks(Subscriber sub, Topic ackTopic) {
+        sender.enableAcks(ChunkedSender.DEFAULT_WINDOW);
+        return new MediaAckSubscriber().start(sub, ackTopic, topicName, sender);
+    }
+
     /**
      * 发送报表媒体数据（如能耗趋势图）
      * @param reportId 报表ID
@@ -69,104 +93,34 @@ public class ReportMediaPublisher {
             return false;
         }
 
-        // 检查数据是否有效
-        boolean hasNonZeroData = false;
-        for (int i = 0; i < Math.min(10, fileData.length); i++) {
-            if (fileData[i] != 0) {
-                hasNonZeroData = true;
-                break;
-            }
-        }
-        System.out.println("[ReportMediaPublisher] 文件数据预览：前10字节" + (hasNonZeroData ? "包含非零数据" : "全部为0"));
-
         int totalSize = fileData.length;
-        int totalChunks = (int) Math.ceil((double) totalSize / CHUNK_SIZE);
-
         System.out.printf("[ReportMediaPublisher] 开始发送报表媒体: reportId=%s, reportType=%s, deviceId=%s, size=%d bytes, chunks=%d\n",
-                reportId, reportType, deviceId, totalSize, totalChunks);
-
-        // 分块发送
-        for (int chunkSeq = 0; chunkSeq < totalChunks; chunkSeq++) {
-            ReportMedia media = new ReportMedia();
-            media.reportId = reportId;
-            media.reportType = reportType;
-            media.deviceId = deviceId;
-            media.total_size = totalSize;
+                reportId, reportType, deviceId, totalSize, sender.chunkCount(totalSize));
+
+        ReportMedia media = new ReportMedia();
+        media.reportId = reportId;
+        media.reportType = reportType;
+        media.deviceId = deviceId;
+        media.total_size = totalSize;
+        media.raw_size = totalSize;
+        media.timeStamp = LocalDateTime.now().format(TIMESTAMP_FORMAT);
+
+        ChunkedSender.HeaderWriter header = (sessionId, encoding, encodedSize, rawSize) -> {
+            media.session_id = sessionId;
+            media.encoding = encoding;
+            media.total_size = encodedSize;
+            media.raw_size = rawSize;
+        };
+        TransferStats stats = sender.send(reportId, null, fileData, media.chunk, header, (chunkSeq, chunkSize) -> {
             media.chunk_seq = chunkSeq;
-            media.timeStamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
-
-            // 计算当前块的大小
-            int currentChunkSize = Math.min(CHUNK_SIZE, totalSize - chunkSeq * CHUNK_SIZE);
-            media.chunk_size = currentChunkSize;
-
-            // 设置块数据
-            byte[] chunkData = new byte[currentChunkSize];
-            System.arraycopy(fileData, chunkSeq * CHUNK_SIZE, chunkData, 0, currentChunkSize);
-
-            // 检查块数据是否有效
-            boolean chunkHasData = false;
-            for (int i = 0; i < Math.min(10, chunkData.length); i++) {
-                if (chunkData[i] != 0) {
-                    chunkHasData = true;
-                    break;
-                }
-            }
-            System.out.printf("[ReportMediaPublisher] 准备发送块 #%d: 大小=%d, %s\n",
-                    chunkSeq, currentChunkSize, chunkHasData ? "包含数据" : "数据为空");
-
-            // 创建和填充Blob对象
-            media.chunk = new IDL.Blob();
-            try {
-                // 预分配空间，然后用set_at逐个填充字节
-                media.chunk.ensure_length(currentChunkSize, currentChunkSize);
-                for (int i = 0; i < currentChunkSize; i++) {
-                    media.chunk.set_at(i, chunkData[i]);
-                }
-
-                // 验证Blob对象数据
-                System.out.printf("[ReportMediaPublisher] Blob对象创建完成: 长度=%d\n", media.chunk.length());
-
-            } catch (Exception e) {
-                System.err.println("[ReportMediaPublisher] 创建Blob对象时出错: " + e.getMessage());
-                return false;
-            }
-
-            // 增强的Blob对象验证
-            boolean blobHasData = false;
-            boolean hasImageHeader = false;
-            if (media.chunk.length() >= 4 && chunkSeq == 0) {
-                // 检查第一个块是否包含JPEG文件头
-                if ((chunkData[0] & 0xFF) == 0xFF && (chunkData[1] & 0xFF) == 0xD8) {
-                    hasImageHeader = true;
-                }
-            }
-            for (int i = 0; i < Math.min(10, media.chunk.length()); i++) {
-                try {
-                    if (media.chunk.get_at(i) != 0) {
-                        blobHasData = true;
-                        break;
-                    }
-                } catch (Exception e) {
-                    System.err.println("[ReportMediaPublisher] 获取Blob数据时出错: " + e.getMessage());
-                    break;
-                }
-            }
-            System.out.printf("[ReportMediaPublisher] Blob对象验证: 长度=%d, 包含数据=%s, 可能包含图片头=%s\n",
-                    media.chunk.length(), blobHasData, hasImageHeader);
-
-            // 发送数据
+            media.chunk_size = chunkSize;
             ReturnCode_t rtn = writer.write(media, InstanceHandle_t.HANDLE_NIL_NATIVE);
-            if (rtn == ReturnCode_t.RETCODE_OK) {
-                System.out.printf("[ReportMediaPublisher] 已发送块: #%d/%d, size=%d bytes\n",
-                        chunkSeq + 1, totalChunks, currentChunkSize);
-            } else {
+            if (rtn != ReturnCode_t.RETCODE_OK) {
                 System.err.printf("[ReportMediaPublisher] 发送块 #%d 失败, 返回码: %s\n", chunkSeq, rtn);
                 return false;
             }
-        }
-
-        System.out.printf("[ReportMediaPublisher] 报表媒体发送完成 - reportId: %s, reportType: %s\n",
-                reportId, reportType);
-        return true;
+            return true;
+        });
+        return stats.isComplete();
     }
 }
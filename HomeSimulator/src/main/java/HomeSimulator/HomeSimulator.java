@@ -1,26 +1,13 @@
 package HomeSimulator;
 import IDL.*;
-import org.jfree.chart.ChartFactory;
-import org.jfree.chart.JFreeChart;
-import org.jfree.chart.axis.DateAxis;
-import org.jfree.chart.axis.NumberAxis;
-import org.jfree.chart.entity.StandardEntityCollection;
-import org.jfree.chart.plot.XYPlot;
-import org.jfree.chart.renderer.xy.XYItemRenderer;
-import org.jfree.chart.ui.RectangleInsets;
-import org.jfree.data.time.Day;
-import org.jfree.data.time.Millisecond;
-import org.jfree.data.time.TimeSeries;
-import org.jfree.data.time.TimeSeriesCollection;
-import org.jfree.chart.plot.PlotOrientation;
-import org.jfree.chart.ChartRenderingInfo;
-
-import java.awt.*;
-import java.awt.image.BufferedImage;
-import java.text.SimpleDateFormat;
+import org.json.JSONObject;
+
 import java.time.ZoneOffset;
-import java.util.Date;
 import HomeSimulator.DDS.*;
+import HomeSimulator.chart.ChartRenderPool;
+import HomeSimulator.chart.EnergyChartCache;
+import HomeSimulator.chart.EnergyChartFormat;
+import HomeSimulator.chart.EnergyTrendChartRenderer;
 import HomeSimulator.furniture.*;
 import HomeSimulator.HomeSimulatorAlert.AlertType;
 import com.zrdds.infrastructure.*;
@@ -28,17 +15,17 @@ import com.zrdds.publication.DataWriterQos;
 import com.zrdds.publication.Publisher;
 import com.zrdds.topic.Topic;
 
-import javax.imageio.ImageIO;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -70,6 +57,35 @@ public class HomeSimulator {
     private ReportMediaPublisher reportMediaPublisher;
     private Topic energyRawDataTopic;
     private EnergyRawDataPublisher energyRawDataPublisher;
+    // 能耗趋势图缓存（按设备、时间范围和数据版本命中）
+    private final EnergyChartCache energyChartCache = new EnergyChartCache(ENERGY_CHART_CACHE_SIZE);
+    // 能耗趋势图渲染器（800x400）
+    private final EnergyTrendChartRenderer energyChartRenderer = new EnergyTrendChartRenderer(800, 400);
+    // 趋势图渲染线程池，渲染不占用命令处理线程
+    private final ChartRenderPool energyChartRenderPool = ChartRenderPool.forAvailableCores(ENERGY_CHART_QUEUE_SIZE);
+    // 趋势图发布线程：分片发送、等待确认和重传、排在报警媒体之后都在这里进行，
+    // 接收端慢或丢包时只会积压发布队列，不会占住渲染线程
+    private final ThreadPoolExecutor energyChartPublishExecutor = new ThreadPoolExecutor(1, 1,
+            0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(ENERGY_CHART_QUEUE_SIZE),
+            r -> {
+                Thread t = new Thread(r, "chart-publish");
+                t.setDaemon(true);
+                return t;
+            },
+            (r, executor) -> System.err.println("[HomeSimulator] 趋势图发布队列已满，丢弃本次发布"));
+
+    // 能耗历史查询窗口（过去24小时）
+    private static final long ENERGY_QUERY_WINDOW_MS = 24L * 60L * 60L * 1000L;
+    // 趋势图默认精度（1分钟聚合），原始数据请求默认不聚合
+    private static final long ENERGY_TREND_DEFAULT_RESOLUTION_MS = 60L * 1000L;
+    // 读取期间数据被覆盖时的最大查询次数
+    private static final int ENERGY_QUERY_MAX_ATTEMPTS = 3;
+    // 趋势图缓存的最大图片数
+    private static final int ENERGY_CHART_CACHE_SIZE = 64;
+    // 渲染线程池的最大排队任务数，超出时拒绝新的渲染请求
+    private static final int ENERGY_CHART_QUEUE_SIZE = 16;
+    // 能耗统计结果中返回的分位数
+    private static final double[] ENERGY_STATS_PERCENTILES = {0.50, 0.95, 0.99};
 
     public HomeSimulator() {
         loadLibrary();
@@ -148,6 +164,8 @@ public class HomeSimulator {
                 ddsParticipant.getDomainParticipant(), "Command");
         HomeStatusTypeSupport.get_instance().register_type(
                 ddsParticipant.getDomainParticipant(), "HomeStatus");
+        DeviceStatusTypeSupport.get_instance().register_type(
+                ddsParticipant.getDomainParticipant(), "DeviceStatus");
         PresenceTypeSupport.get_instance().register_type(
                 ddsParticipant.getDomainParticipant(), "Presence");
         AlertTypeSupport.get_instance().register_type(
@@ -164,12 +182,17 @@ public class HomeSimulator {
         // 新增：注册EnergyRawData类型
         EnergyRawDataTypeSupport.get_instance().register_type(
                 ddsParticipant.getDomainParticipant(), "EnergyRawData");
+        // 注册MediaAck类型（媒体分片确认）
+        MediaAckTypeSupport.get_instance().register_type(
+                ddsParticipant.getDomainParticipant(), "MediaAck");
 
         // 创建Topic
         Topic commandTopic = ddsParticipant.createTopic(
                 "Command", CommandTypeSupport.get_instance());
         Topic homeStatusTopic = ddsParticipant.createTopic(
                 "HomeStatus", HomeStatusTypeSupport.get_instance());
+        Topic deviceStatusTopic = ddsParticipant.createTopic(
+                "DeviceStatus", DeviceStatusTypeSupport.get_instance());
         Topic presenceTopic = ddsParticipant.createTopic(
                 "Presence", PresenceTypeSupport.get_instance());
         Topic alertTopic = ddsParticipant.createTopic(
@@ -185,6 +208,8 @@ public class HomeSimulator {
                 "ReportMedia", IDL.ReportMediaTypeSupport.get_instance());
         energyRawDataTopic = ddsParticipant.createTopic(
                 "EnergyRawData", EnergyRawDataTypeSupport.get_instance());
+        Topic mediaAckTopic = ddsParticipant.createTopic(
+                "MediaAck", MediaAckTypeSupport.get_instance());
 
         // 初始化订阅者（命令接收）
         commandSubscriber = new CommandSubscriber();
@@ -195,7 +220,7 @@ public class HomeSimulator {
 
         // 创建家具管理器（传入DDS发布器和HomeStatus主题）
         Publisher ddsPublisher = ddsParticipant.getPublisher();
-        furnitureManager = new FurnitureManager(ddsPublisher, homeStatusTopic);
+        furnitureManager = new FurnitureManager(ddsPublisher, homeStatusTopic, deviceStatusTopic);
         
         // 创建报警系统
         alertSystem = new HomeSimulatorAlert(ddsPublisher, homeStatusTopic, alertTopic);
@@ -204,6 +229,7 @@ public class HomeSimulator {
         // 新增：初始化MediaPublisher
         mediaPublisher = new MediaPublisher();
         mediaPublisher.start(ddsPublisher, alertMediaTopic);
+        mediaPublisher.enableAcks(ddsParticipant.getSubscriber(), mediaAckTopic);
         // 新增：初始化EnergyReportPublisher
         energyReportPublisher = new EnergyReportPublisher();
         energyReportPublisher.start(ddsPublisher, energyReportTopic, furnitureManager);
@@ -211,6 +237,7 @@ public class HomeSimulator {
         // 新增：初始化ReportMediaPublisher
         reportMediaPublisher = new ReportMediaPublisher();
         reportMediaPublisher.start(ddsPublisher, reportMediaTopic);
+        reportMediaPublisher.enableAcks(ddsParticipant.getSubscriber(), mediaAckTopic);
 
         // 新增：初始化EnergyDataHistory
         energyDataHistory = EnergyDataHistory.getInstance();
@@ -246,6 +273,13 @@ public class HomeSimulator {
         }
         return false;
     }
+    // 从文件发送媒体（接收端已有相同内容时只发送引用）
+    public boolean sendMedia(String deviceId, String deviceType, int mediaType, File file, int alertId) {
+        if (mediaPublisher != null) {
+            return mediaPublisher.publishMedia(deviceId, deviceType, mediaType, file, alertId);
+        }
+        return false;
+    }
     // 添加Presence单次发送方法
     private void publishPresenceStatus() {
         if (presenceDataWriter == null) {
@@ -305,18 +339,46 @@ public class HomeSimulator {
                 return;
             }
 
-            // 新增：处理能耗趋势图请求命令
+            // 新增：处理能耗趋势图请求命令，格式 get_energy_trend_<设备ID>[,<精度如15m>][,<格式png/svg/spec>]
             if (action.startsWith("get_energy_trend_")) {
-                String deviceId = action.substring("get_energy_trend_".length());
-                System.out.printf("[HomeSimulator] 接收到设备 %s 的能耗趋势图请求\n", deviceId);
-                handleEnergyTrendRequest(deviceId);
+                String[] parts = action.substring("get_energy_trend_".length()).split(",");
+                String deviceId = parts[0];
+                long resolution = ENERGY_TREND_DEFAULT_RESOLUTION_MS;
+                EnergyChartFormat format = EnergyChartFormat.PNG;
+                for (int i = 1; i < parts.length; i++) {
+                    EnergyChartFormat requested = EnergyChartFormat.fromOption(parts[i]);
+                    if (requested != null) {
+                        format = requested;
+                    } else {
+                        resolution = EnergyDataHistory.parseDurationMillis(parts[i]);
+                    }
+                }
+                System.out.printf("[HomeSimulator] 接收到设备 %s 的能耗趋势图请求（%s）\n", deviceId, format.option());
+                handleEnergyTrendRequest(deviceId, resolution, format);
                 return;
             }
-            // 新增：处理原始能耗数据请求命令
+            // 新增：处理原始能耗数据请求命令，格式 get_raw_energy_data_<设备ID>[,<精度如1h>]
             if (action.startsWith("get_raw_energy_data_")) {
-                String deviceId = action.substring("get_raw_energy_data_".length());
+                String[] parts = action.substring("get_raw_energy_data_".length()).split(",");
+                String deviceId = parts[0];
+                long resolution = parts.length > 1 ? EnergyDataHistory.parseDurationMillis(parts[1]) : 0;
                 System.out.printf("[HomeSimulator] 接收到设备 %s 的原始能耗数据请求\n", deviceId);
-                handleRawEnergyDataRequest(deviceId);
+                handleRawEnergyDataRequest(deviceId, resolution);
+                return;
+            }
+
+            // 处理能耗统计请求命令，格式 get_energy_stats_<设备ID或home>
+            if (action.startsWith("get_energy_stats_")) {
+                String deviceId = action.substring("get_energy_stats_".length());
+                System.out.printf("[HomeSimulator] 接收到设备 %s 的能耗统计请求\n", deviceId);
+                handleEnergyStatsRequest("device", deviceId);
+                return;
+            }
+            // 处理按设备类型汇总的能耗统计请求命令，格式 get_energy_type_stats_<设备类型>
+            if (action.startsWith("get_energy_type_stats_")) {
+                String type = action.substring("get_energy_type_stats_".length());
+                System.out.printf("[HomeSimulator] 接收到设备类型 %s 的能耗统计请求\n", type);
+                handleEnergyStatsRequest("type", type);
                 return;
             }
 
@@ -360,7 +422,7 @@ public class HomeSimulator {
     /**
      * 处理原始能耗数据请求
      */
-    private void handleRawEnergyDataRequest(String deviceId) {
+    private void handleRawEnergyDataRequest(String deviceId, long resolution) {
         try {
             // 检查设备是否存在
             Furniture device = furnitureManager.getAllFurniture().stream()
@@ -373,16 +435,22 @@ public class HomeSimulator {
                 return;
             }
 
-            // 从缓存获取历史数据（过去24小时）
-            List<EnergyDataHistory.EnergyDataPoint> historyData = energyDataHistory.getHistoryData(deviceId, "24h");
+            // 从缓存获取历史数据（过去24小时），读取期间数据被覆盖时重新查询
+            for (int attempt = 0; attempt < ENERGY_QUERY_MAX_ATTEMPTS; attempt++) {
+                long now = System.currentTimeMillis();
+                EnergySeriesView historyData = energyDataHistory.query(deviceId, now - ENERGY_QUERY_WINDOW_MS, now, resolution);
 
-            if (historyData.isEmpty()) {
-                System.out.printf("[HomeSimulator] 设备 %s 暂无足够的历史数据\n", deviceId);
-                return;
-            }
+                if (historyData.isEmpty()) {
+                    System.out.printf("[HomeSimulator] 设备 %s 暂无足够的历史数据\n", deviceId);
+                    return;
+                }
 
-            // 通过DDS发送原始能耗数据到前端
-            sendRawEnergyDataToFrontend(deviceId, device.getType(), historyData);
+                // 通过DDS发送原始能耗数据到前端
+                if (sendRawEnergyDataToFrontend(deviceId, device.getType(), historyData)) {
+                    return;
+                }
+            }
+            System.err.printf("[HomeSimulator] 设备 %s 的历史数据更新过快，原始能耗数据发送失败\n", deviceId);
 
         } catch (Exception e) {
             System.err.println("[HomeSimulator] 处理原始能耗数据请求时发生错误: " + e.getMessage());
@@ -393,7 +461,7 @@ public class HomeSimulator {
     /**
      * 将原始能耗数据发送到前端
      */
-    private void sendRawEnergyDataToFrontend(String deviceId, String deviceType, List<EnergyDataHistory.EnergyDataPoint> historyData) {
+    private boolean sendRawEnergyDataToFrontend(String deviceId, String deviceType, EnergySeriesView historyData) {
         try {
             EnergyRawData rawData = new EnergyRawData();
             int len = historyData.size();
@@ -403,9 +471,9 @@ public class HomeSimulator {
             rawData.dailyConsumptionSeq.ensure_length(len, len);
             rawData.weeklyConsumptionSeq.ensure_length(len, len);
             rawData.timeSeq.ensure_length(len, len);
+            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
             // 遍历数据点并通过EnergyReportPublisher发送
-            int i = 0;
-            for (EnergyDataHistory.EnergyDataPoint point : historyData) {
+            for (int i = 0; i < len; i++) {
                 // 创建EnergyReport对象
 //                EnergyReport report = new EnergyReport();
 //                report.deviceId = deviceId;
@@ -423,196 +491,223 @@ public class HomeSimulator {
 //                    energyReportPublisher.publishSingleReport(report);
 //                }
 
-                rawData.currentPowerSeq.set_at(i, point.getCurrentPower());
-                rawData.dailyConsumptionSeq.set_at(i, point.getDailyConsumption());
-                rawData.weeklyConsumptionSeq.set_at(i, point.getWeeklyConsumption());
+                rawData.currentPowerSeq.set_at(i, historyData.currentPowerAt(i));
+                rawData.dailyConsumptionSeq.set_at(i, historyData.dailyConsumptionAt(i));
+                rawData.weeklyConsumptionSeq.set_at(i, historyData.weeklyConsumptionAt(i));
                 // 将时间戳格式化为字符串
-                LocalDateTime dateTime = LocalDateTime.ofEpochSecond(point.getTimestamp()/1000, 0, ZoneOffset.UTC);
-                rawData.timeSeq.set_at(i, dateTime.format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
-                i++;
+                LocalDateTime dateTime = LocalDateTime.ofEpochSecond(historyData.timestampAt(i)/1000, 0, ZoneOffset.UTC);
+                rawData.timeSeq.set_at(i, dateTime.format(formatter));
+            }
+            // 填充期间数据已被覆盖，由调用方重新查询
+            if (!historyData.isValid()) {
+                return false;
             }
             energyRawDataPublisher.publishEnergyRawData(rawData);
 
             System.out.printf("[HomeSimulator] 设备 %s 的原始能耗数据发送完成，共发送 %d 个数据点\n",
-                    deviceId, historyData.size());
+                    deviceId, len);
 
         } catch (Exception e) {
             System.err.println("[HomeSimulator] 发送原始能耗数据时发生错误: " + e.getMessage());
             e.printStackTrace();
         }
+        return true;
+    }
+    /**
+     * 处理能耗统计请求：由流式统计摘要生成紧凑的JSON结果，通过ReportMedia发送（类型为energy_stats）
+     * scope为device时key是设备ID（home表示全屋），为type时key是设备类型
+     */
+    private void handleEnergyStatsRequest(String scope, String key) {
+        try {
+            EnergyStats stats;
+            if ("type".equals(scope)) {
+                stats = energyDataHistory.getTypeStats(key);
+            } else if (EnergyDataHistory.HOME_SERIES_ID.equals(key)) {
+                scope = "home";
+                stats = energyDataHistory.getHomeStats();
+            } else {
+                stats = energyDataHistory.getDeviceStats(key);
+            }
+
+            if (stats == null || stats.getCount() == 0) {
+                System.out.printf("[HomeSimulator] %s 暂无能耗统计数据\n", key);
+                return;
+            }
+
+            JSONObject result = new JSONObject();
+            result.put("scope", scope);
+            result.put("id", key);
+            result.put("count", stats.getCount());
+            result.put("from", stats.getFirstTimestamp());
+            result.put("to", stats.getLastTimestamp());
+            result.put("min", round2(stats.getMin()));
+            result.put("max", round2(stats.getMax()));
+            result.put("maxTime", stats.getMaxTimestamp());
+            result.put("mean", round2(stats.getMean()));
+            for (double q : ENERGY_STATS_PERCENTILES) {
+                result.put("p" + Math.round(q * 100), round2(stats.getPercentile(q)));
+            }
+            int peakHour = stats.getPeakHour();
+            result.put("peakHour", peakHour);
+            result.put("peakHourMean", round2(stats.getHourlyMean(peakHour)));
+            byte[] payload = result.toString().getBytes(StandardCharsets.UTF_8);
+
+            if (reportMediaPublisher != null) {
+                String reportId = "energy_stats_" + key + "_" + System.currentTimeMillis();
+                boolean sent = reportMediaPublisher.publishReportMedia(reportId, "energy_stats", key, payload);
+                if (sent) {
+                    System.out.printf("[HomeSimulator] %s 的能耗统计发送成功（%d 字节）: %s\n", key, payload.length, result);
+                } else {
+                    System.err.printf("[HomeSimulator] %s 的能耗统计发送失败\n", key);
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("[HomeSimulator] 处理能耗统计请求时发生错误: " + e.getMessage());
+            e.printStackTrace();
+        }
     }
+
+    private static double round2(double value) {
+        return Math.round(value * 100.0) / 100.0;
+    }
+
     /**
      * 处理能耗趋势图请求
      */
-    private void handleEnergyTrendRequest(String deviceId) {
+    private void handleEnergyTrendRequest(String deviceId, long resolution, EnergyChartFormat format) {
         try {
-            // 检查设备是否存在
-            Furniture device = furnitureManager.getAllFurniture().stream()
+            // 设备ID为home时生成全屋能耗趋势图，否则检查设备是否存在
+            boolean wholeHome = EnergyDataHistory.HOME_SERIES_ID.equals(deviceId);
+            Furniture device = wholeHome ? null : furnitureManager.getAllFurniture().stream()
                     .filter(f -> deviceId.equals(f.getId()))
                     .findFirst()
                     .orElse(null);
 
-            if (device == null) {
+            if (!wholeHome && device == null) {
                 System.err.printf("[HomeSimulator] 未找到设备: %s\n", deviceId);
                 return;
             }
+            String deviceType = wholeHome ? EnergyDataHistory.HOME_SERIES_ID : device.getType();
 
             // 生成报表ID
             String reportId = "energy_trend_" + deviceId + "_" + System.currentTimeMillis();
 
-            // 从缓存获取历史数据（过去24小时）
-            List<EnergyDataHistory.EnergyDataPoint> historyData = energyDataHistory.getHistoryData(deviceId, "24h");
+            // 查询窗口的终点按精度对齐，同一精度周期内且数据版本未变的请求直接使用缓存的图片
+            long step = Math.max(resolution, ENERGY_TREND_DEFAULT_RESOLUTION_MS);
+            long windowEnd = Math.floorDiv(System.currentTimeMillis(), step) * step + step;
+            long windowStart = windowEnd - ENERGY_QUERY_WINDOW_MS;
+            long version = energyDataHistory.getVersion(deviceId);
+            byte[] cached = energyChartCache.get(deviceId, format, windowStart, windowEnd, resolution, version);
+            if (cached != null) {
+                energyChartPublishExecutor.execute(() -> publishEnergyTrendChart(deviceId, reportId, format, cached));
+                return;
+            }
+
+            // 缓存未命中：在渲染线程池中生成趋势图，命令线程立即返回；
+            // 相同设备、时间范围和数据版本的并发请求共享同一次渲染，渲染结果交给发布线程发送
+            String renderKey = deviceId + '|' + format.option() + '|' + windowStart + '|' + windowEnd
+                    + '|' + resolution + '|' + version;
+            energyChartRenderPool.submit(renderKey, () -> renderEnergyTrendChart(
+                            deviceId, deviceType, format, windowStart, windowEnd, resolution, version))
+                    .whenCompleteAsync((chartImageData, error) -> {
+                        if (error != null) {
+                            System.err.printf("[HomeSimulator] 设备 %s 的能耗趋势图生成失败: %s\n",
+                                    deviceId, error.getMessage());
+                        } else if (chartImageData != null) {
+                            publishEnergyTrendChart(deviceId, reportId, format, chartImageData);
+                        }
+                    }, energyChartPublishExecutor);
+        } catch (Exception e) {
+            System.err.println("[HomeSimulator] 处理能耗趋势图请求时发生错误: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 从历史数据生成趋势图并放入缓存（在渲染线程中执行），读取期间数据被覆盖时重新查询
+     * @return 指定格式的图表数据；没有历史数据或生成失败时返回null（原因已输出到日志）
+     */
+    private byte[] renderEnergyTrendChart(String deviceId, String deviceType, EnergyChartFormat format,
+                                          long windowStart, long windowEnd, long resolution, long version) {
+        boolean wholeHome = EnergyDataHistory.HOME_SERIES_ID.equals(deviceId);
+        for (int attempt = 0; attempt < ENERGY_QUERY_MAX_ATTEMPTS; attempt++) {
+            long renderStart = System.nanoTime();
+            // 全屋序列在多设备归并时按桶求和，至少使用默认精度分桶
+            EnergySeriesView historyData = wholeHome
+                    ? energyDataHistory.getHomePowerSeries(windowStart, windowEnd,
+                            Math.max(resolution, ENERGY_TREND_DEFAULT_RESOLUTION_MS))
+                    : energyDataHistory.query(deviceId, windowStart, windowEnd, resolution);
 
             if (historyData.isEmpty()) {
                 System.out.printf("[HomeSimulator] 设备 %s 暂无足够的历史数据生成趋势图\n", deviceId);
-                return;
+                return null;
             }
 
-            // 生成趋势图
-            byte[] chartImageData = generateEnergyTrendChart(deviceId, device.getType(), historyData);
-
-            if (chartImageData == null || chartImageData.length == 0) {
+            byte[] rendered = generateEnergyTrendChart(deviceId, deviceType, format, historyData);
+            if (rendered == null || rendered.length == 0) {
                 System.err.println("[HomeSimulator] 生成趋势图失败");
-                return;
+                return null;
             }
-
-            // 通过ReportMediaPublisher发送图片
-            if (reportMediaPublisher != null) {
-                boolean result = reportMediaPublisher.publishReportMedia(
-                        reportId,
-                        "energy_trend",
-                        deviceId,
-                        chartImageData);
-
-                if (result) {
-                    System.out.printf("[HomeSimulator] 设备 %s 的能耗趋势图发送成功\n", deviceId);
-                } else {
-                    System.err.printf("[HomeSimulator] 设备 %s 的能耗趋势图发送失败\n", deviceId);
-                }
+            if (historyData.isValid()) {
+                // 版本号在查询之前读取，渲染期间追加的数据会使下一次请求重新渲染
+                energyChartCache.put(deviceId, format, windowStart, windowEnd, resolution, version,
+                        rendered, System.nanoTime() - renderStart);
+                System.out.printf("[HomeSimulator] 趋势图缓存: %s；渲染线程池: %s\n",
+                        energyChartCache, energyChartRenderPool);
+                return rendered;
             }
-        } catch (Exception e) {
-            System.err.println("[HomeSimulator] 处理能耗趋势图请求时发生错误: " + e.getMessage());
-            e.printStackTrace();
         }
+        System.err.printf("[HomeSimulator] 设备 %s 的历史数据更新过快，生成趋势图失败\n", deviceId);
+        return null;
     }
 
     /**
-     * 生成能耗趋势图（不使用ChartUtilities）
+     * 通过ReportMediaPublisher发送趋势图，reportType由输出格式决定
      */
-    private byte[] generateEnergyTrendChart(String deviceId, String deviceType, List<EnergyDataHistory.EnergyDataPoint> historyData) {
+    private void publishEnergyTrendChart(String deviceId, String reportId, EnergyChartFormat format,
+                                         byte[] chartImageData) {
+        if (reportMediaPublisher == null) {
+            return;
+        }
+        boolean result = reportMediaPublisher.publishReportMedia(
+                reportId,
+                format.reportType(),
+                deviceId,
+                chartImageData);
+
+        if (result) {
+            System.out.printf("[HomeSimulator] 设备 %s 的能耗趋势图发送成功（%s，%d 字节）\n",
+                    deviceId, format.option(), chartImageData.length);
+        } else {
+            System.err.printf("[HomeSimulator] 设备 %s 的能耗趋势图发送失败\n", deviceId);
+        }
+    }
+
+    /**
+     * 生成能耗趋势图：把视图中的数据拷贝到基本类型数组，由渲染器降采样后按指定格式输出
+     */
+    private byte[] generateEnergyTrendChart(String deviceId, String deviceType, EnergyChartFormat format,
+                                            EnergySeriesView historyData) {
         try {
             if (historyData == null || historyData.isEmpty()) {
                 System.out.println("[HomeSimulator] 没有足够的历史数据生成趋势图");
                 return null;
             }
 
+            int n = historyData.size();
             System.out.printf("[HomeSimulator] 为设备 %s(%s) 生成能耗趋势图，使用%d个数据点\n",
-                    deviceId, deviceType, historyData.size());
-
-            // 创建数据集
-            TimeSeriesCollection dataset = new TimeSeriesCollection();
-            TimeSeries series = new TimeSeries("能耗趋势");
-
-            // 添加数据点到时间序列（修复时间戳问题）
-            for (EnergyDataHistory.EnergyDataPoint point : historyData) {
-                // 获取时间戳并验证
-                long timestamp = point.getTimestamp();
-
-                // 验证时间戳是否有效（转换为Date后年份在1900-9999范围内）
-                Date date;
-                if (timestamp < 0) {
-                    // 如果时间戳为负，使用当前时间
-                    date = new Date();
-                    System.out.println("[HomeSimulator] 警告: 使用了负值时间戳，已替换为当前时间");
-                } else {
-                    // 检查时间戳是否在有效范围内
-                    // 1900-01-01 00:00:00的时间戳约为-2208988800
-                    // 9999-12-31 23:59:59的时间戳约为253402300799
-                    if (timestamp < -2208988800L || timestamp > 253402300799L) {
-                        // 使用当前时间，但保持数据点的相对顺序
-                        long currentTime = System.currentTimeMillis() / 1000L;
-                        // 为了保持数据点之间的相对间隔，将所有数据点映射到最近的时间段
-                        long timeSpan = (currentTime - 86400L * 30); // 30天前到现在
-                        int index = historyData.indexOf(point);
-                        long adjustedTimestamp = timeSpan + (index * (86400L * 30 / historyData.size()));
-                        date = new Date(adjustedTimestamp * 1000L);
-                        System.out.println(date.toString());
-                        System.out.println("[HomeSimulator] 警告: 时间戳超出有效范围，已调整到合理时间");
-                    } else {
-                        date = new Date(timestamp * 1000L);
-                    }
-                }
-
-                try {
-                    series.addOrUpdate(new Day(date), point.getCurrentPower());
-                } catch (IllegalArgumentException e) {
-                    // 如果Day构造仍然失败，使用替代方案
-                    System.out.println("[HomeSimulator] Day构造失败，使用Millisecond替代: " + e.getMessage());
-                    series.addOrUpdate(new Millisecond(date), point.getCurrentPower());
-                }
+                    deviceId, deviceType, n);
+
+            // 历史数据的时间戳为毫秒，直接作为时间轴的值
+            long[] timestamps = new long[n];
+            double[] power = new double[n];
+            for (int i = 0; i < n; i++) {
+                timestamps[i] = historyData.timestampAt(i);
+                power[i] = historyData.currentPowerAt(i);
             }
-            dataset.addSeries(series);
-
-            // 创建图表 - 使用中文标题和标签
-            JFreeChart chart = ChartFactory.createTimeSeriesChart(
-                    deviceId + "(" + deviceType + ") 能耗趋势", // 标题
-                    "时间", // X轴标签 - 使用中文
-                    "功率(W)", // Y轴标签 - 使用中文
-                    dataset, // 数据集
-                    true, // 是否显示图例
-                    true, // 是否显示工具提示
-                    false // 是否显示URL链接
-            );
-
-            // 设置图表背景色
-            chart.setBackgroundPaint(Color.WHITE);
-
-            // 自定义图表样式
-            XYPlot plot = chart.getXYPlot();
-            plot.setBackgroundPaint(Color.LIGHT_GRAY);
-            plot.setDomainGridlinePaint(Color.WHITE);
-            plot.setRangeGridlinePaint(Color.WHITE);
-            plot.setAxisOffset(new RectangleInsets(5.0, 5.0, 5.0, 5.0));
-            plot.setDomainCrosshairVisible(true);
-            plot.setRangeCrosshairVisible(true);
-
-            // 设置时间轴显示格式
-            DateAxis domainAxis = (DateAxis) plot.getDomainAxis();
-            // 根据数据点数量设置合适的日期格式
-            if (historyData.size() <= 7) {
-                // 数据点较少时，显示完整日期和时间
-                domainAxis.setDateFormatOverride(new SimpleDateFormat("yyyy-MM-dd HH:mm"));
-            } else if (historyData.size() <= 30) {
-                // 数据点适中时，显示日期
-                domainAxis.setDateFormatOverride(new SimpleDateFormat("yyyy-MM-dd"));
-            } else {
-                // 数据点较多时，只显示月份和日期
-                domainAxis.setDateFormatOverride(new SimpleDateFormat("MM-dd"));
-            }
-            // 设置轴标签字体，解决中文显示问题
-            Font labelFont = new Font("SimHei", Font.PLAIN, 12);
-            domainAxis.setLabelFont(labelFont);
-            domainAxis.setTickLabelFont(labelFont);
-
-            NumberAxis rangeAxis = (NumberAxis) plot.getRangeAxis();
-            rangeAxis.setLabelFont(labelFont);
-            rangeAxis.setTickLabelFont(labelFont);
-
-            // 设置标题字体
-            chart.getTitle().setFont(new Font("SimHei", Font.BOLD, 14));
-            // 设置图例字体
-            chart.getLegend().setItemFont(labelFont);
-
-            // 替代方案：使用BufferedImage和ImageIO
-            int width = 800;
-            int height = 400;
-            BufferedImage image = chart.createBufferedImage(width, height);
-
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            ImageIO.write(image, "png", baos);
-            baos.flush();
-            byte[] imageData = baos.toByteArray();
-            baos.close();
+
+            byte[] imageData = energyChartRenderer.render(format,
+                    deviceId + "(" + deviceType + ") 能耗趋势", timestamps, power, n);
 
             System.out.println("[HomeSimulator] 成功生成能耗趋势图");
             return imageData;
@@ -881,23 +976,6 @@ public class HomeSimulator {
         consoleThread.start();
     }
 
-    /**
-     * 读取图片文件并转换为字节数组
-     */
-    private byte[] readImageFile(String imagePath) throws IOException {
-        File file = new File(imagePath);
-        if (!file.exists() || !file.isFile()) {
-            throw new IOException("图片文件不存在: " + imagePath);
-        }
-
-        System.out.println("[HomeSimulator] 正在读取图片文件: " + imagePath + ", 大小: " + file.length() + " bytes");
-        byte[] data = new byte[(int) file.length()];
-        try (FileInputStream fis = new FileInputStream(file)) {
-            fis.read(data);
-        }
-        return data;
-    }
-
     /**
      * 发送图片到MobileAppSimulator
      */
@@ -912,13 +990,16 @@ public class HomeSimulator {
             String deviceId = "light1";
             String deviceType = "light";
             int alertId=(int) (System.currentTimeMillis() % 1000000);
-            // 读取图片文件
-            byte[] imageData = readImageFile(imagePath);
+            File imageFile = new File(imagePath);
+            if (!imageFile.isFile()) {
+                throw new IOException("图片文件不存在: " + imagePath);
+            }
+            System.out.println("[HomeSimulator] 正在发送图片文件: " + imagePath + ", 大小: " + imageFile.length() + " bytes");
 
-            // 通过mediaPublisher发送图片
+            // 通过mediaPublisher直接从文件分片发送图片
             if (mediaPublisher != null) {
                 // 媒体类型：1代表图片
-                boolean result = mediaPublisher.publishMedia(deviceId, deviceType, 1, imageData,alertId);
+                boolean result = mediaPublisher.publishMedia(deviceId, deviceType, 1, imageFile, alertId);
 
                 if (result) {
                     System.out.println("[HomeSimulator] 图片发送成功！Mobile端应该能够接收到图片数据");
@@ -1049,6 +1130,9 @@ public class HomeSimulator {
         if (energyReportPublisher != null) {
             energyReportPublisher.stop();
         }
+        // 停止趋势图渲染线程池和发布线程
+        energyChartRenderPool.shutdown();
+        energyChartPublishExecutor.shutdown();
         // 新增：停止ReportMediaPublisher和释放EnergyDataHistory资源
         if (energyDataHistory != null) {
             energyDataHistory.shutdown();
@@ -312,10 +312,14 @@ public class HomeSimulatorAlert {
 
             // 这里应该是获取实际图片数据的逻辑
             // 由于当前系统没有实际的摄像头，我们可以模拟获取一张与报警类型相关的图片
-            byte[] mediaData = getSampleImageData(type);
-
-            // 发送媒体数据
-            HomeSimulator.getInstance().sendMedia(deviceId, deviceType, mediaType, mediaData, alertId);
+            File imageFile = new File(getImagePathForAlertType(type));
+            if (imageFile.isFile()) {
+                // 直接按文件发送：文件哈希有缓存，接收端已有这张图片时只发送引用
+                HomeSimulator.getInstance().sendMedia(deviceId, deviceType, mediaType, imageFile, alertId);
+            } else {
+                byte[] mediaData = getSampleImageData(type);
+                HomeSimulator.getInstance().sendMedia(deviceId, deviceType, mediaType, mediaData, alertId);
+            }
             System.out.printf("[HomeSimulatorAlert] 已发送与报警关联的图片，设备ID: %s%n", deviceId);
         } catch (Exception e) {
             // 如果发送媒体失败，不影响报警的正常触发
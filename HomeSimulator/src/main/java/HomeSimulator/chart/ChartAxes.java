@@ -0,0 +1,94 @@
+package HomeSimulator.chart;
+
+import java.util.TimeZone;
+
+/**
+ * 趋势图的坐标轴范围与刻度（SVG与图表描述共用）
+ * 功率轴按“整齐”的步长（1/2/5×10^k）向外取整，时间轴从候选步长中选取不超过MAX_TIME_TICKS个刻度的最小步长
+ */
+final class ChartAxes {
+    private static final long MINUTE_MILLIS = 60L * 1000L;
+    private static final long HOUR_MILLIS = 60L * MINUTE_MILLIS;
+    private static final long DAY_MILLIS = 24L * HOUR_MILLIS;
+    private static final long[] TIME_STEPS = {
+            MINUTE_MILLIS, 5 * MINUTE_MILLIS, 15 * MINUTE_MILLIS, 30 * MINUTE_MILLIS,
+            HOUR_MILLIS, 2 * HOUR_MILLIS, 3 * HOUR_MILLIS, 6 * HOUR_MILLIS, 12 * HOUR_MILLIS,
+            DAY_MILLIS, 2 * DAY_MILLIS, 7 * DAY_MILLIS};
+    private static final int MAX_TIME_TICKS = 8;
+    private static final int TARGET_VALUE_TICKS = 5;
+
+    final long xMin;
+    final long xMax;
+    final long xStep;
+    // 第一个时间刻度（按本地时间对齐到xStep）
+    final long xFirstTick;
+    final double yMin;
+    final double yMax;
+    final double yStep;
+    final String timePattern;
+
+    private ChartAxes(long xMin, long xMax, double yMin, double yMax, double yStep) {
+        this.xMin = xMin;
+        this.xMax = xMax;
+        this.yMin = yMin;
+        this.yMax = yMax;
+        this.yStep = yStep;
+
+        long span = xMax - xMin;
+        long step = TIME_STEPS[TIME_STEPS.length - 1];
+        for (long candidate : TIME_STEPS) {
+            if (span / candidate < MAX_TIME_TICKS) {
+                step = candidate;
+                break;
+            }
+        }
+        this.xStep = step;
+        long offset = TimeZone.getDefault().getOffset(xMin);
+        this.xFirstTick = Math.floorDiv(xMin + offset + step - 1, step) * step - offset;
+        this.timePattern = timePattern(span);
+    }
+
+    /**
+     * 由前n个数据点计算坐标轴
+     */
+    static ChartAxes of(long[] xs, double[] ys, int n) {
+        double lo = Double.POSITIVE_INFINITY;
+        double hi = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            lo = Math.min(lo, ys[i]);
+            hi = Math.max(hi, ys[i]);
+        }
+        if (n == 0) {
+            lo = 0;
+            hi = 1;
+        }
+        if (hi - lo < 1e-6) {
+            // 功率恒定时留出上下空间
+            lo -= 1;
+            hi += 1;
+        }
+        double step = niceStep((hi - lo) / TARGET_VALUE_TICKS);
+        long xMin = n > 0 ? xs[0] : 0;
+        long xMax = n > 1 ? xs[n - 1] : xMin + 1;
+        return new ChartAxes(xMin, xMax, Math.floor(lo / step) * step, Math.ceil(hi / step) * step, step);
+    }
+
+    /**
+     * 根据数据覆盖的时间跨度选择时间轴的显示格式
+     */
+    static String timePattern(long span) {
+        if (span <= DAY_MILLIS) {
+            return "HH:mm";
+        } else if (span <= 7 * DAY_MILLIS) {
+            return "MM-dd HH:mm";
+        }
+        return "MM-dd";
+    }
+
+    private static double niceStep(double raw) {
+        double magnitude = Math.pow(10, Math.floor(Math.log10(raw)));
+        double fraction = raw / magnitude;
+        double nice = fraction <= 1 ? 1 : fraction <= 2 ? 2 : fraction <= 5 ? 5 : 10;
+        return nice * magnitude;
+    }
+}
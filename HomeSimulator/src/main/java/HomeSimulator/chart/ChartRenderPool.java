@@ -0,0 +1,107 @@
+package HomeSimulator.chart;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 图表渲染线程池
+ * 渲染任务在独立的有界线程池中执行（线程数等于CPU核数，队列有界），不占用命令处理线程；
+ * 队列已满时立即拒绝新任务（返回异常完成的Future），而不是阻塞提交者。
+ * 相同key的任务在执行期间合并：后到的请求共享同一个Future，一次渲染的结果分发给所有请求者。
+ */
+public class ChartRenderPool {
+    private final ThreadPoolExecutor executor;
+    // 正在排队或执行的任务
+    private final Map<String, CompletableFuture<byte[]>> inFlight = new ConcurrentHashMap<>();
+
+    // 统计指标
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    static {
+        // 渲染线程不需要显示设备，未显式配置时使用无头模式
+        if (System.getProperty("java.awt.headless") == null) {
+            System.setProperty("java.awt.headless", "true");
+        }
+    }
+
+    public ChartRenderPool(int threads, int queueCapacity) {
+        AtomicInteger index = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "chart-render-" + index.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * 创建线程数等于可用CPU核数的渲染线程池
+     */
+    public static ChartRenderPool forAvailableCores(int queueCapacity) {
+        return new ChartRenderPool(Math.max(1, Runtime.getRuntime().availableProcessors()), queueCapacity);
+    }
+
+    /**
+     * 提交渲染任务；已有相同key的任务在排队或执行时直接返回该任务的Future
+     */
+    public CompletableFuture<byte[]> submit(String key, Supplier<byte[]> task) {
+        CompletableFuture<byte[]> future = new CompletableFuture<>();
+        CompletableFuture<byte[]> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            coalesced.incrementAndGet();
+            return existing;
+        }
+        submitted.incrementAndGet();
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(task.get());
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                } finally {
+                    inFlight.remove(key, future);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            inFlight.remove(key, future);
+            future.completeExceptionally(new RejectedExecutionException("渲染队列已满，请稍后重试"));
+        }
+        return future;
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public long getSubmitted() {
+        return submitted.get();
+    }
+
+    public long getCoalesced() {
+        return coalesced.get();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("线程 %d，排队 %d，提交 %d 次，合并 %d 次，拒绝 %d 次",
+                executor.getMaximumPoolSize(), executor.getQueue().size(),
+                getSubmitted(), getCoalesced(), getRejected());
+    }
+}
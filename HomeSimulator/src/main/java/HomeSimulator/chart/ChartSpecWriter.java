@@ -0,0 +1,75 @@
+package HomeSimulator.chart;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * 紧凑的二进制图表描述（energy_trend_spec），客户端据此自行绘制趋势图
+ *
+ * 格式（大端序，字符串为DataOutput.writeUTF格式）：
+ *   magic "ECS1"(4字节) | 标题 | X轴名称 | Y轴名称 | 序列名称 | 时间格式（如"HH:mm"）|
+ *   xMin(long) | xMax(long) | 第一个时间刻度(long) | 时间刻度步长(long) |
+ *   yMin(double) | yMax(double) | 功率刻度步长(double) |
+ *   点数(varint) | 每个点：x增量(zigzag varint) + y增量(zigzag varint)
+ * 点坐标先在坐标轴范围内量化为0~65535，再按与上一点的差值编码，平稳曲线每个点通常只需2~3字节。
+ */
+final class ChartSpecWriter {
+    static final int MAGIC = 0x45435331; // "ECS1"
+    static final int QUANT_MAX = 65535;
+
+    private ChartSpecWriter() {
+    }
+
+    static byte[] write(String title, String xLabel, String yLabel, String seriesName,
+                        long[] xs, double[] ys, int n) {
+        ChartAxes axes = ChartAxes.of(xs, ys, n);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256 + n * 3);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeUTF(title);
+            out.writeUTF(xLabel);
+            out.writeUTF(yLabel);
+            out.writeUTF(seriesName);
+            out.writeUTF(axes.timePattern);
+            out.writeLong(axes.xMin);
+            out.writeLong(axes.xMax);
+            out.writeLong(axes.xFirstTick);
+            out.writeLong(axes.xStep);
+            out.writeDouble(axes.yMin);
+            out.writeDouble(axes.yMax);
+            out.writeDouble(axes.yStep);
+
+            writeVarint(out, n);
+            double xScale = QUANT_MAX / (double) Math.max(1, axes.xMax - axes.xMin);
+            double yScale = QUANT_MAX / (axes.yMax - axes.yMin);
+            int px = 0;
+            int py = 0;
+            for (int i = 0; i < n; i++) {
+                int qx = (int) Math.round((xs[i] - axes.xMin) * xScale);
+                int qy = (int) Math.round((ys[i] - axes.yMin) * yScale);
+                writeVarint(out, zigzag(qx - px));
+                writeVarint(out, zigzag(qy - py));
+                px = qx;
+                py = qy;
+            }
+        } catch (IOException e) {
+            // ByteArrayOutputStream不会抛出IO异常
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static int zigzag(int v) {
+        return (v << 1) ^ (v >> 31);
+    }
+
+    private static void writeVarint(DataOutputStream out, int v) throws IOException {
+        while ((v & ~0x7F) != 0) {
+            out.writeByte((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        out.writeByte(v);
+    }
+}
@@ -0,0 +1,99 @@
+package HomeSimulator.chart;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 能耗趋势图缓存
+ * 以(设备ID, 输出格式, 时间范围, 精度, 历史数据版本)为键缓存已编码的图表，容量有限，按LRU淘汰。
+ * 历史数据每次追加都会改变版本号，因此命中的图片一定与当前数据一致，无需主动失效。
+ */
+public class EnergyChartCache {
+    private final int maxEntries;
+    private final Map<String, byte[]> entries;
+
+    // 统计指标
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong renders = new AtomicLong();
+    private final AtomicLong renderNanos = new AtomicLong();
+
+    public EnergyChartCache(int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("缓存容量必须大于0: " + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+        // accessOrder=true：按访问顺序排列，最久未访问的条目最先被淘汰
+        this.entries = new LinkedHashMap<String, byte[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+                return size() > EnergyChartCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * 查找缓存的趋势图，未命中时返回null
+     */
+    public byte[] get(String deviceId, EnergyChartFormat format, long from, long to, long resolution, long version) {
+        byte[] chart;
+        synchronized (entries) {
+            chart = entries.get(key(deviceId, format, from, to, resolution, version));
+        }
+        (chart != null ? hits : misses).incrementAndGet();
+        return chart;
+    }
+
+    /**
+     * 缓存新生成的趋势图，并记录本次渲染耗时
+     */
+    public void put(String deviceId, EnergyChartFormat format, long from, long to, long resolution, long version,
+                    byte[] chart, long elapsedNanos) {
+        renders.incrementAndGet();
+        renderNanos.addAndGet(elapsedNanos);
+        synchronized (entries) {
+            entries.put(key(deviceId, format, from, to, resolution, version), chart);
+        }
+    }
+
+    private static String key(String deviceId, EnergyChartFormat format, long from, long to,
+                              long resolution, long version) {
+        return deviceId + '|' + format.option() + '|' + from + '|' + to + '|' + resolution + '|' + version;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getRenders() {
+        return renders.get();
+    }
+
+    /**
+     * 平均渲染耗时（毫秒），尚未渲染过时返回0
+     */
+    public double getAverageRenderMillis() {
+        long n = renders.get();
+        return n > 0 ? renderNanos.get() / 1e6 / n : 0;
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    @Override
+    public String toString() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return String.format("命中 %d / 请求 %d（%.1f%%），渲染 %d 次，平均渲染 %.1f ms，缓存 %d/%d 张",
+                h, total, total > 0 ? h * 100.0 / total : 0.0, getRenders(), getAverageRenderMillis(),
+                size(), maxEntries);
+    }
+}
@@ -0,0 +1,41 @@
+package HomeSimulator.chart;
+
+/**
+ * 能耗趋势图的输出格式，对应ReportMedia的reportType
+ */
+public enum EnergyChartFormat {
+    // 调色板PNG位图（默认，兼容旧客户端）
+    PNG("png", "energy_trend"),
+    // 精简的SVG矢量图
+    SVG("svg", "energy_trend_svg"),
+    // 紧凑的二进制图表描述（降采样后的数据点、坐标范围和标签），由客户端自行绘制
+    SPEC("spec", "energy_trend_spec");
+
+    private final String option;
+    private final String reportType;
+
+    EnergyChartFormat(String option, String reportType) {
+        this.option = option;
+        this.reportType = reportType;
+    }
+
+    public String option() {
+        return option;
+    }
+
+    public String reportType() {
+        return reportType;
+    }
+
+    /**
+     * 按命令参数（png/svg/spec，忽略大小写）查找格式，不匹配时返回null
+     */
+    public static EnergyChartFormat fromOption(String option) {
+        for (EnergyChartFormat format : values()) {
+            if (format.option.equalsIgnoreCase(option)) {
+                return format;
+            }
+        }
+        return null;
+    }
+}
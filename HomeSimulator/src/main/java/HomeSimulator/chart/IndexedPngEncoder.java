@@ -0,0 +1,346 @@
+package HomeSimulator.chart;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * 调色板PNG编码器
+ * 折线图只包含少量纯色（加上抗锯齿边缘），转换为索引色后每像素只需1字节（16色以内为4位），
+ * 比ImageIO默认的真彩色PNG小得多，压缩的数据量也更少。
+ * 颜色不超过256种时无损；超过时保留出现次数最多的256种颜色，其余映射到最接近的调色板颜色（只影响少量抗锯齿像素）。
+ * 每个线程复用自己的像素与输出缓冲区，编码过程只在最后拷贝一次结果；
+ * Deflater每次编码新建并在结束时end()，渲染线程池关闭后不会留下本地zlib内存。
+ */
+public final class IndexedPngEncoder {
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'};
+    private static final int MAX_COLORS = 256;
+    // 调色板图像不使用扫描线预测滤波（PNG规范对索引色的建议）
+    private static final byte FILTER_NONE = 0;
+
+    private final int compressionLevel;
+    private final ThreadLocal<Workspace> workspaces;
+
+    /**
+     * @param compressionLevel Deflater压缩级别（0~9）
+     */
+    public IndexedPngEncoder(int compressionLevel) {
+        this.compressionLevel = compressionLevel;
+        this.workspaces = ThreadLocal.withInitial(Workspace::new);
+    }
+
+    /**
+     * 把图像编码为调色板PNG（忽略透明通道）
+     */
+    public byte[] encode(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        Workspace ws = workspaces.get();
+        int[] pixels = ws.pixels(image);
+
+        // 统计颜色并建立调色板
+        int colors = ws.buildPalette(pixels, width * height);
+        int bitDepth = colors <= 16 ? 4 : 8;
+        int rowBytes = bitDepth == 8 ? width : (width + 1) / 2;
+
+        Output out = ws.output;
+        out.reset(width * height / 4 + 1024);
+        out.write(SIGNATURE, 0, SIGNATURE.length);
+
+        // IHDR：宽、高、位深、颜色类型3（索引色）、压缩/滤波/隔行方式均为0
+        int ihdr = out.beginChunk("IHDR");
+        out.writeInt(width);
+        out.writeInt(height);
+        out.writeByte(bitDepth);
+        out.writeByte(3);
+        out.writeByte(0);
+        out.writeByte(0);
+        out.writeByte(0);
+        out.endChunk(ihdr);
+
+        int plte = out.beginChunk("PLTE");
+        for (int i = 0; i < colors; i++) {
+            int rgb = ws.palette[i];
+            out.writeByte(rgb >>> 16);
+            out.writeByte(rgb >>> 8);
+            out.writeByte(rgb);
+        }
+        out.endChunk(plte);
+
+        // IDAT：逐行（滤波字节 + 索引）送入Deflater，压缩结果直接写入输出缓冲区
+        int idat = out.beginChunk("IDAT");
+        Deflater deflater = new Deflater(compressionLevel);
+        try {
+            deflateRows(deflater, ws, pixels, width, height, bitDepth, rowBytes, out);
+        } finally {
+            deflater.end();
+        }
+        out.endChunk(idat);
+
+        out.endChunk(out.beginChunk("IEND"));
+        return out.toByteArray();
+    }
+
+    private static void deflateRows(Deflater deflater, Workspace ws, int[] pixels, int width, int height,
+                                    int bitDepth, int rowBytes, Output out) {
+        byte[] row = ws.row(rowBytes + 1);
+        for (int y = 0; y < height; y++) {
+            row[0] = FILTER_NONE;
+            int base = y * width;
+            if (bitDepth == 8) {
+                for (int x = 0; x < width; x++) {
+                    row[x + 1] = (byte) ws.indexOf(pixels[base + x]);
+                }
+            } else {
+                for (int x = 0; x < width; x += 2) {
+                    int hi = ws.indexOf(pixels[base + x]);
+                    int lo = x + 1 < width ? ws.indexOf(pixels[base + x + 1]) : 0;
+                    row[(x >> 1) + 1] = (byte) (hi << 4 | lo);
+                }
+            }
+            deflater.setInput(row, 0, rowBytes + 1);
+            while (!deflater.needsInput()) {
+                out.deflate(deflater);
+            }
+        }
+        deflater.finish();
+        while (!deflater.finished()) {
+            out.deflate(deflater);
+        }
+    }
+
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    /**
+     * 线程私有的编码缓冲区
+     */
+    private static final class Workspace {
+        final Output output = new Output();
+        final int[] palette = new int[MAX_COLORS];
+
+        int[] pixelBuffer = new int[0];
+        byte[] rowBuffer = new byte[0];
+
+        // 颜色 -> 调色板索引的开放寻址哈希表（同时用于统计出现次数）
+        int[] keys = new int[0];
+        int[] values = new int[0];
+        int[] counts = new int[0];
+        boolean[] used = new boolean[0];
+        int mask;
+
+        int[] pixels(BufferedImage image) {
+            int n = image.getWidth() * image.getHeight();
+            if ((image.getType() == BufferedImage.TYPE_INT_RGB || image.getType() == BufferedImage.TYPE_INT_ARGB)
+                    && image.getRaster().getDataBuffer() instanceof DataBufferInt
+                    && image.getRaster().getDataBuffer().getSize() == n) {
+                // 直接读取栅格数据，无需拷贝
+                return ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+            }
+            if (pixelBuffer.length < n) {
+                pixelBuffer = new int[n];
+            }
+            image.getRGB(0, 0, image.getWidth(), image.getHeight(), pixelBuffer, 0, image.getWidth());
+            return pixelBuffer;
+        }
+
+        byte[] row(int length) {
+            if (rowBuffer.length < length) {
+                rowBuffer = new byte[length];
+            }
+            return rowBuffer;
+        }
+
+        /**
+         * 统计像素颜色并生成调色板，返回调色板颜色数
+         */
+        int buildPalette(int[] pixels, int n) {
+            resetTable(4096);
+            int distinct = 0;
+            for (int i = 0; i < n; i++) {
+                int slot = find(pixels[i] & 0xFFFFFF);
+                if (!used[slot]) {
+                    used[slot] = true;
+                    keys[slot] = pixels[i] & 0xFFFFFF;
+                    counts[slot] = 0;
+                    if (++distinct * 2 > keys.length) {
+                        rehash();
+                        slot = find(pixels[i] & 0xFFFFFF);
+                    }
+                }
+                counts[slot]++;
+            }
+
+            if (distinct <= MAX_COLORS) {
+                int c = 0;
+                for (int slot = 0; slot < keys.length; slot++) {
+                    if (used[slot]) {
+                        palette[c] = keys[slot];
+                        values[slot] = c++;
+                    }
+                }
+                return c;
+            }
+
+            // 颜色过多：按出现次数取前256种作为调色板
+            long[] ranked = new long[distinct];
+            int r = 0;
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (used[slot]) {
+                    ranked[r++] = (long) counts[slot] << 32 | slot;
+                }
+            }
+            Arrays.sort(ranked);
+            for (int i = 0; i < MAX_COLORS; i++) {
+                int slot = (int) ranked[distinct - 1 - i];
+                palette[i] = keys[slot];
+                values[slot] = i;
+            }
+            // 其余颜色映射到最接近的调色板颜色
+            for (int i = MAX_COLORS; i < distinct; i++) {
+                int slot = (int) ranked[distinct - 1 - i];
+                values[slot] = nearest(keys[slot]);
+            }
+            return MAX_COLORS;
+        }
+
+        int indexOf(int argb) {
+            return values[find(argb & 0xFFFFFF)];
+        }
+
+        private int nearest(int rgb) {
+            int best = 0;
+            int bestDistance = Integer.MAX_VALUE;
+            for (int i = 0; i < MAX_COLORS; i++) {
+                int p = palette[i];
+                int dr = (p >>> 16 & 0xFF) - (rgb >>> 16 & 0xFF);
+                int dg = (p >>> 8 & 0xFF) - (rgb >>> 8 & 0xFF);
+                int db = (p & 0xFF) - (rgb & 0xFF);
+                int d = dr * dr + dg * dg + db * db;
+                if (d < bestDistance) {
+                    bestDistance = d;
+                    best = i;
+                }
+            }
+            return best;
+        }
+
+        private int find(int rgb) {
+            int slot = (rgb * 0x9E3779B9) >>> 7 & mask;
+            while (used[slot] && keys[slot] != rgb) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private void resetTable(int capacity) {
+            if (keys.length != capacity) {
+                keys = new int[capacity];
+                values = new int[capacity];
+                counts = new int[capacity];
+                used = new boolean[capacity];
+            } else {
+                Arrays.fill(used, false);
+            }
+            mask = capacity - 1;
+        }
+
+        private void rehash() {
+            int[] oldKeys = keys;
+            int[] oldCounts = counts;
+            boolean[] oldUsed = used;
+            keys = new int[oldKeys.length * 2];
+            values = new int[keys.length];
+            counts = new int[keys.length];
+            used = new boolean[keys.length];
+            mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldUsed[i]) {
+                    int slot = find(oldKeys[i]);
+                    used[slot] = true;
+                    keys[slot] = oldKeys[i];
+                    counts[slot] = oldCounts[i];
+                }
+            }
+        }
+    }
+
+    /**
+     * 可复用的输出缓冲区，按PNG块格式写入（长度 + 类型 + 数据 + CRC）
+     */
+    private static final class Output {
+        private final CRC32 crc = new CRC32();
+        private byte[] buf = new byte[64 * 1024];
+        private int pos;
+
+        void reset(int expectedSize) {
+            if (buf.length < expectedSize) {
+                buf = new byte[expectedSize];
+            }
+            pos = 0;
+        }
+
+        void ensure(int extra) {
+            if (pos + extra > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, pos + extra));
+            }
+        }
+
+        void write(byte[] b, int off, int len) {
+            ensure(len);
+            System.arraycopy(b, off, buf, pos, len);
+            pos += len;
+        }
+
+        void writeByte(int b) {
+            ensure(1);
+            buf[pos++] = (byte) b;
+        }
+
+        void writeInt(int v) {
+            ensure(4);
+            buf[pos++] = (byte) (v >>> 24);
+            buf[pos++] = (byte) (v >>> 16);
+            buf[pos++] = (byte) (v >>> 8);
+            buf[pos++] = (byte) v;
+        }
+
+        void deflate(Deflater deflater) {
+            ensure(8192);
+            pos += deflater.deflate(buf, pos, buf.length - pos);
+        }
+
+        /**
+         * 开始一个块：预留长度字段并写入块类型，返回块的起始位置
+         */
+        int beginChunk(String type) {
+            int start = pos;
+            writeInt(0);
+            for (int i = 0; i < 4; i++) {
+                writeByte(type.charAt(i));
+            }
+            return start;
+        }
+
+        /**
+         * 结束一个块：回填长度并追加CRC（覆盖类型与数据）
+         */
+        void endChunk(int start) {
+            int length = pos - start - 8;
+            buf[start] = (byte) (length >>> 24);
+            buf[start + 1] = (byte) (length >>> 16);
+            buf[start + 2] = (byte) (length >>> 8);
+            buf[start + 3] = (byte) length;
+            crc.reset();
+            crc.update(buf, start + 4, length + 4);
+            writeInt((int) crc.getValue());
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buf, pos);
+        }
+    }
+}
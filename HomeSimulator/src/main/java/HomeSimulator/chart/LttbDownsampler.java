@@ -0,0 +1,77 @@
+package HomeSimulator.chart;
+
+/**
+ * Largest-Triangle-Three-Buckets降采样
+ * 保留首尾两点，把中间的点平均分成threshold-2个桶，每个桶选出与
+ * “上一个选中点”和“下一个桶的平均点”构成三角形面积最大的点，
+ * 在大幅减少点数的同时保留曲线的峰谷形状。时间复杂度O(n)，不创建中间对象。
+ */
+public final class LttbDownsampler {
+
+    private LttbDownsampler() {
+    }
+
+    /**
+     * 把前n个点(x[i], y[i])降采样到最多threshold个点，结果写入outX/outY
+     * 输入按x升序排列；n不超过threshold（或threshold小于3）时原样拷贝
+     * @return 输出的点数
+     */
+    public static int downsample(long[] x, double[] y, int n, int threshold, long[] outX, double[] outY) {
+        if (n <= threshold || threshold < 3) {
+            System.arraycopy(x, 0, outX, 0, n);
+            System.arraycopy(y, 0, outY, 0, n);
+            return n;
+        }
+
+        // 以第一个点为基准计算x的偏移，避免毫秒时间戳相乘时损失精度
+        long origin = x[0];
+        double bucketSize = (double) (n - 2) / (threshold - 2);
+        int selected = 0;
+        outX[0] = x[0];
+        outY[0] = y[0];
+        int out = 1;
+
+        for (int b = 0; b < threshold - 2; b++) {
+            // 下一个桶的平均点（最后一个桶以终点为下一个点）
+            int nextStart = (int) ((b + 1) * bucketSize) + 1;
+            int nextEnd = Math.min((int) ((b + 2) * bucketSize) + 1, n);
+            double avgX = 0;
+            double avgY = 0;
+            if (nextStart >= n - 1) {
+                avgX = x[n - 1] - origin;
+                avgY = y[n - 1];
+            } else {
+                for (int i = nextStart; i < nextEnd; i++) {
+                    avgX += x[i] - origin;
+                    avgY += y[i];
+                }
+                int len = nextEnd - nextStart;
+                avgX /= len;
+                avgY /= len;
+            }
+
+            // 当前桶内与上一个选中点、下一个桶平均点构成面积最大的点
+            int start = (int) (b * bucketSize) + 1;
+            int end = Math.min((int) ((b + 1) * bucketSize) + 1, n - 1);
+            double ax = x[selected] - origin;
+            double ay = y[selected];
+            double maxArea = -1;
+            int maxIndex = start;
+            for (int i = start; i < end; i++) {
+                double area = Math.abs((ax - avgX) * (y[i] - ay) - (ax - (x[i] - origin)) * (avgY - ay));
+                if (area > maxArea) {
+                    maxArea = area;
+                    maxIndex = i;
+                }
+            }
+            outX[out] = x[maxIndex];
+            outY[out] = y[maxIndex];
+            out++;
+            selected = maxIndex;
+        }
+
+        outX[out] = x[n - 1];
+        outY[out] = y[n - 1];
+        return out + 1;
+    }
+}
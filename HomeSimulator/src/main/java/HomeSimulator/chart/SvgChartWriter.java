@@ -0,0 +1,111 @@
+package HomeSimulator.chart;
+
+import java.nio.charset.StandardCharsets;
+import java.text.DecimalFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * 精简SVG趋势图
+ * 版式与PNG趋势图一致（标题、灰色绘图区、白色网格、坐标刻度），数据曲线用一条path表示：
+ * 坐标取整到像素，除起点外均为相对坐标（l dx dy），与上一点重合的点省略，因此每个点只需几个字节。
+ */
+final class SvgChartWriter {
+    private static final int MARGIN_LEFT = 64;
+    private static final int MARGIN_RIGHT = 16;
+    private static final int MARGIN_TOP = 36;
+    private static final int MARGIN_BOTTOM = 44;
+
+    private SvgChartWriter() {
+    }
+
+    static byte[] write(String title, String xLabel, String yLabel, String seriesName,
+                        long[] xs, double[] ys, int n, int width, int height) {
+        ChartAxes axes = ChartAxes.of(xs, ys, n);
+        int plotW = width - MARGIN_LEFT - MARGIN_RIGHT;
+        int plotH = height - MARGIN_TOP - MARGIN_BOTTOM;
+        int plotBottom = MARGIN_TOP + plotH;
+        double xScale = plotW / (double) Math.max(1, axes.xMax - axes.xMin);
+        double yScale = plotH / (axes.yMax - axes.yMin);
+
+        StringBuilder svg = new StringBuilder(4096 + n * 8);
+        svg.append("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"").append(width)
+                .append("\" height=\"").append(height)
+                .append("\" font-family=\"SimHei,sans-serif\" font-size=\"12\">");
+        svg.append("<rect width=\"100%\" height=\"100%\" fill=\"#fff\"/>");
+        svg.append("<rect x=\"").append(MARGIN_LEFT).append("\" y=\"").append(MARGIN_TOP)
+                .append("\" width=\"").append(plotW).append("\" height=\"").append(plotH)
+                .append("\" fill=\"#c0c0c0\"/>");
+
+        // 网格线与刻度标签
+        StringBuilder grid = new StringBuilder();
+        StringBuilder labels = new StringBuilder();
+        DecimalFormat valueFormat = new DecimalFormat("0.##");
+        int valueTicks = (int) Math.round((axes.yMax - axes.yMin) / axes.yStep);
+        for (int k = 0; k <= valueTicks; k++) {
+            double v = axes.yMin + k * axes.yStep;
+            int y = (int) Math.round(plotBottom - (v - axes.yMin) * yScale);
+            grid.append('M').append(MARGIN_LEFT).append(' ').append(y).append('h').append(plotW);
+            labels.append("<text x=\"").append(MARGIN_LEFT - 4).append("\" y=\"").append(y + 4)
+                    .append("\" text-anchor=\"end\">").append(valueFormat.format(v)).append("</text>");
+        }
+        SimpleDateFormat timeFormat = new SimpleDateFormat(axes.timePattern);
+        for (long t = axes.xFirstTick; t <= axes.xMax; t += axes.xStep) {
+            int x = (int) Math.round(MARGIN_LEFT + (t - axes.xMin) * xScale);
+            grid.append('M').append(x).append(' ').append(MARGIN_TOP).append('v').append(plotH);
+            labels.append("<text x=\"").append(x).append("\" y=\"").append(plotBottom + 16)
+                    .append("\" text-anchor=\"middle\">").append(timeFormat.format(new Date(t))).append("</text>");
+        }
+        svg.append("<path d=\"").append(grid).append("\" stroke=\"#fff\"/>");
+        svg.append(labels);
+
+        // 数据曲线
+        if (n > 0) {
+            int px = (int) Math.round(MARGIN_LEFT + (xs[0] - axes.xMin) * xScale);
+            int py = (int) Math.round(plotBottom - (ys[0] - axes.yMin) * yScale);
+            svg.append("<path d=\"M").append(px).append(' ').append(py).append('l');
+            boolean first = true;
+            for (int i = 1; i < n; i++) {
+                int x = (int) Math.round(MARGIN_LEFT + (xs[i] - axes.xMin) * xScale);
+                int y = (int) Math.round(plotBottom - (ys[i] - axes.yMin) * yScale);
+                int dx = x - px;
+                int dy = y - py;
+                if (dx == 0 && dy == 0) {
+                    continue;
+                }
+                appendSigned(svg, dx, first);
+                appendSigned(svg, dy, false);
+                first = false;
+                px = x;
+                py = y;
+            }
+            if (first) {
+                svg.append('0').append(' ').append('0');
+            }
+            svg.append("\" fill=\"none\" stroke=\"#f55\" stroke-width=\"1.5\"/>");
+        }
+
+        // 标题、坐标轴名称与图例
+        svg.append("<text x=\"").append(width / 2).append("\" y=\"22\" text-anchor=\"middle\" font-size=\"14\" font-weight=\"bold\">")
+                .append(escape(title)).append("</text>");
+        svg.append("<text x=\"").append(MARGIN_LEFT + plotW / 2).append("\" y=\"").append(height - 8)
+                .append("\" text-anchor=\"middle\">").append(escape(xLabel)).append(" — ")
+                .append("<tspan fill=\"#f55\">").append(escape(seriesName)).append("</tspan></text>");
+        svg.append("<text transform=\"translate(14 ").append(MARGIN_TOP + plotH / 2)
+                .append(")rotate(-90)\" text-anchor=\"middle\">").append(escape(yLabel)).append("</text>");
+        svg.append("</svg>");
+        return svg.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    // 负号本身可以作为分隔符，正数前才需要空格
+    private static void appendSigned(StringBuilder sb, int value, boolean first) {
+        if (!first && value >= 0) {
+            sb.append(' ');
+        }
+        sb.append(value);
+    }
+
+    private static String escape(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+}
@@ -1,15 +1,7 @@
 package HomeSimulator.furniture;
 
 import HomeSimulator.HomeSimulatorAlert;
-import IDL.HomeStatus;
-import IDL.HomeStatusDataWriter;
-import com.zrdds.infrastructure.InstanceHandle_t;
-import com.zrdds.infrastructure.ReturnCode_t;
-import org.json.JSONArray;
-import org.json.JSONObject;
-
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+
 import java.util.List;
 import java.util.Random;
 import java.util.concurrent.CopyOnWriteArrayList;
@@ -58,8 +50,7 @@ public class AirConditioner implements Furniture, AlertableDevice {
     private boolean dehumidificationMode;
     private int temperature;
 
-    // DDS相关
-    private HomeStatusDataWriter ddsWriter;
+    // 家具管理器（负责状态上报）
     private FurnitureManager manager;
     private HomeSimulatorAlert alertSystem; // 报警系统引用
     private final List<StatusChangeListener> statusChangeListeners = new CopyOnWriteArrayList<>();
@@ -78,10 +69,9 @@ public class AirConditioner implements Furniture, AlertableDevice {
     /**
      * 构造函数
      */
-    public AirConditioner(String id, String name, HomeStatusDataWriter ddsWriter, FurnitureManager manager) {
+    public AirConditioner(String id, String name, FurnitureManager manager) {
         this.id = id;
         this.name = name;
-        this.ddsWriter = ddsWriter;
         this.manager = manager;
 
         this.isOn = false;
@@ -281,61 +271,12 @@ public class AirConditioner implements Furniture, AlertableDevice {
             System.out.printf("[AirConditioner] %s 处于静默状态，跳过状态上报\n", name);
             return;
         }
-        if (ddsWriter == null) {
-            System.err.println("[AirConditioner] DDS写入器未初始化，无法上报状态");
+        if (manager == null) {
+            System.err.println("[AirConditioner] 家具管理器未设置，无法上报状态");
             return;
         }
-        try {
-            HomeStatus status = new HomeStatus();
-            int acIndex = getAcIndex();
-            status.timeStamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
-
-            JSONObject statusJson = new JSONObject();
-            JSONArray statusArray = new JSONArray();
-            statusArray.put(isOn ? 1 : 0);
-            statusArray.put(coolingMode ? 1 : 0);
-            statusArray.put(swingMode ? 1 : 0);
-            statusArray.put(dehumidificationMode ? 1 : 0);
-            statusJson.put("status", statusArray);
-
-            JSONArray paramsArray = new JSONArray();
-            paramsArray.put(temperature);
-            statusJson.put("params", paramsArray);
-
-            if (status.deviceStatus.length() <= acIndex) {
-                status.deviceStatus.ensure_length(acIndex + 1, acIndex + 1);
-            }
-            status.deviceStatus.set_at(acIndex, statusJson.toString());
-
-            if (status.deviceIds.length() <= acIndex) {
-                status.deviceIds.ensure_length(acIndex + 1, acIndex + 1);
-                status.deviceTypes.ensure_length(acIndex + 1, acIndex + 1);
-            }
-            status.deviceIds.set_at(acIndex, this.id);
-            status.deviceTypes.set_at(acIndex, this.type);
-
-            ReturnCode_t result = ddsWriter.write(status, InstanceHandle_t.HANDLE_NIL_NATIVE);
-            if (result == ReturnCode_t.RETCODE_OK) {
-                System.out.printf("[AirConditioner] %s状态上报: %s%n", getName(), statusJson.toString());
-                if (manager != null) {
-                    manager.updateDeviceStatus(getId()); // 同步更新全局状态
-                }
-            } else {
-                System.err.printf("[AirConditioner] 上报失败，返回码: %s%n", result);
-            }
-        } catch (Exception e) {
-            System.err.println("[AirConditioner] 上报异常: " + e.getMessage());
-        }
-    }
-
-    private int getAcIndex() {
-        try {
-            String numericPart = getId().replaceAll("[^0-9]", "");
-            return Integer.parseInt(numericPart) - 1;
-        } catch (NumberFormatException e) {
-            System.err.println("[AirConditioner] 空调ID格式错误: " + getId());
-            return -1;
-        }
+        // 只更新本设备的DeviceStatus实例
+        manager.publishDeviceStatus(this);
     }
 
     public void notifyStatusChange(String oldStatus, String newStatus) {
@@ -1,5 +1,7 @@
 package HomeSimulator.furniture;
 
+import IDL.DeviceStatus;
+import IDL.DeviceStatusDataWriter;
 import IDL.HomeStatus;
 import IDL.HomeStatusDataWriter;
 import HomeSimulator.HomeSimulator;
@@ -18,6 +20,11 @@ import java.time.format.DateTimeFormatter;
 
 /**
  * 家具管理器 - 管理DDS资源、家具状态汇总及全局HomeStatus维护
+ * 单个设备的状态变化只写入该设备的DeviceStatus实例（以deviceId为键），每次变化的数据量与设备总数无关；
+ * 全局HomeStatus快照只在request_all_status和低频心跳时发布。
+ *
+ * 状态上报按窗口合并：publishDeviceStatus()只把设备标记为待上报，窗口结束时每个待上报设备只写出一次最新状态，
+ * 与上次上报相同的状态不再写出。一次自动调整中的多次set和publishStatus因此只产生一个样本。
  */
 public class FurnitureManager {
     private final Map<String, Furniture> furnitureMap;
@@ -34,6 +41,30 @@ public class FurnitureManager {
     private final Topic homeStatusTopic;
     private HomeStatusDataWriter homeStatusDataWriter;
     private final HomeStatus aggregatedHomeStatus = new HomeStatus(); // 全局汇总状态
+    // deviceId -> 在aggregatedHomeStatus各序列中的下标
+    private final Map<String, Integer> statusIndex = new HashMap<>();
+
+    // 按设备的状态实例（每个deviceId一个实例，写入端对每个实例只保留最新的样本，新加入的订阅端收到每个设备的最新状态）
+    private final Topic deviceStatusTopic;
+    private DeviceStatusDataWriter deviceStatusDataWriter;
+    private final Map<String, InstanceHandle_t> deviceStatusHandles = new HashMap<>();
+    private final DeviceStatus deviceStatusSample = new DeviceStatus();
+    private static final DateTimeFormatter TIMESTAMP_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    // 状态合并窗口（系统属性 home.statusCoalesceMillis，0为每次变化立即上报）
+    public static final long DEFAULT_COALESCE_MILLIS = 50;
+    // 全局HomeStatus快照的心跳周期（系统属性 home.statusHeartbeatSeconds）
+    public static final long DEFAULT_HEARTBEAT_SECONDS = 60;
+    private final long coalesceMillis;
+    private final long heartbeatSeconds = Math.max(1, Long.getLong("home.statusHeartbeatSeconds", DEFAULT_HEARTBEAT_SECONDS));
+    // 待上报的设备（按标记顺序）及是否已安排合并上报
+    private final Set<String> dirtyDevices = new LinkedHashSet<>();
+    private boolean flushScheduled;
+    // deviceId -> 上次写出的JSON状态
+    private final Map<String, String> publishedStatus = new HashMap<>();
+    // {状态变化次数, 上报样本数, 上报字节数, 未变化跳过数, 快照次数, 快照字节数}
+    private final long[] publishStats = new long[6];
+    private final long statsStartNanos = System.nanoTime();
 
     // 状态更新监听器接口
     public interface StatusUpdateListener {
@@ -42,8 +73,29 @@ public class FurnitureManager {
 
     /**
      * 构造函数（接收DDS发布器和主题）
+     * @param deviceStatusTopic 按设备的DeviceStatus主题，为null时只发布全局HomeStatus
      */
-    public FurnitureManager(Publisher ddsPublisher, Topic homeStatusTopic) {
+    public FurnitureManager(Publisher ddsPublisher, Topic homeStatusTopic, Topic deviceStatusTopic) {
+        this(ddsPublisher, homeStatusTopic, deviceStatusTopic,
+                Long.getLong("home.statusCoalesceMillis", DEFAULT_COALESCE_MILLIS));
+
+        initializeDDSResources(); // 初始化DDS数据写入器
+        initializeDefaultFurniture(); // 初始化默认家具（传入DDS写入器和管理器）
+    }
+
+    /**
+     * 使用已创建的数据写入器和指定的合并窗口（不创建DDS资源，供测试使用）
+     */
+    FurnitureManager(HomeStatusDataWriter homeStatusDataWriter, DeviceStatusDataWriter deviceStatusDataWriter,
+                     long coalesceMillis) {
+        this(null, null, null, coalesceMillis);
+        this.homeStatusDataWriter = homeStatusDataWriter;
+        this.deviceStatusDataWriter = deviceStatusDataWriter;
+        initializeDefaultFurniture();
+    }
+
+    private FurnitureManager(Publisher ddsPublisher, Topic homeStatusTopic, Topic deviceStatusTopic,
+                             long coalesceMillis) {
         this.furnitureMap = new ConcurrentHashMap<>();
         this.executorService = Executors.newFixedThreadPool(4);
         this.scheduledExecutorService = Executors.newScheduledThreadPool(2);
@@ -51,9 +103,8 @@ public class FurnitureManager {
         this.statusListeners = new CopyOnWriteArrayList<>();
         this.ddsPublisher = ddsPublisher;
         this.homeStatusTopic = homeStatusTopic;
-
-        initializeDDSResources(); // 初始化DDS数据写入器
-        initializeDefaultFurniture(); // 初始化默认家具（传入DDS写入器和管理器）
+        this.deviceStatusTopic = deviceStatusTopic;
+        this.coalesceMillis = coalesceMillis;
     }
 
     /**
@@ -72,6 +123,21 @@ public class FurnitureManager {
             // 创建全局唯一的HomeStatusDataWriter（供所有家具共用）
             homeStatusDataWriter = (HomeStatusDataWriter) ddsPublisher.create_datawriter(
                     homeStatusTopic, dwQos, null, StatusKind.STATUS_MASK_NONE);
+
+            if (deviceStatusTopic != null) {
+                // 每个设备实例只保留最新状态，瞬态本地持久性让新加入的订阅端收到每个设备的最新值
+                DataWriterQos deviceQos = new DataWriterQos();
+                ddsPublisher.get_default_datawriter_qos(deviceQos);
+                deviceQos.durability.kind = DurabilityQosPolicyKind.TRANSIENT_LOCAL_DURABILITY_QOS;
+                deviceQos.reliability.kind = ReliabilityQosPolicyKind.RELIABLE_RELIABILITY_QOS;
+                deviceQos.history.kind = HistoryQosPolicyKind.KEEP_LAST_HISTORY_QOS;
+                deviceQos.history.depth = 1;
+                deviceStatusDataWriter = (DeviceStatusDataWriter) ddsPublisher.create_datawriter(
+                        deviceStatusTopic, deviceQos, null, StatusKind.STATUS_MASK_NONE);
+                if (deviceStatusDataWriter == null) {
+                    System.err.println("[FurnitureManager] 创建DeviceStatus数据写入器失败，只发布全局状态");
+                }
+            }
             System.out.println("[FurnitureManager] DDS数据写入器初始化完成");
         } catch (Exception e) {
             System.err.println("[FurnitureManager] DDS初始化失败: " + e.getMessage());
@@ -84,12 +150,12 @@ public class FurnitureManager {
      */
     private void initializeDefaultFurniture() {
         // 初始化灯具（传入DDS写入器和管理器实例）
-        Light livingRoomLight = new Light("light1", "客厅灯", homeStatusDataWriter, this);
-        Light bedroomLight = new Light("light2", "卧室灯", homeStatusDataWriter, this);
+        Light livingRoomLight = new Light("light1", "客厅灯", this);
+        Light bedroomLight = new Light("light2", "卧室灯", this);
 
         // 初始化空调（其他家具类型类似）
-       AirConditioner livingRoomAC = new AirConditioner("ac1", "客厅空调", homeStatusDataWriter, this);
-       AirConditioner bedroomAC = new AirConditioner("ac2", "卧室空调", homeStatusDataWriter, this);
+       AirConditioner livingRoomAC = new AirConditioner("ac1", "客厅空调", this);
+       AirConditioner bedroomAC = new AirConditioner("ac2", "卧室空调", this);
 
         // 注册家具
         registerFurniture(livingRoomLight);
@@ -143,7 +209,8 @@ public class FurnitureManager {
      */
     public void start() {
         if (running.compareAndSet(false, true)) {
-            System.out.println("[FurnitureManager] 已启动");
+            System.out.printf("[FurnitureManager] 已启动（状态合并窗口 %d ms，全局快照心跳 %d 秒）%n",
+                    coalesceMillis, heartbeatSeconds);
             startStatusMonitoring(); // 启动定期状态检查
         }
     }
@@ -184,15 +251,20 @@ public class FurnitureManager {
     }
 
     /**
-     * 定期监控家具状态（10秒一次）
+     * 定期监控家具状态（10秒一次），并按心跳周期发布全局快照
      */
     private void startStatusMonitoring() {
         scheduledExecutorService.scheduleWithFixedDelay(() -> {
             if (running.get()) {
                 checkAllFurnitureStatus();
-                publishGlobalHomeStatus(); // 新增：定时上报全局状态
             }
         }, 0, 10, TimeUnit.SECONDS);
+        scheduledExecutorService.scheduleWithFixedDelay(() -> {
+            if (running.get()) {
+                publishGlobalHomeStatus();
+                System.out.println("[FurnitureManager] 状态上报统计: " + getStatusPublishStats());
+            }
+        }, 0, heartbeatSeconds, TimeUnit.SECONDS);
     }
 
     /**
@@ -239,7 +311,7 @@ public class FurnitureManager {
     /**
      * 初始化全局状态数组（确保所有设备都包含在aggregatedHomeStatus中）
      */
-    private void initializeGlobalStatusArrays() {
+    private synchronized void initializeGlobalStatusArrays() {
         int totalDevices = furnitureMap.size();
         if (totalDevices == 0) {
             return;
@@ -252,8 +324,10 @@ public class FurnitureManager {
             aggregatedHomeStatus.deviceStatus.ensure_length(totalDevices, totalDevices);
 
             // 重新填充所有设备信息
+            statusIndex.clear();
             int index = 0;
             for (Furniture furniture : furnitureMap.values()) {
+                statusIndex.put(furniture.getId(), index);
                 aggregatedHomeStatus.deviceIds.set_at(index, furniture.getId());
                 aggregatedHomeStatus.deviceTypes.set_at(index, furniture.getType());
                 
@@ -312,6 +386,7 @@ public class FurnitureManager {
     public void unregisterFurniture(String furnitureId) {
         Furniture removed = furnitureMap.remove(furnitureId);
         if (removed != null) {
+            disposeDeviceStatus(furnitureId);
             System.out.printf("[FurnitureManager] 移除家具: %s%n", removed.getName());
         }
     }
@@ -395,36 +470,152 @@ public class FurnitureManager {
         }
 
         try {
-            // 查找设备索引
-            int index = -1;
-            for (int i = 0; i < aggregatedHomeStatus.deviceIds.length(); i++) {
-                if (deviceId.equals(aggregatedHomeStatus.deviceIds.get_at(i))) {
-                    index = i;
-                    break;
-                }
+            updateAggregatedStatus(furniture, generateDeviceJsonStatus(furniture),
+                    LocalDateTime.now().format(TIMESTAMP_FORMATTER));
+            System.out.printf("[FurnitureManager] 全局状态更新: %s=%s%n",
+                    furniture.getName(), furniture.getStatus());
+        } catch (Exception e) {
+            System.err.println("[FurnitureManager] 更新设备JSON状态异常: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 写入全局HomeStatus中该设备的条目
+     */
+    private void updateAggregatedStatus(Furniture furniture, String jsonStatus, String timeStamp) {
+        Integer index = statusIndex.get(furniture.getId());
+        if (index == null) {
+            // 如果设备不在全局状态中，重新初始化
+            initializeGlobalStatusArrays();
+            return;
+        }
+        aggregatedHomeStatus.deviceStatus.set_at(index, jsonStatus);
+        aggregatedHomeStatus.timeStamp = timeStamp;
+    }
+
+    /**
+     * 上报单个设备的状态：标记为待上报，合并窗口结束时写出该设备的最新状态（见flushDeviceStatus）
+     * @return 是否已加入待上报（静默设备返回false）
+     */
+    public synchronized boolean publishDeviceStatus(Furniture furniture) {
+        if (isDeviceSilent(furniture.getId())) {
+            return false;
+        }
+        dirtyDevices.add(furniture.getId());
+        publishStats[0]++;
+        if (coalesceMillis <= 0) {
+            flushDeviceStatus();
+        } else if (!flushScheduled) {
+            try {
+                scheduledExecutorService.schedule(this::flushDeviceStatus, coalesceMillis, TimeUnit.MILLISECONDS);
+                flushScheduled = true;
+            } catch (RejectedExecutionException e) {
+                // 管理器已停止，直接写出
+                flushDeviceStatus();
             }
+        }
+        return true;
+    }
 
-            if (index < 0) {
-                // 如果设备不在全局状态中，重新初始化
-                initializeGlobalStatusArrays();
-                return;
+    /**
+     * 写出所有待上报设备的最新状态并同步全局HomeStatus，状态与上次写出相同的设备跳过
+     * 未创建DeviceStatus写入器时只更新全局状态，由全局快照发出
+     */
+    public synchronized void flushDeviceStatus() {
+        flushScheduled = false;
+        if (dirtyDevices.isEmpty()) {
+            return;
+        }
+        int changes = dirtyDevices.size();
+        int written = 0;
+        long bytes = 0;
+        String timeStamp = LocalDateTime.now().format(TIMESTAMP_FORMATTER);
+        for (String deviceId : dirtyDevices) {
+            Furniture furniture = furnitureMap.get(deviceId);
+            if (furniture == null || isDeviceSilent(deviceId)) {
+                continue;
+            }
+            try {
+                String jsonStatus = generateDeviceJsonStatus(furniture);
+                updateAggregatedStatus(furniture, jsonStatus, timeStamp);
+                if (deviceStatusDataWriter == null) {
+                    continue;
+                }
+                if (jsonStatus.equals(publishedStatus.get(deviceId))) {
+                    publishStats[3]++;
+                    continue;
+                }
+                if (writeDeviceStatus(furniture, jsonStatus, timeStamp)) {
+                    publishedStatus.put(deviceId, jsonStatus);
+                    written++;
+                    bytes += sampleSize(deviceId, furniture.getType(), jsonStatus, timeStamp);
+                }
+            } catch (Exception e) {
+                System.err.println("[FurnitureManager] 状态上报异常: " + e.getMessage());
             }
+        }
+        dirtyDevices.clear();
+        publishStats[1] += written;
+        publishStats[2] += bytes;
+        if (written > 0) {
+            System.out.printf("[FurnitureManager] 状态上报: %d 个设备, %d bytes（窗口内 %d 个设备有变化）%n",
+                    written, bytes, changes);
+        }
+    }
 
-            // 根据设备类型生成对应的JSON状态
-            String jsonStatus = generateDeviceJsonStatus(furniture);
-            aggregatedHomeStatus.deviceStatus.set_at(index, jsonStatus);
+    private boolean writeDeviceStatus(Furniture furniture, String jsonStatus, String timeStamp) {
+        deviceStatusSample.deviceId = furniture.getId();
+        deviceStatusSample.deviceType = furniture.getType();
+        deviceStatusSample.status = jsonStatus;
+        deviceStatusSample.timeStamp = timeStamp;
+        InstanceHandle_t handle = deviceStatusHandles.get(furniture.getId());
+        if (handle == null) {
+            handle = deviceStatusDataWriter.register_instance(deviceStatusSample);
+            deviceStatusHandles.put(furniture.getId(), handle);
+        }
+        ReturnCode_t result = deviceStatusDataWriter.write(deviceStatusSample, handle);
+        if (result != ReturnCode_t.RETCODE_OK) {
+            System.err.printf("[FurnitureManager] %s 状态上报失败，返回码: %s%n", furniture.getName(), result);
+            return false;
+        }
+        return true;
+    }
 
-            // 更新全局HomeStatus的时间戳
-            DateTimeFormatter timestampFormatter =
-                    DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-            aggregatedHomeStatus.timeStamp =
-                    LocalDateTime.now().format(timestampFormatter);
+    /**
+     * 样本序列化后的大致字节数（每个字符串：4字节长度 + 内容 + 结尾0，按4字节对齐）
+     */
+    private static long sampleSize(String... fields) {
+        long size = 0;
+        for (String field : fields) {
+            int length = field == null ? 0 : field.length();
+            size += (4 + length + 1 + 3) & ~3;
+        }
+        return size;
+    }
 
-            System.out.printf("[FurnitureManager] 全局状态更新: %s=%s%n",
-                    furniture.getName(), furniture.getStatus());
-        } catch (Exception e) {
-            System.err.println("[FurnitureManager] 更新设备JSON状态异常: " + e.getMessage());
+    /**
+     * 状态上报统计（自启动起）：状态变化次数、写出的样本数和字节数、跳过的未变化状态、全局快照
+     */
+    public synchronized String getStatusPublishStats() {
+        double seconds = Math.max(1e-3, (System.nanoTime() - statsStartNanos) / 1e9);
+        return String.format("状态变化 %d 次 (%.1f/s), 上报 %d 个样本 (%.1f/s, %.0f B/s), 未变化跳过 %d, " +
+                        "全局快照 %d 次 (%d bytes)",
+                publishStats[0], publishStats[0] / seconds, publishStats[1], publishStats[1] / seconds,
+                (publishStats[2] + publishStats[5]) / seconds, publishStats[3], publishStats[4], publishStats[5]);
+    }
+
+    /**
+     * 移除设备的DeviceStatus实例，之后加入的订阅端不再收到该设备
+     */
+    private synchronized void disposeDeviceStatus(String deviceId) {
+        dirtyDevices.remove(deviceId);
+        publishedStatus.remove(deviceId);
+        InstanceHandle_t handle = deviceStatusHandles.remove(deviceId);
+        if (handle == null || deviceStatusDataWriter == null) {
+            return;
         }
+        deviceStatusSample.deviceId = deviceId;
+        deviceStatusDataWriter.dispose(deviceStatusSample, handle);
     }
 
     /**
@@ -469,13 +660,14 @@ public class FurnitureManager {
     }
 
     /**
-     * 发布全局HomeStatus到DDS（定时上报所有家具状态）
+     * 发布全局HomeStatus快照到DDS（心跳和request_all_status），发布前先写出待上报的设备状态
      */
-    public void publishGlobalHomeStatus() {
+    public synchronized void publishGlobalHomeStatus() {
         if (homeStatusDataWriter == null || !running.get()) {
             return;
         }
 
+        flushDeviceStatus();
         try {
             // 创建临时HomeStatus对象，只包含非静默设备
             HomeStatus filteredHomeStatus = new HomeStatus();
@@ -522,6 +714,12 @@ public class FurnitureManager {
             );
 
             if (result == ReturnCode_t.RETCODE_OK) {
+                publishStats[4]++;
+                for (int i = 0; i < filteredHomeStatus.deviceIds.length(); i++) {
+                    publishStats[5] += sampleSize(filteredHomeStatus.deviceIds.get_at(i),
+                            filteredHomeStatus.deviceTypes.get_at(i), filteredHomeStatus.deviceStatus.get_at(i));
+                }
+                publishStats[5] += sampleSize(filteredHomeStatus.timeStamp) + 12; // 加上三个序列的长度字段
                 System.out.println("[FurnitureManager] 全局状态定时上报成功 - " +
                         filteredHomeStatus.deviceIds.length() + " 个设备");
                 // 输出所有设备状态详情
@@ -1,17 +1,9 @@
 package HomeSimulator.furniture;
 
 import HomeSimulator.HomeSimulatorAlert;
-import IDL.HomeStatus;
-import IDL.HomeStatusDataWriter;
-import com.zrdds.infrastructure.InstanceHandle_t;
-import com.zrdds.infrastructure.ReturnCode_t;
-import org.json.JSONArray;
-import org.json.JSONObject;
 import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.Random;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -38,7 +30,6 @@ public class Light implements Furniture, AlertableDevice {
     private final String type;
 
     private boolean isOn; // 灯具状态（true=开，false=关）
-    private HomeStatusDataWriter ddsWriter; // DDS数据写入器（用于上报状态）
     private FurnitureManager manager; // 家具管理器（用于更新全局状态）
     private HomeSimulatorAlert alertSystem; // 报警系统引用
     private final List<StatusChangeListener> statusChangeListeners = new CopyOnWriteArrayList<>(); // 状态监听器集合
@@ -49,13 +40,12 @@ public class Light implements Furniture, AlertableDevice {
     /**
      * 构造函数
      */
-    public Light(String id, String name, HomeStatusDataWriter ddsWriter, FurnitureManager manager) {
+    public Light(String id, String name, FurnitureManager manager) {
         super();
         this.id = id;          // 初始化ID（非null）
         this.name = name;      // 初始化名称（非null）
         this.type = "light";   // 固定类型为"light"
         this.isOn = false;     // 默认关闭
-        this.ddsWriter = ddsWriter;
         this.manager = manager;
 
         // ======== 新增：初始化状态调度器并启动动态变化 ========
@@ -326,7 +316,7 @@ public class Light implements Furniture, AlertableDevice {
 
 
     /**
-     * 独立上报状态到DDS（使用标准化JSON模板，确保字符串一致性）
+     * 上报状态到DDS（由FurnitureManager更新本设备的DeviceStatus实例，并同步全局状态）
      */
     public void publishStatus() {
         // 检查设备是否静默，如果静默则不发送状态数据
@@ -334,68 +324,11 @@ public class Light implements Furniture, AlertableDevice {
             System.out.printf("[Light] %s 处于静默状态，跳过状态上报\n", name);
             return;
         }
-        if (ddsWriter == null) {
-            System.err.println("[Light] DDS写入器未初始化，无法上报状态");
+        if (manager == null) {
+            System.err.println("[Light] 家具管理器未设置，无法上报状态");
             return;
         }
-
-        try {
-            HomeStatus status = new HomeStatus();
-            int lightIndex = getLightIndex();
-
-            // ======== 为HomeStatus添加时间戳 ========
-            DateTimeFormatter timestampFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-            status.timeStamp = LocalDateTime.now().format(timestampFormatter);
-
-            // 构建标准化JSON模板（含设备基础信息+状态参数）
-            JSONObject statusJson = new JSONObject();
-
-            // 1. 基础信息（设备标识与元数据）
-//            statusJson.put("deviceId", this.id);          // 设备唯一ID（如"light1"）
-//            statusJson.put("deviceName", this.name);      // 设备名称（如"客厅灯"）
-//            statusJson.put("type", this.type);            // 设备类型（固定"light"）
-//            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-//            String formattedTime = LocalDateTime.now().format(formatter);
-//            statusJson.put("timestamp", formattedTime);
-
-            // 2. 核心状态（布尔/枚举型状态序列）
-            JSONArray statusArray = new JSONArray();
-            statusArray.put(isOn ? 1 : 0);                // status[0]：开关状态（1=开，0=关）
-            statusArray.put(getColorTempCode());          // status[1]：色温模式编码（0=暖白，1=冷白，2=中性，3=RGB）
-            statusArray.put(getSceneModeCode());          // status[2]：场景模式编码（0=日常，1=阅读，2=睡眠，3=影院）
-            statusJson.put("status", statusArray);        // 状态序列
-
-            // 3. 参数信息（数值型参数序列）
-            JSONArray paramsArray = new JSONArray();
-            paramsArray.put((float) brightness);          // params[0]：亮度（0-100浮点）
-            paramsArray.put(getColorTempValue());         // params[1]：色温值（K值，如暖白=3000K）
-            statusJson.put("params", paramsArray);        // 参数序列
-
-            // 更新deviceStatus字段（存储紧凑JSON字符串，无缩进）
-            if (status.deviceStatus.length() <= lightIndex) {
-                status.deviceStatus.ensure_length(lightIndex + 1, lightIndex + 1);
-            }
-            status.deviceStatus.set_at(lightIndex, statusJson.toString()); // 关键：使用无缩进toString()
-
-            // 关联设备ID和类型（与deviceStatus索引对应）
-            if (status.deviceIds.length() <= lightIndex) {
-                status.deviceIds.ensure_length(lightIndex + 1, lightIndex + 1);
-                status.deviceTypes.ensure_length(lightIndex + 1, lightIndex + 1);
-            }
-            status.deviceIds.set_at(lightIndex, this.id);
-            status.deviceTypes.set_at(lightIndex, this.type);
-
-            // 发布状态
-            ReturnCode_t result = ddsWriter.write(status, InstanceHandle_t.HANDLE_NIL_NATIVE);
-            if (result == ReturnCode_t.RETCODE_OK) {
-                System.out.printf("[Light] %s状态上报: %s%n", getName(), statusJson.toString());
-                manager.updateDeviceStatus(getId()); // 同步更新全局状态
-            } else {
-                System.err.printf("[Light] 上报失败，返回码: %s%n", result);
-            }
-        } catch (Exception e) {
-            System.err.println("[Light] 上报异常: " + e.getMessage());
-        }
+        manager.publishDeviceStatus(this);
     }
 
     /**
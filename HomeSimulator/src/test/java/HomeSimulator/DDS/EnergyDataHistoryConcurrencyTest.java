@@ -0,0 +1,124 @@
+package HomeSimulator.DDS;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 写入路径上的无锁过期（EnergySeriesBuffer.tryRetire / EnergyDataHistory.appendSample）的并发压力测试：
+ * 多个写入线程持续追加，清理线程以紧跟最新时间戳的截止时间反复调用expireData，
+ * 每次追加后立即读回，除了确实早于截止时间的样本外，任何样本都不允许丢失。
+ */
+class EnergyDataHistoryConcurrencyTest {
+    private static final int WRITERS = 8;
+    private static final int DEVICES_PER_WRITER = 2;
+    private static final int APPENDS_PER_WRITER = 40_000;
+    // 清理截止时间落后于最新时间戳的距离（逻辑毫秒），足够小以频繁触发退役
+    private static final long EXPIRY_LAG = 5;
+
+    @Test
+    void appendsSurviveConcurrentExpiry() throws Exception {
+        EnergyDataHistory history = EnergyDataHistory.getInstance();
+        String prefix = "stress-" + System.nanoTime() + "-";
+        AtomicLong clock = new AtomicLong(1_000_000L);
+        AtomicLong cutoff = new AtomicLong(Long.MIN_VALUE);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicLong verified = new AtomicLong();
+        AtomicLong expired = new AtomicLong();
+        AtomicLong lost = new AtomicLong();
+        AtomicLong sweeps = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+
+        Thread sweeper = new Thread(() -> {
+            await(start);
+            while (writing.get()) {
+                long before = clock.get() - EXPIRY_LAG;
+                cutoff.set(before);
+                history.expireData(before);
+                sweeps.incrementAndGet();
+            }
+        }, "energy-sweeper");
+
+        List<Thread> writers = new ArrayList<>();
+        for (int w = 0; w < WRITERS; w++) {
+            int writer = w;
+            writers.add(new Thread(() -> {
+                await(start);
+                for (int i = 0; i < APPENDS_PER_WRITER; i++) {
+                    // 每个设备只有一个写入线程，设备内的时间戳严格递增
+                    String deviceId = prefix + (writer * DEVICES_PER_WRITER + i % DEVICES_PER_WRITER);
+                    long timestamp = clock.incrementAndGet();
+                    float power = i;
+                    history.appendSample(deviceId, "stress", timestamp, power, 0f, 0f);
+
+                    float[] found = {Float.NaN};
+                    history.scan(deviceId, timestamp, timestamp, (ts, p, d, wk) -> found[0] = p);
+                    if (found[0] == power) {
+                        verified.incrementAndGet();
+                    } else if (timestamp < cutoff.get()) {
+                        // 追加之后整个缓冲区已被合法地判定过期
+                        expired.incrementAndGet();
+                    } else {
+                        lost.incrementAndGet();
+                    }
+                }
+            }, "energy-writer-" + w));
+        }
+
+        long startNanos = System.nanoTime();
+        sweeper.start();
+        writers.forEach(Thread::start);
+        start.countDown();
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        writing.set(false);
+        sweeper.join();
+
+        long total = (long) WRITERS * APPENDS_PER_WRITER;
+        System.out.printf("[EnergyDataHistoryConcurrencyTest] %d 次追加, %d 次清理, 耗时 %d ms: 读回 %d, 已过期 %d, 丢失 %d%n",
+                total, sweeps.get(), (System.nanoTime() - startNanos) / 1_000_000L,
+                verified.get(), expired.get(), lost.get());
+        assertEquals(0, lost.get(), "并发清理期间丢失了追加的样本");
+        assertEquals(total, verified.get() + expired.get());
+        assertTrue(sweeps.get() > 0);
+    }
+
+    @Test
+    void retiredBufferRejectsAppendsAndHistoryMovesToFreshBuffer() {
+        EnergySeriesBuffer buffer = new EnergySeriesBuffer("retire-unit", "unit", 16, Long.MAX_VALUE);
+        assertFalse(buffer.tryRetire(100), "空缓冲区不应退役");
+        assertEquals(10, buffer.append(10, "unit", 1f, 0f, 0f, null));
+        assertFalse(buffer.tryRetire(10), "最新数据未早于截止时间");
+        assertTrue(buffer.tryRetire(11));
+        assertEquals(EnergySeriesBuffer.REJECTED, buffer.append(12, "unit", 2f, 0f, 0f, null));
+
+        EnergyDataHistory history = EnergyDataHistory.getInstance();
+        String deviceId = "retire-" + System.nanoTime();
+        history.appendSample(deviceId, "unit", 10, 1f, 0f, 0f);
+        history.expireData(11);
+        assertEquals(-1, history.getVersion(deviceId), "已退役的设备应从历史中移除");
+        history.appendSample(deviceId, "unit", 12, 2f, 0f, 0f);
+        assertNotEquals(-1, history.getVersion(deviceId));
+        float[] found = {Float.NaN};
+        history.scan(deviceId, 12, 12, (ts, p, d, w) -> found[0] = p);
+        assertEquals(2f, found[0]);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package HomeSimulator.DDS;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * 设备类型统计与保留的历史一致：按类型合并当前的设备摘要，设备缓冲区退役后它的样本不再计入
+ */
+class EnergyDataHistoryStatsTest {
+
+    @Test
+    void typeStatsFollowRetiredBuffers() {
+        EnergyDataHistory history = EnergyDataHistory.getInstance();
+        String type = "stats-type-" + System.nanoTime();
+        String oldDevice = type + "-old";
+        String newDevice = type + "-new";
+
+        history.appendSample(oldDevice, type, 1_000, 10f, 0f, 0f);
+        history.appendSample(oldDevice, type, 2_000, 20f, 0f, 0f);
+        history.appendSample(newDevice, type, 5_000, 30f, 0f, 0f);
+        EnergyStats before = history.getTypeStats(type);
+        assertNotNull(before);
+        assertEquals(3, before.getCount());
+
+        // 只有旧设备的数据全部早于截止时间
+        history.expireData(3_000);
+        EnergyStats after = history.getTypeStats(type);
+        assertNotNull(after);
+        assertEquals(1, after.getCount(), "退役设备的样本仍计入类型统计");
+        assertEquals(30f, after.getMax());
+
+        history.expireData(6_000);
+        assertNull(history.getTypeStats(type));
+    }
+}
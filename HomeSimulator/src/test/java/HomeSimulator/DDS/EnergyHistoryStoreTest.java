@@ -0,0 +1,121 @@
+package HomeSimulator.DDS;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 段文件持久化的恢复测试：写入多个设备、跨越多个段的记录，重新打开目录后回放，
+ * 校验回放的样本与写入的完全一致（按时间升序），并报告恢复耗时与磁盘占用。
+ */
+class EnergyHistoryStoreTest {
+    private static final long SEGMENT_MILLIS = 60L * 60 * 1000;
+    private static final long RETENTION_MILLIS = 30L * 24 * SEGMENT_MILLIS;
+    private static final long INTERVAL_MILLIS = 10_000;
+    private static final int SAMPLES_PER_DEVICE = 2_000;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void recoversEveryRecordInOrder() throws IOException {
+        // a/b 与 a_b 替换不安全字符后相同，必须写入不同的目录
+        String[] devices = {"light1", "ac1", "a/b", "a_b"};
+        long start = System.currentTimeMillis() - SAMPLES_PER_DEVICE * INTERVAL_MILLIS;
+
+        EnergyHistoryStore store = new EnergyHistoryStore(dir.toFile(), SEGMENT_MILLIS, RETENTION_MILLIS);
+        long writeStart = System.nanoTime();
+        for (int i = 0; i < SAMPLES_PER_DEVICE; i++) {
+            for (int d = 0; d < devices.length; d++) {
+                store.append(devices[d], "type" + d, start + i * INTERVAL_MILLIS, power(d, i), i * 0.5f, i * 2f);
+            }
+        }
+        store.close();
+        long writeNanos = System.nanoTime() - writeStart;
+
+        Map<String, List<float[]>> replayed = new HashMap<>();
+        Map<String, String> types = new HashMap<>();
+        EnergyHistoryStore reopened = new EnergyHistoryStore(dir.toFile(), SEGMENT_MILLIS, RETENTION_MILLIS);
+        long recoverStart = System.nanoTime();
+        reopened.recover((deviceId, deviceType, timestamp, power, daily, weekly) -> {
+            types.put(deviceId, deviceType);
+            replayed.computeIfAbsent(deviceId, k -> new ArrayList<>())
+                    .add(new float[]{timestamp - start, power, daily, weekly});
+        });
+        long recoverNanos = System.nanoTime() - recoverStart;
+        reopened.close();
+
+        assertEquals(devices.length, replayed.size());
+        for (int d = 0; d < devices.length; d++) {
+            List<float[]> records = replayed.get(devices[d]);
+            assertEquals(SAMPLES_PER_DEVICE, records.size(), devices[d]);
+            assertEquals("type" + d, types.get(devices[d]));
+            for (int i = 0; i < SAMPLES_PER_DEVICE; i++) {
+                float[] r = records.get(i);
+                assertEquals(i * INTERVAL_MILLIS, (long) r[0], devices[d] + " 第 " + i + " 条记录的时间戳");
+                assertEquals(power(d, i), r[1]);
+                assertEquals(i * 0.5f, r[2]);
+                assertEquals(i * 2f, r[3]);
+            }
+        }
+        assertNotEquals(EnergyHistoryStore.dirName("a/b"), EnergyHistoryStore.dirName("a_b"));
+
+        long bytes = diskBytes(dir);
+        long samples = (long) devices.length * SAMPLES_PER_DEVICE;
+        long segments = countSegments(dir);
+        assertTrue(segments > devices.length, "记录应跨越多个段文件");
+        System.out.printf("[EnergyHistoryStoreTest] %d 条记录 / %d 个段: 写入 %.1f ms, 恢复 %.1f ms (%.0f ns/样本), " +
+                        "磁盘 %.1f KB (%.1f 字节/样本)%n",
+                samples, segments, writeNanos / 1e6, recoverNanos / 1e6, (double) recoverNanos / samples,
+                bytes / 1024.0, (double) bytes / samples);
+    }
+
+    @Test
+    void dropsSegmentsPastRetention() throws IOException {
+        long retention = 3 * SEGMENT_MILLIS;
+        long now = System.currentTimeMillis();
+        EnergyHistoryStore store = new EnergyHistoryStore(dir.toFile(), SEGMENT_MILLIS, retention);
+        // 10小时的数据，每小时一段
+        for (long t = now - 10 * SEGMENT_MILLIS; t <= now; t += 60_000) {
+            store.append("light1", "light", t, 1f, 0f, 0f);
+        }
+        store.close();
+
+        List<Long> timestamps = new ArrayList<>();
+        new EnergyHistoryStore(dir.toFile(), SEGMENT_MILLIS, retention)
+                .recover((deviceId, deviceType, timestamp, power, daily, weekly) -> timestamps.add(timestamp));
+        assertFalse(timestamps.isEmpty());
+        assertTrue(timestamps.get(0) >= now - retention, "回放了保留期之前的记录");
+        assertTrue(countSegments(dir) <= 5, "过期的段文件应被删除");
+    }
+
+    private static float power(int device, int i) {
+        return device * 1000 + i * 0.25f;
+    }
+
+    private static long diskBytes(Path root) throws IOException {
+        try (Stream<Path> files = Files.walk(root)) {
+            return files.map(Path::toFile).filter(File::isFile).mapToLong(File::length).sum();
+        }
+    }
+
+    private static long countSegments(Path root) throws IOException {
+        try (Stream<Path> files = Files.walk(root)) {
+            return files.filter(p -> p.toString().endsWith(".seg")).count();
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package HomeSimulator.chart;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 索引色PNG编码结果必须能被ImageIO读回：覆盖4位奇数宽度、8位以及超过256色量化三条路径，
+ * 并输出与ImageIO默认PNG编码的大小/耗时对比
+ */
+class IndexedPngEncoderTest {
+
+    private final IndexedPngEncoder encoder = new IndexedPngEncoder(6);
+
+    @Test
+    void fourBitOddWidthRoundTrip() throws IOException {
+        int[] colors = new int[12];
+        for (int i = 0; i < colors.length; i++) {
+            colors[i] = 0xFF000000 | (i * 20) << 16 | (255 - i * 20) << 8 | (i * 7);
+        }
+        BufferedImage image = new BufferedImage(101, 37, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, colors[(x * 3 + y) % colors.length]);
+            }
+        }
+
+        BufferedImage decoded = roundTrip(image);
+        assertEquals(4, decoded.getColorModel().getPixelSize(), "≤16色应使用4位索引");
+        assertPixelsEqual(image, decoded);
+    }
+
+    @Test
+    void eightBitRoundTrip() throws IOException {
+        BufferedImage image = new BufferedImage(64, 48, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, 0xFF000000 | ((x + y * 64) % 200) * 0x010101);
+            }
+        }
+
+        BufferedImage decoded = roundTrip(image);
+        assertEquals(8, decoded.getColorModel().getPixelSize());
+        assertPixelsEqual(image, decoded);
+    }
+
+    @Test
+    void quantisedRoundTripKeepsDominantColors() throws IOException {
+        BufferedImage image = new BufferedImage(257, 131, BufferedImage.TYPE_INT_RGB);
+        Map<Integer, Integer> counts = new HashMap<>();
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                // 左半部分是少量大面积色块，右半部分是渐变，总颜色数远超256
+                int rgb = x < 128
+                        ? 0xFF000000 | (y / 16) * 0x202020
+                        : 0xFF000000 | (x & 0xFF) << 16 | (y * 2 & 0xFF) << 8 | 0x40;
+                image.setRGB(x, y, rgb);
+                counts.merge(rgb, 1, Integer::sum);
+            }
+        }
+        assertTrue(counts.size() > 256);
+
+        BufferedImage decoded = roundTrip(image);
+        assertEquals(8, decoded.getColorModel().getPixelSize());
+        long error = 0;
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                int expected = image.getRGB(x, y);
+                int actual = decoded.getRGB(x, y);
+                if (x < 128) {
+                    assertEquals(expected, actual, "大面积色块应保留原色");
+                }
+                error += distance(expected, actual);
+            }
+        }
+        double meanError = (double) error / (image.getWidth() * image.getHeight());
+        assertTrue(meanError < 64, "量化后的平均色差过大: " + meanError);
+    }
+
+    @Test
+    void chartSizeAndTimeComparedToImageIo() throws IOException {
+        BufferedImage chart = chartLikeImage();
+        int rounds = 20;
+
+        byte[] indexed = encoder.encode(chart);
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            indexed = encoder.encode(chart);
+        }
+        long indexedNanos = (System.nanoTime() - start) / rounds;
+
+        byte[] reference = imageIoPng(chart);
+        start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            reference = imageIoPng(chart);
+        }
+        long referenceNanos = (System.nanoTime() - start) / rounds;
+
+        System.out.printf("[IndexedPngEncoderTest] 索引色PNG: %d bytes, %.2f ms; ImageIO PNG: %d bytes, %.2f ms\n",
+                indexed.length, indexedNanos / 1e6, reference.length, referenceNanos / 1e6);
+        assertNotNull(ImageIO.read(new ByteArrayInputStream(indexed)));
+        assertTrue(indexed.length < reference.length, "索引色PNG应小于ImageIO的真彩色PNG");
+    }
+
+    private BufferedImage roundTrip(BufferedImage image) throws IOException {
+        byte[] png = encoder.encode(image);
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(png));
+        assertNotNull(decoded, "ImageIO无法解码");
+        assertEquals(image.getWidth(), decoded.getWidth());
+        assertEquals(image.getHeight(), decoded.getHeight());
+        return decoded;
+    }
+
+    private static void assertPixelsEqual(BufferedImage expected, BufferedImage actual) {
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                int want = expected.getRGB(x, y);
+                int got = actual.getRGB(x, y);
+                if (want != got) {
+                    throw new AssertionError(String.format("像素(%d,%d)不一致: %08x != %08x", x, y, want, got));
+                }
+            }
+        }
+    }
+
+    private static int distance(int a, int b) {
+        int dr = (a >> 16 & 0xFF) - (b >> 16 & 0xFF);
+        int dg = (a >> 8 & 0xFF) - (b >> 8 & 0xFF);
+        int db = (a & 0xFF) - (b & 0xFF);
+        return Math.abs(dr) + Math.abs(dg) + Math.abs(db);
+    }
+
+    /**
+     * 与趋势图相近的图像：白底、网格线和抗锯齿折线
+     */
+    private static BufferedImage chartLikeImage() {
+        BufferedImage image = new BufferedImage(800, 400, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, image.getWidth(), image.getHeight());
+            g.setColor(Color.LIGHT_GRAY);
+            for (int x = 50; x < image.getWidth(); x += 50) {
+                g.drawLine(x, 0, x, image.getHeight());
+            }
+            for (int y = 40; y < image.getHeight(); y += 40) {
+                g.drawLine(0, y, image.getWidth(), y);
+            }
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.setStroke(new BasicStroke(2f));
+            Color[] series = {Color.RED, Color.BLUE, new Color(0, 140, 0)};
+            for (int s = 0; s < series.length; s++) {
+                g.setColor(series[s]);
+                int prevY = 200;
+                for (int x = 0; x < image.getWidth(); x += 4) {
+                    int y = 200 + (int) (120 * Math.sin((x + s * 90) / 60.0) * Math.cos(x / 210.0));
+                    g.drawLine(x - 4, prevY, x, y);
+                    prevY = y;
+                }
+            }
+        } finally {
+            g.dispose();
+        }
+        return image;
+    }
+
+    private static byte[] imageIoPng(BufferedImage image) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,104 @@
+package HomeSimulator.furniture;
+
+import IDL.DeviceStatus;
+import IDL.DeviceStatusDataWriter;
+import com.zrdds.infrastructure.InstanceHandle_t;
+import com.zrdds.infrastructure.ReturnCode_t;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 状态合并窗口：1000个灯具分轮次连续调整亮度（每次调整上报两次），统计每次实际变化写出的DeviceStatus样本数
+ * 窗口为0时每个变化写出一个样本；窗口内同一设备的多次变化只写出最新状态，窗口越长合并越多
+ */
+class FurnitureManagerCoalesceTest {
+
+    private static final int LIGHTS = 1000;
+    private static final int ROUNDS = 4;
+    private static final int STEPS_PER_ROUND = 3;
+    private static final long ROUND_GAP_MILLIS = 100;
+    private static final int CHANGES = LIGHTS * ROUNDS * STEPS_PER_ROUND;
+
+    @Test
+    void samplesPerChangeShrinkWithWindow() throws InterruptedException {
+        int immediate = run(0);
+        int window50 = run(FurnitureManager.DEFAULT_COALESCE_MILLIS);
+        int window200 = run(200);
+
+        // 窗口为0：每个实际变化一个样本，重复上报被“未变化跳过”去掉
+        assertEquals(CHANGES, immediate);
+        // 50ms：每轮的三次调整合并为一个样本，轮次间隔大于窗口，所以每轮每个设备至少一个
+        assertTrue(window50 >= LIGHTS * ROUNDS, "50ms窗口合并了不同轮次: " + window50);
+        assertTrue(window50 <= 2 * LIGHTS * ROUNDS, "50ms窗口没有合并同一轮内的调整: " + window50);
+        // 200ms：窗口跨越多个轮次
+        assertTrue(window200 < window50, "200ms窗口没有比50ms合并更多: " + window200 + " >= " + window50);
+    }
+
+    /**
+     * @return 写出的DeviceStatus样本数
+     */
+    private static int run(long coalesceMillis) throws InterruptedException {
+        CountingWriter writer = new CountingWriter();
+        FurnitureManager manager = new FurnitureManager(null, writer, coalesceMillis);
+        List<Light> lights = new ArrayList<>();
+        for (int i = 0; i < LIGHTS; i++) {
+            Light light = new Light("light" + (100 + i), "测试灯" + i, manager);
+            manager.registerFurniture(light);
+            lights.add(light);
+        }
+        manager.start();
+        try {
+            long start = System.nanoTime();
+            for (int round = 0; round < ROUNDS; round++) {
+                for (int step = 0; step < STEPS_PER_ROUND; step++) {
+                    int brightness = 10 + round * 20 + step * 5;
+                    for (Light light : lights) {
+                        light.setBrightness(brightness);
+                        // 与自动调整一样：setter链和调整结束各上报一次
+                        light.publishStatus();
+                        light.publishStatus();
+                    }
+                }
+                Thread.sleep(ROUND_GAP_MILLIS);
+            }
+            manager.flushDeviceStatus();
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+            int samples = writer.writes.get();
+            System.out.printf("[FurnitureManagerCoalesceTest] 窗口 %d ms: %d 次变化 -> %d 个样本（%.3f 样本/变化，%d ms）%n",
+                    coalesceMillis, CHANGES, samples, (double) samples / CHANGES, elapsedMillis);
+            if (coalesceMillis > 0) {
+                // 每个窗口内每个设备至多写出一次
+                long windows = elapsedMillis / coalesceMillis + 1;
+                assertTrue(samples <= LIGHTS * windows, "窗口内同一设备写出了多个样本: " + samples);
+            }
+            return samples;
+        } finally {
+            manager.stop();
+        }
+    }
+
+    /**
+     * 只计数的DeviceStatus写入器
+     */
+    private static final class CountingWriter extends DeviceStatusDataWriter {
+        final AtomicInteger writes = new AtomicInteger();
+
+        @Override
+        public InstanceHandle_t register_instance(DeviceStatus sample) {
+            return new InstanceHandle_t();
+        }
+
+        @Override
+        public ReturnCode_t write(DeviceStatus sample, InstanceHandle_t handle) {
+            writes.incrementAndGet();
+            return ReturnCode_t.RETCODE_OK;
+        }
+    }
+}
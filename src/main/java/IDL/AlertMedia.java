@@ -10,6 +10,10 @@ public class AlertMedia{
     public int chunk_seq = 0;// @ID(5)
     public int chunk_size = 0;// @ID(6)
     public IDL.Blob chunk = new IDL.Blob();// @ID(7)
+    public String content_hash = "";// @ID(8)
+    public int encoding = 0;// @ID(9)
+    public int raw_size = 0;// @ID(10)
+    public String session_id = "";// @ID(11)
 
     public AlertMedia(){
 
@@ -30,6 +34,10 @@ public class AlertMedia{
         this.chunk_seq =  typedSrc.chunk_seq;
         this.chunk_size =  typedSrc.chunk_size;
         this.chunk.copy(typedSrc.chunk);
+        this.content_hash =  typedSrc.content_hash;
+        this.encoding =  typedSrc.encoding;
+        this.raw_size =  typedSrc.raw_size;
+        this.session_id =  typedSrc.session_id;
         return this;
     }
 }
\ No newline at end of file
@@ -70,6 +70,20 @@ public class AlertMediaTypeSupport extends TypeSupport {
         for (int i = 0; i < chunkTmpLen; ++i){
             System.out.println("sample.chunk.get_at(" + i + "):" + sample.chunk.get_at(i));
         }
+        if (sample.content_hash != null){
+            System.out.println("sample.content_hash:" + sample.content_hash);
+        }
+        else{
+            System.out.println("sample.content_hash: null");
+        }
+        System.out.println("sample.encoding:" + sample.encoding);
+        System.out.println("sample.raw_size:" + sample.raw_size);
+        if (sample.session_id != null){
+            System.out.println("sample.session_id:" + sample.session_id);
+        }
+        else{
+            System.out.println("sample.session_id: null");
+        }
         return 0;
     }
 
@@ -126,6 +140,14 @@ public class AlertMediaTypeSupport extends TypeSupport {
             offset += 1 * chunkLen;
         }
 
+        offset += CDRSerializer.get_string_size(sample.content_hash == null ? 0 : sample.content_hash.getBytes().length, offset);
+
+        offset += CDRSerializer.get_untype_size(4, offset);
+
+        offset += CDRSerializer.get_untype_size(4, offset);
+
+        offset += CDRSerializer.get_string_size(sample.session_id == null ? 0 : sample.session_id.getBytes().length, offset);
+
         return offset - initialAlignment;
     }
 
@@ -178,6 +200,26 @@ public class AlertMediaTypeSupport extends TypeSupport {
             }
         }
 
+        if (!CDRSerializer.put_string(cdr, sample.content_hash, sample.content_hash == null ? 0 : sample.content_hash.length())){
+            System.out.println("serialize sample.content_hash failed.");
+            return -2;
+        }
+
+        if (!CDRSerializer.put_int(cdr, sample.encoding)){
+            System.out.println("serialize sample.encoding failed.");
+            return -2;
+        }
+
+        if (!CDRSerializer.put_int(cdr, sample.raw_size)){
+            System.out.println("serialize sample.raw_size failed.");
+            return -2;
+        }
+
+        if (!CDRSerializer.put_string(cdr, sample.session_id, sample.session_id == null ? 0 : sample.session_id.length())){
+            System.out.println("serialize sample.session_id failed.");
+            return -2;
+        }
+
         return 0;
     }
 
@@ -238,6 +280,30 @@ public class AlertMediaTypeSupport extends TypeSupport {
             return -2;
         }
 
+        sample.content_hash = CDRDeserializer.get_string(cdr);
+        if(sample.content_hash ==null){
+            System.out.println("deserialize member sample.content_hash failed.");
+            return -3;
+        }
+
+        if (!CDRDeserializer.get_int_array(cdr, tmp_int_obj, 1)){
+            System.out.println("deserialize sample.encoding failed.");
+            return -2;
+        }
+        sample.encoding= tmp_int_obj[0];
+
+        if (!CDRDeserializer.get_int_array(cdr, tmp_int_obj, 1)){
+            System.out.println("deserialize sample.raw_size failed.");
+            return -2;
+        }
+        sample.raw_size= tmp_int_obj[0];
+
+        sample.session_id = CDRDeserializer.get_string(cdr);
+        if(sample.session_id ==null){
+            System.out.println("deserialize member sample.session_id failed.");
+            return -3;
+        }
+
         return 0;
     }
 
@@ -448,6 +514,92 @@ public class AlertMediaTypeSupport extends TypeSupport {
             return null;
         }
 
+        memberTc = factory.create_string_TC(0xffffffff);
+        if (memberTc == null){
+            System.out.println("Get Member content_hash TypeCode failed.");
+            factory.delete_TC(s_typeCode);
+            s_typeCode = null;
+            return null;
+        }
+        ret = s_typeCode.add_member_to_struct(
+            8,
+            8,
+            "content_hash",
+            memberTc,
+            false,
+            false);
+        factory.delete_TC(memberTc);
+        if (ret < 0)
+        {
+            factory.delete_TC(s_typeCode);
+            s_typeCode = null;
+            return null;
+        }
+
+        memberTc = factory.get_primitive_TC(TypeCodeKind.DDS_TK_INT);
+        if (memberTc == null){
+            System.out.println("Get Member encoding TypeCode failed.");
+            factory.delete_TC(s_typeCode);
+            s_typeCode = null;
+            return null;
+        }
+        ret = s_typeCode.add_member_to_struct(
+            9,
+            9,
+            "encoding",
+            memberTc,
+            false,
+            false);
+        if (ret < 0)
+        {
+            factory.delete_TC(s_typeCode);
+            s_typeCode = null;
+            return null;
+        }
+
+        memberTc = factory.get_primitive_TC(TypeCodeKind.DDS_TK_INT);
+        if (memberTc == null){
+            System.out.println("Get Member raw_size TypeCode failed.");
+            factory.delete_TC(s_typeCode);
+            s_typeCode = null;
+            return null;
+        }
+        ret = s_typeCode.add_member_to_struct(
+            10,
+            10,
+            "raw_size",
+            memberTc,
+            false,
+            false);
+        if (ret < 0)
+        {
+            factory.delete_TC(s_typeCode);
+            s_typeCode = null;
+            return null;
+        }
+
+        memberTc = factory.create_string_TC(0xffffffff);
+        if (memberTc == null){
+            System.out.println("Get Member session_id TypeCode failed.");
+            factory.delete_TC(s_typeCode);
+            s_typeCode = null;
+            return null;
+        }
+        ret = s_typeCode.add_member_to_struct(
+            11,
+            11,
+            "session_id",
+            memberTc,
+            false,
+            false);
+        factory.delete_TC(memberTc);
+        if (ret < 0)
+        {
+            factory.delete_TC(s_typeCode);
+            s_typeCode = null;
+            return null;
+        }
+
         return s_typeCode;
     }
 
@@ -0,0 +1,27 @@
+package IDL;
+
+
+public class DeviceStatus{
+    public String deviceId = "";// @ID(0)
+    public String deviceType = "";// @ID(1)
+    public String status = "";// @ID(2)
+    public String timeStamp = "";// @ID(3)
+
+    public DeviceStatus(){
+
+    }
+
+    public DeviceStatus(DeviceStatus other){
+        this();
+        copy(other);
+    }
+
+    public Object copy(Object src) {
+        DeviceStatus typedSrc = (DeviceStatus)src;
+        this.deviceId =  typedSrc.deviceId;
+        this.deviceType =  typedSrc.deviceType;
+        this.status =  typedSrc.status;
+        this.timeStamp =  typedSrc.timeStamp;
+        return this;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,6 @@
+package IDL;
+
+import com.zrdds.subscription.DataReaderImpl;
+
+public class DeviceStatusDataReader extends DataReaderImpl<DeviceStatus, DeviceStatusSeq>{
+}
\ No newline at end of file
@@ -0,0 +1,6 @@
+package IDL;
+
+import com.zrdds.publication.DataWriterImpl;
+
+public class DeviceStatusDataWriter extends DataWriterImpl<DeviceStatus>{
+}
\ No newline at end of file
@@ -0,0 +1,28 @@
+package IDL;
+
+import com.zrdds.infrastructure.ZRSequence;
+
+public class DeviceStatusSeq extends ZRSequence<DeviceStatus> {
+
+    protected Object[] alloc_element(int length) {
+        DeviceStatus[] result = new DeviceStatus[length];
+        for (int i = 0; i < result.length; ++i) {
+             result[i] = new DeviceStatus();
+        }
+        return result;
+    }
+
+    protected Object copy_from_element(Object dstEle, Object srcEle){
+        DeviceStatus typedDst = (DeviceStatus)dstEle;
+        DeviceStatus typedSrc = (DeviceStatus)srcEle;
+        return typedDst.copy(typedSrc);
+    }
+
+    public void pull_from_nativeI(long nativeSeq){
+
+    }
+
+    public void push_to_nativeI(long nativeSeq){
+
+    }
+}
\ No newline at end of file
@@ -0,0 +1,336 @@
+package IDL;
+
+import com.zrdds.infrastructure.*;
+import com.zrdds.topic.TypeSupport;
+import com.zrdds.publication.DataWriter;
+import com.zrdds.subscription.DataReader;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+public class DeviceStatusTypeSupport extends TypeSupport {
+    private String type_name = "DeviceStatus";
+    private static TypeCodeImpl s_typeCode = null;
+    private static DeviceStatusTypeSupport m_instance = new DeviceStatusTypeSupport();
+
+    private final byte[] tmp_byte_obj = new byte[1];
+    private final char[] tmp_char_obj = new char[1];
+    private final short[] tmp_short_obj = new short[1];
+    private final int[] tmp_int_obj = new int[1];
+    private final long[] tmp_long_obj = new long[1];
+    private final float[] tmp_float_obj = new float[1];
+    private final double[] tmp_double_obj = new double[1];
+    private final boolean[] tmp_boolean_obj = new boolean[1];
+
+    
+    private DeviceStatusTypeSupport(){}
+
+    
+    public static TypeSupport get_instance() { return m_instance; }
+
+    public Object create_sampleI() {
+        DeviceStatus sample = new DeviceStatus();
+        return sample;
+    }
+
+    public void destroy_sampleI(Object sample) {
+
+    }
+
+    public int copy_sampleI(Object dst,Object src) {
+        DeviceStatus DeviceStatusDst = (DeviceStatus)dst;
+        DeviceStatus DeviceStatusSrc = (DeviceStatus)src;
+        DeviceStatusDst.copy(DeviceStatusSrc);
+        return 1;
+    }
+
+    public int print_sample(Object _sample) {
+        if (_sample == null){
+            System.out.println("NULL");
+            return -1;
+        }
+        DeviceStatus sample = (DeviceStatus)_sample;
+        if (sample.deviceId != null){
+            System.out.println("sample.deviceId:" + sample.deviceId);
+        }
+        else{
+            System.out.println("sample.deviceId: null");
+        }
+        if (sample.deviceType != null){
+            System.out.println("sample.deviceType:" + sample.deviceType);
+        }
+        else{
+            System.out.println("sample.deviceType: null");
+        }
+        if (sample.status != null){
+            System.out.println("sample.status:" + sample.status);
+        }
+        else{
+            System.out.println("sample.status: null");
+        }
+        if (sample.timeStamp != null){
+            System.out.println("sample.timeStamp:" + sample.timeStamp);
+        }
+        else{
+            System.out.println("sample.timeStamp: null");
+        }
+        return 0;
+    }
+
+    public String get_type_name(){
+        return this.type_name;
+    }
+
+    public int get_max_sizeI(){
+        return 0xffffffff;
+    }
+
+    public int get_max_key_sizeI(){
+        return 0xffffffff;
+    }
+
+    public boolean has_keyI(){
+        return true;
+    }
+
+    public String get_keyhashI(Object sample, long cdr){
+        DeviceStatus DeviceStatusTmp = (DeviceStatus)sample;
+        return keyhash(DeviceStatusTmp.deviceId);
+    }
+
+    /**
+     * DDS规范的KeyHash（十六进制）：键成员按大端CDR序列化（string为含结尾0的长度、内容和结尾0），
+     * 键的最大序列化长度超过16字节（deviceId为无界string）时取MD5
+     * 注意：本方法为手写，不是ZRDDS IDL编译器的输出；其余DeviceStatus*.java按无键类型的生成代码改写。
+     * 与其他实现互通前必须用ZRDDS IDL编译器从IDL.idl重新生成DeviceStatus*.java并替换这些文件，
+     * KeyHash不一致会使同一设备在不同节点上被合并或拆分为不同的实例。
+     */
+    private static String keyhash(String deviceId) {
+        byte[] bytes = (deviceId == null ? "" : deviceId).getBytes(StandardCharsets.UTF_8);
+        ByteBuffer key = ByteBuffer.allocate(4 + bytes.length + 1);
+        key.putInt(bytes.length + 1).put(bytes).put((byte) 0);
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("MD5").digest(key.array()));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5不可用", e);
+        }
+    }
+
+    public DataReader create_data_reader() {return new DeviceStatusDataReader();}
+
+    public DataWriter create_data_writer() {return new DeviceStatusDataWriter();}
+
+    public TypeCode get_inner_typecode(){
+        TypeCode userTypeCode = get_typecode();
+        if (userTypeCode == null) return null;
+        return userTypeCode.get_impl();
+    }
+
+    public int get_sizeI(Object _sample,long cdr, int offset) throws UnsupportedEncodingException {
+        int initialAlignment = offset;
+        DeviceStatus sample = (DeviceStatus)_sample;
+        offset += CDRSerializer.get_string_size(sample.deviceId == null ? 0 : sample.deviceId.getBytes().length, offset);
+
+        offset += CDRSerializer.get_string_size(sample.deviceType == null ? 0 : sample.deviceType.getBytes().length, offset);
+
+        offset += CDRSerializer.get_string_size(sample.status == null ? 0 : sample.status.getBytes().length, offset);
+
+        offset += CDRSerializer.get_string_size(sample.timeStamp == null ? 0 : sample.timeStamp.getBytes().length, offset);
+
+        return offset - initialAlignment;
+    }
+
+    public int serializeI(Object _sample ,long cdr) {
+         DeviceStatus sample = (DeviceStatus) _sample;
+
+        if (!CDRSerializer.put_string(cdr, sample.deviceId, sample.deviceId == null ? 0 : sample.deviceId.length())){
+            System.out.println("serialize sample.deviceId failed.");
+            return -2;
+        }
+
+        if (!CDRSerializer.put_string(cdr, sample.deviceType, sample.deviceType == null ? 0 : sample.deviceType.length())){
+            System.out.println("serialize sample.deviceType failed.");
+            return -2;
+        }
+
+        if (!CDRSerializer.put_string(cdr, sample.status, sample.status == null ? 0 : sample.status.length())){
+            System.out.println("serialize sample.status failed.");
+            return -2;
+        }
+
+        if (!CDRSerializer.put_string(cdr, sample.timeStamp, sample.timeStamp == null ? 0 : sample.timeStamp.length())){
+            System.out.println("serialize sample.timeStamp failed.");
+            return -2;
+        }
+
+        return 0;
+    }
+
+    synchronized public int deserializeI(Object _sample, long cdr){
+        DeviceStatus sample = (DeviceStatus) _sample;
+        sample.deviceId = CDRDeserializer.get_string(cdr);
+        if(sample.deviceId ==null){
+            System.out.println("deserialize member sample.deviceId failed.");
+            return -3;
+        }
+
+        sample.deviceType = CDRDeserializer.get_string(cdr);
+        if(sample.deviceType ==null){
+            System.out.println("deserialize member sample.deviceType failed.");
+            return -3;
+        }
+
+        sample.status = CDRDeserializer.get_string(cdr);
+        if(sample.status ==null){
+            System.out.println("deserialize member sample.status failed.");
+            return -3;
+        }
+
+        sample.timeStamp = CDRDeserializer.get_string(cdr);
+        if(sample.timeStamp ==null){
+            System.out.println("deserialize member sample.timeStamp failed.");
+            return -3;
+        }
+
+        return 0;
+    }
+
+    public int get_key_sizeI(Object _sample,long cdr,int offset)throws UnsupportedEncodingException {
+        int initialAlignment = offset;
+        DeviceStatus sample = (DeviceStatus)_sample;
+        offset += CDRSerializer.get_string_size(sample.deviceId == null ? 0 : sample.deviceId.getBytes().length, offset);
+
+        return offset - initialAlignment;
+    }
+
+    public int serialize_keyI(Object _sample, long cdr){
+        DeviceStatus sample = (DeviceStatus)_sample;
+        if (!CDRSerializer.put_string(cdr, sample.deviceId, sample.deviceId == null ? 0 : sample.deviceId.length())){
+            System.out.println("serialize key sample.deviceId failed.");
+            return -2;
+        }
+
+        return 0;
+    }
+
+    public int deserialize_keyI(Object _sample, long cdr) {
+        DeviceStatus sample = (DeviceStatus)_sample;
+        sample.deviceId = CDRDeserializer.get_string(cdr);
+        if(sample.deviceId ==null){
+            System.out.println("deserialize key sample.deviceId failed.");
+            return -3;
+        }
+
+        return 0;
+    }
+
+    public TypeCode get_typecode(){
+        if (s_typeCode != null) {
+            return s_typeCode;
+        }
+        TypeCodeFactory factory = TypeCodeFactory.get_instance();
+
+        s_typeCode = factory.create_struct_TC("IDL.DeviceStatus");
+        if (s_typeCode == null){
+            System.out.println("create struct DeviceStatus typecode failed.");
+            return s_typeCode;
+        }
+        int ret = 0;
+        TypeCodeImpl memberTc = new TypeCodeImpl();
+        TypeCodeImpl eleTc = new TypeCodeImpl();
+
+        memberTc = factory.create_string_TC(0xffffffff);
+        if (memberTc == null){
+            System.out.println("Get Member deviceId TypeCode failed.");
+            factory.delete_TC(s_typeCode);
+            s_typeCode = null;
+            return null;
+        }
+        ret = s_typeCode.add_member_to_struct(
+            0,
+            0,
+            "deviceId",
+            memberTc,
+            true,
+            false);
+        factory.delete_TC(memberTc);
+        if (ret < 0)
+        {
+            factory.delete_TC(s_typeCode);
+            s_typeCode = null;
+            return null;
+        }
+
+        memberTc = factory.create_string_TC(0xffffffff);
+        if (memberTc == null){
+            System.out.println("Get Member deviceType TypeCode failed.");
+            factory.delete_TC(s_typeCode);
+            s_typeCode = null;
+            return null;
+        }
+        ret = s_typeCode.add_member_to_struct(
+            1,
+            1,
+            "deviceType",
+            memberTc,
+            false,
+            false);
+        factory.delete_TC(memberTc);
+        if (ret < 0)
+        {
+            factory.delete_TC(s_typeCode);
+            s_typeCode = null;
+            return null;
+        }
+
+        memberTc = factory.create_string_TC(0xffffffff);
+        if (memberTc == null){
+            System.out.println("Get Member status TypeCode failed.");
+            factory.delete_TC(s_typeCode);
+            s_typeCode = null;
+            return null;
+        }
+        ret = s_typeCode.add_member_to_struct(
+            2,
+            2,
+            "status",
+            memberTc,
+            false,
+            false);
+        factory.delete_TC(memberTc);
+        if (ret < 0)
+        {
+            factory.delete_TC(s_typeCode);
+            s_typeCode = null;
+            return null;
+        }
+
+        memberTc = factory.create_string_TC(0xffffffff);
+        if (memberTc == null){
+            System.out.println("Get Member timeStamp TypeCode failed.");
+            factory.delete_TC(s_typeCode);
+            s_typeCode = null;
+            return null;
+        }
+        ret = s_typeCode.add_member_to_struct(
+            3,
+            3,
+            "timeStamp",
+            memberTc,
+            false,
+            false);
+        factory.delete_TC(memberTc);
+        if (ret < 0)
+        {
+            factory.delete_TC(s_typeCode);
+            s_typeCode = null;
+            return null;
+        }
+
+        return s_typeCode;
+    }
+
+}
\ No newline at end of file
@@ -8,6 +8,8 @@ public class EnergyRawData{
     public com.zrdds.infrastructure.FloatSeq weeklyConsumptionSeq = new com.zrdds.infrastructure.FloatSeq();// @ID(4)
     public com.zrdds.infrastructure.StringSeq timeSeq = new com.zrdds.infrastructure.StringSeq();// @ID(5)
     public String timeStamp = "";// @ID(6)
+    public int encoding = 0;// @ID(7)
+    public IDL.Blob packed = new IDL.Blob();// @ID(8)
 
     public EnergyRawData(){
 
@@ -27,6 +29,8 @@ public class EnergyRawData{
         this.weeklyConsumptionSeq.copy(typedSrc.weeklyConsumptionSeq);
         this.timeSeq.copy(typedSrc.timeSeq);
         this.timeStamp =  typedSrc.timeStamp;
+        this.encoding =  typedSrc.encoding;
+        this.packed.copy(typedSrc.packed);
         return this;
     }
 }
\ No newline at end of file
@@ -91,6 +91,12 @@ public class EnergyRawDataTypeSupport extends TypeSupport {
         else{
             System.out.println("sample.timeStamp: null");
         }
+        System.out.println("sample.encoding:" + sample.encoding);
+        int packedTmpLen = sample.packed.length();
+        System.out.println("sample.packed.length():" +packedTmpLen);
+        for (int i = 0; i < packedTmpLen; ++i){
+            System.out.println("sample.packed.get_at(" + i + "):" + sample.packed.get_at(i));
+        }
         return 0;
     }
 
@@ -160,6 +166,14 @@ public class EnergyRawDataTypeSupport extends TypeSupport {
 
         offset += CDRSerializer.get_string_size(sample.timeStamp == null ? 0 : sample.timeStamp.getBytes().length, offset);
 
+        offset += CDRSerializer.get_untype_size(4, offset);
+
+        offset += CDRSerializer.get_untype_size(4, offset);
+        int packedLen = sample.packed.length();
+        if (packedLen != 0){
+            offset += 1 * packedLen;
+        }
+
         return offset - initialAlignment;
     }
 
@@ -225,6 +239,22 @@ public class EnergyRawDataTypeSupport extends TypeSupport {
             return -2;
         }
 
+        if (!CDRSerializer.put_int(cdr, sample.encoding)){
+            System.out.println("serialize sample.encoding failed.");
+            return -2;
+        }
+
+        if (!CDRSerializer.put_int(cdr, sample.packed.length())){
+            System.out.println("serialize length of sample.packed failed.");
+            return -2;
+        }
+        if (sample.packed.length() != 0){
+            if (!CDRSerializer.put_byte_array(cdr, sample.packed.get_contiguous_buffer(), sample.packed.length())){
+                System.out.println("serialize sample.packed failed.");
+                return -2;
+            }
+        }
+
         return 0;
     }
 
@@ -300,6 +330,25 @@ public class EnergyRawDataTypeSupport extends TypeSupport {
             return -3;
         }
 
+        if (!CDRDeserializer.get_int_array(cdr, tmp_int_obj, 1)){
+            System.out.println("deserialize sample.encoding failed.");
+            return -2;
+        }
+        sample.encoding= tmp_int_obj[0];
+
+        if (!CDRDeserializer.get_int_array(cdr, tmp_int_obj, 1)){
+            System.out.println("deserialize length of sample.packed failed.");
+            return -2;
+        }
+        if (!sample.packed.ensure_length(tmp_int_obj[0], tmp_int_obj[0])){
+            System.out.println("Set maxiumum member sample.packed failed.");
+            return -3;
+        }
+        if (!CDRDeserializer.get_byte_array(cdr, sample.packed.get_contiguous_buffer(), sample.packed.length())){
+            System.out.println("deserialize sample.packed failed.");
+            return -2;
+        }
+
         return 0;
     }
 
@@ -505,6 +554,53 @@ public class EnergyRawDataTypeSupport extends TypeSupport {
             return null;
         }
 
+        memberTc = factory.get_primitive_TC(TypeCodeKind.DDS_TK_INT);
+        if (memberTc == null){
+            System.out.println("Get Member encoding TypeCode failed.");
+            factory.delete_TC(s_typeCode);
+            s_typeCode = null;
+            return null;
+        }
+        ret = s_typeCode.add_member_to_struct(
+            7,
+            7,
+            "encoding",
+            memberTc,
+            false,
+            false);
+        if (ret < 0)
+        {
+            factory.delete_TC(s_typeCode);
+            s_typeCode = null;
+            return null;
+        }
+
+        memberTc = factory.get_primitive_TC(TypeCodeKind.DDS_TK_UCHAR);
+        if (memberTc != null)
+        {
+            memberTc = factory.create_sequence_TC(0xffffffff, memberTc);
+        }
+        if (memberTc == null){
+            System.out.println("Get Member packed TypeCode failed.");
+            factory.delete_TC(s_typeCode);
+            s_typeCode = null;
+            return null;
+        }
+        ret = s_typeCode.add_member_to_struct(
+            8,
+            8,
+            "packed",
+            memberTc,
+            false,
+            false);
+        factory.delete_TC(memberTc);
+        if (ret < 0)
+        {
+            factory.delete_TC(s_typeCode);
+            s_typeCode = null;
+            return null;
+        }
+
         return s_typeCode;
     }
 
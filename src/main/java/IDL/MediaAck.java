@@ -0,0 +1,37 @@
+package IDL;
+
+
+public class MediaAck{
+    public String source = "";// @ID(0)
+    public String receiverId = "";// @ID(1)
+    public String transferId = "";// @ID(2)
+    public int total_chunks = 0;// @ID(3)
+    public int next_expected = 0;// @ID(4)
+    public int highest_received = 0;// @ID(5)
+    public com.zrdds.infrastructure.IntSeq missing = new com.zrdds.infrastructure.IntSeq();// @ID(6)
+    public int codecs = 0;// @ID(7)
+    public String session_id = "";// @ID(8)
+
+    public MediaAck(){
+
+    }
+
+    public MediaAck(MediaAck other){
+        this();
+        copy(other);
+    }
+
+    public Object copy(Object src) {
+        MediaAck typedSrc = (MediaAck)src;
+        this.source =  typedSrc.source;
+        this.receiverId =  typedSrc.receiverId;
+        this.transferId =  typedSrc.transferId;
+        this.total_chunks =  typedSrc.total_chunks;
+        this.next_expected =  typedSrc.next_expected;
+        this.highest_received =  typedSrc.highest_received;
+        this.missing.copy(typedSrc.missing);
+        this.codecs =  typedSrc.codecs;
+        this.session_id =  typedSrc.session_id;
+        return this;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,6 @@
+package IDL;
+
+import com.zrdds.subscription.DataReaderImpl;
+
+public class MediaAckDataReader extends DataReaderImpl<MediaAck, MediaAckSeq>{
+}
\ No newline at end of file
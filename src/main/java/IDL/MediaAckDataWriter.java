@@ -0,0 +1,6 @@
+package IDL;
+
+import com.zrdds.publication.DataWriterImpl;
+
+public class MediaAckDataWriter extends DataWriterImpl<MediaAck>{
+}
\ No newline at end of file
@@ -0,0 +1,28 @@
+package IDL;
+
+import com.zrdds.infrastructure.ZRSequence;
+
+public class MediaAckSeq extends ZRSequence<MediaAck> {
+
+    protected Object[] alloc_element(int length) {
+        MediaAck[] result = new MediaAck[length];
+        for (int i = 0; i < result.length; ++i) {
+             result[i] = new MediaAck();
+        }
+        return result;
+    }
+
+    protected Object copy_from_element(Object dstEle, Object srcEle){
+        MediaAck typedDst = (MediaAck)dstEle;
+        MediaAck typedSrc = (MediaAck)srcEle;
+        return typedDst.copy(typedSrc);
+    }
+
+    public void pull_from_nativeI(long nativeSeq){
+
+    }
+
+    public void push_to_nativeI(long nativeSeq){
+
+    }
+}
\ No newline at end of file
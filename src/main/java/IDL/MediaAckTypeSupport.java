@@ -0,0 +1,501 @@
+package IDL;
+
+import com.zrdds.infrastructure.*;
+import com.zrdds.topic.TypeSupport;
+import com.zrdds.publication.DataWriter;
+import com.zrdds.subscription.DataReader;
+import java.io.UnsupportedEncodingException;
+
+public class MediaAckTypeSupport extends TypeSupport {
+    private String type_name = "MediaAck";
+    private static TypeCodeImpl s_typeCode = null;
+    private static MediaAckTypeSupport m_instance = new MediaAckTypeSupport();
+
+    private final byte[] tmp_byte_obj = new byte[1];
+    private final char[] tmp_char_obj = new char[1];
+    private final short[] tmp_short_obj = new short[1];
+    private final int[] tmp_int_obj = new int[1];
+    private final long[] tmp_long_obj = new long[1];
+    private final float[] tmp_float_obj = new float[1];
+    private final double[] tmp_double_obj = new double[1];
+    private final boolean[] tmp_boolean_obj = new boolean[1];
+
+    
+    private MediaAckTypeSupport(){}
+
+    
+    public static TypeSupport get_instance() { return m_instance; }
+
+    public Object create_sampleI() {
+        MediaAck sample = new MediaAck();
+        return sample;
+    }
+
+    public void destroy_sampleI(Object sample) {
+
+    }
+
+    public int copy_sampleI(Object dst,Object src) {
+        MediaAck MediaAckDst = (MediaAck)dst;
+        MediaAck MediaAckSrc = (MediaAck)src;
+        MediaAckDst.copy(MediaAckSrc);
+        return 1;
+    }
+
+    public int print_sample(Object _sample) {
+        if (_sample == null){
+            System.out.println("NULL");
+            return -1;
+        }
+        MediaAck sample = (MediaAck)_sample;
+        if (sample.source != null){
+            System.out.println("sample.source:" + sample.source);
+        }
+        else{
+            System.out.println("sample.source: null");
+        }
+        if (sample.receiverId != null){
+            System.out.println("sample.receiverId:" + sample.receiverId);
+        }
+        else{
+            System.out.println("sample.receiverId: null");
+        }
+        if (sample.transferId != null){
+            System.out.println("sample.transferId:" + sample.transferId);
+        }
+        else{
+            System.out.println("sample.transferId: null");
+        }
+        System.out.println("sample.total_chunks:" + sample.total_chunks);
+        System.out.println("sample.next_expected:" + sample.next_expected);
+        System.out.println("sample.highest_received:" + sample.highest_received);
+        int missingTmpLen = sample.missing.length();
+        System.out.println("sample.missing.length():" +missingTmpLen);
+        for (int i = 0; i < missingTmpLen; ++i){
+            System.out.println("sample.missing.get_at(" + i + "):" + sample.missing.get_at(i));
+        }
+        System.out.println("sample.codecs:" + sample.codecs);
+        if (sample.session_id != null){
+            System.out.println("sample.session_id:" + sample.session_id);
+        }
+        else{
+            System.out.println("sample.session_id: null");
+        }
+        return 0;
+    }
+
+    public String get_type_name(){
+        return this.type_name;
+    }
+
+    public int get_max_sizeI(){
+        return 0xffffffff;
+    }
+
+    public int get_max_key_sizeI(){
+        return 0xffffffff;
+    }
+
+    public boolean has_keyI(){
+        return false;
+    }
+
+    public String get_keyhashI(Object sample, long cdr){
+        return "-1";
+    }
+
+    public DataReader create_data_reader() {return new MediaAckDataReader();}
+
+    public DataWriter create_data_writer() {return new MediaAckDataWriter();}
+
+    public TypeCode get_inner_typecode(){
+        TypeCode userTypeCode = get_typecode();
+        if (userTypeCode == null) return null;
+        return userTypeCode.get_impl();
+    }
+
+    public int get_sizeI(Object _sample,long cdr, int offset) throws UnsupportedEncodingException {
+        int initialAlignment = offset;
+        MediaAck sample = (MediaAck)_sample;
+        offset += CDRSerializer.get_string_size(sample.source == null ? 0 : sample.source.getBytes().length, offset);
+
+        offset += CDRSerializer.get_string_size(sample.receiverId == null ? 0 : sample.receiverId.getBytes().length, offset);
+
+        offset += CDRSerializer.get_string_size(sample.transferId == null ? 0 : sample.transferId.getBytes().length, offset);
+
+        offset += CDRSerializer.get_untype_size(4, offset);
+
+        offset += CDRSerializer.get_untype_size(4, offset);
+
+        offset += CDRSerializer.get_untype_size(4, offset);
+
+        offset += CDRSerializer.get_untype_size(4, offset);
+        int missingLen = sample.missing.length();
+        if (missingLen != 0){
+            offset += 4 * missingLen;
+        }
+
+        offset += CDRSerializer.get_untype_size(4, offset);
+
+        offset += CDRSerializer.get_string_size(sample.session_id == null ? 0 : sample.session_id.getBytes().length, offset);
+
+        return offset - initialAlignment;
+    }
+
+    public int serializeI(Object _sample ,long cdr) {
+         MediaAck sample = (MediaAck) _sample;
+
+        if (!CDRSerializer.put_string(cdr, sample.source, sample.source == null ? 0 : sample.source.length())){
+            System.out.println("serialize sample.source failed.");
+            return -2;
+        }
+
+        if (!CDRSerializer.put_string(cdr, sample.receiverId, sample.receiverId == null ? 0 : sample.receiverId.length())){
+            System.out.println("serialize sample.receiverId failed.");
+            return -2;
+        }
+
+        if (!CDRSerializer.put_string(cdr, sample.transferId, sample.transferId == null ? 0 : sample.transferId.length())){
+            System.out.println("serialize sample.transferId failed.");
+            return -2;
+        }
+
+        if (!CDRSerializer.put_int(cdr, sample.total_chunks)){
+            System.out.println("serialize sample.total_chunks failed.");
+            return -2;
+        }
+
+        if (!CDRSerializer.put_int(cdr, sample.next_expected)){
+            System.out.println("serialize sample.next_expected failed.");
+            return -2;
+        }
+
+        if (!CDRSerializer.put_int(cdr, sample.highest_received)){
+            System.out.println("serialize sample.highest_received failed.");
+            return -2;
+        }
+
+        if (!CDRSerializer.put_int(cdr, sample.missing.length())){
+            System.out.println("serialize length of sample.missing failed.");
+            return -2;
+        }
+        if (sample.missing.length() != 0){
+            if (!CDRSerializer.put_int_array(cdr, sample.missing.get_contiguous_buffer(), sample.missing.length())){
+                System.out.println("serialize sample.missing failed.");
+                return -2;
+            }
+        }
+
+        if (!CDRSerializer.put_int(cdr, sample.codecs)){
+            System.out.println("serialize sample.codecs failed.");
+            return -2;
+        }
+
+        if (!CDRSerializer.put_string(cdr, sample.session_id, sample.session_id == null ? 0 : sample.session_id.length())){
+            System.out.println("serialize sample.session_id failed.");
+            return -2;
+        }
+
+        return 0;
+    }
+
+    synchronized public int deserializeI(Object _sample, long cdr){
+        MediaAck sample = (MediaAck) _sample;
+        sample.source = CDRDeserializer.get_string(cdr);
+        if(sample.source ==null){
+            System.out.println("deserialize member sample.source failed.");
+            return -3;
+        }
+
+        sample.receiverId = CDRDeserializer.get_string(cdr);
+        if(sample.receiverId ==null){
+            System.out.println("deserialize member sample.receiverId failed.");
+            return -3;
+        }
+
+        sample.transferId = CDRDeserializer.get_string(cdr);
+        if(sample.transferId ==null){
+            System.out.println("deserialize member sample.transferId failed.");
+            return -3;
+        }
+
+        if (!CDRDeserializer.get_int_array(cdr, tmp_int_obj, 1)){
+            System.out.println("deserialize sample.total_chunks failed.");
+            return -2;
+        }
+        sample.total_chunks= tmp_int_obj[0];
+
+        if (!CDRDeserializer.get_int_array(cdr, tmp_int_obj, 1)){
+            System.out.println("deserialize sample.next_expected failed.");
+            return -2;
+        }
+        sample.next_expected= tmp_int_obj[0];
+
+        if (!CDRDeserializer.get_int_array(cdr, tmp_int_obj, 1)){
+            System.out.println("deserialize sample.highest_received failed.");
+            return -2;
+        }
+        sample.highest_received= tmp_int_obj[0];
+
+        if (!CDRDeserializer.get_int_array(cdr, tmp_int_obj, 1)){
+            System.out.println("deserialize length of sample.missing failed.");
+            return -2;
+        }
+        if (!sample.missing.ensure_length(tmp_int_obj[0], tmp_int_obj[0])){
+            System.out.println("Set maxiumum member sample.missing failed.");
+            return -3;
+        }
+        if (!CDRDeserializer.get_int_array(cdr, sample.missing.get_contiguous_buffer(), sample.missing.length())){
+            System.out.println("deserialize sample.missing failed.");
+            return -2;
+        }
+
+        if (!CDRDeserializer.get_int_array(cdr, tmp_int_obj, 1)){
+            System.out.println("deserialize sample.codecs failed.");
+            return -2;
+        }
+        sample.codecs= tmp_int_obj[0];
+
+        sample.session_id = CDRDeserializer.get_string(cdr);
+        if(sample.session_id ==null){
+            System.out.println("deserialize member sample.session_id failed.");
+            return -3;
+        }
+
+        return 0;
+    }
+
+    public int get_key_sizeI(Object _sample,long cdr,int offset)throws UnsupportedEncodingException {
+        int initialAlignment = offset;
+        MediaAck sample = (MediaAck)_sample;
+        offset += get_sizeI(sample, cdr, offset);
+        return offset - initialAlignment;
+    }
+
+    public int serialize_keyI(Object _sample, long cdr){
+        MediaAck sample = (MediaAck)_sample;
+        return 0;
+    }
+
+    public int deserialize_keyI(Object _sample, long cdr) {
+        MediaAck sample = (MediaAck)_sample;
+        return 0;
+    }
+
+    public TypeCode get_typecode(){
+        if (s_typeCode != null) {
+            return s_typeCode;
+        }
+        TypeCodeFactory factory = TypeCodeFactory.get_instance();
+
+        s_typeCode = factory.create_struct_TC("IDL.MediaAck");
+        if (s_typeCode == null){
+            System.out.println("create struct MediaAck typecode failed.");
+            return s_typeCode;
+        }
+        int ret = 0;
+        TypeCodeImpl memberTc = new TypeCodeImpl();
+        TypeCodeImpl eleTc = new TypeCodeImpl();
+
+        memberTc = factory.create_string_TC(0xffffffff);
+        if (memberTc == null){
+            System.out.println("Get Member source TypeCode failed.");
+            factory.delete_TC(s_typeCode);
+            s_typeCode = null;
+            return null;
+        }
+        ret = s_typeCode.add_member_to_struct(
+            0,
+            0,
+            "source",
+            memberTc,
+            false,
+            false);
+        factory.delete_TC(memberTc);
+        if (ret < 0)
+        {
+            factory.delete_TC(s_typeCode);
+            s_typeCode = null;
+            return null;
+        }
+
+        memberTc = factory.create_string_TC(0xffffffff);
+        if (memberTc == null){
+            System.out.println("Get Member receiverId TypeCode failed.");
+            factory.delete_TC(s_typeCode);
+            s_typeCode = null;
+            return null;
+        }
+        ret = s_typeCode.add_member_to_struct(
+            1,
+            1,
+            "receiverId",
+            memberTc,
+            false,
+            false);
+        factory.delete_TC(memberTc);
+        if (ret < 0)
+        {
+            factory.delete_TC(s_typeCode);
+            s_typeCode = null;
+            return null;
+        }
+
+        memberTc = factory.create_string_TC(0xffffffff);
+        if (memberTc == null){
+            System.out.println("Get Member transferId TypeCode failed.");
+            factory.delete_TC(s_typeCode);
+            s_typeCode = null;
+            return null;
+        }
+        ret = s_typeCode.add_member_to_struct(
+            2,
+            2,
+            "transferId",
+            memberTc,
+            false,
+            false);
+        factory.delete_TC(memberTc);
+        if (ret < 0)
+        {
+            factory.delete_TC(s_typeCode);
+            s_typeCode = null;
+            return null;
+        }
+
+        memberTc = factory.get_primitive_TC(TypeCodeKind.DDS_TK_INT);
+        if (memberTc == null){
+            System.out.println("Get Member total_chunks TypeCode failed.");
+            factory.delete_TC(s_typeCode);
+            s_typeCode = null;
+            return null;
+        }
+        ret = s_typeCode.add_member_to_struct(
+            3,
+            3,
+            "total_chunks",
+            memberTc,
+            false,
+            false);
+        if (ret < 0)
+        {
+            factory.delete_TC(s_typeCode);
+            s_typeCode = null;
+            return null;
+        }
+
+        memberTc = factory.get_primitive_TC(TypeCodeKind.DDS_TK_INT);
+        if (memberTc == null){
+            System.out.println("Get Member next_expected TypeCode failed.");
+            factory.delete_TC(s_typeCode);
+            s_typeCode = null;
+            return null;
+        }
+        ret = s_typeCode.add_member_to_struct(
+            4,
+            4,
+            "next_expected",
+            memberTc,
+            false,
+            false);
+        if (ret < 0)
+        {
+            factory.delete_TC(s_typeCode);
+            s_typeCode = null;
+            return null;
+        }
+
+        memberTc = factory.get_primitive_TC(TypeCodeKind.DDS_TK_INT);
+        if (memberTc == null){
+            System.out.println("Get Member highest_received TypeCode failed.");
+            factory.delete_TC(s_typeCode);
+            s_typeCode = null;
+            return null;
+        }
+        ret = s_typeCode.add_member_to_struct(
+            5,
+            5,
+            "highest_received",
+            memberTc,
+            false,
+            false);
+        if (ret < 0)
+        {
+            factory.delete_TC(s_typeCode);
+            s_typeCode = null;
+            return null;
+        }
+
+        memberTc = factory.get_primitive_TC(TypeCodeKind.DDS_TK_INT);
+        if (memberTc != null)
+        {
+            memberTc = factory.create_sequence_TC(0xffffffff, memberTc);
+        }
+        if (memberTc == null){
+            System.out.println("Get Member missing TypeCode failed.");
+            factory.delete_TC(s_typeCode);
+            s_typeCode = null;
+            return null;
+        }
+        ret = s_typeCode.add_member_to_struct(
+            6,
+            6,
+            "missing",
+            memberTc,
+            false,
+            false);
+        factory.delete_TC(memberTc);
+        if (ret < 0)
+        {
+            factory.delete_TC(s_typeCode);
+            s_typeCode = null;
+            return null;
+        }
+
+        memberTc = factory.get_primitive_TC(TypeCodeKind.DDS_TK_INT);
+        if (memberTc == null){
+            System.out.println("Get Member codecs TypeCode failed.");
+            factory.delete_TC(s_typeCode);
+            s_typeCode = null;
+            return null;
+        }
+        ret = s_typeCode.add_member_to_struct(
+            7,
+            7,
+            "codecs",
+            memberTc,
+            false,
+            false);
+        if (ret < 0)
+        {
+            factory.delete_TC(s_typeCode);
+            s_typeCode = null;
+            return null;
+        }
+
+        memberTc = factory.create_string_TC(0xffffffff);
+        if (memberTc == null){
+            System.out.println("Get Member session_id TypeCode failed.");
+            factory.delete_TC(s_typeCode);
+            s_typeCode = null;
+            return null;
+        }
+        ret = s_typeCode.add_member_to_struct(
+            8,
+            8,
+            "session_id",
+            memberTc,
+            false,
+            false);
+        factory.delete_TC(memberTc);
+        if (ret < 0)
+        {
+            factory.delete_TC(s_typeCode);
+            s_typeCode = null;
+            return null;
+        }
+
+        return s_typeCode;
+    }
+
+}
\ No newline at end of file
@@ -10,6 +10,9 @@ public class ReportMedia{
     public int chunk_size = 0;// @ID(5)
     public IDL.Blob chunk = new IDL.Blob();// @ID(6)
     public String timeStamp = "";// @ID(7)
+    public int encoding = 0;// @ID(8)
+    public int raw_size = 0;// @ID(9)
+    public String session_id = "";// @ID(10)
 
     public ReportMedia(){
 
@@ -30,6 +33,9 @@ public class ReportMedia{
         this.chunk_size =  typedSrc.chunk_size;
         this.chunk.copy(typedSrc.chunk);
         this.timeStamp =  typedSrc.timeStamp;
+        this.encoding =  typedSrc.encoding;
+        this.raw_size =  typedSrc.raw_size;
+        this.session_id =  typedSrc.session_id;
         return this;
     }
 }
\ No newline at end of file
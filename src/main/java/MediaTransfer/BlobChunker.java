@@ -0,0 +1,77 @@
+package MediaTransfer;
+
+import IDL.Blob;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Blob分片读写工具
+ * 分片数据直接写入/读出Blob的连续缓冲区（每块一次System.arraycopy或一次通道读取），
+ * 不创建临时数组，也不逐字节set_at/get_at。
+ * 序列化代码（*TypeSupport.serialize）本身就是直接读取get_contiguous_buffer()的，因此写入后无需再校验。
+ */
+public final class BlobChunker {
+
+    private BlobChunker() {
+    }
+
+    public static int chunkCount(long totalSize, int chunkSize) {
+        return (int) ((totalSize + chunkSize - 1) / chunkSize);
+    }
+
+    /**
+     * 把src[offset, offset+length)整体拷贝到blob中
+     */
+    public static void fill(Blob blob, byte[] src, int offset, int length) {
+        blob.ensure_length(length, length);
+        System.arraycopy(src, offset, blob.get_contiguous_buffer(), 0, length);
+    }
+
+    /**
+     * 从src的当前位置读取length字节到blob中（src的position前移length）
+     */
+    public static void fill(Blob blob, ByteBuffer src, int length) {
+        blob.ensure_length(length, length);
+        src.get(blob.get_contiguous_buffer(), 0, length);
+    }
+
+    /**
+     * 从输入流读满length字节到blob中
+     */
+    public static void fill(Blob blob, InputStream in, int length) throws IOException {
+        blob.ensure_length(length, length);
+        byte[] buffer = blob.get_contiguous_buffer();
+        int read = 0;
+        while (read < length) {
+            int n = in.read(buffer, read, length - read);
+            if (n < 0) {
+                throw new EOFException("数据提前结束: 需要 " + length + " 字节, 实际 " + read + " 字节");
+            }
+            read += n;
+        }
+    }
+
+    /**
+     * 从文件的position位置读取length字节到blob中（不改变通道的当前位置，可用于重传任意分片）
+     */
+    public static void fill(Blob blob, FileChannel channel, long position, int length) throws IOException {
+        blob.ensure_length(length, length);
+        ByteBuffer target = ByteBuffer.wrap(blob.get_contiguous_buffer(), 0, length);
+        while (target.hasRemaining()) {
+            if (channel.read(target, position + target.position()) < 0) {
+                throw new EOFException("数据提前结束: 需要 " + length + " 字节, 实际 " + target.position() + " 字节");
+            }
+        }
+    }
+
+    /**
+     * 把blob中的数据整体拷贝到dst[offset, offset+blob.length())
+     */
+    public static void copyTo(Blob blob, byte[] dst, int offset) {
+        System.arraycopy(blob.get_contiguous_buffer(), 0, dst, offset, blob.length());
+    }
+}
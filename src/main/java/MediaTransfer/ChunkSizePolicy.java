@@ -0,0 +1,112 @@
+package MediaTransfer;
+
+import java.net.NetworkInterface;
+import java.net.SocketException;
+import java.util.Enumeration;
+
+/**
+ * 分片大小策略
+ * 通过系统属性media.chunkSize配置：填写数字即为固定分片大小，填写auto（默认）时按网络MTU自动计算。
+ * 自动模式下分片大小取整数个UDP数据报的有效载荷，避免DDS分片（DATA_FRAG）时最后一个数据报只装了几十字节；
+ * 仅有回环网卡时（本机通信）MTU为64KB，每个分片正好放进一个数据报。
+ * MTU可通过系统属性media.mtu覆盖。
+ */
+public final class ChunkSizePolicy {
+    public static final String CHUNK_SIZE_PROPERTY = "media.chunkSize";
+    public static final String MTU_PROPERTY = "media.mtu";
+
+    public static final int DEFAULT_CHUNK_SIZE = 4096;
+    public static final int MIN_CHUNK_SIZE = 512;
+    public static final int MAX_CHUNK_SIZE = 64 * 1024;
+
+    private static final int DEFAULT_MTU = 1500;
+    // IPv4头(20) + UDP头(8) + RTPS消息头(20) + DATA_FRAG子消息头(36)
+    private static final int DATAGRAM_OVERHEAD = 20 + 8 + 20 + 36;
+    // 分片前面序列化的样本字段（ID、类型、大小等）预留
+    private static final int SAMPLE_OVERHEAD = 128;
+
+    private static volatile int configured;
+
+    private ChunkSizePolicy() {
+    }
+
+    /**
+     * 当前配置的分片大小（首次调用时解析并缓存）
+     */
+    public static int configured() {
+        int size = configured;
+        if (size == 0) {
+            size = resolve(System.getProperty(CHUNK_SIZE_PROPERTY, "auto"));
+            configured = size;
+        }
+        return size;
+    }
+
+    static int resolve(String value) {
+        if (value == null || value.trim().isEmpty() || "auto".equalsIgnoreCase(value.trim())) {
+            return forMtu(detectMtu(), DEFAULT_CHUNK_SIZE);
+        }
+        try {
+            return clamp(Integer.parseInt(value.trim()));
+        } catch (NumberFormatException e) {
+            System.err.println("[ChunkSizePolicy] 无效的分片大小配置: " + value + "，改用自动计算");
+            return forMtu(detectMtu(), DEFAULT_CHUNK_SIZE);
+        }
+    }
+
+    /**
+     * 按MTU计算最接近目标大小的分片大小：整数个数据报有效载荷，再扣除样本头部
+     */
+    public static int forMtu(int mtu, int target) {
+        int payload = mtu - DATAGRAM_OVERHEAD;
+        if (payload <= SAMPLE_OVERHEAD) {
+            return clamp(target);
+        }
+        long datagrams = Math.max(1, Math.round(target / (double) payload));
+        return clamp((int) Math.min(Integer.MAX_VALUE, datagrams * payload - SAMPLE_OVERHEAD));
+    }
+
+    /**
+     * 检测传输MTU：取已启用的非回环网卡中最小的MTU；没有外部网卡时取回环网卡的MTU
+     */
+    public static int detectMtu() {
+        String override = System.getProperty(MTU_PROPERTY);
+        if (override != null) {
+            try {
+                return Integer.parseInt(override.trim());
+            } catch (NumberFormatException e) {
+                System.err.println("[ChunkSizePolicy] 无效的MTU配置: " + override);
+            }
+        }
+        int external = Integer.MAX_VALUE;
+        int loopback = Integer.MAX_VALUE;
+        try {
+            Enumeration<NetworkInterface> interfaces = NetworkInterface.getNetworkInterfaces();
+            while (interfaces != null && interfaces.hasMoreElements()) {
+                NetworkInterface ni = interfaces.nextElement();
+                if (!ni.isUp() || ni.isVirtual()) {
+                    continue;
+                }
+                int mtu = ni.getMTU();
+                if (mtu <= 0) {
+                    continue;
+                }
+                if (ni.isLoopback()) {
+                    loopback = Math.min(loopback, mtu);
+                } else {
+                    external = Math.min(external, mtu);
+                }
+            }
+        } catch (SocketException e) {
+            System.err.println("[ChunkSizePolicy] 读取网卡MTU失败: " + e.getMessage());
+        }
+        if (external != Integer.MAX_VALUE) {
+            return external;
+        }
+        return loopback != Integer.MAX_VALUE ? loopback : DEFAULT_MTU;
+    }
+
+    private static int clamp(int size) {
+        return Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE, size));
+    }
+}
@@ -0,0 +1,926 @@
+package MediaTransfer;
+
+import IDL.Blob;
+import IDL.MediaAck;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分片接收器（AlertMedia、ReportMedia共用）
+ * 按传输ID重组ChunkedSender发送的分片：偏移 = chunk_seq * chunk_size，分片数据从Blob的连续缓冲区一次拷贝到目标数组。
+ * 旧版发送端没有填写chunk_size时按默认的4096字节计算。
+ *
+ * 设置AckWriter后向发送端回报确认（MediaAck）：每收到ACK_EVERY个分片、出现缺口、补上缺口、收到重复分片以及传输完成时各回报一次，
+ * 确认中包含累计确认点和缺失的分片区间，发送端据此推进窗口并只重传缺口。
+ * 仍有缺口或有未确认分片的传输在没有新分片到达时每隔一小段时间（系统属性 media.ackDelayMillis，默认20毫秒）再回报一次：
+ * 窗口已满时没有后续分片触发确认，重传的分片再次丢失时发送端不必等到重传超时。
+ *
+ * 设置ContentStore后，完整收到的内容按哈希保存；之后收到内容引用（chunk_seq为ChunkedSender.REFERENCE_CHUNK）时
+ * 直接从内容库取出并回报完成，内容库中没有时回报缺失，发送端随后发送完整数据。
+ *
+ * 压缩过的传输（encoding非0）在收齐后整体解压，调用方拿到的始终是原始数据；确认中的codecs字段声明本进程支持的压缩方式。
+ * 带PayloadHandler的receive()在DDS监听线程中只做分片拷贝和确认，收齐后的解压、哈希校验和保存到内容库在完成线程中进行。
+ *
+ * 续传：设置落盘目录后，带会话ID的较大传输在接收过程中把分片和进度写入磁盘（进度每64块或500毫秒保存一次，
+ * 重启后按落盘的进度回报，之后收到的分片由发送端补发）。进程重启后再收到同一会话的分片或续传探测
+ * （chunk_seq为ChunkedSender.RESUME_PROBE）时从磁盘恢复，并在确认中回报已有的进度，发送端从缺口处继续发送。
+ *
+ * 直接写盘：设置落盘目录和写盘阈值后，达到阈值的传输不在堆上分配total_size大小的数组，而是在落盘目录中预留稀疏文件，
+ * 每个分片从Blob的连续缓冲区直接写到 chunk_seq * chunk_size 处；压缩过的传输在文件之间解压。
+ * receive()对这类传输返回文件负载，堆占用与负载大小和并发传输数无关。
+ *
+ * 未完成传输的回收：超过空闲时间（系统属性 media.transferIdleMillis，默认60秒）没有收到分片的传输，
+ * 以及在内存中重组的传输总字节数超过预算（media.receiverBudgetBytes，默认64MB）时最久未收到分片的传输被放弃，
+ * 释放重组缓冲区；落盘的进度保留在磁盘上，发送端续传时恢复。放弃的传输数和字节数按原因累计。
+ */
+public class ChunkedReceiver {
+
+    /**
+     * 确认写出（由MediaAckPublisher实现）
+     */
+    public interface AckWriter {
+        void write(MediaAck ack);
+    }
+
+    /**
+     * 接收完成的负载（在完成线程中调用）
+     */
+    public interface PayloadHandler {
+        void received(ReceivedPayload payload);
+    }
+
+    private static final int ACK_EVERY = 8;
+    // 每个确认最多携带的缺失区间数
+    private static final int MAX_MISSING_RANGES = 32;
+    // 记住最近完成的传输，重复到达的分片只回报确认而不重新接收
+    private static final int COMPLETED_HISTORY = 64;
+    // 小于该大小的传输不落盘
+    private static final int SPILL_MIN_BYTES = 64 * 1024;
+    // 落盘进度的保存间隔：新收到的分片数或距上次保存的时间，先达到者为准
+    private static final int SPILL_SAVE_EVERY = 64;
+    private static final long SPILL_SAVE_MILLIS = 500L;
+    // 超过该时间未更新的落盘数据在启动时删除
+    private static final long SPILL_MAX_AGE_MILLIS = 60 * 60 * 1000L;
+    // 直接写盘的默认阈值
+    public static final int DEFAULT_STREAM_MIN_BYTES = 1024 * 1024;
+    public static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 60 * 1000L;
+    public static final long DEFAULT_BUFFER_BUDGET_BYTES = 64L * 1024 * 1024;
+    // 空闲检查的间隔
+    private static final long SWEEP_INTERVAL_MILLIS = 5 * 1000L;
+    public static final long DEFAULT_ACK_DELAY_MILLIS = 20L;
+
+    private final String tag;
+    // 按最近收到分片的顺序排列，最前面的最久未活动
+    private final Map<String, Assembly> transfers = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Integer> completed = new LinkedHashMap<String, Integer>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+            return size() > COMPLETED_HISTORY;
+        }
+    };
+    private final MediaAck ack = new MediaAck();
+    private AckWriter ackWriter;
+    // 完成线程中读取
+    private volatile ContentStore contentStore;
+    private volatile CompressionStats compressionStats;
+    private File spillDir;
+    private int streamMinBytes = Integer.MAX_VALUE;
+    private long idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(
+            Long.getLong("media.transferIdleMillis", DEFAULT_IDLE_TIMEOUT_MILLIS));
+    private long bufferBudget = Long.getLong("media.receiverBudgetBytes", DEFAULT_BUFFER_BUDGET_BYTES);
+    // 未完成传输占用的重组缓冲区字节数
+    private long bufferedBytes;
+    // 放弃的传输：{超时个数, 超时字节数, 超出预算个数, 超出预算字节数}
+    private final long[] abandoned = new long[4];
+    private ScheduledExecutorService sweeper;
+    // 收齐后的解压、哈希校验和保存到内容库
+    private ExecutorService completer;
+    // 有缺口或未确认分片的传输再次回报确认的间隔
+    private final long ackDelayNanos = TimeUnit.MILLISECONDS.toNanos(
+            Math.max(1, Long.getLong("media.ackDelayMillis", DEFAULT_ACK_DELAY_MILLIS)));
+    // 待执行的定时确认，没有时为null
+    private ScheduledFuture<?> delayedAck;
+
+    public ChunkedReceiver(String tag) {
+        this.tag = tag;
+        this.compressionStats = CompressionStats.forTopic(tag);
+    }
+
+    public synchronized void setAckWriter(AckWriter ackWriter) {
+        this.ackWriter = ackWriter;
+    }
+
+    public synchronized void setContentStore(ContentStore contentStore) {
+        this.contentStore = contentStore;
+    }
+
+    /**
+     * 解压统计按topicName累计（默认按tag）
+     */
+    public synchronized void setCompressionTopic(String topicName) {
+        this.compressionStats = CompressionStats.forTopic(topicName);
+    }
+
+    /**
+     * 启用未完成传输的落盘，重启后可从断点续传
+     * @param dir 落盘目录（不存在时创建），其中超过1小时未更新的数据会被删除
+     */
+    public synchronized void setSpillDirectory(File dir) {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            System.err.printf("[%s] 创建落盘目录失败: %s\n", tag, dir);
+            return;
+        }
+        this.spillDir = dir;
+        int pending = TransferSpill.purge(dir, SPILL_MAX_AGE_MILLIS);
+        if (pending > 0) {
+            System.out.printf("[%s] 有 %d 个未完成的传输，发送端续传时恢复\n", tag, pending);
+        }
+    }
+
+    /**
+     * 达到该大小（压缩过的传输按压缩前后较大者）的传输直接写入落盘目录，不在堆上重组；未设置落盘目录时不生效
+     */
+    public synchronized void setStreamThreshold(int bytes) {
+        this.streamMinBytes = Math.max(1, bytes);
+    }
+
+    /**
+     * 超过该时间未收到分片的传输被放弃
+     */
+    public synchronized void setIdleTimeout(long millis) {
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, millis));
+    }
+
+    /**
+     * 在内存中重组的传输总字节数上限，超过时放弃最久未活动的传输；单个超过上限的传输不接收（可改为直接写盘）
+     */
+    public synchronized void setBufferBudget(long bytes) {
+        this.bufferBudget = Math.max(0, bytes);
+        evictOverBudget(0);
+    }
+
+    /**
+     * 接收一个分片
+     * @param transferId 传输ID（同一传输的所有分片相同）
+     * @param totalSize 传输总大小
+     * @param chunkSeq 分片序号
+     * @param chunkSize 分片大小（发送端的分片步长）
+     * @param chunk 分片数据
+     * @return 传输完成时返回完整数据，否则返回null
+     */
+    public byte[] accept(String transferId, int totalSize, int chunkSeq, int chunkSize, Blob chunk) {
+        return accept(transferId, null, null, 0, totalSize, totalSize, chunkSeq, chunkSize, chunk);
+    }
+
+    /**
+     * 接收一个分片、内容引用或续传探测
+     * @param sessionId 传输会话ID，可为null或空串（不落盘，也不能续传）
+     * @param contentHash 发送端给出的内容哈希，可为null或空串
+     * @param encoding 压缩方式（PayloadCodec.id），0表示未压缩
+     * @param rawSize 压缩前的大小（未压缩时忽略）
+     * @param totalSize 实际传输的大小
+     * @return 传输完成（或引用的内容已在内容库中）时返回完整的原始数据，否则返回null；
+     *         返回的数组可能与内容库共用，调用方不应修改
+     */
+    public byte[] accept(String transferId, String sessionId, String contentHash, int encoding,
+                         int rawSize, int totalSize, int chunkSeq, int chunkSize, Blob chunk) {
+        ReceivedPayload payload = receive(transferId, sessionId, contentHash, encoding, rawSize, totalSize,
+                chunkSeq, chunkSize, chunk);
+        if (payload == null) {
+            return null;
+        }
+        try {
+            return payload.bytes();
+        } catch (IOException e) {
+            System.err.printf("[%s] 读取已接收的数据失败: id=%s, %s\n", tag, transferId, e.getMessage());
+            return null;
+        } finally {
+            payload.discard();
+        }
+    }
+
+    /**
+     * 同accept()，达到写盘阈值的传输完成时返回文件负载
+     * @return 传输完成（或引用的内容已在内容库中）时返回完整的原始数据，否则返回null
+     */
+    public ReceivedPayload receive(String transferId, String sessionId, String contentHash, int encoding,
+                                   int rawSize, int totalSize, int chunkSeq, int chunkSize, Blob chunk) {
+        Completion completion = collect(transferId, sessionId, contentHash, encoding, rawSize, totalSize,
+                chunkSeq, chunkSize, chunk);
+        return completion != null ? completion.finish() : null;
+    }
+
+    /**
+     * 同receive()，但不阻塞调用线程（DDS监听线程）：传输完成后在完成线程中解压、校验哈希并保存到内容库，
+     * 然后在该线程中把负载交给handler（解压失败时不调用）
+     */
+    public void receive(String transferId, String sessionId, String contentHash, int encoding, int rawSize,
+                        int totalSize, int chunkSeq, int chunkSize, Blob chunk, PayloadHandler handler) {
+        Completion completion = collect(transferId, sessionId, contentHash, encoding, rawSize, totalSize,
+                chunkSeq, chunkSize, chunk);
+        if (completion == null) {
+            return;
+        }
+        completer().execute(() -> {
+            ReceivedPayload payload = completion.finish();
+            if (payload != null) {
+                handler.received(payload);
+            }
+        });
+    }
+
+    /**
+     * 接收一个分片并回报确认
+     * @return 传输完成（或引用的内容已在内容库中）时返回待完成的处理，否则返回null
+     */
+    private synchronized Completion collect(String transferId, String sessionId, String contentHash,
+                                            int encoding, int rawSize, int totalSize, int chunkSeq,
+                                            int chunkSize, Blob chunk) {
+        if (totalSize <= 0) {
+            System.err.printf("[%s] 无效的传输大小: id=%s, size=%d\n", tag, transferId, totalSize);
+            return null;
+        }
+        if (!validRawSize(encoding, rawSize, totalSize)) {
+            System.err.printf("[%s] 无效的压缩方式或压缩前大小，丢弃分片: id=%s, encoding=%d, size=%d, raw=%d\n",
+                    tag, transferId, encoding, totalSize, rawSize);
+            return null;
+        }
+        int stride = chunkSize > 0 ? chunkSize : ChunkSizePolicy.DEFAULT_CHUNK_SIZE;
+        int totalChunks = BlobChunker.chunkCount(totalSize, stride);
+        String session = sessionId != null ? sessionId : "";
+
+        Assembly assembly = transfers.get(transferId);
+        if (assembly == null) {
+            Integer doneChunks = completed.get(transferId);
+            if (doneChunks != null && doneChunks == totalChunks) {
+                // 发送端没收到完成确认而重传，再确认一次
+                writeAck(transferId, session, totalChunks, totalChunks, totalChunks, null);
+                return null;
+            }
+            if (chunkSeq == ChunkedSender.REFERENCE_CHUNK) {
+                return resolve(transferId, session, contentHash, totalSize, totalChunks);
+            }
+            assembly = restore(transferId, session, totalSize, stride, encoding,
+                    streams(encoding, rawSize, totalSize));
+        } else if (!assembly.matches(session, totalSize, stride, encoding)) {
+            // 同一ID开始了新的传输，丢弃未完成的旧数据
+            System.err.printf("[%s] 传输参数变化，重新接收: id=%s\n", tag, transferId);
+            untrack(transferId);
+            assembly.discardSpill();
+            assembly = null;
+        }
+        if (chunkSeq == ChunkedSender.RESUME_PROBE) {
+            // 续传探测：回报已有的进度，没有该传输时回报从头开始
+            if (assembly != null) {
+                writeAck(assembly);
+            } else {
+                writeAck(transferId, session, totalChunks, 0, 0, null);
+            }
+            return null;
+        }
+        if (assembly == null) {
+            boolean streamed = streams(encoding, rawSize, totalSize);
+            if (!streamed && !evictOverBudget(totalSize)) {
+                System.err.printf("[%s] 传输大小超出缓冲预算，丢弃分片: id=%s, size=%d bytes, 预算 %d bytes\n",
+                        tag, transferId, totalSize, bufferBudget);
+                return null;
+            }
+            try {
+                assembly = new Assembly(transferId, session, contentHash, totalSize, stride, encoding, rawSize,
+                        streamed);
+            } catch (IOException e) {
+                System.err.printf("[%s] 创建写盘文件失败，丢弃分片: id=%s, %s\n", tag, transferId, e.getMessage());
+                return null;
+            }
+            track(transferId, assembly);
+            System.out.printf("[%s] 开始接收: id=%s, size=%d bytes, chunks=%d\n",
+                    tag, transferId, totalSize, totalChunks);
+        }
+
+        assembly.lastActivityNanos = System.nanoTime();
+        int previous = assembly.nextExpected;
+        int result = assembly.add(chunkSeq, chunk);
+        if (result == Assembly.REJECTED) {
+            return null;
+        }
+        if (assembly.isComplete()) {
+            untrack(transferId);
+            completed.put(transferId, totalChunks);
+            File file = assembly.releaseSpill();
+            writeAck(assembly);
+            assembly.stats.finish();
+            System.out.printf("[%s] 接收完成: %s\n", tag, assembly.stats);
+            return new Completion(assembly, file, null);
+        }
+        // 累计确认点一次前进多块说明补上了缺口
+        if (result == Assembly.DUPLICATE || assembly.hasGaps() || assembly.nextExpected - previous > 1
+                || assembly.stats.getChunks() % ACK_EVERY == 0) {
+            writeAck(assembly);
+        } else {
+            scheduleDelayedAck();
+        }
+        return null;
+    }
+
+    private Completion resolve(String transferId, String session, String contentHash, int totalSize,
+                               int totalChunks) {
+        byte[] data = contentStore != null && contentHash != null ? contentStore.get(contentHash) : null;
+        if (data == null || data.length != totalSize) {
+            System.out.printf("[%s] 内容库中没有引用的内容，等待完整数据: id=%s\n", tag, transferId);
+            writeAck(transferId, session, totalChunks, 0, 0, null);
+            return null;
+        }
+        completed.put(transferId, totalChunks);
+        writeAck(transferId, session, totalChunks, totalChunks, totalChunks, null);
+        System.out.printf("[%s] 引用已有内容: id=%s, size=%d bytes\n", tag, transferId, totalSize);
+        return new Completion(null, null, data);
+    }
+
+    /**
+     * 从落盘数据恢复同一会话的未完成传输
+     * @return 没有落盘数据或会话、参数不符时返回null
+     */
+    private Assembly restore(String transferId, String session, int totalSize, int stride, int encoding,
+                             boolean streamed) {
+        if (spillDir == null || session.isEmpty()) {
+            return null;
+        }
+        TransferSpill spill = null;
+        try {
+            spill = TransferSpill.open(spillDir, transferId);
+            if (spill == null) {
+                return null;
+            }
+            TransferSpill.Snapshot snapshot = spill.load(!streamed);
+            if (!snapshot.transferId.equals(transferId) || !snapshot.sessionId.equals(session)
+                    || snapshot.totalSize != totalSize || snapshot.stride != stride || snapshot.encoding != encoding) {
+                System.out.printf("[%s] 落盘数据与当前传输不符，重新接收: id=%s\n", tag, transferId);
+                spill.delete();
+                return null;
+            }
+            if (!streamed && !evictOverBudget(totalSize)) {
+                // 进度保留在磁盘上，预算有空余时再恢复
+                System.err.printf("[%s] 缓冲预算不足，暂不恢复: id=%s\n", tag, transferId);
+                spill.close();
+                return null;
+            }
+            Assembly assembly = new Assembly(snapshot, spill);
+            track(transferId, assembly);
+            System.out.printf("[%s] 从落盘数据恢复: id=%s, 已收到 %d/%d 块, 从第 %d 块续传\n", tag, transferId,
+                    assembly.receivedCount, assembly.totalChunks, assembly.nextExpected);
+            return assembly;
+        } catch (IOException e) {
+            System.err.printf("[%s] 读取落盘数据失败，重新接收: id=%s, %s\n", tag, transferId, e.getMessage());
+            if (spill != null) {
+                spill.delete();
+            }
+            return null;
+        }
+    }
+
+    /**
+     * 样本头部中的压缩前大小不可信：不能超过压缩格式的最大压缩比；解压结果在堆上的传输还不能超过缓冲预算
+     */
+    private boolean validRawSize(int encoding, int rawSize, int totalSize) {
+        if (encoding == PayloadCodec.NONE.id()) {
+            return true;
+        }
+        PayloadCodec codec;
+        try {
+            codec = PayloadCodec.fromId(encoding);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        if (!codec.isAvailable() || rawSize <= 0 || rawSize > codec.maxRawSize(totalSize)) {
+            return false;
+        }
+        return streams(encoding, rawSize, totalSize) || rawSize <= bufferBudget;
+    }
+
+    private boolean streams(int encoding, int rawSize, int totalSize) {
+        int size = encoding == PayloadCodec.NONE.id() ? totalSize : Math.max(totalSize, rawSize);
+        return spillDir != null && size >= streamMinBytes;
+    }
+
+    /**
+     * 直接写盘的传输：未压缩时返回原文件，压缩过的在文件之间解压，删除压缩数据
+     */
+    private ReceivedPayload decode(Assembly assembly, File file) {
+        if (assembly.encoding == PayloadCodec.NONE.id()) {
+            return ReceivedPayload.ofFile(file, assembly.totalSize);
+        }
+        String transferId = assembly.stats.getTransferId();
+        File raw = new File(file.getPath() + ".raw");
+        try (FileChannel in = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(raw.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                     StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            PayloadCodec codec = PayloadCodec.fromId(assembly.encoding);
+            long start = System.nanoTime();
+            codec.decompress(in, assembly.totalSize, out, assembly.rawSize);
+            long nanos = System.nanoTime() - start;
+            compressionStats.decoded(nanos);
+            System.out.printf("[%s] %s解压到文件: id=%s, %d -> %d bytes, %.2f ms; 累计 %s\n", tag, codec,
+                    transferId, assembly.totalSize, assembly.rawSize, nanos / 1e6, compressionStats);
+            return ReceivedPayload.ofFile(raw, assembly.rawSize);
+        } catch (IllegalArgumentException | IOException e) {
+            System.err.printf("[%s] 解压失败: id=%s, %s\n", tag, transferId, e.getMessage());
+            raw.delete();
+            return null;
+        } finally {
+            file.delete();
+        }
+    }
+
+    private byte[] decode(Assembly assembly) {
+        if (assembly.encoding == PayloadCodec.NONE.id()) {
+            return assembly.data;
+        }
+        String transferId = assembly.stats.getTransferId();
+        try {
+            PayloadCodec codec = PayloadCodec.fromId(assembly.encoding);
+            long start = System.nanoTime();
+            byte[] raw = codec.decompress(assembly.data, 0, assembly.data.length, assembly.rawSize);
+            long nanos = System.nanoTime() - start;
+            compressionStats.decoded(nanos);
+            System.out.printf("[%s] %s解压: id=%s, %d -> %d bytes, %.2f ms; 累计 %s\n", tag, codec, transferId,
+                    assembly.data.length, raw.length, nanos / 1e6, compressionStats);
+            return raw;
+        } catch (IllegalArgumentException | IOException e) {
+            System.err.printf("[%s] 解压失败: id=%s, %s\n", tag, transferId, e.getMessage());
+            return null;
+        }
+    }
+
+    private void store(String transferId, String contentHash, byte[] data) {
+        if (contentStore == null) {
+            return;
+        }
+        String hash = ContentHash.of(data);
+        if (contentHash != null && !contentHash.isEmpty() && !contentHash.equals(hash)) {
+            System.err.printf("[%s] 内容哈希不符，不保存到内容库: id=%s\n", tag, transferId);
+            return;
+        }
+        contentStore.put(hash, data);
+    }
+
+    /**
+     * 尚未完成的传输数量
+     */
+    public synchronized int activeTransfers() {
+        return transfers.size();
+    }
+
+    /**
+     * 未完成传输占用的重组缓冲区字节数
+     */
+    public synchronized long getBufferedBytes() {
+        return bufferedBytes;
+    }
+
+    /**
+     * 因超时或超出预算放弃的传输数
+     */
+    public synchronized long getAbandonedTransfers() {
+        return abandoned[0] + abandoned[2];
+    }
+
+    /**
+     * 放弃的传输中已收到的字节数
+     */
+    public synchronized long getAbandonedBytes() {
+        return abandoned[1] + abandoned[3];
+    }
+
+    private synchronized ExecutorService completer() {
+        if (completer == null) {
+            completer = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, tag + "-complete");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return completer;
+    }
+
+    private void track(String transferId, Assembly assembly) {
+        transfers.put(transferId, assembly);
+        bufferedBytes += assembly.bufferSize();
+        sweeper();
+    }
+
+    private ScheduledExecutorService sweeper() {
+        if (sweeper == null) {
+            sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, tag + "-sweeper");
+                thread.setDaemon(true);
+                return thread;
+            });
+            sweeper.scheduleWithFixedDelay(this::evictIdle, SWEEP_INTERVAL_MILLIS, SWEEP_INTERVAL_MILLIS,
+                    TimeUnit.MILLISECONDS);
+        }
+        return sweeper;
+    }
+
+    private void untrack(String transferId) {
+        Assembly assembly = transfers.remove(transferId);
+        if (assembly != null) {
+            bufferedBytes -= assembly.bufferSize();
+        }
+    }
+
+    /**
+     * 放弃超过空闲时间的传输（按活动顺序遍历，遇到未超时的即停止）
+     */
+    private synchronized void evictIdle() {
+        long now = System.nanoTime();
+        Iterator<Assembly> it = transfers.values().iterator();
+        while (it.hasNext()) {
+            Assembly assembly = it.next();
+            if (now - assembly.lastActivityNanos < idleTimeoutNanos) {
+                break;
+            }
+            it.remove();
+            abandon(assembly, 0, "超时");
+        }
+    }
+
+    /**
+     * 为needed字节的新传输腾出预算，依次放弃最久未活动的传输
+     * @return needed本身超出预算时返回false
+     */
+    private boolean evictOverBudget(long needed) {
+        if (needed > bufferBudget) {
+            return false;
+        }
+        Iterator<Assembly> it = transfers.values().iterator();
+        while (bufferedBytes + needed > bufferBudget && it.hasNext()) {
+            Assembly assembly = it.next();
+            if (assembly.bufferSize() == 0) {
+                continue;
+            }
+            it.remove();
+            abandon(assembly, 2, "超出缓冲预算");
+        }
+        return true;
+    }
+
+    /**
+     * @param reason abandoned中的下标：0为超时，2为超出预算
+     */
+    private void abandon(Assembly assembly, int reason, String label) {
+        bufferedBytes -= assembly.bufferSize();
+        assembly.closeSpill();
+        abandoned[reason]++;
+        abandoned[reason + 1] += assembly.stats.getBytes();
+        System.out.printf("[%s] 放弃未完成的传输（%s）: id=%s, 已收到 %d/%d 块; 累计放弃 %d 个, %d bytes, "
+                + "缓冲 %d bytes\n", tag, label, assembly.stats.getTransferId(), assembly.receivedCount, assembly.totalChunks,
+                getAbandonedTransfers(), getAbandonedBytes(), bufferedBytes);
+    }
+
+    private void writeAck(Assembly assembly) {
+        // 落盘进度可以落后于确认：重启后按落盘的进度回报，发送端补发其余分片
+        assembly.saveSpillPeriodically();
+        writeAck(assembly.stats.getTransferId(), assembly.sessionId, assembly.totalChunks, assembly.nextExpected,
+                assembly.highest, assembly);
+        assembly.lastAckNanos = System.nanoTime();
+        assembly.ackedCount = assembly.receivedCount;
+        if (assembly.hasGaps()) {
+            scheduleDelayedAck();
+        }
+    }
+
+    private void scheduleDelayedAck() {
+        if (ackWriter == null || delayedAck != null) {
+            return;
+        }
+        delayedAck = sweeper().schedule(this::ackDelayed, ackDelayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 回报超过间隔没有确认过的缺口和新收到的分片；仍有这样的传输时继续定时
+     */
+    private synchronized void ackDelayed() {
+        delayedAck = null;
+        long now = System.nanoTime();
+        for (Assembly assembly : transfers.values()) {
+            if (!assembly.hasGaps() && assembly.ackedCount == assembly.receivedCount) {
+                continue;
+            }
+            if (now - assembly.lastAckNanos >= ackDelayNanos) {
+                writeAck(assembly);
+            } else {
+                scheduleDelayedAck();
+            }
+        }
+    }
+
+    private void writeAck(String transferId, String sessionId, int totalChunks, int nextExpected, int highest,
+                          Assembly assembly) {
+        if (ackWriter == null) {
+            return;
+        }
+        ack.transferId = transferId;
+        ack.session_id = sessionId;
+        ack.total_chunks = totalChunks;
+        ack.next_expected = nextExpected;
+        ack.highest_received = highest;
+        ack.codecs = PayloadCodec.supportedMask();
+        int count = assembly != null ? assembly.missingRanges(ack) : 0;
+        ack.missing.ensure_length(count, count);
+        try {
+            ackWriter.write(ack);
+        } catch (RuntimeException e) {
+            System.err.printf("[%s] 发送确认失败: id=%s, %s\n", tag, transferId, e.getMessage());
+        }
+    }
+
+    private class Assembly {
+        static final int ADDED = 0;
+        static final int DUPLICATE = 1;
+        static final int REJECTED = 2;
+
+        // 直接写盘时为null，数据只在spill中
+        final byte[] data;
+        final int totalSize;
+        final String sessionId;
+        final String contentHash;
+        final int stride;
+        final int encoding;
+        final int rawSize;
+        final int totalChunks;
+        // 已收到的分片位图及其中置位的个数，每个分片的去重、计数和完成判断都是常数时间
+        final BitSet received;
+        int receivedCount;
+        final TransferStats stats;
+        // 累计确认点：序号小于该值的分片均已收到
+        int nextExpected;
+        // 已收到的最大分片序号+1
+        int highest;
+        // 落盘文件，未启用落盘时为null
+        TransferSpill spill;
+        // 上次保存进度后新收到的分片数
+        int unsaved;
+        long lastSaveNanos = System.nanoTime();
+        long lastActivityNanos = System.nanoTime();
+        long lastAckNanos;
+        // 上次确认时已收到的分片数
+        int ackedCount;
+
+        Assembly(String transferId, String sessionId, String contentHash, int totalSize, int stride, int encoding,
+                 int rawSize, boolean streamed) throws IOException {
+            this.data = streamed ? null : new byte[totalSize];
+            this.totalSize = totalSize;
+            this.sessionId = sessionId;
+            this.contentHash = contentHash;
+            this.stride = stride;
+            this.encoding = encoding;
+            this.rawSize = rawSize;
+            this.totalChunks = BlobChunker.chunkCount(totalSize, stride);
+            this.received = new BitSet(totalChunks);
+            this.stats = new TransferStats(transferId, totalSize, totalChunks);
+            if (streamed) {
+                spill = TransferSpill.create(spillDir, transferId);
+                try {
+                    spill.allocate(totalSize);
+                } catch (IOException e) {
+                    spill.delete();
+                    throw e;
+                }
+            } else if (spillDir != null && !sessionId.isEmpty() && totalSize >= SPILL_MIN_BYTES) {
+                try {
+                    spill = TransferSpill.create(spillDir, transferId);
+                } catch (IOException e) {
+                    System.err.printf("[%s] 创建落盘文件失败，不支持续传: id=%s, %s\n", tag, transferId, e.getMessage());
+                }
+            }
+        }
+
+        Assembly(TransferSpill.Snapshot snapshot, TransferSpill spill) {
+            this.data = snapshot.data;
+            this.totalSize = snapshot.totalSize;
+            this.sessionId = snapshot.sessionId;
+            this.contentHash = snapshot.contentHash;
+            this.stride = snapshot.stride;
+            this.encoding = snapshot.encoding;
+            this.rawSize = snapshot.rawSize;
+            this.totalChunks = BlobChunker.chunkCount(totalSize, stride);
+            this.received = (BitSet) snapshot.received.clone();
+            // 丢弃超出分片数的位（落盘数据与传输参数不符时）
+            received.clear(totalChunks, Math.max(totalChunks, received.length()));
+            this.receivedCount = received.cardinality();
+            this.stats = new TransferStats(snapshot.transferId, totalSize, totalChunks);
+            this.spill = spill;
+            this.highest = received.length();
+            this.nextExpected = received.nextClearBit(0);
+        }
+
+        boolean matches(String sessionId, int totalSize, int stride, int encoding) {
+            return this.totalSize == totalSize && this.stride == stride && this.encoding == encoding
+                    && (sessionId.isEmpty() || sessionId.equals(this.sessionId));
+        }
+
+        int add(int chunkSeq, Blob chunk) {
+            if (chunkSeq < 0 || chunkSeq >= totalChunks) {
+                System.err.printf("[%s] 块序号超出范围: id=%s, #%d\n", tag, stats.getTransferId(), chunkSeq);
+                return REJECTED;
+            }
+            if (received.get(chunkSeq)) {
+                return DUPLICATE;
+            }
+            int offset = chunkSeq * stride;
+            int expected = Math.min(stride, totalSize - offset);
+            if (chunk.length() != expected) {
+                System.err.printf("[%s] 分片长度不符: id=%s, #%d, 期望 %d, 实际 %d\n",
+                        tag, stats.getTransferId(), chunkSeq, expected, chunk.length());
+                return REJECTED;
+            }
+            if (data == null) {
+                // 直接写盘：写入失败时不记为收到，发送端稍后重传
+                try {
+                    spill.writeChunk(chunk.get_contiguous_buffer(), 0, expected, offset);
+                    unsaved++;
+                } catch (IOException e) {
+                    System.err.printf("[%s] 分片写盘失败: id=%s, #%d, %s\n",
+                            tag, stats.getTransferId(), chunkSeq, e.getMessage());
+                    return REJECTED;
+                }
+            } else {
+                BlobChunker.copyTo(chunk, data, offset);
+                if (spill != null) {
+                    try {
+                        spill.writeChunk(data, offset, expected);
+                        unsaved++;
+                    } catch (IOException e) {
+                        System.err.printf("[%s] 分片落盘失败，不再支持续传: id=%s, %s\n",
+                                tag, stats.getTransferId(), e.getMessage());
+                        discardSpill();
+                    }
+                }
+            }
+            received.set(chunkSeq);
+            receivedCount++;
+            stats.chunkDone(expected);
+            highest = Math.max(highest, chunkSeq + 1);
+            if (chunkSeq == nextExpected) {
+                nextExpected = received.nextClearBit(nextExpected);
+            }
+            return ADDED;
+        }
+
+        boolean isComplete() {
+            return receivedCount == totalChunks;
+        }
+
+        /**
+         * 新收到的分片达到SPILL_SAVE_EVERY块或距上次保存超过SPILL_SAVE_MILLIS时保存进度
+         */
+        void saveSpillPeriodically() {
+            if (unsaved >= SPILL_SAVE_EVERY
+                    || System.nanoTime() - lastSaveNanos >= TimeUnit.MILLISECONDS.toNanos(SPILL_SAVE_MILLIS)) {
+                saveSpill();
+            }
+        }
+
+        /**
+         * 保存已落盘分片的位图
+         */
+        void saveSpill() {
+            // 没有会话ID的传输无法续传，不保存进度
+            if (spill == null || unsaved == 0 || sessionId.isEmpty()) {
+                return;
+            }
+            TransferSpill.Snapshot snapshot = new TransferSpill.Snapshot();
+            snapshot.transferId = stats.getTransferId();
+            snapshot.sessionId = sessionId;
+            snapshot.contentHash = contentHash;
+            snapshot.encoding = encoding;
+            snapshot.rawSize = rawSize;
+            snapshot.totalSize = totalSize;
+            snapshot.stride = stride;
+            snapshot.received = (BitSet) received.clone();
+            try {
+                spill.saveMeta(snapshot);
+                unsaved = 0;
+                lastSaveNanos = System.nanoTime();
+            } catch (IOException e) {
+                System.err.printf("[%s] 保存传输进度失败，不再支持续传: id=%s, %s\n",
+                        tag, stats.getTransferId(), e.getMessage());
+                discardSpill();
+            }
+        }
+
+        /**
+         * 传输完成：直接写盘的传输返回数据文件（由调用方接管），否则删除落盘文件并返回null
+         */
+        File releaseSpill() {
+            if (data != null || spill == null) {
+                discardSpill();
+                return null;
+            }
+            File file = spill.finish();
+            spill = null;
+            return file;
+        }
+
+        /**
+         * 放弃传输：能续传的保存进度后关闭落盘文件，其余删除
+         */
+        void closeSpill() {
+            if (spill == null) {
+                return;
+            }
+            if (sessionId.isEmpty()) {
+                discardSpill();
+                return;
+            }
+            saveSpill();
+            if (spill != null) {
+                spill.close();
+                spill = null;
+            }
+        }
+
+        /**
+         * 占用的重组缓冲区字节数（直接写盘的传输为0）
+         */
+        long bufferSize() {
+            return data != null ? data.length : 0;
+        }
+
+        void discardSpill() {
+            if (spill != null) {
+                spill.delete();
+                spill = null;
+            }
+        }
+
+        boolean hasGaps() {
+            return nextExpected < highest;
+        }
+
+        /**
+         * 把[nextExpected, highest)中缺失的分片区间写入ack.missing，返回写入的整数个数
+         */
+        int missingRanges(MediaAck ack) {
+            ack.missing.ensure_length(MAX_MISSING_RANGES * 2, MAX_MISSING_RANGES * 2);
+            int[] ranges = ack.missing.get_contiguous_buffer();
+            int count = 0;
+            int chunkSeq = nextExpected;
+            while (chunkSeq < highest && count < MAX_MISSING_RANGES * 2) {
+                int start = chunkSeq;
+                chunkSeq = Math.min(highest, received.nextSetBit(start));
+                ranges[count++] = start;
+                ranges[count++] = chunkSeq;
+                if (chunkSeq < highest) {
+                    chunkSeq = received.nextClearBit(chunkSeq);
+                }
+            }
+            return count;
+        }
+    }
+
+    /**
+     * 收齐后待完成的处理：解压，未写盘的负载校验哈希后保存到内容库（不持有接收器的锁）
+     */
+    private final class Completion {
+        // 引用内容库中已有的内容时为null
+        final Assembly assembly;
+        // 直接写盘的数据文件
+        final File file;
+        // 从内容库取出的内容
+        final byte[] data;
+
+        Completion(Assembly assembly, File file, byte[] data) {
+            this.assembly = assembly;
+            this.file = file;
+            this.data = data;
+        }
+
+        ReceivedPayload finish() {
+            if (assembly == null) {
+                return ReceivedPayload.of(data);
+            }
+            if (file != null) {
+                return decode(assembly, file);
+            }
+            byte[] raw = decode(assembly);
+            if (raw == null) {
+                return null;
+            }
+            store(assembly.stats.getTransferId(), assembly.contentHash, raw);
+            return ReceivedPayload.of(raw);
+        }
+    }
+}
@@ -0,0 +1,922 @@
+package MediaTransfer;
+
+import IDL.Blob;
+import IDL.MediaAck;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 分片发送器（AlertMedia、ReportMedia共用）
+ * 把byte[]、文件或输入流按分片大小切分，依次填充到调用方的Blob并交给ChunkWriter写出。
+ * 调用方负责创建样本并设置头部字段（ID、类型、总大小等），ChunkWriter中只需设置chunk_seq/chunk_size后调用DataWriter.write()；
+ * DataWriter.write()同步完成序列化，因此整个传输复用同一个样本和Blob。
+ *
+ * 分片约定：样本的chunk_size字段为本次传输的分片大小（最后一块的实际长度以Blob长度为准），
+ * 接收端据此计算偏移，发送端可以自由调整分片大小而无需修改接收端。
+ *
+ * 滑动窗口：调用enableAcks()并且有接收端对本Topic回报过确认时，未确认的分片数不超过窗口大小
+ * （窗口应小于DataWriter的history.depth，已写出但未送达的分片就不会被后续分片覆盖）。
+ * 接收端回报缺失的分片区间，发送端只重传这些缺口；超过重传超时仍无进展时重传最早未确认的分片和接收端尚未见到的尾部分片。
+ * 没有接收端回报确认时退化为直接连续发送（MediaAck主题上匹配的只是会发送确认的进程，它们未必接收本Topic，
+ * 因此只按最近对本Topic回报过确认的接收端计数；新接收端的第一次传输按连续发送，收到它的确认后改用窗口）。
+ *
+ * 内容去重：发送时给出内容哈希，并且该内容此前已被所有接收端确认收到时，先只发送一个引用
+ * （chunk_seq为REFERENCE_CHUNK、Blob为空，哈希由调用方写在样本中）。接收端从内容库取出内容后回报完成；
+ * 任一接收端回报缺失或超时未确认时再发送完整数据。
+ *
+ * 压缩：调用setCompression()并且所有接收端都在确认中声明支持该压缩方式时，byte[]负载在分片前整体压缩
+ * （压缩后缩小不明显时仍按原样发送），通过HeaderWriter把压缩方式、压缩后大小和原始大小写入样本头部。
+ * 文件和输入流按原样发送。
+ *
+ * 续传：每次发送生成新的会话ID，通过HeaderWriter写入样本。窗口发送因接收端长时间未确认而中止时，byte[]和文件传输被挂起，
+ * 之后收到同一会话的确认（接收端重启后从落盘数据恢复，或恢复通信）时在后台线程从确认点续传，只补发缺口。
+ * 挂起时以及有新的接收端出现时发送续传探测（chunk_seq为RESUME_PROBE、Blob为空），促使接收端回报各自的进度。
+ *
+ * 调度：调用setScheduler()后，每个分片写出前先取得MediaScheduler的发送权，与同一进程的其他传输按优先级逐块交替。
+ */
+public class ChunkedSender {
+
+    /**
+     * 分片写出：Blob中已填好第chunkSeq块，返回false表示写出失败
+     */
+    public interface ChunkWriter {
+        boolean write(int chunkSeq, int chunkSize);
+    }
+
+    /**
+     * 样本头部写出：设置本次传输的会话ID、压缩方式、实际发送的大小（total_size）和压缩前大小
+     */
+    public interface HeaderWriter {
+        void header(String sessionId, int encoding, int totalSize, int rawSize);
+    }
+
+    /**
+     * 可按序号随机读取的分片数据源（重传时需要重新读取已发送过的分片）
+     */
+    private interface ChunkSource {
+        void fill(Blob blob, int chunkSeq, int offset, int length) throws IOException;
+    }
+
+    public static final int DEFAULT_WINDOW = 32;
+    // 内容引用的分片序号
+    public static final int REFERENCE_CHUNK = -1;
+    // 续传探测的分片序号
+    public static final int RESUME_PROBE = -2;
+
+    private static final long INITIAL_RTO_NANOS = 500_000_000L;
+    private static final long MIN_RTO_NANOS = 200_000_000L;
+    private static final long MAX_RTO_NANOS = 2_000_000_000L;
+    // 连续超时（无确认进展）次数上限
+    private static final int MAX_TIMEOUTS = 5;
+    // 连续写出失败次数上限
+    private static final int MAX_WRITE_FAILURES = 8;
+    // 记住的已送达内容哈希数
+    private static final int DELIVERED_HISTORY = 256;
+    // 超过该时间没有回报确认的接收端不再参与压缩方式协商
+    private static final long PEER_TIMEOUT_NANOS = 10 * 60 * 1_000_000_000L;
+    // 最多保留的挂起传输数
+    private static final int MAX_SUSPENDED = 8;
+    // 挂起的传输超过该时间不再续传
+    private static final long SUSPENDED_TIMEOUT_NANOS = 10 * 60 * 1_000_000_000L;
+    // 同一传输最多续传次数
+    private static final int MAX_RESUMES = 3;
+
+    private final String tag;
+    private final int chunkSize;
+    // 0表示未启用确认
+    private volatile int window;
+    // 当前匹配的MediaAck发布端数量（包括不接收本Topic的进程），只作为接收端数量的上限
+    private volatile int ackWriters;
+    // 平滑往返时延（所有传输共用），0表示尚无样本
+    private volatile long srttNanos;
+    private final Map<String, Flight> flights = new ConcurrentHashMap<>();
+    // 各接收端声明支持的压缩方式：receiverId -> {codecs, 最近一次确认的时间}
+    private final Map<String, long[]> peerCodecs = new ConcurrentHashMap<>();
+    private volatile PayloadCodec codec = PayloadCodec.NONE;
+    private volatile CompressionStats compressionStats;
+    private volatile MediaScheduler scheduler;
+    private volatile MediaScheduler.Priority priority = MediaScheduler.Priority.ALERT;
+    // 已被所有接收端确认收到的内容哈希（按最近使用淘汰）
+    private final Map<String, Boolean> delivered = new LinkedHashMap<String, Boolean>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > DELIVERED_HISTORY;
+        }
+    };
+    // 中止后等待续传的传输（按传输ID）
+    private final Map<String, Transfer> suspended = new LinkedHashMap<String, Transfer>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Transfer> eldest) {
+            return size() > MAX_SUSPENDED;
+        }
+    };
+    // 续传和续传探测在该线程中进行，挂起的传输所用的样本和Blob此时只被这一个线程使用
+    private ExecutorService resumeExecutor;
+
+    public ChunkedSender(String tag) {
+        this(tag, ChunkSizePolicy.configured());
+    }
+
+    public ChunkedSender(String tag, int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("分片大小必须大于0: " + chunkSize);
+        }
+        this.tag = tag;
+        this.chunkSize = chunkSize;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public int chunkCount(long totalSize) {
+        return BlobChunker.chunkCount(totalSize, chunkSize);
+    }
+
+    /**
+     * 启用滑动窗口发送
+     * @param window 最多允许未确认的分片数，应小于DataWriter的history.depth
+     */
+    public void enableAcks(int window) {
+        if (window <= 0) {
+            throw new IllegalArgumentException("窗口大小必须大于0: " + window);
+        }
+        this.window = window;
+    }
+
+    /**
+     * 更新匹配的MediaAck发布端数量（MediaAck读取端匹配状态变化时调用）
+     */
+    public void setAckPeers(int count) {
+        int previous = ackWriters;
+        this.ackWriters = count;
+        if (count > previous) {
+            // 新出现的接收端可能是重启后的接收端，探测挂起的传输
+            for (Transfer transfer : suspendedTransfers()) {
+                resumeExecutor().execute(() -> probe(transfer));
+            }
+        }
+    }
+
+    /**
+     * 设置压缩方式，压缩统计按topicName累计
+     */
+    public void setCompression(PayloadCodec codec, String topicName) {
+        this.compressionStats = CompressionStats.forTopic(topicName);
+        this.codec = codec;
+    }
+
+    /**
+     * 通过调度器与其他传输按优先级交替写出分片
+     */
+    public void setScheduler(MediaScheduler scheduler, MediaScheduler.Priority priority) {
+        this.priority = priority;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * 处理接收端回报的确认
+     */
+    public void onAck(MediaAck ack) {
+        peerCodecs.put(ack.receiverId, new long[]{ack.codecs, System.nanoTime()});
+        Flight flight = flights.get(ack.transferId);
+        if (flight != null) {
+            flight.onAck(ack);
+        } else {
+            resumeIfSuspended(ack);
+        }
+    }
+
+    public TransferStats send(String transferId, byte[] data, Blob blob, ChunkWriter writer) {
+        return send(transferId, null, data, blob, null, writer);
+    }
+
+    /**
+     * @param contentHash 内容哈希（ContentHash.of），为null时不做去重
+     * @param header 样本头部写出，为null时不压缩，中止后也不续传
+     */
+    public TransferStats send(String transferId, String contentHash, byte[] data, Blob blob, HeaderWriter header,
+                              ChunkWriter writer) {
+        unsuspend(transferId);
+        TransferStats referenced = sendReference(transferId, contentHash, data.length, blob, header, writer);
+        if (referenced != null) {
+            return referenced;
+        }
+        String sessionId = header != null ? newSessionId() : null;
+        byte[] payload = encode(data, sessionId, header);
+        try {
+            return send(new Transfer(transferId, sessionId, contentHash, payload, null, blob, writer), null);
+        } catch (IOException e) {
+            // 内存数据不会产生IO异常
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 从输入流读取totalSize字节分片发送（按顺序读取，只在内存中保留窗口内的分片以备重传；不能续传）
+     */
+    public TransferStats send(String transferId, InputStream in, int totalSize, Blob blob, ChunkWriter writer)
+            throws IOException {
+        Transfer transfer = new Transfer(transferId, null, null, null, null, blob, writer);
+        return send(transfer, totalSize, null, new StreamSource(in, Math.max(1, window), chunkSize));
+    }
+
+    /**
+     * 分片发送文件（通过FileChannel按偏移直接读入Blob，不会整体读入内存）
+     */
+    public TransferStats send(String transferId, File file, Blob blob, ChunkWriter writer) throws IOException {
+        return send(transferId, null, file, blob, null, writer);
+    }
+
+    /**
+     * @param contentHash 内容哈希（ContentHash.of），为null时不做去重
+     * @param header 样本头部写出，为null时中止后不续传
+     */
+    public TransferStats send(String transferId, String contentHash, File file, Blob blob, HeaderWriter header,
+                              ChunkWriter writer) throws IOException {
+        long size = file.length();
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("文件过大，无法发送: " + file + " (" + size + " bytes)");
+        }
+        unsuspend(transferId);
+        TransferStats referenced = sendReference(transferId, contentHash, (int) size, blob, header, writer);
+        if (referenced != null) {
+            return referenced;
+        }
+        String sessionId = null;
+        if (header != null) {
+            sessionId = newSessionId();
+            header.header(sessionId, PayloadCodec.NONE.id(), (int) size, (int) size);
+        }
+        return send(new Transfer(transferId, sessionId, contentHash, null, file, blob, writer), null);
+    }
+
+    /**
+     * 发送（或从resumeFrom续传）byte[]或文件传输
+     */
+    private TransferStats send(Transfer transfer, ResumePoint resumeFrom) throws IOException {
+        if (transfer.file != null) {
+            try (FileChannel channel = FileChannel.open(transfer.file.toPath(), StandardOpenOption.READ)) {
+                return send(transfer, (int) transfer.file.length(), resumeFrom,
+                        (b, chunkSeq, offset, length) -> BlobChunker.fill(b, channel, offset, length));
+            }
+        }
+        byte[] payload = transfer.payload;
+        return send(transfer, payload.length, resumeFrom,
+                (b, chunkSeq, offset, length) -> BlobChunker.fill(b, payload, offset, length));
+    }
+
+    private TransferStats send(Transfer transfer, int totalSize, ResumePoint resumeFrom, ChunkSource source)
+            throws IOException {
+        int totalChunks = chunkCount(totalSize);
+        TransferStats stats = new TransferStats(transfer.transferId, totalSize, totalChunks);
+        int window = this.window;
+        boolean windowed = window > 0 && ackPeers() > 0;
+        boolean ok;
+        if (windowed) {
+            ok = sendWindowed(transfer, totalSize, window, source, stats, resumeFrom);
+        } else {
+            int firstChunk = resumeFrom != null ? resumeFrom.nextExpected : 0;
+            ok = sendFrom(firstChunk, totalSize, transfer.blob, transfer.writer, source, stats);
+        }
+        if (!ok) {
+            stats.fail();
+        }
+        stats.finish();
+        if (ok) {
+            System.out.printf("[%s] 传输完成: %s\n", tag, stats);
+        } else {
+            System.err.printf("[%s] 传输中止: %s\n", tag, stats);
+            if (windowed) {
+                suspend(transfer, totalChunks);
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * 从firstChunk开始连续发送剩余分片，不等待确认
+     */
+    private boolean sendFrom(int firstChunk, int totalSize, Blob blob, ChunkWriter writer, ChunkSource source,
+                             TransferStats stats) throws IOException {
+        for (int chunkSeq = firstChunk; chunkSeq < stats.getTotalChunks(); chunkSeq++) {
+            int length = fill(blob, source, chunkSeq, totalSize);
+            if (!write(writer, chunkSeq, stats)) {
+                return false;
+            }
+            stats.chunkDone(length);
+        }
+        return true;
+    }
+
+    /**
+     * 按协商结果压缩负载，并写出样本头部
+     * @return 实际发送的数据
+     */
+    private byte[] encode(byte[] data, String sessionId, HeaderWriter header) {
+        if (header == null) {
+            return data;
+        }
+        PayloadCodec codec = negotiatedCodec();
+        byte[] payload = data;
+        if (codec != PayloadCodec.NONE) {
+            long start = System.nanoTime();
+            byte[] encoded = codec.encodeIfSmaller(data);
+            long nanos = System.nanoTime() - start;
+            if (encoded != null) {
+                payload = encoded;
+            } else {
+                codec = PayloadCodec.NONE;
+            }
+            CompressionStats stats = compressionStats;
+            stats.encoded(data.length, payload.length, nanos);
+            System.out.printf("[%s] %s %d -> %d bytes, %.2f ms; 累计 %s\n", tag,
+                    encoded != null ? codec + "压缩" : "压缩无收益，按原样发送", data.length, payload.length,
+                    nanos / 1e6, stats);
+        }
+        header.header(sessionId, codec.id(), payload.length, data.length);
+        return payload;
+    }
+
+    /**
+     * 所有接收端都支持的已配置压缩方式；没有确认通道或有接收端未声明支持时不压缩
+     */
+    private PayloadCodec negotiatedCodec() {
+        PayloadCodec codec = this.codec;
+        int peers = ackPeers();
+        if (codec == PayloadCodec.NONE || window <= 0 || peers <= 0) {
+            return PayloadCodec.NONE;
+        }
+        long now = System.nanoTime();
+        int known = 0;
+        for (Iterator<long[]> it = peerCodecs.values().iterator(); it.hasNext(); ) {
+            long[] peer = it.next();
+            if (now - peer[1] > PEER_TIMEOUT_NANOS) {
+                it.remove();
+            } else if ((peer[0] & codec.mask()) == 0) {
+                return PayloadCodec.NONE;
+            } else {
+                known++;
+            }
+        }
+        return known >= peers ? codec : PayloadCodec.NONE;
+    }
+
+    /**
+     * 会回报确认的接收端数量：最近对本Topic回报过确认的接收端数，不超过匹配的MediaAck发布端数量
+     */
+    private int ackPeers() {
+        int writers = ackWriters;
+        if (writers <= 0) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        peerCodecs.values().removeIf(peer -> now - peer[1] > PEER_TIMEOUT_NANOS);
+        return Math.min(writers, peerCodecs.size());
+    }
+
+    private boolean isDelivered(String contentHash) {
+        synchronized (delivered) {
+            return delivered.containsKey(contentHash);
+        }
+    }
+
+    /**
+     * 内容此前已送达所有接收端时只发送引用
+     * @return 引用成功时返回统计，否则返回null（应发送完整数据）
+     */
+    private TransferStats sendReference(String transferId, String contentHash, int totalSize, Blob blob,
+                                        HeaderWriter header, ChunkWriter writer) {
+        if (contentHash == null || window <= 0 || ackPeers() <= 0 || !isDelivered(contentHash)) {
+            return null;
+        }
+        if (header != null) {
+            header.header("", PayloadCodec.NONE.id(), totalSize, totalSize);
+        }
+        TransferStats stats = new TransferStats(transferId, totalSize, chunkCount(totalSize));
+        if (!sendReference(transferId, blob, writer, stats)) {
+            return null;
+        }
+        stats.referenced();
+        stats.finish();
+        System.out.printf("[%s] 接收端已有相同内容，只发送引用: %s\n", tag, stats);
+        return stats;
+    }
+
+    /**
+     * 发送内容引用并等待确认
+     * @return 所有接收端都已从内容库取出内容时返回true；有接收端缺失该内容或超时未确认时返回false
+     */
+    private boolean sendReference(String transferId, Blob blob, ChunkWriter writer, TransferStats stats) {
+        int totalChunks = stats.getTotalChunks();
+        Flight flight = new Flight(totalChunks, null);
+        flights.put(transferId, flight);
+        try {
+            blob.ensure_length(0, 0);
+            if (!write(writer, REFERENCE_CHUNK, stats)) {
+                return false;
+            }
+            long deadline = System.nanoTime() + rtoNanos();
+            synchronized (flight) {
+                while (true) {
+                    if (!flight.receivers.isEmpty() && flight.acked < totalChunks) {
+                        System.out.printf("[%s] 接收端缺少引用的内容，发送完整数据: id=%s\n", tag, transferId);
+                        return false;
+                    }
+                    if (flight.receivers.size() >= Math.max(1, ackPeers())) {
+                        return true;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    waitNanos(flight, remaining);
+                }
+            }
+        } finally {
+            flights.remove(transferId, flight);
+        }
+    }
+
+    private boolean sendWindowed(Transfer transfer, int totalSize, int window, ChunkSource source,
+                                 TransferStats stats, ResumePoint resumeFrom) throws IOException {
+        String transferId = transfer.transferId;
+        Blob blob = transfer.blob;
+        ChunkWriter writer = transfer.writer;
+        int totalChunks = stats.getTotalChunks();
+        Flight flight = new Flight(totalChunks, transfer.sessionId);
+        int next = resumeFrom != null ? flight.resumeFrom(resumeFrom) : 0;
+        flights.put(transferId, flight);
+        try {
+            int writeFailures = 0;
+            while (true) {
+                int chunkSeq = -1;
+                boolean retransmit = false;
+                synchronized (flight) {
+                    while (true) {
+                        if (flight.acked >= totalChunks) {
+                            markDelivered(transfer, flight);
+                            return true;
+                        }
+                        int gap = flight.retransmit.nextSetBit(flight.acked);
+                        if (gap >= 0 && gap < next) {
+                            flight.retransmit.clear(gap);
+                            chunkSeq = gap;
+                            retransmit = true;
+                            break;
+                        }
+                        if (next < totalChunks && next - flight.acked < window) {
+                            chunkSeq = next++;
+                            break;
+                        }
+                        long now = System.nanoTime();
+                        long rto = rtoNanos();
+                        long idle = now - flight.lastProgressNanos;
+                        if (idle < rto) {
+                            waitNanos(flight, rto - idle);
+                            continue;
+                        }
+                        // 接收端重启或离开后不再回报确认，不再等待它们
+                        flight.prune(ackPeers());
+                        if (flight.acked >= totalChunks) {
+                            markDelivered(transfer, flight);
+                            return true;
+                        }
+                        if (++flight.timeouts > MAX_TIMEOUTS) {
+                            if (flight.anyAck) {
+                                System.err.printf("[%s] 接收端长时间未确认: id=%s, 已确认 %d/%d 块\n",
+                                        tag, transferId, flight.acked, totalChunks);
+                                return false;
+                            }
+                            // 接收端不回报确认（如旧版本），退化为连续发送剩余分片
+                            System.out.printf("[%s] 未收到确认，改为直接发送: id=%s\n", tag, transferId);
+                            break;
+                        }
+                        // 超时：重传最早未确认的分片（接收端据此重新回报缺口）和接收端尚未见到的尾部分片
+                        flight.retransmit.set(flight.acked);
+                        flight.retransmit.set(Math.max(flight.highest, flight.acked), next);
+                        flight.lastProgressNanos = now;
+                    }
+                    if (chunkSeq >= 0) {
+                        flight.sentNanos[chunkSeq] = System.nanoTime();
+                        if (retransmit) {
+                            flight.resent.set(chunkSeq);
+                        }
+                    }
+                }
+                if (chunkSeq < 0) {
+                    // 没有接收端确认收到，不记为已送达
+                    return sendFrom(next, totalSize, blob, writer, source, stats);
+                }
+
+                int length = fill(blob, source, chunkSeq, totalSize);
+                if (write(writer, chunkSeq, stats)) {
+                    writeFailures = 0;
+                } else if (++writeFailures > MAX_WRITE_FAILURES) {
+                    return false;
+                }
+                // 写出失败的分片当作丢失，由确认或超时触发重传
+                if (retransmit) {
+                    stats.retransmitted();
+                } else {
+                    stats.chunkDone(length);
+                }
+            }
+        } finally {
+            flights.remove(transferId, flight);
+        }
+    }
+
+    /**
+     * 所有接收端都确认收齐时记住内容哈希，之后相同内容只发送引用
+     */
+    private void markDelivered(Transfer transfer, Flight flight) {
+        if (transfer.contentHash == null || !flight.anyAck || flight.receivers.size() < ackPeers()) {
+            return;
+        }
+        synchronized (delivered) {
+            delivered.put(transfer.contentHash, Boolean.TRUE);
+        }
+    }
+
+    private static String newSessionId() {
+        return UUID.randomUUID().toString();
+    }
+
+    private synchronized ExecutorService resumeExecutor() {
+        if (resumeExecutor == null) {
+            resumeExecutor = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, tag + "-resume");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return resumeExecutor;
+    }
+
+    /**
+     * 挂起中止的传输，等待接收端回报进度后续传
+     */
+    private void suspend(Transfer transfer, int totalChunks) {
+        if (transfer.sessionId == null || transfer.resumes >= MAX_RESUMES) {
+            return;
+        }
+        transfer.totalChunks = totalChunks;
+        transfer.suspendedNanos = System.nanoTime();
+        synchronized (suspended) {
+            suspended.put(transfer.transferId, transfer);
+        }
+        System.out.printf("[%s] 传输已挂起，接收端回报进度后续传: id=%s\n", tag, transfer.transferId);
+        if (ackPeers() > 0) {
+            resumeExecutor().execute(() -> probe(transfer));
+        }
+    }
+
+    private void unsuspend(String transferId) {
+        synchronized (suspended) {
+            suspended.remove(transferId);
+        }
+    }
+
+    private List<Transfer> suspendedTransfers() {
+        long now = System.nanoTime();
+        synchronized (suspended) {
+            suspended.values().removeIf(transfer -> now - transfer.suspendedNanos > SUSPENDED_TIMEOUT_NANOS);
+            return new ArrayList<>(suspended.values());
+        }
+    }
+
+    /**
+     * 发送续传探测，接收端收到后回报该传输的进度（没有该传输时回报从头开始）
+     */
+    private void probe(Transfer transfer) {
+        synchronized (suspended) {
+            if (suspended.get(transfer.transferId) != transfer) {
+                return;
+            }
+        }
+        transfer.blob.ensure_length(0, 0);
+        if (write(transfer.writer, RESUME_PROBE, null)) {
+            System.out.printf("[%s] 发送续传探测: id=%s\n", tag, transfer.transferId);
+        }
+    }
+
+    /**
+     * 收到挂起传输的同一会话的确认时，从确认点续传（即接收端的“从第N块续传”请求）
+     */
+    private void resumeIfSuspended(MediaAck ack) {
+        Transfer transfer;
+        synchronized (suspended) {
+            transfer = suspended.get(ack.transferId);
+            if (transfer == null || !transfer.sessionId.equals(ack.session_id)
+                    || transfer.totalChunks != ack.total_chunks) {
+                return;
+            }
+            suspended.remove(ack.transferId);
+        }
+        if (System.nanoTime() - transfer.suspendedNanos > SUSPENDED_TIMEOUT_NANOS) {
+            return;
+        }
+        if (ack.next_expected >= transfer.totalChunks) {
+            System.out.printf("[%s] 接收端已收齐挂起的传输: id=%s\n", tag, transfer.transferId);
+            return;
+        }
+        transfer.resumes++;
+        // 确认样本在回调返回后归还，这里先复制
+        ResumePoint resumeFrom = new ResumePoint(ack);
+        System.out.printf("[%s] 续传: id=%s, 从第 %d 块继续（第 %d 次续传）\n",
+                tag, transfer.transferId, resumeFrom.nextExpected, transfer.resumes);
+        resumeExecutor().execute(() -> {
+            try {
+                send(transfer, resumeFrom);
+            } catch (IOException e) {
+                System.err.printf("[%s] 续传失败: id=%s, %s\n", tag, transfer.transferId, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 写出Blob中已填好的分片；设置了调度器时先排队取得发送权
+     * @param stats 记录排队时间，可为null
+     */
+    private boolean write(ChunkWriter writer, int chunkSeq, TransferStats stats) {
+        MediaScheduler scheduler = this.scheduler;
+        if (scheduler == null) {
+            return writer.write(chunkSeq, chunkSize);
+        }
+        long waited = scheduler.acquire(priority);
+        try {
+            if (stats != null) {
+                stats.queued(waited);
+            }
+            return writer.write(chunkSeq, chunkSize);
+        } finally {
+            scheduler.release();
+        }
+    }
+
+    private int fill(Blob blob, ChunkSource source, int chunkSeq, int totalSize) throws IOException {
+        int offset = chunkSeq * chunkSize;
+        int length = Math.min(chunkSize, totalSize - offset);
+        source.fill(blob, chunkSeq, offset, length);
+        return length;
+    }
+
+    private long rtoNanos() {
+        long srtt = srttNanos;
+        if (srtt == 0) {
+            return INITIAL_RTO_NANOS;
+        }
+        return Math.max(MIN_RTO_NANOS, Math.min(MAX_RTO_NANOS, 4 * srtt));
+    }
+
+    private void updateRtt(long sampleNanos) {
+        long srtt = srttNanos;
+        srttNanos = srtt == 0 ? sampleNanos : srtt + (sampleNanos - srtt) / 8;
+    }
+
+    private static void waitNanos(Object monitor, long nanos) {
+        try {
+            long millis = Math.max(1, nanos / 1_000_000);
+            monitor.wait(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 单个窗口传输的确认状态（以自身为锁）
+     */
+    private final class Flight {
+        final int totalChunks;
+        // 每个分片最近一次发送的时间
+        final long[] sentNanos;
+        // 待重传的分片
+        final BitSet retransmit = new BitSet();
+        // 重传过的分片（不用于往返时延采样）
+        final BitSet resent = new BitSet();
+        // 传输会话ID，不同会话的确认不计入（内容引用时为null）
+        final String sessionId;
+        // 各接收端的确认进度
+        final Map<String, Peer> receivers = new HashMap<>();
+        // 所有已回报接收端的最小累计确认点
+        int acked;
+        // 所有已回报接收端中最小的已收到最大分片序号+1，之后的分片没有接收端回报过缺失
+        int highest;
+        boolean anyAck;
+        int timeouts;
+        long lastProgressNanos = System.nanoTime();
+
+        Flight(int totalChunks, String sessionId) {
+            this.totalChunks = totalChunks;
+            this.sentNanos = new long[totalChunks];
+            this.sessionId = sessionId;
+        }
+
+        /**
+         * 按接收端回报的进度初始化续传：确认点之前的分片视为已送达，[确认点, 已收到的最大分片)中只补发缺口
+         * @return 下一个首次发送的分片序号
+         */
+        synchronized int resumeFrom(ResumePoint point) {
+            long now = System.nanoTime();
+            acked = Math.min(point.nextExpected, totalChunks);
+            highest = Math.max(acked, Math.min(point.highest, totalChunks));
+            Arrays.fill(sentNanos, 0, highest, now);
+            receivers.put(point.receiverId, new Peer(acked, highest, now));
+            anyAck = true;
+            for (int i = 0; i + 1 < point.missing.length; i += 2) {
+                int from = Math.max(point.missing[i], acked);
+                int to = Math.min(point.missing[i + 1], highest);
+                if (from < to) {
+                    retransmit.set(from, to);
+                }
+            }
+            return highest;
+        }
+
+        synchronized void onAck(MediaAck ack) {
+            if (ack.total_chunks != totalChunks) {
+                return;
+            }
+            if (sessionId != null && !ack.session_id.isEmpty() && !sessionId.equals(ack.session_id)) {
+                // 同一传输ID之前会话的确认
+                return;
+            }
+            long now = System.nanoTime();
+            anyAck = true;
+            receivers.put(ack.receiverId, new Peer(
+                    Math.min(ack.next_expected, totalChunks), Math.min(ack.highest_received, totalChunks), now));
+            int previous = acked;
+            advance(now);
+            if (acked > previous) {
+                int last = acked - 1;
+                if (!resent.get(last) && sentNanos[last] != 0) {
+                    updateRtt(now - sentNanos[last]);
+                }
+            }
+
+            // 接收端已收到更靠后的分片，首次发送的缺口可认定丢失；
+            // 重传过的缺口在一个往返时延内可能仍在途中，不再重复重传
+            long srtt = srttNanos;
+            long guard = srtt > 0 ? srtt : MIN_RTO_NANOS / 4;
+            int[] ranges = ack.missing.get_contiguous_buffer();
+            for (int i = 0; i + 1 < ack.missing.length(); i += 2) {
+                int from = Math.max(ranges[i], acked);
+                int to = Math.min(ranges[i + 1], totalChunks);
+                for (int chunkSeq = from; chunkSeq < to; chunkSeq++) {
+                    if (sentNanos[chunkSeq] != 0 && (!resent.get(chunkSeq) || now - sentNanos[chunkSeq] >= guard)) {
+                        retransmit.set(chunkSeq);
+                    }
+                }
+            }
+            notifyAll();
+        }
+
+        /**
+         * 回报过确认的接收端多于当前匹配的数量时，去掉最久没有确认的接收端（已重启或离开）
+         */
+        synchronized void prune(int peers) {
+            if (receivers.size() <= peers) {
+                return;
+            }
+            List<Map.Entry<String, Peer>> entries = new ArrayList<>(receivers.entrySet());
+            entries.sort((a, b) -> Long.compare(a.getValue().lastAckNanos, b.getValue().lastAckNanos));
+            for (int i = 0; i < entries.size() - peers; i++) {
+                receivers.remove(entries.get(i).getKey());
+            }
+            advance(System.nanoTime());
+        }
+
+        /**
+         * 按各接收端的进度更新累计确认点和已收到的最大分片
+         */
+        private void advance(long now) {
+            int newAcked = receivers.isEmpty() ? acked : totalChunks;
+            int newHighest = receivers.isEmpty() ? acked : totalChunks;
+            for (Peer receiver : receivers.values()) {
+                newAcked = Math.min(newAcked, receiver.nextExpected);
+                newHighest = Math.min(newHighest, receiver.highest);
+            }
+            highest = newHighest;
+            if (newAcked > acked) {
+                acked = newAcked;
+                timeouts = 0;
+                lastProgressNanos = now;
+            }
+        }
+    }
+
+    /**
+     * 单个接收端的确认进度
+     */
+    private static final class Peer {
+        // 累计确认点
+        final int nextExpected;
+        // 已收到的最大分片序号+1
+        final int highest;
+        final long lastAckNanos;
+
+        Peer(int nextExpected, int highest, long lastAckNanos) {
+            this.nextExpected = nextExpected;
+            this.highest = highest;
+            this.lastAckNanos = lastAckNanos;
+        }
+    }
+
+    /**
+     * 一次byte[]或文件传输（挂起后续传时重新使用同一个样本、Blob和ChunkWriter）
+     */
+    private static final class Transfer {
+        final String transferId;
+        // 为null时不能续传
+        final String sessionId;
+        final String contentHash;
+        // 实际发送的数据（可能已压缩），文件传输时为null
+        final byte[] payload;
+        final File file;
+        final Blob blob;
+        final ChunkWriter writer;
+        int totalChunks;
+        int resumes;
+        long suspendedNanos;
+
+        Transfer(String transferId, String sessionId, String contentHash, byte[] payload, File file, Blob blob,
+                 ChunkWriter writer) {
+            this.transferId = transferId;
+            this.sessionId = sessionId;
+            this.contentHash = contentHash;
+            this.payload = payload;
+            this.file = file;
+            this.blob = blob;
+            this.writer = writer;
+        }
+    }
+
+    /**
+     * 接收端回报的续传起点
+     */
+    private static final class ResumePoint {
+        final String receiverId;
+        final int nextExpected;
+        final int highest;
+        // 缺失的分片区间，按[起始, 结束)成对排列
+        final int[] missing;
+
+        ResumePoint(MediaAck ack) {
+            this.receiverId = ack.receiverId;
+            this.nextExpected = Math.max(0, ack.next_expected);
+            this.highest = Math.max(this.nextExpected, ack.highest_received);
+            this.missing = ack.missing.length() > 0
+                    ? Arrays.copyOf(ack.missing.get_contiguous_buffer(), ack.missing.length()) : new int[0];
+        }
+    }
+
+    /**
+     * 输入流数据源：按顺序读取，最近window个分片保留在环形缓冲区中以备重传
+     */
+    private static final class StreamSource implements ChunkSource {
+        private final InputStream in;
+        private final byte[] ring;
+        private final int slots;
+        private final int chunkSize;
+        private int readChunks;
+
+        StreamSource(InputStream in, int slots, int chunkSize) {
+            this.in = in;
+            this.slots = slots;
+            this.chunkSize = chunkSize;
+            this.ring = slots > 1 ? new byte[slots * chunkSize] : null;
+        }
+
+        @Override
+        public void fill(Blob blob, int chunkSeq, int offset, int length) throws IOException {
+            if (chunkSeq == readChunks) {
+                BlobChunker.fill(blob, in, length);
+                if (ring != null) {
+                    System.arraycopy(blob.get_contiguous_buffer(), 0, ring, (chunkSeq % slots) * chunkSize, length);
+                }
+                readChunks++;
+            } else if (ring != null && chunkSeq < readChunks && chunkSeq >= readChunks - slots) {
+                BlobChunker.fill(blob, ring, (chunkSeq % slots) * chunkSize, length);
+            } else {
+                throw new IOException("分片 #" + chunkSeq + " 已不在重传缓冲区中");
+            }
+        }
+    }
+}
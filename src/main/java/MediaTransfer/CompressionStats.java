@@ -0,0 +1,82 @@
+package MediaTransfer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按Topic累计的压缩统计：压缩前后的字节数、压缩率以及压缩/解压耗时
+ * 发送端统计每次传输（包括试压后放弃压缩的传输），接收端统计解压。
+ */
+public final class CompressionStats {
+    private static final Map<String, CompressionStats> TOPICS = new ConcurrentHashMap<>();
+
+    private final String topic;
+    private long transfers;
+    private long compressedTransfers;
+    private long rawBytes;
+    private long wireBytes;
+    private long compressNanos;
+    private long decompressedTransfers;
+    private long decompressNanos;
+
+    private CompressionStats(String topic) {
+        this.topic = topic;
+    }
+
+    public static CompressionStats forTopic(String topic) {
+        return TOPICS.computeIfAbsent(topic, CompressionStats::new);
+    }
+
+    public static List<CompressionStats> all() {
+        return new ArrayList<>(TOPICS.values());
+    }
+
+    /**
+     * 记录一次发送
+     * @param rawSize 压缩前大小
+     * @param wireSize 实际发送的大小（未压缩时等于rawSize）
+     * @param nanos 压缩（含试压）耗时
+     */
+    synchronized void encoded(int rawSize, int wireSize, long nanos) {
+        transfers++;
+        if (wireSize != rawSize) {
+            compressedTransfers++;
+        }
+        rawBytes += rawSize;
+        wireBytes += wireSize;
+        compressNanos += nanos;
+    }
+
+    synchronized void decoded(long nanos) {
+        decompressedTransfers++;
+        decompressNanos += nanos;
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    /**
+     * 发送字节数 / 原始字节数
+     */
+    public synchronized double getRatio() {
+        return rawBytes > 0 ? (double) wireBytes / rawBytes : 1.0;
+    }
+
+    public synchronized double getCompressMillis() {
+        return compressNanos / 1e6;
+    }
+
+    public synchronized double getDecompressMillis() {
+        return decompressNanos / 1e6;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%s: 发送 %d 次（压缩 %d 次）, %d -> %d bytes (%.1f%%), 压缩耗时 %.2f ms; 解压 %d 次, 耗时 %.2f ms",
+                topic, transfers, compressedTransfers, rawBytes, wireBytes, getRatio() * 100, getCompressMillis(),
+                decompressedTransfers, getDecompressMillis());
+    }
+}
@@ -0,0 +1,80 @@
+package MediaTransfer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 媒体内容哈希（SHA-256，小写十六进制）
+ * 文件的哈希按路径、大小和修改时间缓存，同一文件重复发送时不必重新读取计算。
+ */
+public final class ContentHash {
+    private static final int FILE_CACHE_SIZE = 64;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private static final Map<String, String> fileCache = new LinkedHashMap<String, String>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > FILE_CACHE_SIZE;
+        }
+    };
+
+    private ContentHash() {
+    }
+
+    public static String of(byte[] data) {
+        return of(data, 0, data.length);
+    }
+
+    public static String of(byte[] data, int offset, int length) {
+        MessageDigest digest = newDigest();
+        digest.update(data, offset, length);
+        return toHex(digest.digest());
+    }
+
+    public static String of(File file) throws IOException {
+        String key = file.getAbsolutePath() + "|" + file.length() + "|" + file.lastModified();
+        synchronized (fileCache) {
+            String hash = fileCache.get(key);
+            if (hash != null) {
+                return hash;
+            }
+        }
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, n);
+            }
+        }
+        String hash = toHex(digest.digest());
+        synchronized (fileCache) {
+            fileCache.put(key, hash);
+        }
+        return hash;
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // 所有Java平台都必须支持SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+            chars[i * 2 + 1] = HEX[bytes[i] & 0xF];
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,61 @@
+package MediaTransfer;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 接收端内容库：按内容哈希保存最近收到的完整媒体，总字节数超过上限时淘汰最久未使用的内容
+ * 发送端发来内容引用（而非完整数据）时，ChunkedReceiver从这里取出对应内容。
+ *
+ * 上限通过系统属性 media.contentStoreBytes 配置，默认32MB，0表示不保存。
+ */
+public class ContentStore {
+    public static final long DEFAULT_MAX_BYTES = 32L * 1024 * 1024;
+
+    private final long maxBytes;
+    private final Map<String, byte[]> contents = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+
+    public ContentStore() {
+        this(Long.getLong("media.contentStoreBytes", DEFAULT_MAX_BYTES));
+    }
+
+    public ContentStore(long maxBytes) {
+        this.maxBytes = Math.max(0, maxBytes);
+    }
+
+    /**
+     * 保存内容（调用方之后不应再修改data）
+     */
+    public synchronized void put(String hash, byte[] data) {
+        if (data.length > maxBytes) {
+            return;
+        }
+        byte[] old = contents.put(hash, data);
+        if (old != null) {
+            bytes -= old.length;
+        }
+        bytes += data.length;
+        Iterator<byte[]> it = contents.values().iterator();
+        while (bytes > maxBytes && it.hasNext()) {
+            bytes -= it.next().length;
+            it.remove();
+        }
+    }
+
+    /**
+     * @return 内容，不存在时返回null（返回的数组与内容库共用，不应修改）
+     */
+    public synchronized byte[] get(String hash) {
+        return contents.get(hash);
+    }
+
+    public synchronized int size() {
+        return contents.size();
+    }
+
+    public synchronized long bytes() {
+        return bytes;
+    }
+}
@@ -0,0 +1,121 @@
+package MediaTransfer;
+
+import IDL.EnergyRawData;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * EnergyRawData的打包压缩
+ * 打包后四个序列清空，packed中依次为：原始长度(int) + 压缩后的 [点数(int), 三组float序列, 以'\n'分隔的时间字符串]，
+ * encoding为压缩方式。接收端调用unpack()还原各序列；encoding为0的样本原样保留。
+ */
+public final class EnergyRawDataCodec {
+
+    private EnergyRawDataCodec() {
+    }
+
+    /**
+     * 打包压缩各序列，压缩无收益时保持原样
+     * @return 是否已打包
+     */
+    public static boolean pack(EnergyRawData data, PayloadCodec codec, CompressionStats stats) {
+        if (codec == PayloadCodec.NONE) {
+            return false;
+        }
+        long start = System.nanoTime();
+        int count = data.timeSeq.length();
+        StringBuilder times = new StringBuilder(count * 20);
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                times.append('\n');
+            }
+            times.append(data.timeSeq.get_at(i));
+        }
+        byte[] timeBytes = times.toString().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer raw = ByteBuffer.allocate(4 + count * 12 + timeBytes.length);
+        raw.putInt(count);
+        for (int i = 0; i < count; i++) {
+            raw.putFloat(data.currentPowerSeq.get_at(i));
+        }
+        for (int i = 0; i < count; i++) {
+            raw.putFloat(data.dailyConsumptionSeq.get_at(i));
+        }
+        for (int i = 0; i < count; i++) {
+            raw.putFloat(data.weeklyConsumptionSeq.get_at(i));
+        }
+        raw.put(timeBytes);
+
+        byte[] encoded = codec.encodeIfSmaller(raw.array());
+        // 按原样发送时的CDR大小：4个序列长度前缀、float数据、每个字符串的长度前缀和结尾0（不计对齐）
+        int plainSize = 16 + count * 12 + timeBytes.length - Math.max(0, count - 1) + count * 5;
+        if (encoded == null) {
+            stats.encoded(plainSize, plainSize, System.nanoTime() - start);
+            return false;
+        }
+
+        data.encoding = codec.id();
+        data.packed.ensure_length(4 + encoded.length, 4 + encoded.length);
+        ByteBuffer.wrap(data.packed.get_contiguous_buffer(), 0, 4 + encoded.length)
+                .putInt(raw.capacity())
+                .put(encoded);
+        data.currentPowerSeq.ensure_length(0, 0);
+        data.dailyConsumptionSeq.ensure_length(0, 0);
+        data.weeklyConsumptionSeq.ensure_length(0, 0);
+        data.timeSeq.ensure_length(0, 0);
+        stats.encoded(plainSize, data.packed.length(), System.nanoTime() - start);
+        return true;
+    }
+
+    /**
+     * 解压还原各序列
+     * @return 样本是否为打包格式
+     */
+    public static boolean unpack(EnergyRawData data) throws IOException {
+        if (data.encoding == PayloadCodec.NONE.id()) {
+            return false;
+        }
+        PayloadCodec codec;
+        try {
+            codec = PayloadCodec.fromId(data.encoding);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+        int packedLength = data.packed.length();
+        if (packedLength < 4) {
+            throw new IOException("打包数据不完整: " + packedLength + " bytes");
+        }
+        byte[] packed = data.packed.get_contiguous_buffer();
+        int rawSize = ByteBuffer.wrap(packed, 0, 4).getInt();
+        ByteBuffer raw = ByteBuffer.wrap(codec.decompress(packed, 4, packedLength - 4, rawSize));
+
+        int count = raw.getInt();
+        data.currentPowerSeq.ensure_length(count, count);
+        data.dailyConsumptionSeq.ensure_length(count, count);
+        data.weeklyConsumptionSeq.ensure_length(count, count);
+        data.timeSeq.ensure_length(count, count);
+        for (int i = 0; i < count; i++) {
+            data.currentPowerSeq.set_at(i, raw.getFloat());
+        }
+        for (int i = 0; i < count; i++) {
+            data.dailyConsumptionSeq.set_at(i, raw.getFloat());
+        }
+        for (int i = 0; i < count; i++) {
+            data.weeklyConsumptionSeq.set_at(i, raw.getFloat());
+        }
+        String times = new String(raw.array(), raw.position(), raw.remaining(), StandardCharsets.UTF_8);
+        int from = 0;
+        for (int i = 0; i < count; i++) {
+            int to = i == count - 1 ? times.length() : times.indexOf('\n', from);
+            if (to < 0) {
+                throw new IOException("时间序列不完整: " + i + "/" + count);
+            }
+            data.timeSeq.set_at(i, times.substring(from, to));
+            from = to + 1;
+        }
+        data.encoding = PayloadCodec.NONE.id();
+        data.packed.ensure_length(0, 0);
+        return true;
+    }
+}
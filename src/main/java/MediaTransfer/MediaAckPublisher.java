@@ -0,0 +1,75 @@
+package MediaTransfer;
+
+import IDL.MediaAck;
+import IDL.MediaAckDataWriter;
+import com.zrdds.infrastructure.InstanceHandle_t;
+import com.zrdds.infrastructure.ReturnCode_t;
+import com.zrdds.publication.DataWriterQos;
+import com.zrdds.publication.Publisher;
+import com.zrdds.topic.Topic;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 分片确认发布器（接收端使用）
+ * 把ChunkedReceiver生成的确认写到MediaAck主题，source字段标明所确认的媒体Topic。
+ * 同一进程内的各个确认发布器共用一个DataWriter，发送端匹配到的确认发布端数量即为接收端进程数。
+ */
+public class MediaAckPublisher implements ChunkedReceiver.AckWriter {
+    // 接收端标识：进程号@主机名，同一进程内的各个接收器共用
+    private static final String RECEIVER_ID = ManagementFactory.getRuntimeMXBean().getName();
+    private static final Map<Topic, MediaAckDataWriter> WRITERS = new HashMap<>();
+
+    private MediaAckDataWriter writer;
+    private String source;
+
+    /**
+     * @param pub DDS发布器
+     * @param ackTopic MediaAck主题
+     * @param source 所确认的媒体Topic名称
+     */
+    public boolean start(Publisher pub, Topic ackTopic, String source) {
+        this.source = source;
+
+        synchronized (WRITERS) {
+            writer = WRITERS.get(ackTopic);
+            if (writer == null) {
+                // 确认只需送达最新状态，丢失的确认会被后续确认覆盖
+                DataWriterQos dwQos = new DataWriterQos();
+                pub.get_default_datawriter_qos(dwQos);
+                dwQos.reliability.kind = com.zrdds.infrastructure.ReliabilityQosPolicyKind.RELIABLE_RELIABILITY_QOS;
+                dwQos.history.kind = com.zrdds.infrastructure.HistoryQosPolicyKind.KEEP_LAST_HISTORY_QOS;
+                dwQos.history.depth = 16;
+
+                writer = (MediaAckDataWriter) pub.create_datawriter(
+                        ackTopic,
+                        dwQos,
+                        null,
+                        com.zrdds.infrastructure.StatusKind.STATUS_MASK_NONE);
+
+                if (writer == null) {
+                    System.err.println("[MediaAckPublisher] 创建 MediaAck DataWriter 失败: " + source);
+                    return false;
+                }
+                WRITERS.put(ackTopic, writer);
+            }
+        }
+        System.out.println("[MediaAckPublisher] 分片确认发布器启动成功: " + source);
+        return true;
+    }
+
+    @Override
+    public void write(MediaAck ack) {
+        if (writer == null) {
+            return;
+        }
+        ack.source = source;
+        ack.receiverId = RECEIVER_ID;
+        ReturnCode_t rtn = writer.write(ack, InstanceHandle_t.HANDLE_NIL_NATIVE);
+        if (rtn != ReturnCode_t.RETCODE_OK) {
+            System.err.printf("[MediaAckPublisher] 发送确认失败: id=%s, 返回码: %s\n", ack.transferId, rtn);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package MediaTransfer;
+
+import IDL.MediaAck;
+import IDL.MediaAckDataReader;
+import IDL.MediaAckSeq;
+import com.zrdds.infrastructure.*;
+import com.zrdds.subscription.DataReader;
+import com.zrdds.subscription.DataReaderListener;
+import com.zrdds.subscription.DataReaderQos;
+import com.zrdds.subscription.Subscriber;
+import com.zrdds.topic.Topic;
+
+/**
+ * 分片确认订阅器（发送端使用）
+ * 读取MediaAck主题中属于指定媒体Topic的确认并交给ChunkedSender，
+ * 同时把匹配到的确认发布端数量告知ChunkedSender，作为接收端数量的上限
+ * （这些进程未必接收本Topic，是否启用窗口由实际回报过本Topic确认的接收端决定）。
+ */
+public class MediaAckSubscriber {
+    private String source;
+    private ChunkedSender sender;
+
+    /**
+     * @param sub DDS订阅器
+     * @param ackTopic MediaAck主题
+     * @param source 发送端的媒体Topic名称
+     * @param sender 接收确认的分片发送器
+     */
+    public boolean start(Subscriber sub, Topic ackTopic, String source, ChunkedSender sender) {
+        this.source = source;
+        this.sender = sender;
+
+        DataReaderQos drQos = new DataReaderQos();
+        sub.get_default_datareader_qos(drQos);
+        drQos.reliability.kind = ReliabilityQosPolicyKind.RELIABLE_RELIABILITY_QOS;
+        drQos.history.kind = HistoryQosPolicyKind.KEEP_LAST_HISTORY_QOS;
+        drQos.history.depth = 16;
+
+        DataReader reader = sub.create_datareader(
+                ackTopic,
+                drQos,
+                new AckListener(),
+                StatusKind.STATUS_MASK_ALL);
+
+        if (reader == null) {
+            System.err.println("[MediaAckSubscriber] 创建 MediaAck DataReader 失败: " + source);
+            return false;
+        }
+        System.out.println("[MediaAckSubscriber] 分片确认订阅器启动成功: " + source);
+        return true;
+    }
+
+    private class AckListener implements DataReaderListener {
+        @Override
+        public void on_data_available(DataReader reader) {
+            MediaAckDataReader ackReader = (MediaAckDataReader) reader;
+            MediaAckSeq dataSeq = new MediaAckSeq();
+            SampleInfoSeq infoSeq = new SampleInfoSeq();
+
+            try {
+                ackReader.take(dataSeq, infoSeq,
+                        ResourceLimitsQosPolicy.LENGTH_UNLIMITED,
+                        SampleStateKind.ANY_SAMPLE_STATE,
+                        ViewStateKind.ANY_VIEW_STATE,
+                        InstanceStateKind.ANY_INSTANCE_STATE);
+
+                for (int i = 0; i < dataSeq.length(); i++) {
+                    if (infoSeq.get_at(i).valid_data) {
+                        MediaAck ack = dataSeq.get_at(i);
+                        if (source.equals(ack.source)) {
+                            sender.onAck(ack);
+                        }
+                    }
+                }
+            } catch (Exception e) {
+                System.err.println("[MediaAckSubscriber] 读取确认异常: " + e.getMessage());
+            } finally {
+                ackReader.return_loan(dataSeq, infoSeq);
+            }
+        }
+
+        @Override
+        public void on_subscription_matched(DataReader reader, SubscriptionMatchedStatus status) {
+            sender.setAckPeers(status.current_count);
+            System.out.printf("[MediaAckSubscriber] %s 匹配的确认发布端数量: %d\n", source, status.current_count);
+        }
+
+        @Override
+        public void on_requested_deadline_missed(DataReader reader, RequestedDeadlineMissedStatus status) {}
+
+        @Override
+        public void on_requested_incompatible_qos(DataReader reader, RequestedIncompatibleQosStatus status) {}
+
+        @Override
+        public void on_sample_rejected(DataReader reader, SampleRejectedStatus status) {}
+
+        @Override
+        public void on_liveliness_changed(DataReader reader, LivelinessChangedStatus status) {}
+
+        @Override
+        public void on_sample_lost(DataReader reader, SampleLostStatus status) {}
+
+        @Override
+        public void on_data_arrived(DataReader reader, Object o, SampleInfo sampleInfo) {}
+    }
+}
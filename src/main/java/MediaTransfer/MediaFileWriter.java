@@ -0,0 +1,149 @@
+package MediaTransfer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 接收端的异步落盘：把接收完成的媒体交给后台线程写入文件，DDS监听线程只负责入队，不等待磁盘。
+ * 每个文件先按偏移写入同目录的临时文件，写完后再改名为目标文件，读取方不会看到写了一半的文件。
+ *
+ * 排队中尚未写出的字节数有上限（系统属性 media.writerPendingBytes，默认64MB），
+ * 超过上限时write()阻塞到后台线程追上为止，磁盘持续慢于网络时不会无限占用内存。
+ * 直接写盘的负载（ReceivedPayload.isFile()）已经在磁盘上，save()只在后台线程中把文件移动到保存位置。
+ */
+public class MediaFileWriter {
+    public static final long DEFAULT_MAX_PENDING_BYTES = 64L * 1024 * 1024;
+
+    private static final String TMP_SUFFIX = ".tmp";
+
+    private final String tag;
+    private final long maxPendingBytes;
+    private final ExecutorService executor;
+    private long pendingBytes;
+
+    public MediaFileWriter(String tag) {
+        this(tag, Long.getLong("media.writerPendingBytes", DEFAULT_MAX_PENDING_BYTES));
+    }
+
+    public MediaFileWriter(String tag, long maxPendingBytes) {
+        this.tag = tag;
+        this.maxPendingBytes = Math.max(0, maxPendingBytes);
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, tag + "-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 提交写入（调用方之后不应再修改data），文件按提交顺序写出
+     * @param label 日志中的文件说明，如"媒体"、"趋势图"
+     */
+    public void write(File target, byte[] data, String label) {
+        long queuedNanos = System.nanoTime();
+        reserve(data.length);
+        executor.execute(() -> {
+            long start = System.nanoTime();
+            try {
+                writeFile(target, data);
+                System.out.printf("[%s] %s保存成功: %s, size=%d bytes, 排队 %.1f ms, 写入 %.1f ms\n", tag, label,
+                        target.getPath(), data.length, (start - queuedNanos) / 1e6,
+                        (System.nanoTime() - start) / 1e6);
+            } catch (IOException e) {
+                System.err.printf("[%s] 保存%s失败: %s, %s\n", tag, label, target.getPath(), e.getMessage());
+            } finally {
+                release(data.length);
+            }
+        });
+    }
+
+    /**
+     * 保存接收完成的负载：内存中的按write()写出，文件负载移动到target（同一文件系统内为改名）
+     */
+    public void save(File target, ReceivedPayload payload, String label) {
+        if (!payload.isFile()) {
+            write(target, payload.data, label);
+            return;
+        }
+        File source = payload.file;
+        executor.execute(() -> {
+            long start = System.nanoTime();
+            try {
+                makeParentDirs(target);
+                move(source, target);
+                System.out.printf("[%s] %s保存成功: %s, size=%d bytes, 移动 %.1f ms\n", tag, label,
+                        target.getPath(), payload.size(), (System.nanoTime() - start) / 1e6);
+            } catch (IOException e) {
+                System.err.printf("[%s] 保存%s失败: %s, %s\n", tag, label, target.getPath(), e.getMessage());
+                source.delete();
+            }
+        });
+    }
+
+    /**
+     * 单个文件超过上限时不等待其他文件写完，避免永久阻塞
+     */
+    private synchronized void reserve(int bytes) {
+        boolean interrupted = false;
+        while (pendingBytes > 0 && pendingBytes + bytes > maxPendingBytes) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        pendingBytes += bytes;
+    }
+
+    private synchronized void release(int bytes) {
+        pendingBytes -= bytes;
+        notifyAll();
+    }
+
+    /**
+     * 排队中尚未写出的字节数
+     */
+    public synchronized long getPendingBytes() {
+        return pendingBytes;
+    }
+
+    private static void writeFile(File target, byte[] data) throws IOException {
+        makeParentDirs(target);
+        File tmp = new File(target.getPath() + TMP_SUFFIX);
+        try (FileChannel channel = FileChannel.open(tmp.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, buffer.position());
+            }
+        }
+        move(tmp, target);
+    }
+
+    private static void makeParentDirs(File target) throws IOException {
+        File dir = target.getAbsoluteFile().getParentFile();
+        if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("创建保存目录失败: " + dir);
+        }
+    }
+
+    private static void move(File source, File target) throws IOException {
+        try {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package MediaTransfer;
+
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * 媒体分片调度器（同一进程的各个ChunkedSender共用）
+ * 各传输仍在调用方线程中读取、填充分片，但每次写出前须先取得调度器的发送权，同一时刻只有一个分片在写出。
+ * 等待中的传输按优先级排队：报警媒体先于报表；同一优先级内按到达顺序轮转，每个传输写出一个分片后重新排到队尾，
+ * 多个并发传输因此逐块交替，大的报表不会连续占用发布器而推迟报警图片。
+ * 低优先级的分片等待超过AGING_NANOS时不再让行，避免持续的报警使报表饿死。
+ *
+ * 调度器不复制分片数据：排队的只是等待发送权的线程，每个传输只占用自己的一个样本和Blob，内存占用与并发传输数成正比。
+ * 每个分片的排队时间计入该传输的TransferStats，并按优先级累计。
+ */
+public final class MediaScheduler {
+
+    /**
+     * 优先级（按声明顺序从高到低）
+     */
+    public enum Priority {
+        ALERT,
+        REPORT
+    }
+
+    // 低优先级分片的最长等待时间，超过后按到达顺序发送
+    private static final long AGING_NANOS = 500_000_000L;
+
+    private static final MediaScheduler SHARED = new MediaScheduler();
+
+    private final Map<Priority, ArrayDeque<Ticket>> queues = new EnumMap<>(Priority.class);
+    private final Map<Priority, long[]> waits = new EnumMap<>(Priority.class);
+    // 是否有分片正在写出
+    private boolean busy;
+
+    public MediaScheduler() {
+        for (Priority priority : Priority.values()) {
+            queues.put(priority, new ArrayDeque<>());
+            // {分片数, 排队总时间, 最长排队时间}
+            waits.put(priority, new long[3]);
+        }
+    }
+
+    public static MediaScheduler shared() {
+        return SHARED;
+    }
+
+    /**
+     * 等待发送权，取得后必须调用release()
+     * @return 排队时间（纳秒）
+     */
+    public synchronized long acquire(Priority priority) {
+        long start = System.nanoTime();
+        if (!busy && isIdle()) {
+            busy = true;
+            record(priority, 0);
+            return 0;
+        }
+        Ticket ticket = new Ticket(start);
+        queues.get(priority).addLast(ticket);
+        boolean interrupted = false;
+        while (!ticket.granted) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                // 已在队列中，仍须等到发送权再交还
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        long waited = System.nanoTime() - start;
+        record(priority, waited);
+        return waited;
+    }
+
+    /**
+     * 交还发送权，交给下一个排队的分片
+     */
+    public synchronized void release() {
+        Ticket next = next();
+        if (next == null) {
+            busy = false;
+            return;
+        }
+        next.granted = true;
+        notifyAll();
+    }
+
+    private boolean isIdle() {
+        for (ArrayDeque<Ticket> queue : queues.values()) {
+            if (!queue.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Ticket next() {
+        long now = System.nanoTime();
+        ArrayDeque<Ticket> first = null;
+        for (ArrayDeque<Ticket> queue : queues.values()) {
+            Ticket head = queue.peekFirst();
+            if (head == null) {
+                continue;
+            }
+            if (first == null) {
+                first = queue;
+            } else if (now - head.enqueuedNanos > AGING_NANOS) {
+                return queue.pollFirst();
+            }
+        }
+        return first != null ? first.pollFirst() : null;
+    }
+
+    private void record(Priority priority, long waited) {
+        long[] stats = waits.get(priority);
+        stats[0]++;
+        stats[1] += waited;
+        stats[2] = Math.max(stats[2], waited);
+    }
+
+    /**
+     * 该优先级的平均排队时间（毫秒）
+     */
+    public synchronized double getAverageWaitMillis(Priority priority) {
+        long[] stats = waits.get(priority);
+        return stats[0] > 0 ? stats[1] / 1e6 / stats[0] : 0;
+    }
+
+    /**
+     * 该优先级的最长排队时间（毫秒）
+     */
+    public synchronized double getMaxWaitMillis(Priority priority) {
+        return waits.get(priority)[2] / 1e6;
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (Priority priority : Priority.values()) {
+            long[] stats = waits.get(priority);
+            if (sb.length() > 0) {
+                sb.append("; ");
+            }
+            sb.append(String.format("%s: %d 块, 平均排队 %.2f ms, 最长 %.2f ms, 等待中 %d",
+                    priority, stats[0], getAverageWaitMillis(priority), getMaxWaitMillis(priority),
+                    queues.get(priority).size()));
+        }
+        return sb.toString();
+    }
+
+    private static final class Ticket {
+        final long enqueuedNanos;
+        boolean granted;
+
+        Ticket(long enqueuedNanos) {
+            this.enqueuedNanos = enqueuedNanos;
+        }
+    }
+}
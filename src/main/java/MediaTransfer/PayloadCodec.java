@@ -0,0 +1,286 @@
+package MediaTransfer;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Exception;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4SafeDecompressor;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 负载压缩方式（样本中的encoding字段）
+ * LZ4速度快，适合较大的负载；Deflate压缩率高，适合SVG、图表描述等文本负载。
+ * JPEG、PNG等已压缩的格式通常无法再缩小，encodeIfSmaller()先试压开头一段，缩小不明显时不再整体压缩。
+ *
+ * 各Topic的压缩方式通过系统属性 media.compression.Topic名称 配置（none / lz4 / deflate），
+ * 未配置时使用 media.compression，再未配置时使用调用方给出的默认值。
+ *
+ * 解压的输入和样本中的压缩前大小都来自网络：解压前按maxRawSize()检查压缩前大小，LZ4使用会检查边界的安全解压器。
+ */
+public enum PayloadCodec {
+    NONE(0),
+    LZ4(1),
+    DEFLATE(2);
+
+    // 试压的数据量
+    private static final int PROBE_SIZE = 64 * 1024;
+    // 压缩结果不超过原大小的该比例才使用
+    private static final double MAX_RATIO = 0.9;
+    // 各压缩格式理论上的最大压缩比（LZ4每个字节最多展开为255字节，Deflate为1032）
+    private static final int LZ4_MAX_EXPANSION = 255;
+    private static final int DEFLATE_MAX_EXPANSION = 1032;
+
+    private static final boolean LZ4_AVAILABLE = lz4Available();
+
+    private final int id;
+
+    PayloadCodec(int id) {
+        this.id = id;
+    }
+
+    public int id() {
+        return id;
+    }
+
+    /**
+     * MediaAck.codecs中对应的位
+     */
+    public int mask() {
+        return 1 << id;
+    }
+
+    public boolean isAvailable() {
+        return this != LZ4 || LZ4_AVAILABLE;
+    }
+
+    public static PayloadCodec fromId(int id) {
+        for (PayloadCodec codec : values()) {
+            if (codec.id == id) {
+                return codec;
+            }
+        }
+        throw new IllegalArgumentException("未知的压缩方式: " + id);
+    }
+
+    /**
+     * 本进程能够解压的压缩方式（按位）
+     */
+    public static int supportedMask() {
+        int mask = 0;
+        for (PayloadCodec codec : values()) {
+            if (codec.isAvailable()) {
+                mask |= codec.mask();
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * 读取Topic的压缩配置
+     */
+    public static PayloadCodec forTopic(String topicName, PayloadCodec defaultCodec) {
+        String value = System.getProperty("media.compression." + topicName, System.getProperty("media.compression"));
+        if (value == null || value.trim().isEmpty()) {
+            return defaultCodec.isAvailable() ? defaultCodec : NONE;
+        }
+        try {
+            PayloadCodec codec = valueOf(value.trim().toUpperCase(Locale.ROOT));
+            if (!codec.isAvailable()) {
+                System.err.printf("[PayloadCodec] %s 不可用，%s 不压缩\n", codec, topicName);
+                return NONE;
+            }
+            return codec;
+        } catch (IllegalArgumentException e) {
+            System.err.printf("[PayloadCodec] 无效的压缩配置: %s=%s，不压缩\n", topicName, value);
+            return NONE;
+        }
+    }
+
+    /**
+     * 压缩整个负载
+     * @return 压缩结果；压缩后缩小不明显（或为NONE）时返回null，应按原样发送
+     */
+    public byte[] encodeIfSmaller(byte[] data) {
+        if (this == NONE || data.length == 0) {
+            return null;
+        }
+        if (data.length > PROBE_SIZE && compress(data, 0, PROBE_SIZE).length > PROBE_SIZE * MAX_RATIO) {
+            return null;
+        }
+        byte[] encoded = compress(data, 0, data.length);
+        return encoded.length <= data.length * MAX_RATIO ? encoded : null;
+    }
+
+    public byte[] compress(byte[] src, int offset, int length) {
+        switch (this) {
+            case LZ4:
+                return Lz4.COMPRESSOR.compress(src, offset, length);
+            case DEFLATE:
+                return deflate(src, offset, length);
+            default:
+                return Arrays.copyOfRange(src, offset, offset + length);
+        }
+    }
+
+    /**
+     * length字节的压缩数据解压后最多可能的大小，样本中声明的压缩前大小超过它时数据必然无效
+     */
+    public long maxRawSize(long length) {
+        switch (this) {
+            case LZ4:
+                return length * LZ4_MAX_EXPANSION;
+            case DEFLATE:
+                return length * DEFLATE_MAX_EXPANSION;
+            default:
+                return length;
+        }
+    }
+
+    /**
+     * @param rawSize 压缩前的大小（来自样本头部，不可信）
+     */
+    public byte[] decompress(byte[] src, int offset, int length, int rawSize) throws IOException {
+        checkRawSize(length, rawSize);
+        switch (this) {
+            case LZ4:
+                try {
+                    byte[] raw = new byte[rawSize];
+                    int written = Lz4.DECOMPRESSOR.decompress(src, offset, length, raw, 0, rawSize);
+                    if (written != rawSize) {
+                        throw new IOException("LZ4数据长度不符: " + written + "/" + rawSize);
+                    }
+                    return raw;
+                } catch (LZ4Exception e) {
+                    throw new IOException("LZ4数据损坏: " + e.getMessage(), e);
+                }
+            case DEFLATE:
+                return inflate(src, offset, length, rawSize);
+            default:
+                if (length != rawSize) {
+                    throw new IOException("数据长度不符: " + length + "/" + rawSize);
+                }
+                return Arrays.copyOfRange(src, offset, offset + length);
+        }
+    }
+
+    /**
+     * 在文件之间解压（两端都映射到内存，不在堆上分配负载大小的数组）
+     * @param src 压缩数据，从位置0开始共length字节
+     * @param dst 解压结果写到位置0开始的rawSize字节，须以读写方式打开
+     */
+    public void decompress(FileChannel src, long length, FileChannel dst, int rawSize) throws IOException {
+        checkRawSize(length, rawSize);
+        ByteBuffer in = src.map(FileChannel.MapMode.READ_ONLY, 0, length);
+        ByteBuffer out = dst.map(FileChannel.MapMode.READ_WRITE, 0, rawSize);
+        switch (this) {
+            case LZ4:
+                try {
+                    int written = Lz4.DECOMPRESSOR.decompress(in, 0, (int) length, out, 0, rawSize);
+                    if (written != rawSize) {
+                        throw new IOException("LZ4数据长度不符: " + written + "/" + rawSize);
+                    }
+                } catch (LZ4Exception e) {
+                    throw new IOException("LZ4数据损坏: " + e.getMessage(), e);
+                }
+                return;
+            case DEFLATE:
+                inflate(in, out, rawSize);
+                return;
+            default:
+                if (length != rawSize) {
+                    throw new IOException("数据长度不符: " + length + "/" + rawSize);
+                }
+                out.put(in);
+        }
+    }
+
+    private void checkRawSize(long length, int rawSize) throws IOException {
+        if (rawSize < 0 || rawSize > maxRawSize(length)) {
+            throw new IOException("压缩前大小无效: " + rawSize + " (压缩后 " + length + " bytes)");
+        }
+    }
+
+    private static byte[] deflate(byte[] src, int offset, int length) {
+        Deflater deflater = new Deflater();
+        try {
+            deflater.setInput(src, offset, length);
+            deflater.finish();
+            byte[] out = new byte[Math.max(64, length / 2)];
+            int n = 0;
+            while (!deflater.finished()) {
+                if (n == out.length) {
+                    out = Arrays.copyOf(out, out.length * 2);
+                }
+                n += deflater.deflate(out, n, out.length - n);
+            }
+            return Arrays.copyOf(out, n);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] src, int offset, int length, int rawSize) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(src, offset, length);
+            byte[] raw = new byte[rawSize];
+            int n = 0;
+            while (n < rawSize && !inflater.finished()) {
+                int inflated = inflater.inflate(raw, n, rawSize - n);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                n += inflated;
+            }
+            if (n != rawSize || !inflater.finished()) {
+                throw new IOException("Deflate数据长度不符: " + n + "/" + rawSize);
+            }
+            return raw;
+        } catch (DataFormatException e) {
+            throw new IOException("Deflate数据损坏: " + e.getMessage(), e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static void inflate(ByteBuffer in, ByteBuffer out, int rawSize) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(in);
+            while (out.hasRemaining() && !inflater.finished()) {
+                if (inflater.inflate(out) == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+            }
+            if (out.position() != rawSize || !inflater.finished()) {
+                throw new IOException("Deflate数据长度不符: " + out.position() + "/" + rawSize);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Deflate数据损坏: " + e.getMessage(), e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static boolean lz4Available() {
+        try {
+            Class.forName("net.jpountz.lz4.LZ4Factory");
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    // 只在用到LZ4时才加载
+    private static final class Lz4 {
+        static final LZ4Compressor COMPRESSOR = LZ4Factory.fastestInstance().fastCompressor();
+        static final LZ4SafeDecompressor DECOMPRESSOR = LZ4Factory.fastestInstance().safeDecompressor();
+    }
+}
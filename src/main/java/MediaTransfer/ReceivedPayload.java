@@ -0,0 +1,61 @@
+package MediaTransfer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * 接收完成的负载：较小的传输在内存中，直接写盘的传输是落盘目录中的一个文件（见ChunkedReceiver.setStreamThreshold）
+ * 文件由调用方接管：交给MediaFileWriter.save()移动到保存位置，或不再需要时调用discard()删除。
+ */
+public final class ReceivedPayload {
+    final byte[] data;
+    final File file;
+    private final long size;
+
+    private ReceivedPayload(byte[] data, File file, long size) {
+        this.data = data;
+        this.file = file;
+        this.size = size;
+    }
+
+    static ReceivedPayload of(byte[] data) {
+        return new ReceivedPayload(data, null, data.length);
+    }
+
+    static ReceivedPayload ofFile(File file, long size) {
+        return new ReceivedPayload(null, file, size);
+    }
+
+    public boolean isFile() {
+        return file != null;
+    }
+
+    /**
+     * 内存中的负载返回null
+     */
+    public File file() {
+        return file;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    /**
+     * 负载数据；文件负载从磁盘读取（只应用于已知较小的负载）
+     * 返回的数组可能与内容库共用，调用方不应修改
+     */
+    public byte[] bytes() throws IOException {
+        return data != null ? data : Files.readAllBytes(file.toPath());
+    }
+
+    /**
+     * 删除文件负载
+     */
+    public void discard() {
+        if (file != null) {
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package MediaTransfer;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+
+/**
+ * 未完成传输的落盘数据（接收端续传用）
+ * 每个传输对应两个文件：.part按偏移保存已收到的分片数据，.meta保存传输参数和已收到的分片位图。
+ * 位图只在对应分片写入.part之后才更新，重启后按位图恢复的分片都是完整的。
+ *
+ * 直接写盘的传输（见ChunkedReceiver.setStreamThreshold）不在堆上保留数据，.part就是唯一的副本：
+ * 创建时按总大小预留稀疏文件，收齐后由finish()交给调用方。
+ */
+final class TransferSpill {
+    private static final int MAGIC = 0x4D535031;
+    private static final String DATA_SUFFIX = ".part";
+    private static final String META_SUFFIX = ".meta";
+
+    /**
+     * 落盘时记录的传输参数和进度
+     */
+    static final class Snapshot {
+        String transferId;
+        String sessionId;
+        String contentHash;
+        int encoding;
+        int rawSize;
+        int totalSize;
+        int stride;
+        BitSet received;
+        // 直接写盘的传输不读入内存，为null
+        byte[] data;
+    }
+
+    private final File dataFile;
+    private final File metaFile;
+    private final FileChannel channel;
+
+    private TransferSpill(File dir, String transferId) throws IOException {
+        String name = fileName(transferId);
+        this.dataFile = new File(dir, name + DATA_SUFFIX);
+        this.metaFile = new File(dir, name + META_SUFFIX);
+        this.channel = FileChannel.open(dataFile.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * 为新传输创建落盘文件（同名的旧文件被覆盖）
+     */
+    static TransferSpill create(File dir, String transferId) throws IOException {
+        Files.deleteIfExists(new File(dir, fileName(transferId) + META_SUFFIX).toPath());
+        TransferSpill spill = new TransferSpill(dir, transferId);
+        spill.channel.truncate(0);
+        return spill;
+    }
+
+    /**
+     * 读取落盘的传输，继续在原文件上追加分片
+     * @return 没有该传输的落盘数据时返回null
+     */
+    static TransferSpill open(File dir, String transferId) throws IOException {
+        File metaFile = new File(dir, fileName(transferId) + META_SUFFIX);
+        if (!metaFile.isFile()) {
+            return null;
+        }
+        return new TransferSpill(dir, transferId);
+    }
+
+    /**
+     * 按总大小预留文件（只写最后一个字节，文件系统支持时中间部分不占用磁盘）
+     */
+    void allocate(int totalSize) throws IOException {
+        if (channel.size() < totalSize) {
+            channel.write(ByteBuffer.wrap(new byte[1]), totalSize - 1);
+        }
+    }
+
+    /**
+     * @param readData 是否把已收到的数据读入Snapshot.data
+     */
+    Snapshot load(boolean readData) throws IOException {
+        Snapshot snapshot = new Snapshot();
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(metaFile.toPath()))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("落盘数据格式不符: " + metaFile);
+            }
+            snapshot.transferId = in.readUTF();
+            snapshot.sessionId = in.readUTF();
+            snapshot.contentHash = in.readUTF();
+            snapshot.encoding = in.readInt();
+            snapshot.rawSize = in.readInt();
+            snapshot.totalSize = in.readInt();
+            snapshot.stride = in.readInt();
+            byte[] bits = new byte[in.readInt()];
+            in.readFully(bits);
+            snapshot.received = BitSet.valueOf(bits);
+        }
+        if (snapshot.totalSize <= 0 || snapshot.stride <= 0) {
+            throw new IOException("落盘数据格式不符: " + metaFile);
+        }
+        if (!readData) {
+            return snapshot;
+        }
+        // .part只写到已收到的最大分片为止，之后的部分由位图标记为未收到
+        snapshot.data = new byte[snapshot.totalSize];
+        ByteBuffer buffer = ByteBuffer.wrap(snapshot.data, 0, (int) Math.min(channel.size(), snapshot.totalSize));
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, buffer.position()) < 0) {
+                throw new IOException("落盘数据不完整: " + dataFile);
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * @param data 整个传输的数据（数组中的偏移即文件中的偏移）
+     */
+    void writeChunk(byte[] data, int offset, int length) throws IOException {
+        writeChunk(data, offset, length, offset);
+    }
+
+    /**
+     * 把src[srcOffset, srcOffset + length)写到文件的position处
+     */
+    void writeChunk(byte[] src, int srcOffset, int length, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(src, srcOffset, length);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position() - srcOffset);
+        }
+    }
+
+    /**
+     * 更新传输参数和已收到的分片位图（先写临时文件再替换，中途退出不会留下损坏的.meta）
+     */
+    void saveMeta(Snapshot snapshot) throws IOException {
+        File tmp = new File(metaFile.getPath() + ".tmp");
+        try (OutputStream file = Files.newOutputStream(tmp.toPath());
+             DataOutputStream out = new DataOutputStream(file)) {
+            out.writeInt(MAGIC);
+            out.writeUTF(snapshot.transferId);
+            out.writeUTF(snapshot.sessionId);
+            out.writeUTF(snapshot.contentHash != null ? snapshot.contentHash : "");
+            out.writeInt(snapshot.encoding);
+            out.writeInt(snapshot.rawSize);
+            out.writeInt(snapshot.totalSize);
+            out.writeInt(snapshot.stride);
+            byte[] bits = snapshot.received.toByteArray();
+            out.writeInt(bits.length);
+            out.write(bits);
+        }
+        try {
+            Files.move(tmp.toPath(), metaFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp.toPath(), metaFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    void close() {
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * 传输完成：关闭并删除.meta，返回.part（由调用方接管）
+     */
+    File finish() {
+        close();
+        metaFile.delete();
+        return dataFile;
+    }
+
+    /**
+     * 关闭并删除落盘文件
+     */
+    void delete() {
+        close();
+        dataFile.delete();
+        metaFile.delete();
+    }
+
+    /**
+     * 删除超过maxAgeMillis未更新的落盘文件
+     * @return 保留的未完成传输数量
+     */
+    static int purge(File dir, long maxAgeMillis) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return 0;
+        }
+        long expired = System.currentTimeMillis() - maxAgeMillis;
+        int pending = 0;
+        for (File file : files) {
+            if (file.lastModified() < expired) {
+                file.delete();
+            } else if (file.getName().endsWith(META_SUFFIX)) {
+                pending++;
+            }
+        }
+        return pending;
+    }
+
+    /**
+     * 传输ID中可能含有路径分隔符等字符，替换后加上ID的哈希，避免不同ID映射到同一文件
+     */
+    private static String fileName(String transferId) {
+        String hash = ContentHash.of(transferId.getBytes(StandardCharsets.UTF_8)).substring(0, 8);
+        return transferId.replaceAll("[^A-Za-z0-9._-]", "_") + "-" + hash;
+    }
+}
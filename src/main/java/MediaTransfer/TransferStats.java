@@ -0,0 +1,144 @@
+package MediaTransfer;
+
+/**
+ * 单次分片传输的统计：字节数、分片数、首个分片延迟、总耗时与吞吐量
+ * 发送端从开始发送计时，接收端从收到第一个分片计时；发送端使用MediaScheduler时另记分片的排队时间。
+ */
+public final class TransferStats {
+    private final String transferId;
+    private final long totalBytes;
+    private final int totalChunks;
+    private final long startNanos;
+    private long firstChunkNanos;
+    private long endNanos;
+    private int chunks;
+    private long bytes;
+    private int retransmits;
+    private long queueNanos;
+    private long maxQueueNanos;
+    private boolean failed;
+    private boolean referenced;
+
+    TransferStats(String transferId, long totalBytes, int totalChunks) {
+        this.transferId = transferId;
+        this.totalBytes = totalBytes;
+        this.totalChunks = totalChunks;
+        this.startNanos = System.nanoTime();
+    }
+
+    void chunkDone(int length) {
+        if (chunks++ == 0) {
+            firstChunkNanos = System.nanoTime();
+        }
+        bytes += length;
+    }
+
+    void retransmitted() {
+        retransmits++;
+    }
+
+    void queued(long nanos) {
+        queueNanos += nanos;
+        maxQueueNanos = Math.max(maxQueueNanos, nanos);
+    }
+
+    void referenced() {
+        referenced = true;
+    }
+
+    void fail() {
+        failed = true;
+    }
+
+    void finish() {
+        endNanos = System.nanoTime();
+    }
+
+    public String getTransferId() {
+        return transferId;
+    }
+
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public int getTotalChunks() {
+        return totalChunks;
+    }
+
+    public int getChunks() {
+        return chunks;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * 重传的分片数
+     */
+    public int getRetransmits() {
+        return retransmits;
+    }
+
+    /**
+     * 各分片等待MediaScheduler发送权的总时间（毫秒）
+     */
+    public double getQueueMillis() {
+        return queueNanos / 1e6;
+    }
+
+    /**
+     * 单个分片的最长排队时间（毫秒）
+     */
+    public double getMaxQueueMillis() {
+        return maxQueueNanos / 1e6;
+    }
+
+    public boolean isComplete() {
+        return !failed && endNanos != 0 && (referenced || chunks == totalChunks);
+    }
+
+    /**
+     * 是否只发送了内容引用（接收端已有相同内容）
+     */
+    public boolean isReferenced() {
+        return referenced;
+    }
+
+    /**
+     * 开始到第一个分片完成的耗时（毫秒）
+     */
+    public double getFirstChunkMillis() {
+        return chunks > 0 ? (firstChunkNanos - startNanos) / 1e6 : 0;
+    }
+
+    /**
+     * 开始到结束（尚未结束时到当前）的耗时（毫秒）
+     */
+    public double getElapsedMillis() {
+        return ((endNanos != 0 ? endNanos : System.nanoTime()) - startNanos) / 1e6;
+    }
+
+    /**
+     * 吞吐量（MB/s）
+     */
+    public double getThroughputMBps() {
+        double seconds = getElapsedMillis() / 1000.0;
+        return seconds > 0 ? bytes / 1048576.0 / seconds : 0;
+    }
+
+    @Override
+    public String toString() {
+        if (referenced) {
+            return String.format("id=%s, 引用已有内容 %d bytes, 耗时 %.1f ms", transferId, totalBytes, getElapsedMillis());
+        }
+        String text = String.format("id=%s, %d/%d bytes, %d/%d 块, 重传 %d 块, 首块 %.2f ms, 耗时 %.1f ms, %.2f MB/s",
+                transferId, bytes, totalBytes, chunks, totalChunks, retransmits, getFirstChunkMillis(),
+                getElapsedMillis(), getThroughputMBps());
+        if (queueNanos > 0) {
+            text += String.format(", 排队 %.1f ms（单块最长 %.2f ms）", getQueueMillis(), getMaxQueueMillis());
+        }
+        return text;
+    }
+}
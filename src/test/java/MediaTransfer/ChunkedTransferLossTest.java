@@ -0,0 +1,141 @@
+package MediaTransfer;
+
+import IDL.Blob;
+import IDL.MediaAck;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 有损链路上的窗口传输：进程内的模拟链路按固定种子丢弃分片和确认，
+ * 数据必须完整到达，且重传只补发确实丢失的分片
+ */
+class ChunkedTransferLossTest {
+
+    private static final int CHUNK_SIZE = 4096;
+    private static final int PAYLOAD_SIZE = 4 << 20;
+    private static final long LINK_DELAY_MICROS = 500;
+
+    @Test
+    void lossyLinkDeliversIdenticalPayload() throws InterruptedException {
+        Result result = transfer(0.05, 0.05);
+        int totalChunks = PAYLOAD_SIZE / CHUNK_SIZE;
+        System.out.printf("[ChunkedTransferLossTest] %d 块, 丢弃分片 %d, 丢弃确认 %d, 重传 %d (其中已送达的 %d)\n",
+                totalChunks, result.droppedChunks, result.droppedAcks, result.retransmits, result.needless);
+
+        assertTrue(result.stats.isComplete(), "传输未完成: " + result.stats);
+        assertArrayEquals(result.sent, result.received, "到达的数据与发送的不一致");
+        assertTrue(result.droppedChunks > 0 && result.droppedAcks > 0, "模拟链路没有丢包");
+        assertEquals(result.retransmits, result.stats.getRetransmits());
+        // 每个丢失的分片至少重传一次；已送达分片的重传只来自确认丢失后的超时探测
+        assertTrue(result.retransmits >= result.droppedChunks);
+        assertTrue(result.needless <= Math.max(4, result.retransmits / 10),
+                "重传了过多已送达的分片: " + result.needless + "/" + result.retransmits);
+    }
+
+    @Test
+    void lossFreeLinkNeverRetransmits() throws InterruptedException {
+        Result result = transfer(0, 0);
+
+        assertTrue(result.stats.isComplete());
+        assertArrayEquals(result.sent, result.received);
+        assertEquals(0, result.retransmits);
+    }
+
+    private static Result transfer(double chunkLoss, double ackLoss) throws InterruptedException {
+        byte[] payload = new byte[PAYLOAD_SIZE];
+        new Random(1).nextBytes(payload);
+        Random chunkDrops = new Random(42);
+        Random ackDrops = new Random(43);
+        int totalChunks = PAYLOAD_SIZE / CHUNK_SIZE;
+
+        ChunkedSender sender = new ChunkedSender("ChunkedTransferLossTest.tx", CHUNK_SIZE);
+        sender.enableAcks(ChunkedSender.DEFAULT_WINDOW);
+        sender.setAckPeers(1);
+        ChunkedReceiver receiver = new ChunkedReceiver("ChunkedTransferLossTest.rx");
+        ScheduledExecutorService forward = Executors.newSingleThreadScheduledExecutor();
+        ScheduledExecutorService backward = Executors.newSingleThreadScheduledExecutor();
+        Result result = new Result(payload);
+        try {
+            receiver.setAckWriter(ack -> {
+                if (ack.transferId.equals("x") && result.received == null) {
+                    synchronized (ackDrops) {
+                        if (ackDrops.nextDouble() < ackLoss) {
+                            result.droppedAcks++;
+                            return;
+                        }
+                    }
+                }
+                MediaAck copy = new MediaAck();
+                copy.copy(ack);
+                copy.receiverId = "app";
+                backward.schedule(() -> sender.onAck(copy), LINK_DELAY_MICROS, TimeUnit.MICROSECONDS);
+            });
+
+            Blob blob = new Blob();
+            // 接收端回报过确认后发送端才启用窗口
+            sender.send("warm", new byte[2 * CHUNK_SIZE], blob, (chunkSeq, chunkSize) -> {
+                Blob copy = new Blob();
+                copy.copy(blob);
+                receiver.accept("warm", 2 * CHUNK_SIZE, chunkSeq, chunkSize, copy);
+                return true;
+            });
+            Thread.sleep(20);
+
+            // 分片写出次数，以及是否有一份没有被丢弃（之后再重传它就是多余的）；写出都在发送线程
+            int[] sends = new int[totalChunks];
+            boolean[] survived = new boolean[totalChunks];
+            CountDownLatch done = new CountDownLatch(1);
+            result.stats = sender.send("x", payload, blob, (chunkSeq, chunkSize) -> {
+                if (sends[chunkSeq]++ > 0) {
+                    result.retransmits++;
+                    if (survived[chunkSeq]) {
+                        result.needless++;
+                    }
+                }
+                if (chunkDrops.nextDouble() < chunkLoss) {
+                    result.droppedChunks++;
+                    return true;
+                }
+                survived[chunkSeq] = true;
+                Blob copy = new Blob();
+                copy.copy(blob);
+                forward.schedule(() -> {
+                    byte[] data = receiver.accept("x", PAYLOAD_SIZE, chunkSeq, chunkSize, copy);
+                    if (data != null) {
+                        result.received = data;
+                        done.countDown();
+                    }
+                }, LINK_DELAY_MICROS, TimeUnit.MICROSECONDS);
+                return true;
+            });
+            assertTrue(done.await(30, TimeUnit.SECONDS), "接收端未收齐数据");
+            return result;
+        } finally {
+            forward.shutdownNow();
+            backward.shutdownNow();
+        }
+    }
+
+    private static final class Result {
+        final byte[] sent;
+        volatile byte[] received;
+        TransferStats stats;
+        int droppedChunks;
+        int droppedAcks;
+        int retransmits;
+        int needless;
+
+        Result(byte[] sent) {
+            this.sent = sent;
+        }
+    }
+}